@@ -165,6 +165,34 @@ abstract class AbstractCommandLineRunner<A extends Compiler,
 
     options.setCodingConvention(config.codingConvention);
     options.setSummaryDetailLevel(config.summaryDetailLevel);
+    if (config.parseThreadCount < 1) {
+      throw new FlagUsageException(
+          "Bad --parse_threads value: " + config.parseThreadCount);
+    }
+    options.setParseThreadCount(config.parseThreadCount);
+    if (config.optimizationThreadCount < 1) {
+      throw new FlagUsageException("Bad --optimization_threads value: "
+          + config.optimizationThreadCount);
+    }
+    options.setOptimizationThreadCount(config.optimizationThreadCount);
+    if (config.printThreadCount < 1) {
+      throw new FlagUsageException(
+          "Bad --print_threads value: " + config.printThreadCount);
+    }
+    options.setPrintThreadCount(config.printThreadCount);
+    if (config.typeInferenceThreadCount < 1) {
+      throw new FlagUsageException("Bad --type_inference_threads value: "
+          + config.typeInferenceThreadCount);
+    }
+    options.setTypeInferenceThreadCount(config.typeInferenceThreadCount);
+
+    if (config.astCacheDir.length() > 0) {
+      options.setAstCacheDirectory(config.astCacheDir);
+    }
+
+    if (config.passMetricsOutputFile.length() > 0) {
+      options.setTrackPerformance(true);
+    }
 
     inputCharset = getInputCharset();
   }
@@ -502,19 +530,35 @@ abstract class AbstractCommandLineRunner<A extends Compiler,
       out = new PrintStream(options.jsOutputFile, inputCharset.name());
     }
 
+    ExternsSnapshot snapshot = getExternsSnapshot(externsList, options);
     List<String> jsFiles = config.js;
     List<String> moduleSpecs = config.module;
     if (!moduleSpecs.isEmpty()) {
       modules = createJsModules(moduleSpecs, jsFiles);
-      result = compiler.compile(externs, modules, options);
+      if (snapshot != null) {
+        result = compiler.compileModules(
+            snapshot, Lists.newArrayList(modules), options);
+      } else {
+        result = compiler.compile(externs, modules, options);
+      }
     } else {
       List<JSSourceFile> inputList = createSourceInputs(jsFiles);
-      JSSourceFile[] inputs = new JSSourceFile[inputList.size()];
-      inputList.toArray(inputs);
-      result = compiler.compile(externs, inputs, options);
+      if (snapshot != null) {
+        result = compiler.compile(snapshot, inputList, options);
+      } else {
+        JSSourceFile[] inputs = new JSSourceFile[inputList.size()];
+        inputList.toArray(inputs);
+        result = compiler.compile(externs, inputs, options);
+      }
     }
 
-    return processResults(result, modules, options);
+    int status = processResults(result, modules, options);
+    if (!options.jsOutputFile.isEmpty() && !config.computePhaseOrdering) {
+      // Do not hold on to the file in runners that compile many times. The
+      // phase ordering is still written to it after the last run, though.
+      out.close();
+    }
+    return status;
   }
 
   /**
@@ -628,6 +672,9 @@ abstract class AbstractCommandLineRunner<A extends Compiler,
       outputManifest();
     }
 
+    // Output the pass metrics if requested, even if the compile failed.
+    outputPassMetrics();
+
     // return 0 if no errors, the error count otherwise
     return Math.min(result.errors.length, 0x7f);
   }
@@ -655,6 +702,19 @@ abstract class AbstractCommandLineRunner<A extends Compiler,
     return createExternInputs(config.externs);
   }
 
+  /**
+   * Returns already parsed externs to compile against, or null to have the
+   * compiler parse the externs itself. A runner that compiles many times in
+   * the same process can override this to parse its externs only once.
+   *
+   * @param externs The externs of this compile, from {@link #createExterns}.
+   * @param options The options of this compile.
+   */
+  protected ExternsSnapshot getExternsSnapshot(
+      List<JSSourceFile> externs, B options) throws IOException {
+    return null;
+  }
+
   /**
    * Returns true if and only if a source map file should be generated for each
    * module, as opposed to one unified map. This is specified by having the
@@ -954,6 +1014,24 @@ abstract class AbstractCommandLineRunner<A extends Compiler,
     }
   }
 
+  /**
+   * Writes the statistics of each compiler pass, if requested.
+   */
+  private void outputPassMetrics() throws IOException {
+    String path = config.passMetricsOutputFile;
+    if (Strings.isEmpty(path) || compiler.tracker == null) {
+      return;
+    }
+
+    PrintStream metricsOut = toPrintStream(path);
+    if (path.endsWith(".csv")) {
+      compiler.tracker.outputPassStatsAsCsv(metricsOut);
+    } else {
+      compiler.tracker.outputPassStatsAsJson(metricsOut);
+    }
+    metricsOut.close();
+  }
+
   /**
    * Prints a list of input names, delimited by newlines, to the manifest file.
    */
@@ -1208,6 +1286,73 @@ abstract class AbstractCommandLineRunner<A extends Compiler,
       return this;
     }
 
+    private int parseThreadCount = 1;
+
+    /**
+     * The number of threads used to parse the inputs. Inputs are still
+     * assembled, and parse errors reported, in their original order.
+     */
+    CommandLineConfig setParseThreadCount(int parseThreadCount) {
+      this.parseThreadCount = parseThreadCount;
+      return this;
+    }
+
+    private int optimizationThreadCount = 1;
+
+    /**
+     * The number of threads used by the optimizations that look at one
+     * function at a time.
+     */
+    CommandLineConfig setOptimizationThreadCount(
+        int optimizationThreadCount) {
+      this.optimizationThreadCount = optimizationThreadCount;
+      return this;
+    }
+
+    private int printThreadCount = 1;
+
+    /**
+     * The number of threads used to print the inputs back to code.
+     */
+    CommandLineConfig setPrintThreadCount(int printThreadCount) {
+      this.printThreadCount = printThreadCount;
+      return this;
+    }
+
+    private int typeInferenceThreadCount = 1;
+
+    /**
+     * The number of threads used to infer the types of functions.
+     */
+    CommandLineConfig setTypeInferenceThreadCount(
+        int typeInferenceThreadCount) {
+      this.typeInferenceThreadCount = typeInferenceThreadCount;
+      return this;
+    }
+
+    private String astCacheDir = "";
+
+    /**
+     * A directory in which to cache the parse trees of the inputs between
+     * runs. Unchanged inputs are loaded from there instead of reparsed.
+     */
+    CommandLineConfig setAstCacheDir(String astCacheDir) {
+      this.astCacheDir = astCacheDir;
+      return this;
+    }
+
+    private String passMetricsOutputFile = "";
+
+    /**
+     * A file to which the statistics of each compiler pass are written.
+     * They are written as CSV if the file name ends in .csv, and as JSON
+     * otherwise.
+     */
+    CommandLineConfig setPassMetricsOutputFile(String passMetricsOutputFile) {
+      this.passMetricsOutputFile = passMetricsOutputFile;
+      return this;
+    }
+
     private String outputWrapper = "";
 
     /**
@@ -100,6 +100,39 @@ public abstract class AbstractCompiler implements SourceExcerptProvider {
    */
   public abstract void reportCodeChange();
 
+  /**
+   * Reports a change to the AST that was made inside the function or script
+   * that contains the given node (see
+   * {@link NodeUtil#getEnclosingChangeScopeRoot}). Change handlers are
+   * notified just like for {@link #reportCodeChange}, which is what this
+   * falls back to if the node is not in a function or script.
+   */
+  abstract void reportChangeToEnclosingScope(Node n);
+
+  /**
+   * Returns a stamp that grows with every reported change. Passes can keep
+   * it to ask for the scopes that have changed since.
+   */
+  abstract long getChangeStamp();
+
+  /**
+   * Gets the functions and scripts under the given root (inclusive) that
+   * have changed since the given change stamp, in pre-order. A function
+   * nested in a changed function or script is not returned; callers are
+   * expected to look at everything under each of the returned nodes.
+   *
+   * If any change was reported with {@link #reportCodeChange} since the
+   * stamp, we cannot tell where it was made, so every outermost function
+   * and script under the root is returned.
+   */
+  abstract List<Node> getChangedScopeRoots(Node root, long sinceStamp);
+
+  /**
+   * Whether the given function or script has changed since the given change
+   * stamp. Changes in the functions inside it do not count.
+   */
+  abstract boolean hasScopeChangedSince(Node scopeRoot, long sinceStamp);
+
   /**
    * Logs a message under a central logger.
    */
@@ -199,6 +232,11 @@ public abstract class AbstractCompiler implements SourceExcerptProvider {
    */
   abstract boolean isTypeCheckingEnabled();
 
+  /**
+   * Returns the on-disk cache of parsed ASTs, or null if there is none.
+   */
+  abstract AstCache getAstCache();
+
   /**
    * Normalizes the types of AST nodes in the given tree, and
    * annotates any nodes to which the coding convention applies so that passes
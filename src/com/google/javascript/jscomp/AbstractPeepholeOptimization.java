@@ -59,7 +59,7 @@ abstract class AbstractPeepholeOptimization {
    */
   protected void reportCodeChange() {
     Preconditions.checkNotNull(currentTraversal);
-    currentTraversal.getCompiler().reportCodeChange();
+    currentTraversal.reportCodeChange();
   }
   
   /**
@@ -16,13 +16,12 @@
 
 package com.google.javascript.jscomp;
 
-import com.google.common.collect.Sets;
 import com.google.javascript.jscomp.NameReferenceGraph.Name;
 import com.google.javascript.jscomp.NameReferenceGraph.Reference;
-import com.google.javascript.jscomp.graph.FixedPointGraphTraversal;
 import com.google.javascript.jscomp.graph.Annotation;
 import com.google.javascript.jscomp.graph.GraphNode;
-import com.google.javascript.jscomp.graph.FixedPointGraphTraversal.EdgeCallback;
+import com.google.javascript.jscomp.graph.IntFixedPointGraphTraversal;
+import com.google.javascript.jscomp.graph.IntFixedPointGraphTraversal.EdgeCallback;
 import com.google.javascript.rhino.Node;
 
 /**
@@ -57,20 +56,21 @@ class AnalyzeNameReferences implements CompilerPass {
         new NameReferenceGraphConstruction(compiler);
     gc.process(externs, root);
     graph = gc.getNameReferenceGraph();
-    FixedPointGraphTraversal<Name, Reference> t =
-        FixedPointGraphTraversal.newTraversal(new PropagateReferences());
     getInfo(graph.MAIN).markReference(null);
-    t.computeFixedPoint(graph, Sets.newHashSet(graph.MAIN));
+    new IntFixedPointGraphTraversal(new PropagateReferences())
+        .computeFixedPoint(
+            graph, graph.getIndex(graph.getDirectedGraphNode(graph.MAIN)));
   }
 
   public NameReferenceGraph getGraph() {
     return graph;
   }
   
-  private class PropagateReferences implements EdgeCallback<Name, Reference> {
-    public boolean traverseEdge(Name start, Reference edge, Name dest) {
-      NameInfo startInfo = getInfo(start);
-      NameInfo destInfo = getInfo(dest);
+  private class PropagateReferences implements EdgeCallback {
+    public boolean traverseEdge(int start, int edgeIndex, int dest) {
+      NameInfo startInfo = getInfo(graph.getNodeAt(start));
+      NameInfo destInfo = getInfo(graph.getNodeAt(dest));
+      Reference edge = graph.getEdgeValue(edgeIndex);
       if (startInfo.isReferenced()) {
         JSModule startModule = startInfo.getDeepestCommonModuleRef();
         if (startModule != null &&
@@ -85,7 +85,10 @@ class AnalyzeNameReferences implements CompilerPass {
   }
 
   private NameInfo getInfo(Name symbol) {
-    GraphNode<Name, Reference> name = graph.getNode(symbol);
+    return getInfo(graph.getNode(symbol));
+  }
+
+  private NameInfo getInfo(GraphNode<Name, Reference> name) {
     NameInfo info = name.getAnnotation();
     if (info == null) {
       info = new NameInfo();
@@ -0,0 +1,558 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+import com.google.javascript.jscomp.parsing.Config;
+import com.google.javascript.jscomp.parsing.IRFactory;
+import com.google.javascript.jscomp.parsing.JsDocInfoParser;
+import com.google.javascript.jscomp.parsing.ParserRunner;
+import com.google.javascript.rhino.JSDocInfo;
+import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.Token;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A directory of parsed ASTs that persists across compilations. Each entry
+ * holds the tree that {@link ParserRunner} produced for one source file,
+ * before {@link PrepareAst} ran on it, and is keyed by the file name, the
+ * file contents, the parser {@link Config} and the compiler build. Only
+ * files that parsed without any warnings or errors are stored, so a cache
+ * hit never needs to replay diagnostics.
+ *
+ * <p>Trees are stored in a compact binary format: node types, positions,
+ * strings and property values, including the fields of {@link JSDocInfo},
+ * are written directly (with a per-file string table). This keeps loading
+ * an entry much cheaper than parsing the file again. A tree with a property
+ * value the format does not know about is not stored.
+ *
+ * <p>This class is thread-safe, so it can be used while parsing inputs
+ * concurrently. Entries are written to a temporary file and renamed into
+ * place, so several compiler processes can share one directory.
+ *
+ * <p>A long-running process can also keep entries in memory, in a map made
+ * by {@link #newMemoryTier} that it shares between compilations. Entries
+ * there are looked up before the directory, and are copied with
+ * {@link Node#cloneTree} on the way in and out.
+ *
+*
+ */
+class AstCache {
+
+  private static final Logger logger =
+      Logger.getLogger(AstCache.class.getName());
+
+  private static final int MAGIC = 0x4a534153;  // "JSAS"
+
+  // Bump this when the format of the entries changes.
+  private static final int FORMAT_VERSION = 2;
+
+  // Bump this when the parser changes the trees it builds for some code.
+  private static final int PARSER_VERSION = 1;
+
+  // Classes whose code determines the shape of the cached trees.
+  private static final Class<?>[] PARSER_CLASSES = {
+    AstCache.class, ParserRunner.class, IRFactory.class,
+    JsDocInfoParser.class, Node.class, JSDocInfo.class, Token.class
+  };
+
+  private static final String COMPILER_FINGERPRINT = getCompilerFingerprint();
+
+  private static final Class<?> NUMBER_NODE_CLASS =
+      Node.newNumber(0).getClass();
+  private static final Class<?> STRING_NODE_CLASS =
+      Node.newString("").getClass();
+
+  // Property value tags.
+  private static final int INT_VALUE = 0;
+  private static final int STRING_VALUE = 1;
+  private static final int TRUE_VALUE = 2;
+  private static final int INT_ARRAY_VALUE = 3;
+  private static final int JSDOC_VALUE = 4;
+  private static final int STRING_SET_VALUE = 5;
+
+  // Node kinds.
+  private static final int PLAIN_NODE = 0;
+  private static final int NUMBER_NODE = 1;
+  private static final int STRING_NODE = 2;
+
+  private static final int FIRST_PROP = Node.LOCAL_BLOCK_PROP;
+
+  private final File directory;
+  private final Map<String, Node> memory;
+  private final Config config;
+  private final String configKey;
+
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+
+  /**
+   * @param directory The directory that holds the entries. It is created
+   *     if it does not exist.
+   * @param config The parser configuration of the current compilation.
+   */
+  AstCache(File directory, Config config) {
+    this(directory, config, null);
+  }
+
+  /**
+   * @param directory The directory that holds the entries, or null to only
+   *     keep them in memory. It is created if it does not exist.
+   * @param config The parser configuration of the current compilation.
+   * @param memory The entries kept in memory, or null to only keep them in
+   *     the directory. It must be safe to use from several threads.
+   */
+  AstCache(File directory, Config config, Map<String, Node> memory) {
+    Preconditions.checkArgument(directory != null || memory != null);
+    this.directory = directory;
+    this.memory = memory;
+    this.config = config;
+    this.configKey = config.getFingerprint() + "|" + COMPILER_FINGERPRINT;
+    if (directory != null && !directory.isDirectory() &&
+        !directory.mkdirs()) {
+      logger.warning("Unable to create AST cache directory " + directory);
+    }
+  }
+
+  /**
+   * Creates a map that keeps the most recently used entries in memory, for
+   * use by any number of caches.
+   */
+  static Map<String, Node> newMemoryTier(final int maxEntries) {
+    return Collections.synchronizedMap(
+        new LinkedHashMap<String, Node>(16, 0.75f, true) {
+          private static final long serialVersionUID = 1L;
+
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Node> e) {
+            return size() > maxEntries;
+          }
+        });
+  }
+
+  /**
+   * Returns the cache key for a source file. The same key must be passed
+   * to {@link #get} and {@link #put}.
+   */
+  String getKey(String sourceName, String code) {
+    MessageDigest digest = newDigest();
+    digest.update(configKey.getBytes(Charsets.UTF_8));
+    digest.update((byte) 0);
+    digest.update(sourceName.getBytes(Charsets.UTF_8));
+    digest.update((byte) 0);
+    digest.update(code.getBytes(Charsets.UTF_8));
+    return toHex(digest.digest());
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder();
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+      sb.append(Character.forDigit(b & 0xf, 16));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Loads the AST stored under the given key.
+   * @return A fresh tree, or null if there is no usable entry.
+   */
+  Node get(String key) {
+    if (memory != null) {
+      Node template = memory.get(key);
+      if (template != null) {
+        hits.incrementAndGet();
+        return template.cloneTree();
+      }
+    }
+
+    if (directory == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+    File file = getFile(key);
+    if (!file.isFile()) {
+      misses.incrementAndGet();
+      return null;
+    }
+
+    try {
+      DataInputStream in = new DataInputStream(
+          new BufferedInputStream(new FileInputStream(file)));
+      try {
+        Node root = new Reader(in, config).read();
+        hits.incrementAndGet();
+        if (memory != null) {
+          memory.put(key, root.cloneTree());
+        }
+        return root;
+      } finally {
+        in.close();
+      }
+    } catch (Exception e) {
+      // A corrupt or stale entry is just a cache miss.
+      logger.log(Level.FINE, "Unable to read AST cache entry " + file, e);
+      misses.incrementAndGet();
+      return null;
+    }
+  }
+
+  /**
+   * Stores the AST under the given key. Failures are logged and otherwise
+   * ignored, since the cache is only an optimization.
+   */
+  void put(String key, Node root) {
+    if (memory != null) {
+      memory.put(key, root.cloneTree());
+    }
+    if (directory == null) {
+      return;
+    }
+
+    File file = getFile(key);
+    File tmp = null;
+    try {
+      tmp = File.createTempFile(key, ".tmp", directory);
+      DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(new FileOutputStream(tmp)));
+      try {
+        new Writer(out).write(root);
+      } finally {
+        out.close();
+      }
+      if (!tmp.renameTo(file)) {
+        tmp.delete();
+      }
+    } catch (Exception e) {
+      logger.log(Level.FINE, "Unable to write AST cache entry " + file, e);
+      if (tmp != null) {
+        tmp.delete();
+      }
+    }
+  }
+
+  /** Returns the number of successful lookups. */
+  int getHitCount() {
+    return hits.get();
+  }
+
+  /** Returns the number of lookups that had to fall back to parsing. */
+  int getMissCount() {
+    return misses.get();
+  }
+
+  private File getFile(String key) {
+    return new File(directory, key + ".ast");
+  }
+
+  /**
+   * Identifies the build of the parser, so that entries written by another
+   * version of the compiler are never loaded. It is made of the format and
+   * parser versions, and of a hash of the bytecode of the parser classes,
+   * which catches changes that did not bump the versions.
+   */
+  private static String getCompilerFingerprint() {
+    MessageDigest digest = newDigest();
+    for (Class<?> clazz : PARSER_CLASSES) {
+      String resource =
+          clazz.getName().substring(clazz.getName().lastIndexOf('.') + 1)
+          + ".class";
+      InputStream in = clazz.getResourceAsStream(resource);
+      if (in == null) {
+        continue;
+      }
+      try {
+        try {
+          digest.update(ByteStreams.toByteArray(in));
+        } finally {
+          in.close();
+        }
+      } catch (IOException e) {
+        // Only the versions identify this class.
+      }
+    }
+    return FORMAT_VERSION + ":" + PARSER_VERSION + ":" +
+        toHex(digest.digest());
+  }
+
+  /** Writes one tree. */
+  private static class Writer implements JSDocInfo.Output {
+    private final DataOutputStream out;
+    private final Map<String, Integer> strings = Maps.newHashMap();
+
+    Writer(DataOutputStream out) {
+      this.out = out;
+    }
+
+    void write(Node root) throws IOException {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      writeNode(root);
+    }
+
+    @Override
+    public void writeNode(Node n) throws IOException {
+      out.writeShort(n.getType());
+      Class<?> clazz = n.getClass();
+      if (clazz == NUMBER_NODE_CLASS) {
+        out.writeByte(NUMBER_NODE);
+        out.writeDouble(n.getDouble());
+      } else if (clazz == STRING_NODE_CLASS) {
+        out.writeByte(STRING_NODE);
+        writeString(n.getString());
+      } else if (clazz == Node.class) {
+        out.writeByte(PLAIN_NODE);
+      } else {
+        throw new IOException("Unsupported node class " + clazz);
+      }
+      writeVarint(n.getLineno() + 1);
+      writeVarint(n.getCharno() + 1);
+
+      // Rhino's Node has no way to enumerate its properties, so probe
+      // every known property type. A real parse tree has very few.
+      int propCount = 0;
+      for (int type = FIRST_PROP; type <= Node.LAST_PROP; type++) {
+        if (n.getProp(type) != null || n.getIntProp(type) != 0) {
+          propCount++;
+        }
+      }
+      writeVarint(propCount);
+      for (int type = FIRST_PROP; type <= Node.LAST_PROP; type++) {
+        Object value = n.getProp(type);
+        if (value != null) {
+          out.writeByte(type);
+          writeObjectValue(value);
+        } else {
+          int intValue = n.getIntProp(type);
+          if (intValue != 0) {
+            out.writeByte(type);
+            out.writeByte(INT_VALUE);
+            out.writeInt(intValue);
+          }
+        }
+      }
+
+      writeVarint(n.getChildCount());
+      for (Node c = n.getFirstChild(); c != null; c = c.getNext()) {
+        writeNode(c);
+      }
+    }
+
+    private void writeObjectValue(Object value) throws IOException {
+      if (value instanceof String) {
+        out.writeByte(STRING_VALUE);
+        writeString((String) value);
+      } else if (value == Boolean.TRUE) {
+        out.writeByte(TRUE_VALUE);
+      } else if (value instanceof int[]) {
+        int[] array = (int[]) value;
+        out.writeByte(INT_ARRAY_VALUE);
+        writeVarint(array.length);
+        for (int i : array) {
+          out.writeInt(i);
+        }
+      } else if (value instanceof JSDocInfo) {
+        out.writeByte(JSDOC_VALUE);
+        ((JSDocInfo) value).writeTo(this);
+      } else if (value instanceof Set) {
+        out.writeByte(STRING_SET_VALUE);
+        Set<?> set = (Set<?>) value;
+        writeVarint(set.size());
+        for (Object element : set) {
+          writeString((String) element);
+        }
+      } else {
+        throw new IOException("Unsupported property value " + value);
+      }
+    }
+
+    @Override
+    public void writeInt(int value) throws IOException {
+      out.writeInt(value);
+    }
+
+    @Override
+    public void writeString(String s) throws IOException {
+      Integer index = strings.get(s);
+      if (index != null) {
+        writeVarint(index);
+      } else {
+        writeVarint(strings.size());
+        strings.put(s, strings.size());
+        byte[] bytes = s.getBytes(Charsets.UTF_8);
+        writeVarint(bytes.length);
+        out.write(bytes);
+      }
+    }
+
+    private void writeVarint(int value) throws IOException {
+      while ((value & ~0x7f) != 0) {
+        out.writeByte((value & 0x7f) | 0x80);
+        value >>>= 7;
+      }
+      out.writeByte(value);
+    }
+  }
+
+  /** Reads one tree written by {@link Writer}. */
+  private static class Reader implements JSDocInfo.Input {
+    private final DataInputStream in;
+    private final Config config;
+    private final List<String> strings = Lists.newArrayList();
+
+    Reader(DataInputStream in, Config config) {
+      this.in = in;
+      this.config = config;
+    }
+
+    Node read() throws IOException {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+        throw new IOException("Not an AST cache entry");
+      }
+      return readNode();
+    }
+
+    @Override
+    public Node readNode() throws IOException {
+      int type = in.readShort();
+      int kind = in.readByte();
+      Node n;
+      switch (kind) {
+        case NUMBER_NODE:
+          n = Node.newNumber(in.readDouble());
+          break;
+        case STRING_NODE:
+          n = Node.newString(type, readString());
+          break;
+        case PLAIN_NODE:
+          n = new Node(type);
+          break;
+        default:
+          throw new IOException("Bad node kind " + kind);
+      }
+      int lineno = readVarint() - 1;
+      int charno = readVarint() - 1;
+      if (lineno >= 0) {
+        n.setLineno(lineno);
+        n.setCharno(charno);
+      }
+
+      int propCount = readVarint();
+      for (int i = 0; i < propCount; i++) {
+        int propType = in.readByte();
+        int tag = in.readByte();
+        switch (tag) {
+          case INT_VALUE:
+            n.putIntProp(propType, in.readInt());
+            break;
+          case STRING_VALUE:
+            n.putProp(propType, readString());
+            break;
+          case TRUE_VALUE:
+            n.putProp(propType, Boolean.TRUE);
+            break;
+          case INT_ARRAY_VALUE:
+            int[] array = new int[readVarint()];
+            for (int j = 0; j < array.length; j++) {
+              array[j] = in.readInt();
+            }
+            n.putProp(propType, array);
+            break;
+          case JSDOC_VALUE:
+            n.putProp(propType, JSDocInfo.readFrom(this));
+            break;
+          case STRING_SET_VALUE:
+            Set<String> set = Sets.newHashSet();
+            for (int j = readVarint(); j > 0; j--) {
+              set.add(readString());
+            }
+            n.putProp(propType, set);
+            break;
+          default:
+            throw new IOException("Bad property tag " + tag);
+        }
+      }
+
+      int childCount = readVarint();
+      for (int i = 0; i < childCount; i++) {
+        n.addChildToBack(readNode());
+      }
+      return n;
+    }
+
+    @Override
+    public int readInt() throws IOException {
+      return in.readInt();
+    }
+
+    @Override
+    public String readString() throws IOException {
+      int index = readVarint();
+      if (index < strings.size()) {
+        return strings.get(index);
+      }
+      byte[] bytes = new byte[readVarint()];
+      in.readFully(bytes);
+      String s = config.intern(new String(bytes, Charsets.UTF_8));
+      strings.add(s);
+      return s;
+    }
+
+    private int readVarint() throws IOException {
+      int value = 0;
+      for (int shift = 0; ; shift += 7) {
+        int b = in.readByte();
+        value |= (b & 0x7f) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+    }
+  }
+}
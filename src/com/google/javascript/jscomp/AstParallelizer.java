@@ -97,12 +97,16 @@ class AstParallelizer {
       }
     };
 
-    // Use a function declaration of the same name.
+    // Use an empty function declaration. Each one gets a name of its own,
+    // so that passes running on the root never mistake two place holders
+    // for the same code.
     Supplier<Node> placeHolders = new Supplier<Node>() {
+      private int count = 0;
+
       @Override
       public Node get() {
         return new Node(Token.FUNCTION,
-            Node.newString(Token.NAME, TEMP_NAME),
+            Node.newString(Token.NAME, TEMP_NAME + count++),
             new Node(Token.LP), new Node(Token.BLOCK));
       }
     };
@@ -150,7 +154,10 @@ class AstParallelizer {
   /**
    * Splits the AST into subtree at different levels. The subtrees itself are
    * usually not valid javascript but they are all subtreess of some valid
-   * javascript.
+   * javascript. A function in the forest is the only child of a stand-in
+   * for its original parent: a SCRIPT if it is a function declaration, or
+   * a LP if it is a function expression. Traversing the stand-in visits the
+   * function as if it was at the top level.
    */
   public List<Node> split() {
     if (includeRoot) {
@@ -166,6 +173,10 @@ class AstParallelizer {
     while (c != null) {
       Node next = c.getNext();
       if (shouldSplit.apply(c)) {
+        // Keep functions under a stand-in for their parent, so that passes
+        // can still tell function declarations from function expressions.
+        Node standIn = !NodeUtil.isFunction(c) ? null :
+            new Node(NodeUtil.isStatement(c) ? Token.SCRIPT : Token.LP);
         Node placeHolder = placeHolderProvider.get();
         if (before == null) {
           forest.add(n.removeFirstChild());
@@ -175,6 +186,9 @@ class AstParallelizer {
           n.removeChildAfter(before);
           forest.add(c);
         }
+        if (standIn != null) {
+          standIn.addChildToFront(c);
+        }
         recordSplitPoint(placeHolder, before, c);
         before = placeHolder;
       } else {
@@ -224,13 +238,20 @@ class AstParallelizer {
     public void reattach() {
       // If the place-holder no longer has a parent, this implies the function
       // has been removed from the AST.
-      if (placeHolder.getParent() != null) {
-        if (before == null) {
-          placeHolder.getParent().addChildrenToFront(original);
-          placeHolder.getParent().removeChildAfter(original);
+      Node parent = placeHolder.getParent();
+      if (parent != null) {
+        if (original.getParent() != null) {
+          original.detachFromParent();
+        }
+        if (before == null && parent.getFirstChild() == placeHolder) {
+          parent.addChildrenToFront(original);
+          parent.removeChildAfter(original);
+        } else if (before != null && before.getNext() == placeHolder) {
+          parent.addChildAfter(original, before);
+          parent.removeChildAfter(original);
         } else {
-          placeHolder.getParent().addChildAfter(original, before);
-          placeHolder.getParent().removeChildAfter(original);
+          // A pass has moved the place holder, or the nodes around it.
+          parent.replaceChild(placeHolder, original);
         }
       }
     }
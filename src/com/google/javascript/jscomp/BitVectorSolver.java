@@ -0,0 +1,326 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.base.Preconditions;
+import com.google.javascript.jscomp.DataFlowAnalysis.MaxIterationsExceededException;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Finds the fixed point of a gen/kill data flow problem over bit vectors.
+ * The lattice element at each point is a set of bits, the join is union
+ * (for "may" problems) or intersection (for "must" problems), and the flow
+ * function of each node is {@code out = (in - kill) | gen}, for a gen and a
+ * kill set that do not depend on {@code in}.
+ * <p>
+ * Sets are rows of {@code long} words, and all the rows are in one array,
+ * indexed by the node indices of the control flow graph. Only the result of
+ * each flow function is kept; the joined side of a node is computed again
+ * when it is asked for. Gen and kill sets, which are usually small, are
+ * arrays of bit indices. Joins and flow functions update a scratch row in
+ * place, so a step allocates nothing. Nodes are visited in reverse
+ * postorder (postorder for backward problems), and a node is only visited
+ * again if one of the nodes it depends on changed.
+ * <p>
+ * For forward problems, the input of the entry node is the boundary set.
+ * For backward problems, the boundary set is the input of the implicit
+ * return, which is never visited.
+ *
+ */
+final class BitVectorSolver {
+
+  private static final int[] NO_BITS = new int[0];
+
+  private final ControlFlowGraph<?> cfg;
+  private final boolean forward;
+  private final boolean union;
+  private final int nodeCount;
+  private final int words;
+  private final int entry;
+  private final int implicitReturn;
+
+  // The row of the set that is the identity of the join.
+  private final long[] identity;
+
+  private final long[] boundary;
+  private final int[][] gen;
+  private final int[][] kill;
+
+  // The result of the flow function of each node: the output for forward
+  // problems, and the input for backward problems.
+  private final long[] results;
+
+  /**
+   * @param cfg The control flow graph.
+   * @param forward Whether the problem is a forward problem.
+   * @param union Whether the join is union, rather than intersection.
+   * @param bitCount The number of bits in a set.
+   * @param boundary The entry (or, for backward problems, exit) set.
+   * @param gen The gen set of each node, by node index, or null for none.
+   * @param kill The kill set of each node, by node index, or null for none.
+   */
+  <N> BitVectorSolver(ControlFlowGraph<N> cfg, boolean forward, boolean union,
+      int bitCount, BitSet boundary, BitSet[] gen, BitSet[] kill) {
+    Preconditions.checkArgument(gen.length == cfg.getNodeCount());
+    Preconditions.checkArgument(kill.length == cfg.getNodeCount());
+    this.cfg = cfg;
+    this.forward = forward;
+    this.union = union;
+    this.nodeCount = cfg.getNodeCount();
+    this.words = (bitCount + 63) >>> 6;
+    this.entry = cfg.getIndex(cfg.getEntry());
+    this.implicitReturn = cfg.getIndex(cfg.getImplicitReturn());
+
+    identity = new long[words];
+    if (!union && words > 0) {
+      Arrays.fill(identity, -1L);
+      int lastBits = bitCount & 63;
+      if (lastBits != 0) {
+        identity[words - 1] = (1L << lastBits) - 1;
+      }
+    }
+
+    this.boundary = toWords(boundary);
+    this.gen = new int[nodeCount][];
+    this.kill = new int[nodeCount][];
+    for (int i = 0; i < nodeCount; i++) {
+      this.gen[i] = toIndices(gen[i], bitCount);
+      this.kill[i] = toIndices(kill[i], bitCount);
+    }
+
+    results = new long[nodeCount * words];
+    for (int i = 0; i < nodeCount; i++) {
+      System.arraycopy(identity, 0, results, i * words, words);
+    }
+    if (!forward) {
+      System.arraycopy(this.boundary, 0, results, implicitReturn * words,
+          words);
+    }
+  }
+
+  /**
+   * Finds the fixed point. Since the flow functions of gen/kill problems
+   * are monotone, this always terminates; each node is visited once, and
+   * then again at most once per bit that changes in the nodes it depends on.
+   *
+   * @param maxSteps The number of visits, after the first visit of each
+   *     node, after which the solver gives up and throws a
+   *     {@link MaxIterationsExceededException}.
+   */
+  void solve(int maxSteps) {
+    int[] order = computeOrder();
+    int[] positions = new int[nodeCount];
+    for (int i = 0; i < order.length; i++) {
+      positions[order[i]] = i;
+    }
+
+    BitSet pending = new BitSet(order.length);
+    pending.set(0, order.length);
+    pending.clear(positions[implicitReturn]);
+
+    long[] scratch = new long[words];
+    int step = -pending.cardinality();
+    int position = pending.nextSetBit(0);
+    while (position != -1) {
+      if (step > maxSteps) {
+        throw new MaxIterationsExceededException(
+          "Analysis did not terminate after " + maxSteps + " iterations");
+      }
+      step++;
+      pending.clear(position);
+
+      int node = order[position];
+      if (flow(node, scratch)) {
+        int degree = forward ?
+            cfg.getOutDegree(node) : cfg.getInDegree(node);
+        for (int i = 0; i < degree; i++) {
+          int next = forward ?
+              cfg.getSuccessor(node, i) : cfg.getPredecessor(node, i);
+          if (next != implicitReturn) {
+            pending.set(positions[next]);
+          }
+        }
+      }
+
+      // Sweep on in order, and start over once the end is reached.
+      position = pending.nextSetBit(position + 1);
+      if (position == -1) {
+        position = pending.nextSetBit(0);
+      }
+    }
+  }
+
+  /**
+   * Recomputes the result of a node.
+   *
+   * @return Whether it changed.
+   */
+  private boolean flow(int node, long[] scratch) {
+    join(node, scratch);
+    for (int bit : kill[node]) {
+      scratch[bit >>> 6] &= ~(1L << bit);
+    }
+    for (int bit : gen[node]) {
+      scratch[bit >>> 6] |= 1L << bit;
+    }
+    int offset = node * words;
+    boolean changed = false;
+    for (int w = 0; w < words; w++) {
+      if (results[offset + w] != scratch[w]) {
+        results[offset + w] = scratch[w];
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  /** Joins the results of the nodes that a node depends on into a row. */
+  private void join(int node, long[] row) {
+    if (forward && node == entry) {
+      System.arraycopy(boundary, 0, row, 0, words);
+      return;
+    }
+
+    System.arraycopy(identity, 0, row, 0, words);
+    int degree = forward ? cfg.getInDegree(node) : cfg.getOutDegree(node);
+    for (int i = 0; i < degree; i++) {
+      int other = forward ?
+          cfg.getPredecessor(node, i) : cfg.getSuccessor(node, i);
+      int offset = other * words;
+      if (union) {
+        for (int w = 0; w < words; w++) {
+          row[w] |= results[offset + w];
+        }
+      } else {
+        for (int w = 0; w < words; w++) {
+          row[w] &= results[offset + w];
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the nodes in reverse postorder of a depth-first search from the
+   * entry and then from the nodes it did not reach, or in postorder for
+   * backward problems.
+   */
+  private int[] computeOrder() {
+    int[] postorder = new int[nodeCount];
+    int count = 0;
+    boolean[] visited = new boolean[nodeCount];
+    int[] stack = new int[nodeCount];
+    int[] nextChild = new int[nodeCount];
+
+    // Start from the entry, then from every node not yet reached, so that
+    // all nodes are ordered.
+    for (int root = -1; root < nodeCount; root++) {
+      int start = root == -1 ? entry : root;
+      if (visited[start]) {
+        continue;
+      }
+      int depth = 0;
+      stack[depth++] = start;
+      visited[start] = true;
+      while (depth > 0) {
+        int node = stack[depth - 1];
+        if (nextChild[node] < cfg.getOutDegree(node)) {
+          int child = cfg.getSuccessor(node, nextChild[node]++);
+          if (!visited[child]) {
+            visited[child] = true;
+            stack[depth++] = child;
+          }
+        } else {
+          depth--;
+          postorder[count++] = node;
+        }
+      }
+    }
+
+    // Reverse postorder of the whole forest still puts the source of every
+    // edge that is not a back edge before its destination.
+    int[] order = new int[nodeCount];
+    for (int i = 0; i < nodeCount; i++) {
+      order[i] = forward ? postorder[nodeCount - 1 - i] : postorder[i];
+    }
+    return order;
+  }
+
+  /** Returns a copy of the row of the input set of a node. */
+  long[] getIn(int node) {
+    return forward ? getJoin(node) : getResult(node);
+  }
+
+  /** Returns a copy of the row of the output set of a node. */
+  long[] getOut(int node) {
+    return forward ? getResult(node) : getJoin(node);
+  }
+
+  private long[] getResult(int node) {
+    long[] row = new long[words];
+    System.arraycopy(results, node * words, row, 0, words);
+    return row;
+  }
+
+  private long[] getJoin(int node) {
+    long[] row = new long[words];
+    join(node, row);
+    return row;
+  }
+
+  /**
+   * Returns the index of the first bit of a row that is set at or after an
+   * index, or -1 if there is none, like {@link BitSet#nextSetBit}.
+   */
+  static int nextSetBit(long[] row, int from) {
+    int w = from >>> 6;
+    if (w >= row.length) {
+      return -1;
+    }
+    long word = row[w] & (-1L << from);
+    while (word == 0) {
+      if (++w == row.length) {
+        return -1;
+      }
+      word = row[w];
+    }
+    return (w << 6) + Long.numberOfTrailingZeros(word);
+  }
+
+  private static int[] toIndices(BitSet bits, int bitCount) {
+    if (bits == null) {
+      return NO_BITS;
+    }
+    Preconditions.checkArgument(bits.length() <= bitCount);
+    int[] indices = new int[bits.cardinality()];
+    int n = 0;
+    for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+      indices[n++] = i;
+    }
+    return indices;
+  }
+
+  private long[] toWords(BitSet bits) {
+    Preconditions.checkArgument(bits.length() <= words * 64);
+    long[] row = new long[words];
+    for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+      row[i >>> 6] |= 1L << i;
+    }
+    return row;
+  }
+}
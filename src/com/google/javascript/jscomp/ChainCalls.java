@@ -46,10 +46,23 @@ class ChainCalls implements CompilerPass {
     this.compiler = compiler;
   }
 
+  /**
+   * Injects a definition finder that is shared with other passes. It is
+   * brought up to date before it is used. Returns this for easy chaining.
+   */
+  ChainCalls injectDefinitionFinder(SimpleDefinitionFinder defFinder) {
+    this.defFinder = defFinder;
+    return this;
+  }
+
   @Override
   public void process(Node externs, Node root) {
-    defFinder = new SimpleDefinitionFinder(compiler);
-    defFinder.process(externs, root);
+    if (defFinder == null) {
+      defFinder = new SimpleDefinitionFinder(compiler);
+      defFinder.process(externs, root);
+    } else {
+      defFinder.update();
+    }
 
     NodeTraversal.traverse(compiler, root, new GatherCallSites());
 
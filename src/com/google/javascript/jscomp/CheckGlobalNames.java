@@ -64,8 +64,6 @@ class CheckGlobalNames implements CompilerPass {
   }
 
   public void process(Node externs, Node root) {
-    // TODO(nicksantos): Let CollapseProperties and CheckGlobalNames
-    // share a namespace.
     if (namespace == null) {
       namespace = new GlobalNamespace(compiler, root);
     }
@@ -19,6 +19,7 @@ package com.google.javascript.jscomp;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.javascript.jscomp.ControlFlowGraph.AbstractCfgNodeTraversalCallback;
 import com.google.javascript.jscomp.ControlFlowGraph.Branch;
@@ -27,19 +28,17 @@ import com.google.javascript.jscomp.LiveVariablesAnalysis.LiveVariableLattice;
 import com.google.javascript.jscomp.NodeTraversal.AbstractPostOrderCallback;
 import com.google.javascript.jscomp.NodeTraversal.ScopedCallback;
 import com.google.javascript.jscomp.Scope.Var;
+import com.google.javascript.jscomp.graph.BitSetUndirectedGraph;
 import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
-import com.google.javascript.jscomp.graph.GraphColoring;
-import com.google.javascript.jscomp.graph.GraphColoring.GreedyGraphColoring;
-import com.google.javascript.jscomp.graph.GraphNode;
-import com.google.javascript.jscomp.graph.LinkedUndirectedGraph;
-import com.google.javascript.jscomp.graph.UndiGraph;
+import com.google.javascript.jscomp.graph.IntGraphColoring;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
 
-import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -54,8 +53,8 @@ import java.util.Set;
  * <p>The pass operates similar to a typical register allocator found in an
  * optimizing compiler by first computing live ranges with
  * {@link LiveVariablesAnalysis} and a variable interference graph. Then it uses
- * graph coloring in {@link GraphColoring} to determine which two variables can
- * be merge together safely.
+ * graph coloring in {@link IntGraphColoring} to determine which two variables
+ * can be merge together safely.
  *
 *
  */
@@ -63,44 +62,65 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
     CompilerPass, ScopedCallback {
 
   private final AbstractCompiler compiler;
-  private final Deque<GraphColoring<Var, Void>> colorings;
+  private final Deque<VariableColoring> colorings;
   private final boolean usePseudoNames;
-
-  private static final Comparator<Var> coloringTieBreaker =
-      new Comparator<Var>() {
-    public int compare(Var v1, Var v2) {
-      return v1.index - v2.index;
-    }
-  };
+  private final PrecomputedScopeAnalyses<VariableColoring> analyses;
 
   /**
    * @param usePseudoNames For debug purposes, when merging variable foo and bar
    * to foo, rename both variable to foo_bar.
    */
   CoalesceVariableNames(AbstractCompiler compiler, boolean usePseudoNames) {
+    this(compiler, usePseudoNames, 1);
+  }
+
+  /**
+   * @param usePseudoNames For debug purposes, when merging variable foo and bar
+   * to foo, rename both variable to foo_bar.
+   * @param numThreads The number of threads to color the functions on.
+   */
+  CoalesceVariableNames(AbstractCompiler compiler, boolean usePseudoNames,
+      int numThreads) {
     Preconditions.checkState(!compiler.isNormalized());
 
     this.compiler = compiler;
     colorings = Lists.newLinkedList();
     this.usePseudoNames = usePseudoNames;
+    this.analyses = new PrecomputedScopeAnalyses<VariableColoring>(
+        compiler, numThreads) {
+      @Override
+      boolean shouldAnalyze(NodeTraversal t) {
+        // TODO(user): We CAN do this in the global scope, just need to be
+        // careful when something is exported. Liveness uses bit-vector for
+        // live sets so I don't see compilation time will be a problem for
+        // running this pass in the global scope.
+        return !t.inGlobalScope();
+      }
+
+      @Override
+      VariableColoring analyze(Scope scope) {
+        return computeColoring(scope);
+      }
+    };
   }
 
   @Override
   public void process(Node externs, Node root) {
-    NodeTraversal.traverse(compiler, root, this);
+    analyses.traverse(root, this);
   }
 
   @Override
   public void enterScope(NodeTraversal t) {
-    // TODO(user): We CAN do this in the global scope, just need to be
-    // careful when something is exported. Liveness uses bit-vector for live
-    // sets so I don't see compilation time will be a problem for running this
-    // pass in the global scope.
     if (t.inGlobalScope()) {
       return;
     }
-    Scope scope = t.getScope();
-    ControlFlowGraph<Node> cfg = t.getControlFlowGraph();
+    colorings.push(analyses.get(t));
+  }
+
+  private VariableColoring computeColoring(Scope scope) {
+    ControlFlowAnalysis cfa = new ControlFlowAnalysis(compiler, false);
+    cfa.process(null, scope.getRootNode());
+    ControlFlowGraph<Node> cfg = cfa.getCfg();
 
     LiveVariablesAnalysis liveness =
         new LiveVariablesAnalysis(cfg, scope, compiler);
@@ -113,16 +133,33 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
     }
     liveness.analyze();
 
-    UndiGraph<Var, Void> interferenceGraph =
-        computeVariableNamesInterferenceGraph(
-            t, cfg, liveness.getEscapedLocals());
+    // The nodes of the interference graph are the variables that can be
+    // coalesced, numbered in the order they are declared.
+    List<Var> vars = Lists.newArrayList();
+    for (Iterator<Var> i = scope.getVars(); i.hasNext();) {
+      Var v = i.next();
+      if (!liveness.getEscapedLocals().contains(v)) {
 
-    GraphColoring<Var, Void> coloring =
-        new GreedyGraphColoring<Var, Void>(interferenceGraph,
-            coloringTieBreaker);
+        // TODO(user): In theory, we CAN coalesce function names just like
+        // any variables. Our Liveness analysis captures this just like it as
+        // described in the specification. However, we saw some zipped and
+        // and unzipped size increase after this. We are not totally sure why
+        // that is but, for now, we will respect the dead functions and not play
+        // around with it.
+        if (!NodeUtil.isFunction(v.getParentNode())) {
+          vars.add(v);
+        }
+      }
+    }
+
+    BitSetUndirectedGraph interferenceGraph =
+        computeVariableNamesInterferenceGraph(cfg, vars);
 
+    // Nodes of the same degree are colored in index order, which is the
+    // order the variables are declared in.
+    IntGraphColoring coloring = new IntGraphColoring(interferenceGraph);
     coloring.color();
-    colorings.push(coloring);
+    return new VariableColoring(vars, coloring);
   }
 
   @Override
@@ -141,15 +178,14 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
       return;
     }
     Var var = t.getScope().getVar(n.getString());
-    GraphNode<Var, ?> vNode = colorings.peek().getGraph().getNode(var);
-    if (vNode == null) {
+    if (!colorings.peek().hasVar(var)) {
       // This is not a local.
       return;
     }
     Var coalescedVar = colorings.peek().getPartitionSuperNode(var);
 
     if (!usePseudoNames) {
-      if (vNode.getValue().equals(coalescedVar)) {
+      if (var.equals(coalescedVar)) {
         // The coalesced name is itself, nothing to do.
         return;
       }
@@ -172,7 +208,7 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
 
         // Look for all the variables that can be merged (in the graph by now)
         // and it is merged with the current coalscedVar.
-        if (colorings.peek().getGraph().getNode(iVar) != null &&
+        if (colorings.peek().hasVar(iVar) &&
             coalescedVar.equals(colorings.peek().getPartitionSuperNode(iVar))) {
           allMergedNames.add(iVar.name);
         }
@@ -192,74 +228,76 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
       n.setString(pseudoName);
       compiler.reportCodeChange();
 
-      if (!vNode.getValue().equals(coalescedVar) && NodeUtil.isVar(parent)) {
+      if (!var.equals(coalescedVar) && NodeUtil.isVar(parent)) {
         removeVarDeclaration(n);
       }
     }
   }
 
-  private UndiGraph<Var, Void> computeVariableNamesInterferenceGraph(
-      NodeTraversal t, ControlFlowGraph<Node> cfg, Set<Var> escaped) {
-    UndiGraph<Var, Void> interferenceGraph =
-        new LinkedUndirectedGraph<Var, Void>();
-    Scope scope = t.getScope();
-
-    // First create a node for each non-escaped variable.
-    for (Iterator<Var> i = scope.getVars(); i.hasNext();) {
-      Var v = i.next();
-      if (!escaped.contains(v)) {
-
-        // TODO(user): In theory, we CAN coalesce function names just like
-        // any variables. Our Liveness analysis captures this just like it as
-        // described in the specification. However, we saw some zipped and
-        // and unzipped size increase after this. We are not totally sure why
-        // that is but, for now, we will respect the dead functions and not play
-        // around with it.
-        if (!NodeUtil.isFunction(v.getParentNode())) {
-          interferenceGraph.createNode(v);
+  /**
+   * Computes which of the given variables are live at the same time.
+   *
+   * @param vars The variables, whose indices are the nodes of the graph.
+   */
+  private BitSetUndirectedGraph computeVariableNamesInterferenceGraph(
+      ControlFlowGraph<Node> cfg, List<Var> vars) {
+    int varCount = vars.size();
+    BitSetUndirectedGraph interferenceGraph =
+        new BitSetUndirectedGraph(varCount);
+
+    // Parameters are all live at the entry of the function.
+    boolean[] isParam = new boolean[varCount];
+    for (int i = 0; i < varCount; i++) {
+      isParam[i] = vars.get(i).getParentNode().getType() == Token.LP;
+      for (int j = 0; j < i; j++) {
+        if (isParam[i] && isParam[j]) {
+          interferenceGraph.connect(i, j);
         }
       }
     }
 
+    Map<String, Integer> indicesByName = Maps.newHashMap();
+    for (int i = 0; i < varCount; i++) {
+      indicesByName.put(vars.get(i).getName(), i);
+    }
+
     // Go through every single point of the program and look at each variable
     // pairs. If they are both live at the same time, at an edge between them.
+    boolean[] inLive = new boolean[varCount];
+    boolean[] outLive = new boolean[varCount];
+    boolean[] assigned = new boolean[varCount];
     for (DiGraphNode<Node, Branch> cfgNode : cfg.getDirectedGraphNodes()) {
-      FlowState<LiveVariableLattice> state = cfgNode.getAnnotation();
       if (cfg.isImplicitReturn(cfgNode)) {
         continue;
       }
-
-      int varsInScope = scope.getVarCount();
-      ArrayList<CombinedLiveRangeChecker> rangesToCheck =
-          new ArrayList<CombinedLiveRangeChecker>(
-              varsInScope * varsInScope);
-
-      for (Iterator<Var> i1 = scope.getVars(); i1.hasNext();) {
-        Var v1 = i1.next();
-        for (Iterator<Var> i2 = scope.getVars(); i2.hasNext();) {
-          Var v2 = i2.next();
-
-          if (v1 == v2 || !interferenceGraph.hasNode(v1) ||
-              !interferenceGraph.hasNode(v2)) {
-            // Skip nodes that were not added. They are globals and escaped
-            // locals. Also avoid merging a variable with itself.
+      FlowState<LiveVariableLattice> state = cfgNode.getAnnotation();
+      for (int i = 0; i < varCount; i++) {
+        inLive[i] = state.getIn().isLive(vars.get(i));
+        outLive[i] = state.getOut().isLive(vars.get(i));
+      }
+      Arrays.fill(assigned, false);
+      NodeTraversal.traverse(compiler, cfgNode.getValue(),
+          new AssignedVariableCollector(indicesByName, assigned));
+
+      List<CombinedLiveRangeChecker> rangesToCheck = Lists.newArrayList();
+      for (int i1 = 0; i1 < varCount; i1++) {
+        for (int i2 = 0; i2 < varCount; i2++) {
+          if (i1 == i2 || interferenceGraph.isConnected(i1, i2)) {
+            // Avoid merging a variable with itself. Nothing more is learned
+            // about variables that already interfere.
             continue;
           }
 
-          boolean v1OutLive = state.getOut().isLive(v1);
-          boolean v2OutLive = state.getOut().isLive(v2);
           // Finally, check the live states and add edge when possible.
-          if (v1.getParentNode().getType() == Token.LP &&
-              v2.getParentNode().getType() == Token.LP) {
-            interferenceGraph.connectIfNotFound(v1, null, v2);
-          } else if ((state.getIn().isLive(v1) && state.getIn().isLive(v2)) ||
-              (v1OutLive && v2OutLive)) {
-            interferenceGraph.connectIfNotFound(v1, null, v2);
-          } else {
-            LiveRangeChecker checker1 =
-                new LiveRangeChecker(v1, v2OutLive ? null : v2);
-            LiveRangeChecker checker2 =
-                new LiveRangeChecker(v2, v1OutLive ? null : v1);
+          if ((inLive[i1] && inLive[i2]) || (outLive[i1] && outLive[i2])) {
+            interferenceGraph.connect(i1, i2);
+          } else if (assigned[i1] || assigned[i2]) {
+            // Live ranges can only cross within the node where one of the
+            // variables is assigned.
+            LiveRangeChecker checker1 = new LiveRangeChecker(
+                vars.get(i1), i1, outLive[i2] ? null : vars.get(i2));
+            LiveRangeChecker checker2 = new LiveRangeChecker(
+                vars.get(i2), i2, outLive[i1] ? null : vars.get(i1));
             rangesToCheck.add(new CombinedLiveRangeChecker(checker1, checker2));
           }
         }
@@ -285,7 +323,7 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
    * @param root The current subtree represent by a control flow graph node.
    */
   private void checkRanges(
-      ArrayList<CombinedLiveRangeChecker> rangesToCheck, Node root) {
+      List<CombinedLiveRangeChecker> rangesToCheck, Node root) {
     CombinedCfgNodeLiveRangeChecker callbacks =
       new CombinedCfgNodeLiveRangeChecker(rangesToCheck);
     NodeTraversal.traverse(compiler, root, callbacks);
@@ -299,10 +337,10 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
   private static class CombinedCfgNodeLiveRangeChecker
       extends AbstractCfgNodeTraversalCallback {
 
-    private final ArrayList<CombinedLiveRangeChecker> callbacks;
+    private final List<CombinedLiveRangeChecker> callbacks;
 
     CombinedCfgNodeLiveRangeChecker(
-        ArrayList<CombinedLiveRangeChecker> callbacks) {
+        List<CombinedLiveRangeChecker> callbacks) {
       this.callbacks = callbacks;
     }
 
@@ -348,11 +386,38 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
       callback2.visit(t, n, parent);
     }
 
-    void connectIfCrossed(UndiGraph<Var, Void> interferenceGraph) {
+    void connectIfCrossed(BitSetUndirectedGraph interferenceGraph) {
       if (callback1.crossed || callback2.crossed) {
-        Var v1 = callback1.getDef();
-        Var v2 = callback2.getDef();
-        interferenceGraph.connectIfNotFound(v1, null, v2);
+        interferenceGraph.connect(
+            callback1.getDefIndex(), callback2.getDefIndex());
+      }
+    }
+  }
+
+  /**
+   * Marks the variables that are assigned within a CFG node, as
+   * {@link LiveRangeChecker} finds assignments.
+   */
+  private static class AssignedVariableCollector
+      extends AbstractCfgNodeTraversalCallback {
+
+    private final Map<String, Integer> indicesByName;
+    private final boolean[] assigned;
+
+    AssignedVariableCollector(
+        Map<String, Integer> indicesByName, boolean[] assigned) {
+      this.indicesByName = indicesByName;
+      this.assigned = assigned;
+    }
+
+    @Override
+    public void visit(NodeTraversal t, Node n, Node parent) {
+      if (LiveRangeChecker.shouldVisit(n)) {
+        String name = LiveRangeChecker.getAssignedName(n, parent);
+        Integer index = name == null ? null : indicesByName.get(name);
+        if (index != null) {
+          assigned[index] = true;
+        }
       }
     }
   }
@@ -401,15 +466,17 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
     boolean defFound = false;
     boolean crossed = false;
     private final Var def;
+    private final int defIndex;
     private final Var use;
 
-    public LiveRangeChecker(Var def, Var use) {
+    public LiveRangeChecker(Var def, int defIndex, Var use) {
       this.def = def;
+      this.defIndex = defIndex;
       this.use = use;
     }
 
-    Var getDef() {
-      return def;
+    int getDefIndex() {
+      return defIndex;
     }
 
     /**
@@ -452,10 +519,66 @@ class CoalesceVariableNames extends AbstractPostOrderCallback implements
       }
     }
 
+    /**
+     * Returns the name that a node assigns to, in the cases where
+     * {@link #isAssignTo} is true for a variable of that name, or null.
+     */
+    static String getAssignedName(Node n, Node parent) {
+      if (NodeUtil.isName(n) && parent != null) {
+        if (parent.getType() == Token.LP ||
+            (NodeUtil.isVar(parent) && n.hasChildren())) {
+          return n.getString();
+        }
+        return null;
+      }
+      Node name = n.getFirstChild();
+      if (name != null && NodeUtil.isName(name) &&
+          NodeUtil.isAssignmentOp(n)) {
+        return name.getString();
+      }
+      return null;
+    }
+
     private static boolean isReadFrom(Var var, Node name) {
       return name != null && NodeUtil.isName(name) &&
           var.getName().equals(name.getString()) &&
           !NodeUtil.isLhs(name, name.getParent());
     }
   }
+
+  /**
+   * The coloring of the interference graph of a scope. Variables of the same
+   * color are merged into the first of them that is asked for.
+   */
+  private static class VariableColoring {
+    private final Map<Var, Integer> indices = Maps.newHashMap();
+    private final IntGraphColoring coloring;
+    private final Var[] colorToVar;
+
+    VariableColoring(List<Var> vars, IntGraphColoring coloring) {
+      for (int i = 0; i < vars.size(); i++) {
+        indices.put(vars.get(i), i);
+      }
+      this.coloring = coloring;
+      this.colorToVar = new Var[coloring.getColorCount()];
+    }
+
+    /** Returns whether a variable can be coalesced. */
+    boolean hasVar(Var var) {
+      return indices.containsKey(var);
+    }
+
+    /**
+     * Returns the variable that a variable is merged into. The first
+     * variable of a color to be asked for is the one the others are merged
+     * into.
+     */
+    Var getPartitionSuperNode(Var var) {
+      int color = coloring.getColor(indices.get(var));
+      if (colorToVar[color] == null) {
+        colorToVar[color] = var;
+      }
+      return colorToVar[color];
+    }
+  }
 }
@@ -47,4 +47,21 @@ interface CodeChangeHandler {
       hasChanged = false;
     }
   }
+  /**
+   * A change handler that counts changes and is never reset, so that
+   * any number of callers can tell whether the code has changed since
+   * a point of their own choosing.
+   */
+  static final class ChangeCounter implements CodeChangeHandler {
+    private long count = 0;
+
+    public void reportChange() {
+      count++;
+    }
+
+    /** Returns the number of changes reported so far. */
+    long getChangeCount() {
+      return count;
+    }
+  }
 }
@@ -83,7 +83,7 @@ class CodePrinter {
     @Override
     void startSourceMapping(Node node) {
       if (createSrcMap
-          && node.getProp(Node.SOURCEFILE_PROP) != null
+          && node.getStaticSourceFile() != null
           && node.getLineno() > 0) {
         int line = getCurrentLineIndex();
         int index = getCurrentCharIndex();
@@ -106,7 +106,7 @@ class CodePrinter {
     @Override
     void endSourceMapping(Node node) {
       if (createSrcMap
-          && node.getProp(Node.SOURCEFILE_PROP) != null
+          && node.getStaticSourceFile() != null
           && node.getLineno() > 0) {
         int line = getCurrentLineIndex();
         int index = getCurrentCharIndex();
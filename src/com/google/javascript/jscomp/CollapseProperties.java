@@ -98,6 +98,9 @@ class CollapseProperties implements CompilerPass {
   private final boolean collapsePropertiesOnExternTypes;
   private final boolean inlineAliases;
 
+  /** A pre-computed global namespace, or null to build one */
+  private GlobalNamespace namespace = null;
+
   /**
    * Creates an instance.
    *
@@ -114,13 +117,26 @@ class CollapseProperties implements CompilerPass {
     this.inlineAliases = inlineAliases;
   }
 
+  /**
+   * Injects a pre-computed global namespace, so that it doesn't have to be
+   * built again. The namespace must not include the externs unless
+   * {@code collapsePropertiesOnExternTypes} is set, and it is changed along
+   * with the AST, so it should not be used afterwards. Returns this for easy
+   * chaining.
+   */
+  CollapseProperties injectNamespace(GlobalNamespace namespace) {
+    this.namespace = namespace;
+    return this;
+  }
+
   @Override
   public void process(Node externs, Node root) {
-    GlobalNamespace namespace;
-    if (collapsePropertiesOnExternTypes) {
-      namespace = new GlobalNamespace(compiler, externs, root);
-    } else {
-      namespace = new GlobalNamespace(compiler, root);
+    if (namespace == null) {
+      if (collapsePropertiesOnExternTypes) {
+        namespace = new GlobalNamespace(compiler, externs, root);
+      } else {
+        namespace = new GlobalNamespace(compiler, root);
+      }
     }
 
     if (inlineAliases) {
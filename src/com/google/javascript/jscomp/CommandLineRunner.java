@@ -172,6 +172,11 @@ public class CommandLineRunner extends
         + "rules and conventions")
     private boolean third_party = false;
 
+    @Option(name = "--coding_convention",
+        usage = "Specifies the coding convention of the inputs. Options: "
+        + "CLOSURE, GOOGLE, DEFAULT. The default is CLOSURE, or DEFAULT "
+        + "with --third_party")
+    private CodingConventionOption coding_convention = null;
 
     @Option(name = "--summary_detail_level",
         usage = "Controls how detailed the compilation summary is. Values:"
@@ -181,6 +186,44 @@ public class CommandLineRunner extends
         + "is 1")
     private int summary_detail_level = 1;
 
+    @Option(name = "--parse_threads",
+        usage = "The number of threads used to parse the inputs. Inputs "
+        + "are still assembled, and parse errors reported, in their "
+        + "original order. The default is 1")
+    private int parse_threads = 1;
+
+    @Option(name = "--optimization_threads",
+        usage = "The number of threads used by the optimizations that look "
+        + "at one function at a time. The output does not depend on it. "
+        + "The default is 1")
+    private int optimization_threads = 1;
+
+    @Option(name = "--print_threads",
+        usage = "The number of threads used to print the inputs back to "
+        + "code, along with their source maps. The output does not depend "
+        + "on it. The default is 1")
+    private int print_threads = 1;
+
+    @Option(name = "--type_inference_threads",
+        usage = "The number of threads used to infer the types of "
+        + "functions. The warnings do not depend on it. The default is 1")
+    private int type_inference_threads = 1;
+
+    @Option(name = "--ast_cache_dir",
+        usage = "A directory in which to cache the parse trees of the "
+        + "inputs between runs. Inputs that are unchanged since they were "
+        + "last parsed without warnings are loaded from there instead of "
+        + "being parsed again")
+    private String ast_cache_dir = "";
+
+    @Option(name = "--pass_metrics_output_file",
+        usage = "File where the run time, memory use and code size changes "
+        + "of each compiler pass are written. Written as CSV if the file "
+        + "name ends in .csv, and as JSON otherwise. CPU time and memory "
+        + "use only count the main compiler thread, not the threads that "
+        + "parse, optimize, print or infer types in parallel")
+    private String pass_metrics_output_file = "";
+
     @Option(name = "--output_wrapper",
         usage = "Interpolate output into this string at the place denoted"
         + " by the marker token %output%. See --output_wrapper_marker")
@@ -354,6 +397,29 @@ public class CommandLineRunner extends
     }
   }
 
+  /**
+   * Set of options that can be used with the --coding_convention flag.
+   */
+  private static enum CodingConventionOption {
+    CLOSURE,
+    GOOGLE,
+    DEFAULT,
+    ;
+
+    private CodingConvention create() {
+      switch (this) {
+        case CLOSURE:
+          return new ClosureCodingConvention();
+        case GOOGLE:
+          return new GoogleCodingConvention();
+        case DEFAULT:
+          return new DefaultCodingConvention();
+        default:
+          throw new RuntimeException("Unknown coding convention: " + this);
+      }
+    }
+  }
+
   private final Flags flags = new Flags();
 
   private boolean isConfigValid = false;
@@ -426,10 +492,14 @@ public class CommandLineRunner extends
           .setVariableMapOutputFile(flags.variable_map_output_file)
           .setCreateNameMapFiles(flags.create_name_map_files)
           .setPropertyMapOutputFile(flags.property_map_output_file)
-          .setCodingConvention(flags.third_party ?
-               new DefaultCodingConvention() :
-               new ClosureCodingConvention())
+          .setCodingConvention(getCodingConvention())
           .setSummaryDetailLevel(flags.summary_detail_level)
+          .setParseThreadCount(flags.parse_threads)
+          .setOptimizationThreadCount(flags.optimization_threads)
+          .setPrintThreadCount(flags.print_threads)
+          .setTypeInferenceThreadCount(flags.type_inference_threads)
+          .setAstCacheDir(flags.ast_cache_dir)
+          .setPassMetricsOutputFile(flags.pass_metrics_output_file)
           .setOutputWrapper(flags.output_wrapper)
           .setOutputWrapperMarker(flags.output_wrapper_marker)
           .setModuleWrapper(flags.module_wrapper)
@@ -445,6 +515,15 @@ public class CommandLineRunner extends
     }
   }
 
+  private CodingConvention getCodingConvention() {
+    if (flags.coding_convention != null) {
+      return flags.coding_convention.create();
+    }
+    return flags.third_party ?
+        new DefaultCodingConvention() :
+        new ClosureCodingConvention();
+  }
+
   @Override
   protected CompilerOptions createOptions() {
     CompilerOptions options = new CompilerOptions();
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.io.Files;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * Sends compile requests to a {@link CompileServer}. A request is a list of
+ * command-line flags, the same ones {@link CommandLineRunner} takes, and
+ * the response has what the compile would have printed and the exit status
+ * it would have had.
+ *
+ * <p>The protocol is a simple binary one, written with
+ * {@link DataOutputStream}: a request is a magic number, a protocol
+ * version, the token of the server as {@link #TOKEN_LENGTH} ASCII bytes,
+ * the number of flags and each flag; a response is the exit status, then
+ * the standard output and the standard error of the compile, as UTF-8
+ * bytes. There is one request per connection.
+ *
+ * <p>The token is a random secret that the server writes to a file only
+ * its user can read, at {@link #getTokenFile}, so that only that user can
+ * make it compile.
+ *
+ */
+public class CompileClient {
+
+  static final int MAGIC = 0x4a53434d;  // "JSCM"
+  static final int PROTOCOL_VERSION = 3;
+
+  /** The number of characters in a token. */
+  static final int TOKEN_LENGTH = 32;
+
+  private final String host;
+  private final int port;
+  private final String token;
+
+  /**
+   * @param host The host of the server, or null for the loopback address.
+   * @param port The port the server listens on.
+   * @param token The token of the server.
+   */
+  public CompileClient(String host, int port, String token) {
+    Preconditions.checkArgument(token.length() == TOKEN_LENGTH,
+        "Bad token length: %s", token.length());
+    this.host = host;
+    this.port = port;
+    this.token = token;
+  }
+
+  /**
+   * Returns the file that a server on the given port of this machine
+   * writes its token to.
+   */
+  public static File getTokenFile(int port) {
+    return new File(System.getProperty("user.home"),
+        ".closure_compile_server_" + port);
+  }
+
+  /** Reads the token of a server on the given port of this machine. */
+  public static String readToken(int port) throws IOException {
+    return Files.toString(getTokenFile(port), Charsets.UTF_8).trim();
+  }
+
+  /**
+   * Compiles on the server.
+   *
+   * @param args The command-line flags of the compile. Relative paths in
+   *     them are resolved against the working directory of the server.
+   * @throws IOException Thrown if the server could not be reached, or
+   *     broke the connection.
+   */
+  public Response compile(String[] args) throws IOException {
+    Socket socket = new Socket(InetAddress.getByName(host), port);
+    try {
+      DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(socket.getOutputStream()));
+      out.writeInt(MAGIC);
+      out.writeInt(PROTOCOL_VERSION);
+      out.write(token.getBytes(Charsets.US_ASCII));
+      out.writeInt(args.length);
+      for (String arg : args) {
+        writeString(out, arg);
+      }
+      out.flush();
+
+      DataInputStream in = new DataInputStream(
+          new BufferedInputStream(socket.getInputStream()));
+      int status = in.readInt();
+      String output = readString(in, Integer.MAX_VALUE);
+      String errors = readString(in, Integer.MAX_VALUE);
+      return new Response(status, output, errors);
+    } finally {
+      socket.close();
+    }
+  }
+
+  /**
+   * Writes a string as UTF-8 bytes, prefixed with their number. Unlike
+   * {@link DataOutputStream#writeUTF}, this has no limit on the length.
+   */
+  static void writeString(DataOutputStream out, String s)
+      throws IOException {
+    byte[] bytes = s.getBytes(Charsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Reads a string written by {@link #writeString}.
+   *
+   * @param maxLength The largest number of bytes to accept.
+   */
+  static String readString(DataInputStream in, int maxLength)
+      throws IOException {
+    int length = in.readInt();
+    if (length < 0 || length > maxLength) {
+      throw new IOException("Bad string length: " + length);
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, Charsets.UTF_8);
+  }
+
+  /** What a compile on the server printed, and its exit status. */
+  public static class Response {
+    private final int status;
+    private final String output;
+    private final String errors;
+
+    Response(int status, String output, String errors) {
+      Preconditions.checkNotNull(output);
+      Preconditions.checkNotNull(errors);
+      this.status = status;
+      this.output = output;
+      this.errors = errors;
+    }
+
+    /** Returns the exit status of {@link CommandLineRunner}. */
+    public int getStatus() {
+      return status;
+    }
+
+    /** Returns what was printed on the standard output. */
+    public String getOutput() {
+      return output;
+    }
+
+    /** Returns what was printed on the standard error. */
+    public String getErrors() {
+      return errors;
+    }
+  }
+
+  /**
+   * Compiles on a server that listens on the given port of this machine,
+   * and prints what the compile printed. The first argument is the port,
+   * and the rest are the flags of the compile.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println(
+          "Usage: CompileClient <port> [compiler flags...]");
+      System.exit(-1);
+    }
+
+    String[] flags = new String[args.length - 1];
+    System.arraycopy(args, 1, flags, 0, flags.length);
+    int port = Integer.parseInt(args[0]);
+    Response response =
+        new CompileClient(null, port, readToken(port)).compile(flags);
+    System.out.print(response.getOutput());
+    System.out.flush();
+    System.err.print(response.getErrors());
+    System.err.flush();
+    System.exit(response.getStatus());
+  }
+}
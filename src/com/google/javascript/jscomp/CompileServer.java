@@ -0,0 +1,393 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.io.Files;
+import com.google.javascript.jscomp.CompileClient.Response;
+import com.google.javascript.jscomp.parsing.ParserRunner;
+import com.google.javascript.rhino.Node;
+
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A compiler that stays up between compiles, so that a build that compiles
+ * often only pays once for starting the JVM, for warming up the JIT and for
+ * parsing its externs. It takes requests from {@link CompileClient}s on a
+ * port of the loopback interface, and runs each one through
+ * {@link CommandLineRunner}, so requests take the same flags and print the
+ * same things as the command line does. Files are read and written by the
+ * server, so paths in the flags are resolved against its working directory.
+ *
+ * <p>Between compiles, the server keeps:
+ * <ul>
+ * <li>An {@link ExternsSnapshot} of each of the last few sets of externs it
+ *     was given, keyed by their contents.
+ * <li>The parse trees of the inputs that parsed cleanly, in the memory
+ *     tier of the {@link AstCache}, keyed by their contents.
+ * </ul>
+ *
+ * <p>Requests are handled one at a time, since the command-line runner
+ * keeps some of its settings, like the input charset and the logging level,
+ * in static state. A request must carry the token of the server, since the
+ * server reads and writes files as the user it runs as; {@link #main}
+ * writes the token to a file only that user can read. A client that does
+ * not send its request in time is dropped, so that it cannot hold up the
+ * others.
+ *
+ */
+public class CompileServer {
+
+  private static final Logger logger =
+      Logger.getLogger(CompileServer.class.getName());
+
+  private static final int MAX_CACHED_EXTERNS = 4;
+
+  private static final int DEFAULT_READ_TIMEOUT_MILLIS = 30 * 1000;
+
+  // Limits on the size of a request, so that a bad one cannot make the
+  // server run out of memory.
+  private static final int MAX_ARGS = 1 << 16;
+  private static final int MAX_REQUEST_BYTES = 1 << 24;
+
+  private final ServerSocket serverSocket;
+  private final byte[] token;
+  private int readTimeoutMillis = DEFAULT_READ_TIMEOUT_MILLIS;
+  private final Map<String, Node> astMemoryTier;
+  private final Map<String, ExternsSnapshot> externsSnapshots =
+      new LinkedHashMap<String, ExternsSnapshot>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(
+            Map.Entry<String, ExternsSnapshot> e) {
+          return size() > MAX_CACHED_EXTERNS;
+        }
+      };
+
+  private int externsSnapshotHits = 0;
+
+  /**
+   * @param serverSocket The socket to take requests on.
+   * @param maxCachedAsts The number of parse trees to keep in memory.
+   * @param token The token that requests must carry.
+   */
+  public CompileServer(
+      ServerSocket serverSocket, int maxCachedAsts, String token) {
+    this.serverSocket = serverSocket;
+    this.astMemoryTier = AstCache.newMemoryTier(maxCachedAsts);
+    Preconditions.checkArgument(
+        token.length() == CompileClient.TOKEN_LENGTH,
+        "Bad token length: %s", token.length());
+    this.token = token.getBytes(Charsets.US_ASCII);
+  }
+
+  /** Returns the port the server takes requests on. */
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  /**
+   * Sets how long the server waits for a client to send its request
+   * before it drops the connection.
+   */
+  void setReadTimeout(int millis) {
+    this.readTimeoutMillis = millis;
+  }
+
+  /**
+   * Takes requests until the server is closed. A request that fails does
+   * not stop the server.
+   */
+  public void serve() {
+    while (!serverSocket.isClosed()) {
+      Socket socket;
+      try {
+        socket = serverSocket.accept();
+      } catch (IOException e) {
+        if (!serverSocket.isClosed()) {
+          logger.log(Level.WARNING, "Unable to accept a connection", e);
+        }
+        continue;
+      }
+
+      try {
+        socket.setSoTimeout(readTimeoutMillis);
+        handle(socket);
+      } catch (IOException e) {
+        logger.log(Level.WARNING, "Unable to handle a request", e);
+      } catch (Throwable t) {
+        // A bad request must not stop the server for the other clients.
+        logger.log(Level.SEVERE, "Unable to handle a request", t);
+      } finally {
+        try {
+          socket.close();
+        } catch (IOException e) {
+          // Nothing more can be done for this client.
+        }
+      }
+    }
+  }
+
+  /** Stops taking requests. */
+  public void close() throws IOException {
+    serverSocket.close();
+  }
+
+  private void handle(Socket socket) throws IOException {
+    DataInputStream in = new DataInputStream(
+        new BufferedInputStream(socket.getInputStream()));
+    if (in.readInt() != CompileClient.MAGIC) {
+      throw new IOException("Not a compile request");
+    }
+    if (in.readInt() != CompileClient.PROTOCOL_VERSION) {
+      throw new IOException("Unsupported protocol version");
+    }
+    byte[] requestToken = new byte[CompileClient.TOKEN_LENGTH];
+    in.readFully(requestToken);
+    if (!MessageDigest.isEqual(token, requestToken)) {
+      throw new IOException("Bad token");
+    }
+
+    int argCount = in.readInt();
+    if (argCount < 0 || argCount > MAX_ARGS) {
+      throw new IOException("Bad number of flags: " + argCount);
+    }
+    String[] args = new String[argCount];
+    int bytesLeft = MAX_REQUEST_BYTES;
+    for (int i = 0; i < args.length; i++) {
+      args[i] = CompileClient.readString(in, bytesLeft);
+      bytesLeft -= args[i].getBytes(Charsets.UTF_8).length;
+    }
+
+    Response response = compile(args);
+
+    DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(socket.getOutputStream()));
+    out.writeInt(response.getStatus());
+    CompileClient.writeString(out, response.getOutput());
+    CompileClient.writeString(out, response.getErrors());
+    out.flush();
+  }
+
+  /**
+   * Runs one compile, the way {@link CommandLineRunner#main} would, and
+   * returns what it printed instead of exiting.
+   */
+  synchronized Response compile(String[] args) {
+    ByteArrayOutputStream outBytes = new ByteArrayOutputStream();
+    ByteArrayOutputStream errBytes = new ByteArrayOutputStream();
+    PrintStream out = newPrintStream(outBytes);
+    PrintStream err = newPrintStream(errBytes);
+
+    int status;
+    Runner runner = new Runner(args, out, err);
+    if (!runner.shouldRunCompiler()) {
+      status = -1;
+    } else {
+      try {
+        status = runner.doRun();
+      } catch (AbstractCommandLineRunner.FlagUsageException e) {
+        err.println(e.getMessage());
+        status = -1;
+      } catch (Throwable t) {
+        t.printStackTrace(err);
+        status = -2;
+      }
+    }
+
+    out.flush();
+    err.flush();
+    return new Response(status,
+        new String(outBytes.toByteArray(), Charsets.UTF_8),
+        new String(errBytes.toByteArray(), Charsets.UTF_8));
+  }
+
+  private static PrintStream newPrintStream(ByteArrayOutputStream bytes) {
+    try {
+      return new PrintStream(bytes, true, Charsets.UTF_8.name());
+    } catch (UnsupportedEncodingException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Returns a snapshot of the given externs, and makes it if it does not
+   * have one yet.
+   */
+  private ExternsSnapshot getExternsSnapshot(
+      List<JSSourceFile> externs, CompilerOptions options)
+      throws IOException {
+    String key = getExternsKey(externs, options);
+    ExternsSnapshot snapshot = externsSnapshots.get(key);
+    if (snapshot == null) {
+      snapshot = ExternsSnapshot.create(externs, options);
+      externsSnapshots.put(key, snapshot);
+    } else {
+      externsSnapshotHits++;
+    }
+    return snapshot;
+  }
+
+  /** Returns the number of compiles that reused a snapshot of externs. */
+  int getExternsSnapshotHits() {
+    return externsSnapshotHits;
+  }
+
+  /**
+   * Returns a key for the externs, made from everything that affects how
+   * they are parsed.
+   */
+  private static String getExternsKey(
+      List<JSSourceFile> externs, CompilerOptions options)
+      throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+    digest.update(ParserRunner.createConfig(options.ideMode)
+        .getFingerprint().getBytes(Charsets.UTF_8));
+    for (JSSourceFile file : externs) {
+      digest.update((byte) 0);
+      digest.update(file.getName().getBytes(Charsets.UTF_8));
+      digest.update((byte) 0);
+      digest.update(file.getCode().getBytes(Charsets.UTF_8));
+    }
+    return toHex(digest.digest());
+  }
+
+  /** Returns a new random token. */
+  static String newToken() {
+    byte[] bytes = new byte[16];
+    new SecureRandom().nextBytes(bytes);
+    return toHex(bytes);
+  }
+
+  /**
+   * Writes the token to a file that only the user of this process can
+   * read.
+   */
+  static void writeToken(File file, String token) throws IOException {
+    if (file.exists() && !file.delete()) {
+      throw new IOException("Unable to delete " + file);
+    }
+    if (!file.createNewFile()
+        || !file.setReadable(false, false)
+        || !file.setWritable(false, false)
+        || !file.setReadable(true, true)
+        || !file.setWritable(true, true)) {
+      throw new IOException("Unable to make " + file + " private");
+    }
+    Files.write(token, file, Charsets.UTF_8);
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder();
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+      sb.append(Character.forDigit(b & 0xf, 16));
+    }
+    return sb.toString();
+  }
+
+  /** A command-line runner that uses the caches of the server. */
+  private class Runner extends CommandLineRunner {
+    Runner(String[] args, PrintStream out, PrintStream err) {
+      super(args, out, err);
+    }
+
+    @Override
+    protected Compiler createCompiler() {
+      Compiler compiler = super.createCompiler();
+      compiler.setAstMemoryTier(astMemoryTier);
+      return compiler;
+    }
+
+    @Override
+    protected ExternsSnapshot getExternsSnapshot(
+        List<JSSourceFile> externs, CompilerOptions options)
+        throws IOException {
+      return CompileServer.this.getExternsSnapshot(externs, options);
+    }
+  }
+
+  private static class Flags {
+    @Option(name = "--port",
+        usage = "The port to take requests on, on the loopback interface. "
+        + "The default is 0, for any free port; the port is printed on "
+        + "the standard output")
+    private int port = 0;
+
+    @Option(name = "--max_cached_asts",
+        usage = "The number of parse trees of inputs to keep in memory "
+        + "between compiles. The default is 10000")
+    private int max_cached_asts = 10000;
+  }
+
+  /**
+   * Starts a server, and takes requests until the process is stopped. The
+   * token of the server is written to {@link CompileClient#getTokenFile}.
+   */
+  public static void main(String[] args) throws IOException {
+    Flags flags = new Flags();
+    CmdLineParser parser = new CmdLineParser(flags);
+    try {
+      parser.parseArgument(args);
+    } catch (CmdLineException e) {
+      System.err.println(e.getMessage());
+      parser.printUsage(System.err);
+      System.exit(-1);
+    }
+
+    String token = newToken();
+    CompileServer server = new CompileServer(
+        new ServerSocket(flags.port, 50, InetAddress.getByName(null)),
+        flags.max_cached_asts, token);
+    File tokenFile = CompileClient.getTokenFile(server.getPort());
+    writeToken(tokenFile, token);
+    tokenFile.deleteOnExit();
+    System.out.println(server.getPort());
+    System.out.flush();
+    server.serve();
+  }
+}
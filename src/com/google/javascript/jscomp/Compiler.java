@@ -19,6 +19,7 @@ package com.google.javascript.jscomp;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Supplier;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.javascript.jscomp.CompilerOptions.DevMode;
@@ -32,6 +33,7 @@ import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
 import com.google.javascript.rhino.jstype.JSTypeRegistry;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.io.Serializable;
@@ -40,7 +42,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -127,6 +135,8 @@ public class Compiler extends AbstractCompiler {
 
   private JSTypeRegistry typeRegistry;
   private Config parserConfig = null;
+  private AstCache astCache = null;
+  private Map<String, Node> astMemoryTier = null;
 
   private ReverseAbstractInterpreter abstractInterpreter;
   private TypeValidator typeValidator;
@@ -149,7 +159,7 @@ public class Compiler extends AbstractCompiler {
       DiagnosticType.error("JSC_OPTIMIZE_LOOP_ERROR",
           "Exceeded max number of code motion iterations: {0}");
 
-  private static final long COMPILER_STACK_SIZE = 1048576L;
+  static final long COMPILER_STACK_SIZE = 1048576L;
 
 
   /**
@@ -270,11 +280,41 @@ public class Compiler extends AbstractCompiler {
       List<JSSourceFile> externs, List<JSModule> modules,
       CompilerOptions options) {
     initOptions(options);
+    initModulesInternal(makeCompilerInput(externs, true), modules);
+  }
+
+  /**
+   * Initializes the instance state needed for a compile job, with externs
+   * that were parsed ahead of time and may be shared with other compilers.
+   */
+  public void init(ExternsSnapshot externs, List<JSSourceFile> inputs,
+      CompilerOptions options) {
+    JSModule module = new JSModule("[singleton]");
+    for (JSSourceFile input : inputs) {
+      module.add(input);
+    }
+
+    initModules(externs, Lists.newArrayList(module), options);
+  }
 
+  /**
+   * Initializes the instance state needed for a compile job if the sources
+   * are in modules, with externs that were parsed ahead of time and may be
+   * shared with other compilers.
+   */
+  public void initModules(
+      ExternsSnapshot externs, List<JSModule> modules,
+      CompilerOptions options) {
+    initOptions(options);
+    initModulesInternal(externs.createInputs(getParserConfig()), modules);
+  }
+
+  private void initModulesInternal(
+      List<CompilerInput> externs, List<JSModule> modules) {
     checkFirstModule(modules);
     fillEmptyModules(modules);
 
-    this.externs = makeCompilerInput(externs, true);
+    this.externs = externs;
 
     // Generate the module graph, and report any errors in the module
     // specification as errors.
@@ -461,6 +501,28 @@ public class Compiler extends AbstractCompiler {
     }
   }
 
+  /**
+   * Compiles a list of inputs against externs that were parsed ahead of
+   * time.
+   */
+  public Result compile(ExternsSnapshot externs,
+      List<JSSourceFile> inputs, CompilerOptions options) {
+    // The compile method should only be called once.
+    Preconditions.checkState(jsRoot == null);
+
+    try {
+      init(externs, inputs, options);
+      if (hasErrors()) {
+        return getResult();
+      }
+      return compile();
+    } finally {
+      Tracer t = newTracer("generateReport");
+      errorManager.generateReport();
+      stopTracer(t, "generateReport");
+    }
+  }
+
   /**
    * Compiles a list of modules.
    */
@@ -493,6 +555,28 @@ public class Compiler extends AbstractCompiler {
     }
   }
 
+  /**
+   * Compiles a list of modules against externs that were parsed ahead of
+   * time.
+   */
+  public Result compileModules(ExternsSnapshot externs,
+      List<JSModule> modules, CompilerOptions options) {
+    // The compile method should only be called once.
+    Preconditions.checkState(jsRoot == null);
+
+    try {
+      initModules(externs, modules, options);
+      if (hasErrors()) {
+        return getResult();
+      }
+      return compile();
+    } finally {
+      Tracer t = newTracer("generateReport");
+      errorManager.generateReport();
+      stopTracer(t, "generateReport");
+    }
+  }
+
   private Result compile() {
     return runInCompilerThread(new Callable<Result>() {
       public Result call() throws Exception {
@@ -502,6 +586,29 @@ public class Compiler extends AbstractCompiler {
     });
   }
 
+  /**
+   * Checks the types of an input again after it has been edited, without
+   * compiling everything again. Only edits to the bodies of plain
+   * functions, which do not declare or change anything outside of
+   * themselves, can be checked this way; see {@link IncrementalTypeCheck}.
+   * The compile must have been run in IDE mode, with type checking on.
+   *
+   * @param file The new version of one of the inputs.
+   * @return The type errors and warnings of the edited input, or null if
+   *     the edit cannot be checked without compiling again.
+   */
+  public JSError[] recheckTypes(final JSSourceFile file) {
+    Preconditions.checkState(jsRoot != null);
+    if (!options.ideMode) {
+      return null;
+    }
+    return runInCompilerThread(new Callable<JSError[]>() {
+      public JSError[] call() throws Exception {
+        return new IncrementalTypeCheck(Compiler.this).recheck(file);
+      }
+    });
+  }
+
   /**
    * Disable threads. This is for clients that run on AppEngine and
    * don't have threads.
@@ -792,7 +899,7 @@ public class Compiler extends AbstractCompiler {
   Tracer newTracer(String passName) {
     String comment = passName
         + (recentChange.hasCodeChanged() ? " on recently changed AST" : "");
-    if (options.tracer.isOn()) {
+    if (isTrackingPerformance()) {
       tracker.recordPassStart(passName);
     }
     return new Tracer("Compiler", comment);
@@ -800,11 +907,16 @@ public class Compiler extends AbstractCompiler {
 
   void stopTracer(Tracer t, String passName) {
     long result = t.stop();
-    if (options.tracer.isOn()) {
+    if (isTrackingPerformance()) {
       tracker.recordPassStop(passName, result);
     }
   }
 
+  /** Whether the statistics of each pass are kept in the tracker. */
+  private boolean isTrackingPerformance() {
+    return options.tracer.isOn() || options.trackPerformance;
+  }
+
   /**
    * Returns the result of the compilation.
    */
@@ -943,7 +1055,7 @@ public class Compiler extends AbstractCompiler {
   }
 
   @Override
-  public JSTypeRegistry getTypeRegistry() {
+  public synchronized JSTypeRegistry getTypeRegistry() {
     if (typeRegistry == null) {
       typeRegistry = new JSTypeRegistry(oldErrorReporter, options.looseTypes);
     }
@@ -1010,15 +1122,19 @@ public class Compiler extends AbstractCompiler {
     jsRoot = new Node(Token.BLOCK);
     jsRoot.setIsSyntheticBlock(true);
 
-    if (options.tracer.isOn()) {
-      tracker = new PerformanceTracker(jsRoot,
-          options.tracer == TracerMode.ALL);
+    if (isTrackingPerformance()) {
+      tracker = new PerformanceTracker(this, jsRoot,
+          options.tracer == TracerMode.ALL, options.tracerGzipSampleInterval);
       addChangeHandler(tracker.getCodeChangeHandler());
     }
 
     Tracer tracer = newTracer("parseInputs");
 
     try {
+      if (useThreads && options.parseThreadCount > 1) {
+        preparseInputs(options.parseThreadCount);
+      }
+
       // Parse externs sources.
       externsRoot = new Node(Token.BLOCK);
       externsRoot.setIsSyntheticBlock(true);
@@ -1111,7 +1227,7 @@ public class Compiler extends AbstractCompiler {
           // Annotate the nodes in the tree with information from the
           // input file. This information is used to construct the SourceMap.
           SourceInformationAnnotator sia =
-              new SourceInformationAnnotator(input.getName());
+              new SourceInformationAnnotator(input);
           NodeTraversal.traverse(this, n, sia);
         }
 
@@ -1127,6 +1243,62 @@ public class Compiler extends AbstractCompiler {
     }
   }
 
+  /**
+   * Parses the externs and inputs on a pool of worker threads. The parsed
+   * ASTs and their diagnostics are held by each {@link JsAst} until
+   * {@link #parseInputs} asks for them, so errors still get reported in
+   * input order, and parsing still stops at the first input with an error.
+   */
+  private void preparseInputs(int numThreads) {
+    final Config config = getParserConfig();
+    final AstCache cache = getAstCache();
+    List<Callable<Void>> tasks = Lists.newArrayList();
+    for (CompilerInput input : Iterables.concat(externs, inputs)) {
+      if (input.getSourceAst() instanceof JsAst) {
+        final JsAst ast = (JsAst) input.getSourceAst();
+        tasks.add(new Callable<Void>() {
+          public Void call() {
+            ast.preparse(config, cache);
+            return null;
+          }
+        });
+      }
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(
+        Math.min(numThreads, Math.max(tasks.size(), 1)),
+        new ThreadFactory() {
+          public Thread newThread(Runnable r) {
+            Thread th = new Thread(
+                null, r, "jscompiler-parser", COMPILER_STACK_SIZE);
+            th.setDaemon(true);
+            return th;
+          }
+        });
+    try {
+      List<Future<Void>> futures = Lists.newArrayList();
+      for (Callable<Void> task : tasks) {
+        futures.add(executor.submit(task));
+      }
+      for (Future<Void> future : futures) {
+        while (true) {
+          try {
+            future.get();
+            break;
+          } catch (InterruptedException ignore) {
+            // ignore
+          } catch (ExecutionException e) {
+            // The input will simply be parsed again on this thread, which
+            // reports the failure the same way a sequential parse would.
+            break;
+          }
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   public Node parse(JSSourceFile file) {
     initCompilerOptionsIfTesting();
     addToDebugLog("Parsing: " + file.getName());
@@ -1185,11 +1357,15 @@ public class Compiler extends AbstractCompiler {
         try {
           CodeBuilder cb = new CodeBuilder();
           if (jsRoot != null) {
-            int i = 0;
+            List<Node> scripts = Lists.newArrayList();
             for (Node scriptNode = jsRoot.getFirstChild();
                  scriptNode != null;
                  scriptNode = scriptNode.getNext()) {
-              toSource(cb, i++, scriptNode);
+              scripts.add(scriptNode);
+            }
+            List<PrintedScript> printed = printScripts(scripts);
+            for (int i = 0; i < scripts.size(); i++) {
+              appendSource(cb, i, scripts.get(i), printed.get(i));
             }
           }
           return cb.toString();
@@ -1209,12 +1385,17 @@ public class Compiler extends AbstractCompiler {
         Tracer tracer = newTracer("toSourceArray");
         try {
           int numInputs = inputs.size();
+          List<Node> scripts = Lists.newArrayList();
+          for (int i = 0; i < numInputs; i++) {
+            scripts.add(inputs.get(i).getAstRoot(Compiler.this));
+          }
+          List<PrintedScript> printed = printScripts(scripts);
+
           String[] sources = new String[numInputs];
           CodeBuilder cb = new CodeBuilder();
           for (int i = 0; i < numInputs; i++) {
-            Node scriptNode = inputs.get(i).getAstRoot(Compiler.this);
             cb.reset();
-            toSource(cb, i, scriptNode);
+            appendSource(cb, i, scripts.get(i), printed.get(i));
             sources[i] = cb.toString();
           }
           return sources;
@@ -1236,14 +1417,20 @@ public class Compiler extends AbstractCompiler {
         if (numInputs == 0) {
           return "";
         }
-        CodeBuilder cb = new CodeBuilder();
+        List<Node> scripts = Lists.newArrayList();
         for (int i = 0; i < numInputs; i++) {
           Node scriptNode = inputs.get(i).getAstRoot(Compiler.this);
           if (scriptNode == null) {
             throw new IllegalArgumentException(
                 "Bad module: " + module.getName());
           }
-          toSource(cb, i, scriptNode);
+          scripts.add(scriptNode);
+        }
+        List<PrintedScript> printed = printScripts(scripts);
+
+        CodeBuilder cb = new CodeBuilder();
+        for (int i = 0; i < numInputs; i++) {
+          appendSource(cb, i, scripts.get(i), printed.get(i));
         }
         return cb.toString();
       }
@@ -1263,17 +1450,22 @@ public class Compiler extends AbstractCompiler {
           return new String[0];
         }
 
-        String[] sources = new String[numInputs];
-        CodeBuilder cb = new CodeBuilder();
+        List<Node> scripts = Lists.newArrayList();
         for (int i = 0; i < numInputs; i++) {
           Node scriptNode = inputs.get(i).getAstRoot(Compiler.this);
           if (scriptNode == null) {
             throw new IllegalArgumentException(
                 "Bad module input: " + inputs.get(i).getName());
           }
+          scripts.add(scriptNode);
+        }
+        List<PrintedScript> printed = printScripts(scripts);
 
+        String[] sources = new String[numInputs];
+        CodeBuilder cb = new CodeBuilder();
+        for (int i = 0; i < numInputs; i++) {
           cb.reset();
-          toSource(cb, i, scriptNode);
+          appendSource(cb, i, scripts.get(i), printed.get(i));
           sources[i] = cb.toString();
         }
         return sources;
@@ -1293,48 +1485,110 @@ public class Compiler extends AbstractCompiler {
                        final Node root) {
     runInCompilerThread(new Callable<Void>() {
       public Void call() throws Exception {
-        if (options.printInputDelimiter) {
-          if ((cb.getLength() > 0) && !cb.endsWith("\n")) {
-            cb.append("\n");  // Make sure that the label starts on a new line
-          }
-          Preconditions.checkState(root.getType() == Token.SCRIPT);
+        appendSource(cb, inputSeqNum, root, null);
+        return null;
+      }
+    });
+  }
 
-          String delimiter = options.inputDelimiter;
+  /**
+   * Writes out js code from a root node, like
+   * {@link #toSource(CodeBuilder, int, Node)}.
+   *
+   * @param printed The root already printed by {@link #printScripts}, or
+   *     null to print it now.
+   */
+  private void appendSource(CodeBuilder cb, int inputSeqNum, Node root,
+      PrintedScript printed) {
+    if (options.printInputDelimiter) {
+      if ((cb.getLength() > 0) && !cb.endsWith("\n")) {
+        cb.append("\n");  // Make sure that the label starts on a new line
+      }
+      Preconditions.checkState(root.getType() == Token.SCRIPT);
 
-          String sourceName = (String)root.getProp(Node.SOURCENAME_PROP);
-          Preconditions.checkState(sourceName != null);
-          Preconditions.checkState(!sourceName.isEmpty());
+      String delimiter = options.inputDelimiter;
 
-          delimiter = delimiter.replaceAll("%name%", sourceName)
-            .replaceAll("%num%", String.valueOf(inputSeqNum));
+      String sourceName = (String)root.getProp(Node.SOURCENAME_PROP);
+      Preconditions.checkState(sourceName != null);
+      Preconditions.checkState(!sourceName.isEmpty());
 
-          cb.append(delimiter)
-            .append("\n");
-        }
-        if (root.getJSDocInfo() != null &&
-            root.getJSDocInfo().getLicense() != null) {
-          cb.append("/*\n")
-            .append(root.getJSDocInfo().getLicense())
-            .append("*/\n");
-        }
+      delimiter = delimiter.replaceAll("%name%", sourceName)
+        .replaceAll("%num%", String.valueOf(inputSeqNum));
 
-        // If there is a valid source map, then indicate to it that the current
-        // root node's mappings are offset by the given string builder buffer.
-        if (options.sourceMapOutputPath != null) {
-          sourceMap.setStartingPosition(
-              cb.getLineIndex(), cb.getColumnIndex());
-        }
+      cb.append(delimiter)
+        .append("\n");
+    }
+    if (root.getJSDocInfo() != null &&
+        root.getJSDocInfo().getLicense() != null) {
+      cb.append("/*\n")
+        .append(root.getJSDocInfo().getLicense())
+        .append("*/\n");
+    }
 
-        String code = toSource(root, sourceMap);
-        if (!code.isEmpty()) {
-          cb.append(code);
-          if (!code.endsWith(";")) {
-            cb.append(";");
-          }
-        }
-        return null;
+    String code;
+    if (printed == null) {
+      // If there is a valid source map, then indicate to it that the current
+      // root node's mappings are offset by the given string builder buffer.
+      if (options.sourceMapOutputPath != null) {
+        sourceMap.setStartingPosition(
+            cb.getLineIndex(), cb.getColumnIndex());
       }
-    });
+
+      code = toSource(root, sourceMap);
+    } else {
+      // The root was printed on its own, so its mappings are only moved to
+      // where its code goes now.
+      if (options.sourceMapOutputPath != null) {
+        sourceMap.appendMappings(
+            printed.sourceMap, cb.getLineIndex(), cb.getColumnIndex());
+      }
+
+      code = printed.code;
+    }
+
+    if (!code.isEmpty()) {
+      cb.append(code);
+      if (!code.endsWith(";")) {
+        cb.append(";");
+      }
+    }
+  }
+
+  /**
+   * The code of a script, and a source map of just that code.
+   */
+  private static class PrintedScript {
+    final String code;
+    final SourceMap sourceMap;
+
+    PrintedScript(String code, SourceMap sourceMap) {
+      this.code = code;
+      this.sourceMap = sourceMap;
+    }
+  }
+
+  /**
+   * Prints the given scripts concurrently, if the options ask for more than
+   * one thread. Otherwise, returns a null for each script, so that it is
+   * printed straight into the output.
+   */
+  private List<PrintedScript> printScripts(List<Node> scripts) {
+    if (!useThreads || options.printThreadCount == 1 || scripts.size() < 2) {
+      return Collections.<PrintedScript>nCopies(scripts.size(), null);
+    }
+
+    final boolean createSourceMap = options.sourceMapOutputPath != null;
+    List<Callable<PrintedScript>> tasks = Lists.newArrayList();
+    for (final Node script : scripts) {
+      tasks.add(new Callable<PrintedScript>() {
+        public PrintedScript call() {
+          SourceMap map = createSourceMap ? new SourceMap() : null;
+          return new PrintedScript(toSource(script, map), map);
+        }
+      });
+    }
+    return ParallelCompilerPass.runInParallel(
+        tasks, options.printThreadCount);
   }
 
   /**
@@ -1506,6 +1760,15 @@ public class Compiler extends AbstractCompiler {
   private final List<CodeChangeHandler> codeChangeHandlers =
       Lists.<CodeChangeHandler>newArrayList();
 
+  // Every change gets a new stamp. Changes to a function or script are
+  // recorded against its root node, and forgotten along with the node once
+  // it is no longer in use. Changes that were reported without a location
+  // might have been made anywhere.
+  private long changeStamp = 0;
+  private long lastUnscopedChangeStamp = 0;
+  private final Map<Node, Long> scopeChangeStamps =
+      new WeakHashMap<Node, Long>();
+
   @Override
   void addChangeHandler(CodeChangeHandler handler) {
     codeChangeHandlers.add(handler);
@@ -1519,15 +1782,70 @@ public class Compiler extends AbstractCompiler {
   /**
    * All passes should call reportCodeChange() when they alter
    * the JS tree structure. This is verified by CompilerTestCase.
-   * This allows us to optimize to a fixed point.
+   * This allows us to optimize to a fixed point. Like {@link #report}, it
+   * may be called by the tasks of a {@link ParallelCompilerPass}.
    */
   @Override
-  public void reportCodeChange() {
+  public synchronized void reportCodeChange() {
+    changeStamp++;
+    lastUnscopedChangeStamp = changeStamp;
+    notifyChangeHandlers();
+  }
+
+  @Override
+  synchronized void reportChangeToEnclosingScope(Node n) {
+    Node scopeRoot = NodeUtil.getEnclosingChangeScopeRoot(n);
+    if (scopeRoot == null) {
+      reportCodeChange();
+      return;
+    }
+
+    changeStamp++;
+    scopeChangeStamps.put(scopeRoot, changeStamp);
+    notifyChangeHandlers();
+  }
+
+  private void notifyChangeHandlers() {
     for (CodeChangeHandler handler : codeChangeHandlers) {
       handler.reportChange();
     }
   }
 
+  @Override
+  long getChangeStamp() {
+    return changeStamp;
+  }
+
+  @Override
+  List<Node> getChangedScopeRoots(Node root, long sinceStamp) {
+    List<Node> changed = Lists.newArrayList();
+    addChangedScopeRoots(root, sinceStamp,
+        lastUnscopedChangeStamp > sinceStamp, changed);
+    return changed;
+  }
+
+  @Override
+  boolean hasScopeChangedSince(Node scopeRoot, long sinceStamp) {
+    Preconditions.checkArgument(NodeUtil.isChangeScopeRoot(scopeRoot));
+    Long stamp = scopeChangeStamps.get(scopeRoot);
+    return lastUnscopedChangeStamp > sinceStamp ||
+        (stamp != null && stamp > sinceStamp);
+  }
+
+  private void addChangedScopeRoots(Node n, long sinceStamp,
+      boolean changedEverywhere, List<Node> changed) {
+    if (NodeUtil.isChangeScopeRoot(n)) {
+      Long stamp = scopeChangeStamps.get(n);
+      if (changedEverywhere || (stamp != null && stamp > sinceStamp)) {
+        changed.add(n);
+        return;
+      }
+    }
+    for (Node c = n.getFirstChild(); c != null; c = c.getNext()) {
+      addChangedScopeRoots(c, sinceStamp, changedEverywhere, changed);
+    }
+  }
+
   @Override
   public CodingConvention getCodingConvention() {
     CodingConvention convention = options.getCodingConvention();
@@ -1548,6 +1866,26 @@ public class Compiler extends AbstractCompiler {
     return parserConfig;
   }
 
+  /**
+   * Sets the parse trees kept in memory across compilations.
+   * @see AstCache#newMemoryTier
+   */
+  void setAstMemoryTier(Map<String, Node> astMemoryTier) {
+    this.astMemoryTier = astMemoryTier;
+  }
+
+  @Override
+  AstCache getAstCache() {
+    if (astCache == null && options != null
+        && (options.astCacheDirectory != null || astMemoryTier != null)) {
+      astCache = new AstCache(
+          options.astCacheDirectory == null ?
+              null : new File(options.astCacheDirectory),
+          getParserConfig(), astMemoryTier);
+    }
+    return astCache;
+  }
+
   @Override
   public boolean isTypeCheckingEnabled() {
     return options.checkTypes;
@@ -1559,7 +1897,7 @@ public class Compiler extends AbstractCompiler {
   //------------------------------------------------------------------------
 
   @Override
-  public void report(JSError error) {
+  public synchronized void report(JSError error) {
     CheckLevel level = error.level;
     WarningsGuard guard = options.getWarningsGuard();
     if (guard != null) {
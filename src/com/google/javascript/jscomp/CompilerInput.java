@@ -23,6 +23,7 @@ import com.google.common.collect.Sets;
 import com.google.javascript.jscomp.deps.DependencyInfo;
 import com.google.javascript.jscomp.deps.JsFileParser;
 import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.StaticSourceFile;
 import com.google.javascript.rhino.Token;
 
 import java.io.IOException;
@@ -38,7 +39,8 @@ import java.util.Set;
  *
 *
  */
-public class CompilerInput implements SourceAst, DependencyInfo {
+public class CompilerInput
+    implements SourceAst, DependencyInfo, StaticSourceFile {
   private static final long serialVersionUID = 1L;
 
   // Info about where the file lives.
@@ -74,6 +74,19 @@ public class CompilerOptions implements Serializable, Cloneable {
 
   boolean manageClosureDependencies = false;
 
+  /**
+   * The number of threads used to parse the inputs. With more than one
+   * thread, the inputs are parsed concurrently, but their ASTs are still
+   * attached, and their parse errors reported, in input order.
+   */
+  int parseThreadCount = 1;
+
+  /**
+   * A directory in which to keep the parse trees of the inputs between
+   * compilations, or null to always parse them from scratch.
+   */
+  String astCacheDirectory = null;
+
   /** Returns localized replacement for MSG_* variables */
   // Transient so that clients don't have to implement Serializable.
   public transient MessageBundle messageBundle = null;
@@ -206,6 +219,29 @@ public class CompilerOptions implements Serializable, Cloneable {
 
   public boolean deadAssignmentElimination;
 
+  /**
+   * The number of threads used by the optimizations that look at one
+   * function at a time, like the peephole optimizations and dead assignment
+   * elimination. With more than one thread, functions are optimized
+   * concurrently. The passes based on data flow analysis only analyze them
+   * concurrently, and still change them one at a time.
+   */
+  int optimizationThreadCount = 1;
+
+  /**
+   * The number of threads used to print the inputs back to code. With more
+   * than one thread, the inputs of each output are printed concurrently,
+   * along with their source maps, and then joined in input order.
+   */
+  int printThreadCount = 1;
+
+  /**
+   * The number of threads used to infer the types of functions. With more
+   * than one thread, the functions that only change their own variables are
+   * inferred concurrently, in batches of functions that follow each other.
+   */
+  int typeInferenceThreadCount = 1;
+
   /** Inlines constants (symbols that are all CAPS) */
   public boolean inlineConstantVars;
 
@@ -541,6 +577,18 @@ public class CompilerOptions implements Serializable, Cloneable {
 
   public TracerMode tracer;
 
+  /**
+   * With {@link TracerMode#ALL}, how many code size measurements are made
+   * for each one that gzips the code.
+   */
+  int tracerGzipSampleInterval = 1;
+
+  /**
+   * Whether to keep the statistics of each pass, even when the tracer is
+   * off.
+   */
+  boolean trackPerformance = false;
+
   private boolean colorizeErrorOutput;
 
   public ErrorFormat errorFormat;
@@ -930,6 +978,73 @@ public class CompilerOptions implements Serializable, Cloneable {
     manageClosureDependencies = newVal;
   }
 
+  /**
+   * Sets the number of threads used to parse the inputs. A value of 1 (the
+   * default) parses them one at a time on the compiler thread.
+   */
+  public void setParseThreadCount(int parseThreadCount) {
+    Preconditions.checkArgument(parseThreadCount > 0);
+    this.parseThreadCount = parseThreadCount;
+  }
+
+  /**
+   * Sets the number of threads used by the optimizations that look at one
+   * function at a time. A value of 1 (the default) runs them on the
+   * compiler thread only.
+   */
+  public void setOptimizationThreadCount(int optimizationThreadCount) {
+    Preconditions.checkArgument(optimizationThreadCount > 0);
+    this.optimizationThreadCount = optimizationThreadCount;
+  }
+
+  /**
+   * Sets the number of threads used to print the inputs back to code. A
+   * value of 1 (the default) prints them one at a time on the compiler
+   * thread.
+   */
+  public void setPrintThreadCount(int printThreadCount) {
+    Preconditions.checkArgument(printThreadCount > 0);
+    this.printThreadCount = printThreadCount;
+  }
+
+  /**
+   * Sets the number of threads used to infer the types of functions. A
+   * value of 1 (the default) infers them one at a time on the compiler
+   * thread.
+   */
+  public void setTypeInferenceThreadCount(int typeInferenceThreadCount) {
+    Preconditions.checkArgument(typeInferenceThreadCount > 0);
+    this.typeInferenceThreadCount = typeInferenceThreadCount;
+  }
+
+  /**
+   * Sets a directory in which parse trees are cached between compilations.
+   * Inputs whose name and contents are unchanged since they were last
+   * parsed cleanly are loaded from there instead of being parsed again.
+   */
+  public void setAstCacheDirectory(String astCacheDirectory) {
+    this.astCacheDirectory = astCacheDirectory;
+  }
+
+  /**
+   * Sets how many code size measurements are made for each one that gzips
+   * the code, when tracing with {@link TracerMode#ALL}. The others assume
+   * the code compresses as well as it did the last time it was gzipped.
+   */
+  public void setTracerGzipSampleInterval(int interval) {
+    Preconditions.checkArgument(interval > 0);
+    this.tracerGzipSampleInterval = interval;
+  }
+
+  /**
+   * Sets whether to keep the statistics of each pass in the compiler's
+   * {@link PerformanceTracker}, without logging a trace report as the
+   * tracer does.
+   */
+  public void setTrackPerformance(boolean trackPerformance) {
+    this.trackPerformance = trackPerformance;
+  }
+
   /**
    * Controls how detailed the compilation summary is. Values:
    *  0 (never print summary), 1 (print summary only if there are
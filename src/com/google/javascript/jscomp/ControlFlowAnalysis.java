@@ -18,7 +18,7 @@ package com.google.javascript.jscomp;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Maps;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.javascript.jscomp.ControlFlowGraph.Branch;
 import com.google.javascript.jscomp.NodeTraversal.Callback;
@@ -31,7 +31,6 @@ import java.util.Comparator;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.PriorityQueue;
 
 /**
@@ -58,12 +57,16 @@ final class ControlFlowAnalysis implements Callback, CompilerPass {
 
   private final AbstractCompiler compiler;
 
-  private ControlFlowGraph<Node> cfg;
+  private AstControlFlowGraph cfg;
 
-  private Map<Node, Integer> astPosition;
+  // The AST nodes in the order they are traversed, from which the AST
+  // position of each CFG node is found once the graph is built.
+  private List<Node> traversedNodes;
 
-  // TODO(nicksantos): should these be node annotations?
-  private Map<DiGraphNode<Node, Branch>, Integer> nodePriorities;
+  // The AST position and the priority of each CFG node, by node index.
+  // A priority of 0 means that the node has not been given one yet.
+  private int[] astPosition;
+  private int[] nodePriorities;
 
   // We order CFG nodes by by looking at the AST positions.
   // CFG nodes that come first lexically should be visited first, because
@@ -73,11 +76,10 @@ final class ControlFlowAnalysis implements Callback, CompilerPass {
     @Override
     public int compare(
         DiGraphNode<Node, Branch> a, DiGraphNode<Node, Branch> b) {
-      return astPosition.get(a.getValue()) - astPosition.get(b.getValue());
+      return astPosition[cfg.getIndex(a)] - astPosition[cfg.getIndex(b)];
     }
   };
 
-  private int astPositionCounter;
   private int priorityCounter;
 
   private final boolean shouldTraverseFunctions;
@@ -145,12 +147,23 @@ final class ControlFlowAnalysis implements Callback, CompilerPass {
   @Override
   public void process(Node externs, Node root) {
     this.root = root;
-    astPositionCounter = 0;
-    astPosition = Maps.newHashMap();
-    nodePriorities = Maps.newHashMap();
-    cfg = new AstControlFlowGraph(computeFallThrough(root), nodePriorities);
+    traversedNodes = Lists.newArrayList();
+    cfg = new AstControlFlowGraph(computeFallThrough(root));
     NodeTraversal.traverse(compiler, root, this);
-    astPosition.put(null, ++astPositionCounter); // the implicit return is last.
+
+    astPosition = new int[cfg.getNodeCount()];
+    for (int i = 0; i < traversedNodes.size(); i++) {
+      DiGraphNode<Node, Branch> cfgNode =
+          cfg.getDirectedGraphNode(traversedNodes.get(i));
+      if (cfgNode != null) {
+        astPosition[cfg.getIndex(cfgNode)] = i;
+      }
+    }
+    // The implicit return is last.
+    astPosition[cfg.getIndex(cfg.getImplicitReturn())] =
+        traversedNodes.size();
+    traversedNodes = null;
+    nodePriorities = new int[cfg.getNodeCount()];
 
     // Now, generate the priority of nodes by doing a depth-first
     // search on the CFG.
@@ -165,7 +178,8 @@ final class ControlFlowAnalysis implements Callback, CompilerPass {
         Node value = candidate.getValue();
         if (value != null && value.getType() == Token.FUNCTION) {
           Preconditions.checkState(
-              !nodePriorities.containsKey(candidate) || candidate == entry);
+              nodePriorities[cfg.getIndex(candidate)] == 0 ||
+              candidate == entry);
           prioritizeFromEntryNode(candidate);
         }
       }
@@ -176,13 +190,16 @@ final class ControlFlowAnalysis implements Callback, CompilerPass {
     // Presumably, it doesn't really matter what priority they get, since
     // this shouldn't happen in real code.
     for (DiGraphNode<Node, Branch> candidate : cfg.getDirectedGraphNodes()) {
-      if (!nodePriorities.containsKey(candidate)) {
-        nodePriorities.put(candidate, ++priorityCounter);
+      if (nodePriorities[cfg.getIndex(candidate)] == 0) {
+        nodePriorities[cfg.getIndex(candidate)] = ++priorityCounter;
       }
     }
 
     // Again, the implicit return node is always last.
-    nodePriorities.put(cfg.getImplicitReturn(), ++priorityCounter);
+    nodePriorities[cfg.getIndex(cfg.getImplicitReturn())] = ++priorityCounter;
+    cfg.setPriorities(nodePriorities);
+    astPosition = null;
+    nodePriorities = null;
   }
 
   /**
@@ -196,11 +213,11 @@ final class ControlFlowAnalysis implements Callback, CompilerPass {
 
     while (!worklist.isEmpty()) {
       DiGraphNode<Node, Branch> current = worklist.remove();
-      if (nodePriorities.containsKey(current)) {
+      if (nodePriorities[cfg.getIndex(current)] != 0) {
         continue;
       }
 
-      nodePriorities.put(current, ++priorityCounter);
+      nodePriorities[cfg.getIndex(current)] = ++priorityCounter;
 
       List<DiGraphNode<Node, Branch>> successors =
           cfg.getDirectedSuccNodes(current);
@@ -213,7 +230,7 @@ final class ControlFlowAnalysis implements Callback, CompilerPass {
   @Override
   public boolean shouldTraverse(
       NodeTraversal nodeTraversal, Node n, Node parent) {
-    astPosition.put(n, astPositionCounter++);
+    traversedNodes.add(n);
 
     switch (n.getType()) {
       case Token.FUNCTION:
@@ -942,17 +959,21 @@ final class ControlFlowAnalysis implements Callback, CompilerPass {
    * pre-order traversal of the AST.
    */
   private static class AstControlFlowGraph extends ControlFlowGraph<Node> {
-    private final Map<DiGraphNode<Node, Branch>, Integer> priorities;
+    private int[] priorities;
 
     /**
      * Constructor.
      * @param entry The entry node.
-     * @param priorities The map from nodes to position in the AST (to be
-     *    filled by the {@link ControlFlowAnalysis#shouldTraverse}).
      */
-    private AstControlFlowGraph(Node entry,
-        Map<DiGraphNode<Node, Branch>, Integer> priorities) {
+    private AstControlFlowGraph(Node entry) {
       super(entry);
+    }
+
+    /**
+     * @param priorities The priority of each node, by node index (set by
+     *    {@link ControlFlowAnalysis#process} once the graph is built).
+     */
+    void setPriorities(int[] priorities) {
       this.priorities = priorities;
     }
 
@@ -988,9 +1009,10 @@ final class ControlFlowAnalysis implements Callback, CompilerPass {
      * @return An arbitrary counter used for comparing positions.
      */
     private int getPosition(DiGraphNode<Node, Branch> n) {
-      Integer priority = priorities.get(n);
-      Preconditions.checkNotNull(priority);
-      return priority;
+      int index = getIndex(n);
+      Preconditions.checkState(
+          index < priorities.length && priorities[index] > 0);
+      return priorities[index];
     }
   }
 }
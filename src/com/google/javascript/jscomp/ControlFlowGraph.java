@@ -17,7 +17,7 @@
 package com.google.javascript.jscomp;
 
 import com.google.javascript.jscomp.NodeTraversal.Callback;
-import com.google.javascript.jscomp.graph.LinkedDirectedGraph;
+import com.google.javascript.jscomp.graph.IndexedDirectedGraph;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
 
@@ -26,12 +26,15 @@ import java.util.Comparator;
 /**
  * Control flow graph.
  *
+ * <p>The nodes are numbered densely (see {@link #getIndex}), so analyses
+ * can keep their per-node state in arrays.
+ *
 *
  *
  * @param <N> The instruction type of the control flow graph.
  */
 class ControlFlowGraph<N> extends
-    LinkedDirectedGraph<N, ControlFlowGraph.Branch> {
+    IndexedDirectedGraph<N, ControlFlowGraph.Branch> {
 
   /**
    * A special node marked by the node value key null to a singleton
@@ -29,6 +29,8 @@ import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
@@ -78,6 +80,12 @@ import java.util.Set;
  * represents maximum fixed point solution. Any previous annotations at the
  * nodes of the control flow graph will be lost.
  *
+ * <p>Analyses whose lattice elements are sets of bits, and whose flow
+ * equations only add and remove a fixed set of bits at each node, can also
+ * implement {@link GenKillAnalysis}. They are then solved by a
+ * {@link BitVectorSolver}, which does not create or compare lattice elements
+ * until the fixed point is found.
+ *
 *
  *
  * @param <N> The control flow graph's node value type.
@@ -97,6 +105,8 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
    */
   public static final int MAX_STEPS = 100000;
 
+  private boolean useBitVectorSolver = true;
+
   /**
    * Constructs a data flow analysis.
    *
@@ -154,6 +164,14 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
     return joinOp.apply(Lists.<L>newArrayList(latticeA, latticeB));
   }
 
+  /**
+   * Sets whether an analysis that implements {@link GenKillAnalysis} is
+   * solved with a {@link BitVectorSolver}. It is by default.
+   */
+  void setUseBitVectorSolver(boolean useBitVectorSolver) {
+    this.useBitVectorSolver = useBitVectorSolver;
+  }
+
   /**
    * Checks whether the analysis is a forward flow analysis or backward flow
    * analysis.
@@ -197,9 +215,17 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
    *
    * @param maxSteps Max number of iterations before the method stops and throw
    *        a {@link MaxIterationsExceededException}. This will prevent the
-   *        analysis from going into a infinite loop.
+   *        analysis from going into a infinite loop. A
+   *        {@link GenKillAnalysis}, which cannot loop, only counts the
+   *        iterations after the first one at each node.
    */
+  @SuppressWarnings("unchecked")
   final void analyze(int maxSteps) {
+    if (useBitVectorSolver && this instanceof GenKillAnalysis) {
+      analyzeGenKill((GenKillAnalysis<N, L>) this, maxSteps);
+      return;
+    }
+
     initialize();
     int step = 0;
     while (!orderedWorkSet.isEmpty()) {
@@ -229,6 +255,40 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
     }
   }
 
+  /**
+   * Finds a fixed-point solution with a {@link BitVectorSolver}, and
+   * annotates the nodes with it the same way as {@link #analyze(int)}.
+   */
+  private void analyzeGenKill(GenKillAnalysis<N, L> analysis, int maxSteps) {
+    int nodeCount = cfg.getNodeCount();
+    DiGraphNode<N, Branch> implicitReturn = cfg.getImplicitReturn();
+    List<N> nodes = Lists.newArrayListWithCapacity(nodeCount);
+    for (int i = 0; i < nodeCount; i++) {
+      DiGraphNode<N, Branch> node = cfg.getNodeAt(i);
+      nodes.add(node == implicitReturn ? null : node.getValue());
+    }
+    BitSet[] gen = new BitSet[nodeCount];
+    BitSet[] kill = new BitSet[nodeCount];
+    int bitCount = analysis.computeGenKill(nodes, gen, kill);
+
+    BitVectorSolver solver = new BitVectorSolver(cfg, isForward(),
+        analysis.isUnion(), bitCount, analysis.getBoundaryBits(), gen, kill);
+    solver.solve(maxSteps);
+
+    BitVectorResults<N, L> results =
+        new BitVectorResults<N, L>(cfg, isForward(), analysis, solver);
+    for (int i = 0; i < nodeCount; i++) {
+      DiGraphNode<N, Branch> node = cfg.getNodeAt(i);
+      if (node == implicitReturn) {
+        node.setAnnotation(new FlowState<L>(
+            isForward() ? results.getIn(i) : createInitialEstimateLattice(),
+            createInitialEstimateLattice()));
+      } else {
+        node.setAnnotation(new FlowState<L>(results, i));
+      }
+    }
+  }
+
   /**
    * Gets the state of the initial estimation at each node.
    *
@@ -333,6 +393,11 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
     private L in;
     private L out;
 
+    // Where the states come from if they were found by a BitVectorSolver,
+    // and are made when they are first asked for.
+    private final BitVectorResults<?, L> results;
+    private final int index;
+
     /**
      * Private constructor. No other classes should create new states.
      *
@@ -344,9 +409,23 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
       Preconditions.checkNotNull(outState);
       this.in = inState;
       this.out = outState;
+      this.results = null;
+      this.index = -1;
+    }
+
+    /**
+     * Private constructor for the states of a node found by a
+     * {@link BitVectorSolver}.
+     */
+    private FlowState(BitVectorResults<?, L> results, int index) {
+      this.results = results;
+      this.index = index;
     }
 
     L getIn() {
+      if (in == null) {
+        in = results.getIn(index);
+      }
       return in;
     }
 
@@ -356,6 +435,9 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
     }
 
     L getOut() {
+      if (out == null) {
+        out = results.getOut(index);
+      }
       return out;
     }
 
@@ -366,15 +448,112 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
 
     @Override
     public String toString() {
-      return String.format("IN: %s OUT: %s", in, out);
+      return String.format("IN: %s OUT: %s", getIn(), getOut());
     }
 
     @Override
     public int hashCode() {
-      return Objects.hashCode(in, out);
+      return Objects.hashCode(getIn(), getOut());
     }
   }
 
+  /**
+   * The fixed point found by a {@link BitVectorSolver}. Lattice elements
+   * are made from its rows when they are first asked for, since analyses
+   * often only look at a few nodes. Like with the generic solver, a node
+   * that joins a single other node shares its lattice element.
+   */
+  private static class BitVectorResults<N, L extends LatticeElement> {
+    private final ControlFlowGraph<N> cfg;
+    private final boolean forward;
+    private final GenKillAnalysis<N, L> analysis;
+    private final BitVectorSolver solver;
+
+    // The lattice element of the result of each node's flow function, by
+    // node index, or null if it has not been made yet.
+    private final List<L> results;
+
+    BitVectorResults(ControlFlowGraph<N> cfg, boolean forward,
+        GenKillAnalysis<N, L> analysis, BitVectorSolver solver) {
+      this.cfg = cfg;
+      this.forward = forward;
+      this.analysis = analysis;
+      this.solver = solver;
+      this.results = new ArrayList<L>(
+          Collections.<L>nCopies(cfg.getNodeCount(), null));
+    }
+
+    L getIn(int index) {
+      return forward ? getJoined(index) : getResult(index);
+    }
+
+    L getOut(int index) {
+      return forward ? getResult(index) : getJoined(index);
+    }
+
+    private L getResult(int index) {
+      L result = results.get(index);
+      if (result == null) {
+        result = analysis.createLattice(
+            forward ? solver.getOut(index) : solver.getIn(index));
+        results.set(index, result);
+      }
+      return result;
+    }
+
+    private L getJoined(int index) {
+      int degree = forward ?
+          cfg.getInDegree(index) : cfg.getOutDegree(index);
+      if (degree == 1 &&
+          !(forward && cfg.getNodeAt(index) == cfg.getEntry())) {
+        return getResult(forward ?
+            cfg.getPredecessor(index, 0) : cfg.getSuccessor(index, 0));
+      }
+      return analysis.createLattice(
+          forward ? solver.getIn(index) : solver.getOut(index));
+    }
+  }
+
+  /**
+   * A data flow analysis whose lattice elements are sets of bits, and
+   * whose flow equation at each node is {@code (input - kill) | gen}, for
+   * sets gen and kill that only depend on the node. The join is either
+   * union or intersection, and the initial estimate is its identity (the
+   * empty set or the set of all bits).
+   *
+   * @param <N> The control flow graph's node value type.
+   * @param <L> Lattice element type.
+   */
+  interface GenKillAnalysis<N, L extends LatticeElement> {
+    /**
+     * Computes the gen and kill sets of all the nodes, in node index order.
+     *
+     * @param nodes The nodes, with null in place of the implicit return.
+     * @param gen The array to put the gen sets in. A null gen set is empty.
+     * @param kill The array to put the kill sets in. A null kill set is
+     *     empty.
+     * @return The number of bits in the sets.
+     */
+    int computeGenKill(List<N> nodes, BitSet[] gen, BitSet[] kill);
+
+    /** Returns whether the join is union, rather than intersection. */
+    boolean isUnion();
+
+    /**
+     * Returns the set at the entry of a forward analysis, or at the exit of
+     * a backward one. This is called after {@link #computeGenKill}.
+     */
+    BitSet getBoundaryBits();
+
+    /**
+     * Returns the lattice element for a set of bits.
+     *
+     * @param bits The set, as a row of words in the form of
+     *     {@link BitVectorSolver}, that the lattice element may keep.
+     */
+    L createLattice(long[] bits);
+  }
+
   /**
    * The exception to be thrown if the analysis has been running for a long
    * number of iterations. Chances are the analysis is not monotonic, a
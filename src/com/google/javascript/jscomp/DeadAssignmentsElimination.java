@@ -40,39 +40,80 @@ class DeadAssignmentsElimination extends AbstractPostOrderCallback implements
     CompilerPass, ScopedCallback {
 
   private final AbstractCompiler compiler;
+  private final PrecomputedScopeAnalyses<LiveVariablesAnalysis> analyses;
   private LiveVariablesAnalysis liveness;
 
+  // The change stamp since which functions have to be looked at again,
+  // or -1 to look at everything.
+  private long sinceChangeStamp = -1;
+
   public DeadAssignmentsElimination(AbstractCompiler compiler) {
+    this(compiler, 1);
+  }
+
+  /**
+   * @param numThreads The number of threads to run the liveness analyses on.
+   */
+  DeadAssignmentsElimination(final AbstractCompiler compiler, int numThreads) {
     this.compiler = compiler;
+    this.analyses = new PrecomputedScopeAnalyses<LiveVariablesAnalysis>(
+        compiler, numThreads) {
+      @Override
+      boolean shouldAnalyze(NodeTraversal t) {
+        // Global scope _SHOULD_ work, however, liveness won't finish without
+        // -Xmx1024 in closure. We might have to look at coding conventions for
+        // exported variables as well.
+        if (t.inGlobalScope()) {
+          return false;
+        }
+
+        // A function that has not changed since the last run has nothing
+        // left to remove.
+        if (sinceChangeStamp >= 0 && !compiler.hasScopeChangedSince(
+                t.getScopeRoot(), sinceChangeStamp)) {
+          return false;
+        }
+
+        // We are not going to do any dead assignment elimination in when there
+        // is at least one inner function because in most browsers, when there
+        // is a closure, ALL the variables are saved (escaped).
+        return !NodeUtil.containsFunction(t.getScopeRoot().getLastChild());
+      }
+
+      @Override
+      LiveVariablesAnalysis analyze(Scope scope) {
+        ControlFlowAnalysis cfa = new ControlFlowAnalysis(compiler, false);
+        cfa.process(null, scope.getRootNode());
+        LiveVariablesAnalysis liveness =
+            new LiveVariablesAnalysis(cfa.getCfg(), scope, compiler);
+        liveness.analyze();
+        return liveness;
+      }
+    };
+  }
+
+  /**
+   * Only looks at the functions that have changed since the given change
+   * stamp. Returns this for easy chaining.
+   */
+  DeadAssignmentsElimination onlyInFunctionsChangedSince(long changeStamp) {
+    this.sinceChangeStamp = changeStamp;
+    return this;
   }
 
   @Override
   public void process(Node externs, Node root) {
     Preconditions.checkNotNull(externs);
     Preconditions.checkNotNull(root);
-    NodeTraversal.traverse(compiler, root, this);
+    analyses.traverse(root, this);
   }
 
   @Override
   public void enterScope(NodeTraversal t) {
-    Scope scope = t.getScope();
-    // Global scope _SHOULD_ work, however, liveness won't finish without
-    // -Xmx1024 in closure. We might have to look at coding conventions for
-    // exported variables as well.
-    if (scope.isGlobal()) {
-      return;
-    }
-
-    // We are not going to do any dead assignment elimination in when there is
-    // at least one inner function because in most browsers, when there is a
-    // closure, ALL the variables are saved (escaped).
-    if (!NodeUtil.containsFunction(
-        t.getScopeRoot().getLastChild())) {
-      // Computes liveness information first.
-      ControlFlowGraph<Node> cfg = t.getControlFlowGraph();
-      liveness = new LiveVariablesAnalysis(cfg, scope, compiler);
-      liveness.analyze();
-      tryRemoveDeadAssignments(t, cfg);
+    // Computes liveness information first.
+    liveness = analyses.get(t);
+    if (liveness != null) {
+      tryRemoveDeadAssignments(t, liveness.getCfg());
     }
   }
 
@@ -185,7 +226,7 @@ class DeadAssignmentsElimination extends AbstractPostOrderCallback implements
           NodeUtil.isAssign(n)) {
         n.removeChild(rhs);
         n.getParent().replaceChild(n, rhs);
-        compiler.reportCodeChange();
+        compiler.reportChangeToEnclosingScope(parent);
         return;
       }
 
@@ -235,7 +276,7 @@ class DeadAssignmentsElimination extends AbstractPostOrderCallback implements
         Preconditions.checkState(false, "Unknown statement");
       }
 
-      compiler.reportCodeChange();
+      compiler.reportChangeToEnclosingScope(parent);
       return;
 
     } else {
@@ -77,11 +77,18 @@ public class DefaultPassConfig extends PassConfig {
           "Input variable map parse error: {0}");
 
   /**
-   * A global namespace to share across checking passes.
+   * A global namespace to share across the passes that need one. It is
+   * brought up to date with the changes made in between.
    * TODO(nicksantos): This is a hack until I can get the namespace into
    * the symbol table.
    */
-  private GlobalNamespace namespaceForChecks = null;
+  private GlobalNamespace globalNamespace = null;
+
+  /**
+   * A definition finder to share across the passes that need one. Each pass
+   * brings it up to date with the changes made since it was last used.
+   */
+  private SimpleDefinitionFinder definitionFinder = null;
 
   /**
    * A type-tightener to share across optimization passes.
@@ -597,6 +604,26 @@ public class DefaultPassConfig extends PassConfig {
     return passes;
   }
 
+  /**
+   * Runs a pass that looks at one function at a time on several threads, if
+   * the options ask for it.
+   * @param includeGlobalCode Whether the pass also looks at the code outside
+   *     of functions.
+   */
+  private PassFactory functionLocal(
+      final PassFactory factory, final boolean includeGlobalCode) {
+    if (options.optimizationThreadCount <= 1) {
+      return factory;
+    }
+    return new PassFactory(factory.getName(), factory.isOneTimePass()) {
+      @Override
+      protected CompilerPass createInternal(AbstractCompiler compiler) {
+        return ParallelCompilerPass.createFunctionLocalPass(compiler,
+            factory, includeGlobalCode, options.optimizationThreadCount);
+      }
+    };
+  }
+
   /** Creates several passes aimed at removing code. */
   private List<PassFactory> getCodeRemovingPasses() {
     List<PassFactory> passes = Lists.newArrayList();
@@ -612,12 +639,12 @@ public class DefaultPassConfig extends PassConfig {
 
     if (options.foldConstants) {
       // These used to be one pass.
-      passes.add(minimizeExitPoints);
-      passes.add(peepholeOptimizations);
+      passes.add(functionLocal(minimizeExitPoints, true));
+      passes.add(functionLocal(peepholeOptimizations, true));
     }
 
     if (options.removeDeadCode) {
-      passes.add(removeUnreachableCode);
+      passes.add(functionLocal(removeUnreachableCode, true));
     }
 
     if (options.removeUnusedPrototypeProperties) {
@@ -1033,12 +1060,9 @@ public class DefaultPassConfig extends PassConfig {
       return new CompilerPass() {
         @Override
         public void process(Node externs, Node jsRoot) {
-          // Create a global namespace for analysis by check passes.
-          // Note that this class does all heavy computation lazily,
-          // so it's OK to create it here.
-          namespaceForChecks = new GlobalNamespace(compiler, jsRoot);
           new CheckGlobalNames(compiler, options.checkGlobalNamesLevel)
-              .injectNamespace(namespaceForChecks).process(externs, jsRoot);
+              .injectNamespace(getGlobalNamespace(compiler, jsRoot))
+              .process(externs, jsRoot);
         }
       };
     }
@@ -1080,12 +1104,15 @@ public class DefaultPassConfig extends PassConfig {
           replacements.putAll(options.getDefineReplacements());
 
           new ProcessDefines(compiler, replacements)
-              .injectNamespace(namespaceForChecks).process(externs, jsRoot);
-
-          // Kill the namespace in the other class
-          // so that it can be garbage collected after all passes
-          // are through with it.
-          namespaceForChecks = null;
+              .injectNamespace(getGlobalNamespace(compiler, jsRoot))
+              .process(externs, jsRoot);
+
+          if (!options.collapseProperties ||
+              options.collapsePropertiesOnExternTypes) {
+            // No one else needs the namespace, so let it be garbage
+            // collected.
+            globalNamespace = null;
+          }
         }
       };
     }
@@ -1196,13 +1223,58 @@ public class DefaultPassConfig extends PassConfig {
   private final PassFactory collapseProperties =
       new PassFactory("collapseProperties", true) {
     @Override
-    protected CompilerPass createInternal(AbstractCompiler compiler) {
-      return new CollapseProperties(
-          compiler, options.collapsePropertiesOnExternTypes,
-          !isInliningForbidden());
+    protected CompilerPass createInternal(final AbstractCompiler compiler) {
+      if (options.collapsePropertiesOnExternTypes) {
+        // The shared namespace does not include the externs.
+        return new CollapseProperties(
+            compiler, true, !isInliningForbidden());
+      }
+
+      return new CompilerPass() {
+        @Override
+        public void process(Node externs, Node jsRoot) {
+          new CollapseProperties(compiler, false, !isInliningForbidden())
+              .injectNamespace(getGlobalNamespace(compiler, jsRoot))
+              .process(externs, jsRoot);
+
+          // CollapseProperties edits the names as it goes, so the namespace
+          // can't be trusted after it. It is the last pass to use it anyway.
+          globalNamespace = null;
+        }
+      };
     }
   };
 
+  /**
+   * Gets the definition finder shared by the passes that look up the
+   * definitions of names. It is gathered the first time it is asked for;
+   * after that, the passes are expected to update it themselves.
+   */
+  private SimpleDefinitionFinder getDefinitionFinder(
+      AbstractCompiler compiler, Node externs, Node jsRoot) {
+    if (definitionFinder == null) {
+      definitionFinder = new SimpleDefinitionFinder(compiler);
+      definitionFinder.process(externs, jsRoot);
+    }
+    return definitionFinder;
+  }
+
+  /**
+   * Gets the global namespace shared by CheckGlobalNames, ProcessDefines and
+   * CollapseProperties, updated for any changes made since it was last used.
+   * The namespace does all heavy computation lazily, so it's OK to create
+   * it here.
+   */
+  private GlobalNamespace getGlobalNamespace(
+      AbstractCompiler compiler, Node jsRoot) {
+    if (globalNamespace == null) {
+      globalNamespace = new GlobalNamespace(compiler, jsRoot);
+    } else {
+      globalNamespace.update();
+    }
+    return globalNamespace;
+  }
+
   /**
    * Try to infer the actual types, which may be narrower
    * than the declared types.
@@ -1239,8 +1311,16 @@ public class DefaultPassConfig extends PassConfig {
   private final PassFactory chainCalls =
       new PassFactory("chainCalls", true) {
     @Override
-    protected CompilerPass createInternal(AbstractCompiler compiler) {
-      return new ChainCalls(compiler);
+    protected CompilerPass createInternal(final AbstractCompiler compiler) {
+      return new CompilerPass() {
+        @Override
+        public void process(Node externs, Node jsRoot) {
+          new ChainCalls(compiler)
+              .injectDefinitionFinder(
+                  getDefinitionFinder(compiler, externs, jsRoot))
+              .process(externs, jsRoot);
+        }
+      };
     }
   };
 
@@ -1251,8 +1331,16 @@ public class DefaultPassConfig extends PassConfig {
   private final PassFactory devirtualizePrototypeMethods =
       new PassFactory("devirtualizePrototypeMethods", true) {
     @Override
-    protected CompilerPass createInternal(AbstractCompiler compiler) {
-      return new DevirtualizePrototypeMethods(compiler);
+    protected CompilerPass createInternal(final AbstractCompiler compiler) {
+      return new CompilerPass() {
+        @Override
+        public void process(Node externs, Node jsRoot) {
+          new DevirtualizePrototypeMethods(compiler)
+              .injectDefinitionFinder(
+                  getDefinitionFinder(compiler, externs, jsRoot))
+              .process(externs, jsRoot);
+        }
+      };
     }
   };
 
@@ -1263,9 +1351,17 @@ public class DefaultPassConfig extends PassConfig {
   private final PassFactory markPureFunctions =
       new PassFactory("markPureFunctions", true) {
     @Override
-    protected CompilerPass createInternal(AbstractCompiler compiler) {
-      return new PureFunctionMarker(
-          compiler, options.debugFunctionSideEffectsPath, false);
+    protected CompilerPass createInternal(final AbstractCompiler compiler) {
+      return new CompilerPass() {
+        @Override
+        public void process(Node externs, Node jsRoot) {
+          new PureFunctionMarker(
+              compiler, options.debugFunctionSideEffectsPath, false)
+              .injectDefinitionFinder(
+                  getDefinitionFinder(compiler, externs, jsRoot))
+              .process(externs, jsRoot);
+        }
+      };
     }
   };
 
@@ -1276,8 +1372,16 @@ public class DefaultPassConfig extends PassConfig {
   private final PassFactory markNoSideEffectCalls =
       new PassFactory("markNoSideEffectCalls", true) {
     @Override
-    protected CompilerPass createInternal(AbstractCompiler compiler) {
-      return new MarkNoSideEffectCalls(compiler);
+    protected CompilerPass createInternal(final AbstractCompiler compiler) {
+      return new CompilerPass() {
+        @Override
+        public void process(Node externs, Node jsRoot) {
+          new MarkNoSideEffectCalls(compiler)
+              .injectDefinitionFinder(
+                  getDefinitionFinder(compiler, externs, jsRoot))
+              .process(externs, jsRoot);
+        }
+      };
     }
   };
 
@@ -1301,11 +1405,26 @@ public class DefaultPassConfig extends PassConfig {
           throw new IllegalStateException("No variable inlining option set.");
         }
 
-        return new InlineVariables(compiler, mode, true);
+        InlineVariables pass = new InlineVariables(compiler, mode, true);
+        if (mode == InlineVariables.Mode.LOCALS_ONLY) {
+          // Local variables can only be inlined in functions that changed
+          // since the last run, including changes made by that run.
+          if (localVariablesInlinedStamp >= 0) {
+            pass.onlyInFunctionsChangedSince(localVariablesInlinedStamp);
+          }
+          localVariablesInlinedStamp = compiler.getChangeStamp();
+        }
+        return pass;
       }
     }
   };
 
+  /**
+   * The change stamp from when local variables were last inlined, or -1 if
+   * they have not been.
+   */
+  private long localVariablesInlinedStamp = -1;
+
   /** Inlines variables that are marked as constants. */
   private final PassFactory inlineConstants =
       new PassFactory("inlineConstants", false) {
@@ -1408,10 +1527,24 @@ public class DefaultPassConfig extends PassConfig {
       new PassFactory("deadAssignmentsElimination", false) {
     @Override
     protected CompilerPass createInternal(AbstractCompiler compiler) {
-      return new DeadAssignmentsElimination(compiler);
+      DeadAssignmentsElimination pass = new DeadAssignmentsElimination(
+          compiler, options.optimizationThreadCount);
+      // Only functions that changed since the last run, including changes
+      // made by that run, can have new dead assignments.
+      if (deadAssignmentsEliminatedStamp >= 0) {
+        pass.onlyInFunctionsChangedSince(deadAssignmentsEliminatedStamp);
+      }
+      deadAssignmentsEliminatedStamp = compiler.getChangeStamp();
+      return pass;
     }
   };
 
+  /**
+   * The change stamp from when dead assignments were last eliminated, or -1
+   * if they have not been.
+   */
+  private long deadAssignmentsEliminatedStamp = -1;
+
   /** Inlines function calls. */
   private PassFactory inlineFunctions =
       new PassFactory("inlineFunctions", false) {
@@ -1472,7 +1605,8 @@ public class DefaultPassConfig extends PassConfig {
       new PassFactory("flowSensitiveInlineVariables", true) {
     @Override
     protected CompilerPass createInternal(AbstractCompiler compiler) {
-      return new FlowSensitiveInlineVariables(compiler);
+      return new FlowSensitiveInlineVariables(
+          compiler, options.optimizationThreadCount);
     }
   };
 
@@ -1481,7 +1615,8 @@ public class DefaultPassConfig extends PassConfig {
       new PassFactory("coalesceVariableNames", true) {
     @Override
     protected CompilerPass createInternal(AbstractCompiler compiler) {
-      return new CoalesceVariableNames(compiler, options.generatePseudoNames);
+      return new CoalesceVariableNames(compiler, options.generatePseudoNames,
+          options.optimizationThreadCount);
     }
   };
 
@@ -1874,6 +2009,7 @@ public class DefaultPassConfig extends PassConfig {
     private final AbstractCompiler compiler;
     private final String reportPath;
     private final boolean useNameReferenceGraph;
+    private SimpleDefinitionFinder defFinder = null;
 
     PureFunctionMarker(AbstractCompiler compiler, String reportPath,
         boolean useNameReferenceGraph) {
@@ -1882,6 +2018,16 @@ public class DefaultPassConfig extends PassConfig {
       this.useNameReferenceGraph = useNameReferenceGraph;
     }
 
+    /**
+     * Injects a definition finder that is shared with other passes. It is
+     * brought up to date before it is used. Returns this for easy chaining.
+     */
+    PureFunctionMarker injectDefinitionFinder(
+        SimpleDefinitionFinder defFinder) {
+      this.defFinder = defFinder;
+      return this;
+    }
+
     @Override
     public void process(Node externs, Node root) {
       DefinitionProvider definitionProvider = null;
@@ -1891,8 +2037,12 @@ public class DefaultPassConfig extends PassConfig {
         graphBuilder.process(externs, root);
         definitionProvider = graphBuilder.getNameReferenceGraph();
       } else {
-        SimpleDefinitionFinder defFinder = new SimpleDefinitionFinder(compiler);
-        defFinder.process(externs, root);
+        if (defFinder == null) {
+          defFinder = new SimpleDefinitionFinder(compiler);
+          defFinder.process(externs, root);
+        } else {
+          defFinder.update();
+        }
         definitionProvider = defFinder;
       }
 
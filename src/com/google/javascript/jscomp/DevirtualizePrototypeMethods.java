@@ -66,15 +66,30 @@ import java.util.List;
  */
 class DevirtualizePrototypeMethods implements CompilerPass {
   private final AbstractCompiler compiler;
+  private SimpleDefinitionFinder defFinder = null;
 
   DevirtualizePrototypeMethods(AbstractCompiler compiler) {
     this.compiler = compiler;
   }
 
+  /**
+   * Injects a definition finder that is shared with other passes. It is
+   * brought up to date before it is used. Returns this for easy chaining.
+   */
+  DevirtualizePrototypeMethods injectDefinitionFinder(
+      SimpleDefinitionFinder defFinder) {
+    this.defFinder = defFinder;
+    return this;
+  }
+
   @Override
   public void process(Node externs, Node root) {
-    SimpleDefinitionFinder defFinder = new SimpleDefinitionFinder(compiler);
-    defFinder.process(externs, root);
+    if (defFinder == null) {
+      defFinder = new SimpleDefinitionFinder(compiler);
+      defFinder.process(externs, root);
+    } else {
+      defFinder.update();
+    }
 
     for (DefinitionSite defSite : defFinder.getDefinitionSites()) {
       rewriteDefinitionIfEligible(defSite, defFinder);
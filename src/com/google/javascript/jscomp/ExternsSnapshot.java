@@ -0,0 +1,199 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.javascript.jscomp.mozilla.rhino.ErrorReporter;
+import com.google.javascript.jscomp.mozilla.rhino.EvaluatorException;
+import com.google.javascript.jscomp.parsing.Config;
+import com.google.javascript.jscomp.parsing.ParserRunner;
+import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.Token;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * An immutable set of parsed externs that can be shared by any number of
+ * compilations in the same JVM, so that a long-running process only pays
+ * for parsing its externs once.
+ *
+ * <p>Each compilation gets its own copy of every tree (see
+ * {@link Node#cloneTree}), so passes are free to modify it. Copies share
+ * the immutable parts of the shared trees, like {@link
+ * com.google.javascript.rhino.JSDocInfo}. Externs that did not parse
+ * cleanly are not shared; they are parsed again by each compilation, so
+ * that their errors are still reported.
+ *
+ * <p>Only the parse trees are shared. Each compilation still builds the
+ * native types of its {@link com.google.javascript.rhino.jstype.JSTypeRegistry}
+ * and the global {@link Scope} of the externs itself: the passes change
+ * the types in place, for instance when they infer or tighten them or
+ * rename properties, so a registry cannot be used by more than one
+ * compilation, and the types in it are too entangled to copy.
+ *
+ * <p>Snapshots are built with a parser configuration derived from the
+ * {@link CompilerOptions} given to {@link #create}. A compilation whose
+ * options call for a different configuration parses the externs itself.
+ *
+ * @see Compiler#initModules(ExternsSnapshot, List, CompilerOptions)
+ */
+public final class ExternsSnapshot {
+
+  private static final Logger logger =
+      Logger.getLogger(ExternsSnapshot.class.getName());
+
+  private final List<JSSourceFile> files;
+
+  // The raw parse tree of each file, or null if it had any diagnostics.
+  private final List<Node> templates;
+
+  private final String configFingerprint;
+
+  private ExternsSnapshot(List<JSSourceFile> files, List<Node> templates,
+      String configFingerprint) {
+    this.files = files;
+    this.templates = templates;
+    this.configFingerprint = configFingerprint;
+  }
+
+  /**
+   * Parses the given externs.
+   *
+   * @param externs The externs files, in the order they will be compiled.
+   * @param options The options of the compilations that will use this
+   *     snapshot. Only the ones that affect parsing are used.
+   */
+  public static ExternsSnapshot create(
+      List<JSSourceFile> externs, CompilerOptions options) {
+    Config config = ParserRunner.createConfig(options.ideMode);
+    List<Node> templates = Lists.newArrayList();
+    for (JSSourceFile file : externs) {
+      templates.add(parse(file, config));
+    }
+    return new ExternsSnapshot(ImmutableList.copyOf(externs),
+        templates, config.getFingerprint());
+  }
+
+  private static Node parse(JSSourceFile file, Config config) {
+    FlaggingErrorReporter errorReporter = new FlaggingErrorReporter();
+    try {
+      Node root = ParserRunner.parse(file.getName(), file.getCode(), config,
+          errorReporter, logger);
+      return errorReporter.hasReports ? null : root;
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /** Returns the externs files this snapshot was created from. */
+  public List<JSSourceFile> getFiles() {
+    return files;
+  }
+
+  /**
+   * Creates the extern inputs for one compilation.
+   */
+  List<CompilerInput> createInputs(Config config) {
+    boolean isCompatible = configFingerprint.equals(config.getFingerprint());
+    List<CompilerInput> inputs = Lists.newArrayList();
+    for (int i = 0; i < files.size(); i++) {
+      JSSourceFile file = files.get(i);
+      Node template = templates.get(i);
+      SourceAst ast = (isCompatible && template != null) ?
+          new SharedAst(file, template) : new JsAst(file);
+      inputs.add(new CompilerInput(ast, file.getName(), true));
+    }
+    return inputs;
+  }
+
+  /**
+   * An AST whose tree is a private copy of a shared parse tree. Like
+   * {@link JsAst}, it is only prepared for the compiler that asks for it.
+   */
+  private static class SharedAst implements SourceAst {
+    private static final long serialVersionUID = 1L;
+
+    private transient SourceFile sourceFile;
+    private final String fileName;
+    private final Node template;
+    private Node root;
+
+    SharedAst(SourceFile sourceFile, Node template) {
+      this.sourceFile = sourceFile;
+      this.fileName = sourceFile.getName();
+      this.template = template;
+    }
+
+    @Override
+    public Node getAstRoot(AbstractCompiler compiler) {
+      if (root == null) {
+        if (compiler.hasHaltingErrors()) {
+          root = new Node(Token.BLOCK);
+        } else {
+          root = template.cloneTree();
+          compiler.prepareAst(root);
+        }
+        root.putProp(Node.SOURCENAME_PROP, fileName);
+      }
+      return root;
+    }
+
+    @Override
+    public void clearAst() {
+      root = null;
+    }
+
+    @Override
+    public SourceFile getSourceFile() {
+      return sourceFile;
+    }
+
+    @Override
+    public void setSourceFile(SourceFile file) {
+      Preconditions.checkState(fileName.equals(file.getName()));
+      sourceFile = file;
+    }
+  }
+
+  /** Remembers whether the parser reported anything at all. */
+  private static class FlaggingErrorReporter implements ErrorReporter {
+    boolean hasReports = false;
+
+    @Override
+    public void warning(String message, String sourceName, int line,
+        String lineSource, int lineOffset) {
+      hasReports = true;
+    }
+
+    @Override
+    public void error(String message, String sourceName, int line,
+        String lineSource, int lineOffset) {
+      hasReports = true;
+    }
+
+    @Override
+    public EvaluatorException runtimeError(String message, String sourceName,
+        int line, String lineSource, int lineOffset) {
+      return new EvaluatorException(
+          message, sourceName, line, lineSource, lineOffset);
+    }
+  }
+}
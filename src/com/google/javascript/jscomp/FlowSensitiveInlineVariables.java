@@ -71,12 +71,11 @@ class FlowSensitiveInlineVariables extends AbstractPostOrderCallback
    * need two separate dataflow result.
    */
   private final AbstractCompiler compiler;
+  private final PrecomputedScopeAnalyses<FunctionAnalysis> analyses;
 
   // These two pieces of data is persistent in the whole execution of enter
   // scope.
   private ControlFlowGraph<Node> cfg;
-  private List<Candidate> candidates;
-  private MustBeReachingVariableDef reachingDef;
   private MaybeReachingVariableUse reachingUses;
 
   private static final Predicate<Node> SIDE_EFFECT_PREDICATE =
@@ -110,39 +109,69 @@ class FlowSensitiveInlineVariables extends AbstractPostOrderCallback
   };
 
   public FlowSensitiveInlineVariables(AbstractCompiler compiler) {
+    this(compiler, 1);
+  }
+
+  /**
+   * @param numThreads The number of threads to run the data flow analyses on.
+   */
+  FlowSensitiveInlineVariables(AbstractCompiler compiler, int numThreads) {
     this.compiler = compiler;
+    this.analyses = new PrecomputedScopeAnalyses<FunctionAnalysis>(
+        compiler, numThreads) {
+      @Override
+      boolean shouldAnalyze(NodeTraversal t) {
+        // Don't even brother. All global variables are likely escaped.
+        return !t.inGlobalScope();
+      }
+
+      @Override
+      FunctionAnalysis analyze(Scope scope) {
+        return analyzeFunction(scope);
+      }
+    };
   }
 
   @Override
   public void enterScope(NodeTraversal t) {
+    FunctionAnalysis analysis = analyses.get(t);
+    if (analysis == null) {
+      return;
+    }
 
-    if (t.inGlobalScope()) {
-      return; // Don't even brother. All global variables are likely escaped.
+    cfg = analysis.cfg;
+    reachingUses = analysis.reachingUses;
+    for (Candidate c : analysis.candidates) {
+      if (c.canInline()) {
+        c.inlineVariable();
+      }
     }
+  }
 
+  private FunctionAnalysis analyzeFunction(Scope scope) {
     // Compute the forward reaching definition.
     ControlFlowAnalysis cfa = new ControlFlowAnalysis(compiler, false);
     // Process the body of the function.
-    Preconditions.checkState(NodeUtil.isFunction(t.getScopeRoot()));
-    cfa.process(null, t.getScopeRoot().getLastChild());
-    cfg = cfa.getCfg();
-    reachingDef = new MustBeReachingVariableDef(cfg, t.getScope(), compiler);
+    Node root = scope.getRootNode();
+    Preconditions.checkState(NodeUtil.isFunction(root));
+    cfa.process(null, root.getLastChild());
+    ControlFlowGraph<Node> cfg = cfa.getCfg();
+    MustBeReachingVariableDef reachingDef =
+        new MustBeReachingVariableDef(cfg, scope, compiler);
     reachingDef.analyze();
-    candidates = Lists.newLinkedList();
+    List<Candidate> candidates = Lists.newLinkedList();
 
     // Using the forward reaching definition search to find all the inline
     // candiates
-    new NodeTraversal(compiler, new GatherCandiates()).traverse(
-        t.getScopeRoot().getLastChild());
+    new NodeTraversal(compiler,
+        new GatherCandiates(cfg, reachingDef, candidates)).traverse(
+            root.getLastChild());
 
     // Compute the backward reaching use. The CFG can be reused.
-    reachingUses = new MaybeReachingVariableUse(cfg, t.getScope(), compiler);
+    MaybeReachingVariableUse reachingUses =
+        new MaybeReachingVariableUse(cfg, scope, compiler);
     reachingUses.analyze();
-    for (Candidate c : candidates) {
-      if (c.canInline()) {
-        c.inlineVariable();
-      }
-    }
+    return new FunctionAnalysis(cfg, reachingUses, candidates);
   }
 
   @Override
@@ -150,7 +179,7 @@ class FlowSensitiveInlineVariables extends AbstractPostOrderCallback
 
   @Override
   public void process(Node externs, Node root) {
-    (new NodeTraversal(compiler, this)).traverse(root);
+    analyses.traverse(root, this);
   }
 
   @Override
@@ -165,11 +194,22 @@ class FlowSensitiveInlineVariables extends AbstractPostOrderCallback
   /**
    * Gathers a list of possible candidates for inlining based only on
    * information from {@link MustBeReachingVariableDef}. The list will be stored
-   * in {@code candidiates} and the validity of each inlining Candidate should
-   * be later verified with {@link Candidate#canInline()} when
-   * {@link MaybeReachingVariableUse} has been performed.
+   * in the given {@code candidiates} and the validity of each inlining
+   * Candidate should be later verified with {@link Candidate#canInline()}
+   * when {@link MaybeReachingVariableUse} has been performed.
    */
   private class GatherCandiates extends AbstractShallowCallback {
+    private final ControlFlowGraph<Node> cfg;
+    private final MustBeReachingVariableDef reachingDef;
+    private final List<Candidate> candidates;
+
+    GatherCandiates(ControlFlowGraph<Node> cfg,
+        MustBeReachingVariableDef reachingDef, List<Candidate> candidates) {
+      this.cfg = cfg;
+      this.reachingDef = reachingDef;
+      this.candidates = candidates;
+    }
+
     @Override
     public void visit(NodeTraversal t, Node n, Node parent) {
       DiGraphNode<Node, Branch> graphNode = cfg.getDirectedGraphNode(n);
@@ -213,6 +253,22 @@ class FlowSensitiveInlineVariables extends AbstractPostOrderCallback
     }
   }
 
+  /**
+   * The results of the data flow analyses of a function.
+   */
+  private static class FunctionAnalysis {
+    private final ControlFlowGraph<Node> cfg;
+    private final MaybeReachingVariableUse reachingUses;
+    private final List<Candidate> candidates;
+
+    FunctionAnalysis(ControlFlowGraph<Node> cfg,
+        MaybeReachingVariableUse reachingUses, List<Candidate> candidates) {
+      this.cfg = cfg;
+      this.reachingUses = reachingUses;
+      this.candidates = candidates;
+    }
+  }
+
   /**
    * Models the connection between a definition and a use of that definition.
    */
@@ -374,7 +430,7 @@ class FlowSensitiveInlineVariables extends AbstractPostOrderCallback
       } else {
         Preconditions.checkState(false, "No other definitions can be inlined.");
       }
-      compiler.reportCodeChange();
+      compiler.reportChangeToEnclosingScope(useParent);
     }
 
     /**
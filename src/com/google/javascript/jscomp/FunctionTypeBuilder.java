@@ -216,31 +216,34 @@ final class FunctionTypeBuilder {
       return this;
     }
     Preconditions.checkArgument(functionBlock.getType() == Token.BLOCK);
-    if (returnType == null) {
-      boolean hasNonEmptyReturns = false;
-      List<Node> worklist = Lists.newArrayList(functionBlock);
-      while (!worklist.isEmpty()) {
-        Node current = worklist.remove(worklist.size() - 1);
-        int cType = current.getType();
-        if (cType == Token.RETURN && current.getFirstChild() != null ||
-            cType == Token.THROW) {
-          hasNonEmptyReturns = true;
-          break;
-        } else if (NodeUtil.isStatementBlock(current) ||
-            NodeUtil.isControlStructure(current)) {
-          for (Node child = current.getFirstChild();
-               child != null; child = child.getNext()) {
-            worklist.add(child);
-          }
-        }
-      }
+    if (returnType == null && !hasNonEmptyReturns(functionBlock)) {
+      returnType = typeRegistry.getNativeType(VOID_TYPE);
+      returnTypeInferred = true;
+    }
+    return this;
+  }
 
-      if (!hasNonEmptyReturns) {
-        returnType = typeRegistry.getNativeType(VOID_TYPE);
-        returnTypeInferred = true;
+  /**
+   * Whether the function body has a return statement with a value, or a
+   * throw statement, outside of the functions that it contains.
+   */
+  static boolean hasNonEmptyReturns(Node functionBlock) {
+    List<Node> worklist = Lists.newArrayList(functionBlock);
+    while (!worklist.isEmpty()) {
+      Node current = worklist.remove(worklist.size() - 1);
+      int cType = current.getType();
+      if (cType == Token.RETURN && current.getFirstChild() != null ||
+          cType == Token.THROW) {
+        return true;
+      } else if (NodeUtil.isStatementBlock(current) ||
+          NodeUtil.isControlStructure(current)) {
+        for (Node child = current.getFirstChild();
+             child != null; child = child.getNext()) {
+          worklist.add(child);
+        }
       }
     }
-    return this;
+    return false;
   }
 
   /**
@@ -18,7 +18,11 @@ package com.google.javascript.jscomp;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
-import com.google.javascript.jscomp.NodeTraversal.AbstractPostOrderCallback;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.javascript.jscomp.NodeTraversal.Callback;
 import com.google.javascript.rhino.JSDocInfo;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
@@ -55,6 +59,20 @@ class GlobalNamespace {
   /** Maps names (e.g. "a.b.c") to nodes in the global namespace tree */
   private Map<String, Name> nameMap = new HashMap<String, Name>();
 
+  /**
+   * The references found in each SCRIPT, in traversal order. When a script
+   * changes, its references are dropped and the names they belonged to are
+   * rebuilt from the references that are left.
+   */
+  private final Map<Node, List<ScriptRef>> refsByScript = Maps.newHashMap();
+
+  /** Whether every reference was found in a SCRIPT under one of the roots */
+  private boolean allRefsInScripts = true;
+
+  /** The compiler's change stamp when the namespace was last brought up to
+   * date with the AST. */
+  private long changeStamp;
+
   /**
    * Creates an instance that may emit warnings when building the namespace.
    *
@@ -111,11 +129,185 @@ class GlobalNamespace {
    * @param newNodes New nodes to check.
    */
   void scanNewNodes(Scope scope, Set<Node> newNodes) {
-    NodeTraversal t = new NodeTraversal(compiler,
-        new BuildGlobalNamespace(new NodeFilter(newNodes)));
+    BuildGlobalNamespace builder =
+        new BuildGlobalNamespace(new NodeFilter(newNodes), true);
+    builder.currentScript = getEnclosingScript(scope.getRootNode());
+    NodeTraversal t = new NodeTraversal(compiler, builder);
     t.traverseAtScope(scope);
   }
 
+  /**
+   * Brings the namespace up to date with the changes that have been reported
+   * to the compiler since it was built or last updated. Only the scripts
+   * that changed are traversed again. The names that they referenced are
+   * rebuilt from scratch, so {@link Name} objects that were handed out
+   * before may have been reset or dropped from the namespace.
+   *
+   * Names that were not in the namespace before are added after the
+   * existing ones, rather than in the order a full rebuild would find them.
+   */
+  void update() {
+    if (!generated) {
+      process();
+      return;
+    }
+
+    long stamp = compiler.getChangeStamp();
+    if (stamp == changeStamp) {
+      return;
+    }
+
+    List<Node> scripts = getScripts(root);
+    Set<Node> changedScripts = Sets.newLinkedHashSet();
+    for (Node scopeRoot : compiler.getChangedScopeRoots(root, changeStamp)) {
+      changedScripts.add(getEnclosingScript(scopeRoot));
+    }
+    for (Node script : scripts) {
+      if (!refsByScript.containsKey(script)) {
+        changedScripts.add(script);
+      }
+    }
+
+    if (!allRefsInScripts || changedScripts.contains(null) ||
+        changedScripts.size() == scripts.size()) {
+      rebuild();
+      return;
+    }
+
+    // Drop the references from the changed scripts, and from scripts that
+    // are no longer in the AST.
+    Set<Name> affectedNames = Sets.newHashSet();
+    Set<Node> removedScripts = Sets.newHashSet(refsByScript.keySet());
+    removedScripts.removeAll(scripts);
+    removedScripts.removeAll(getScripts(externsRoot));
+    removedScripts.addAll(changedScripts);
+    for (Node script : removedScripts) {
+      List<ScriptRef> scriptRefs = refsByScript.remove(script);
+      if (scriptRefs != null) {
+        for (ScriptRef scriptRef : scriptRefs) {
+          affectedNames.add(scriptRef.name);
+        }
+      }
+    }
+
+    // Find the references in the changed scripts. They are not added to
+    // their names yet, so that each name gets its references in AST order.
+    Scope globalScope =
+        new SyntacticScopeCreator(compiler).createScope(root, null);
+    inExterns = false;
+    for (Node script : changedScripts) {
+      BuildGlobalNamespace builder = new BuildGlobalNamespace(null, false);
+      new NodeTraversal(compiler, builder).traverseWithScope(
+          script, globalScope);
+      for (ScriptRef scriptRef : refsByScript.get(script)) {
+        affectedNames.add(scriptRef.name);
+      }
+    }
+
+    for (Name name : affectedNames) {
+      name.reset();
+    }
+    for (Node script :
+         Iterables.concat(getScripts(externsRoot), scripts)) {
+      List<ScriptRef> scriptRefs = refsByScript.get(script);
+      if (scriptRefs != null) {
+        for (ScriptRef scriptRef : scriptRefs) {
+          if (affectedNames.contains(scriptRef.name)) {
+            scriptRef.apply();
+          }
+        }
+      }
+    }
+
+    for (Name name : affectedNames) {
+      removeIfUnreferenced(name);
+    }
+    for (Name name : globalNames) {
+      updateClassOrEnumDescendants(name);
+    }
+    changeStamp = stamp;
+  }
+
+  /**
+   * Throws away everything we know and builds the namespace again.
+   */
+  private void rebuild() {
+    globalNames = new ArrayList<Name>();
+    nameMap = new HashMap<String, Name>();
+    refsByScript.clear();
+    allRefsInScripts = true;
+    externsScope = null;
+    process();
+  }
+
+  /**
+   * Removes a name from the namespace if it, and all of its descendants,
+   * are no longer referenced. Its ancestors are removed along with it
+   * if that leaves them in the same state.
+   */
+  private void removeIfUnreferenced(Name name) {
+    if (nameMap.get(name.fullName()) != name ||
+        name.declaration != null ||
+        (name.refs != null && !name.refs.isEmpty()) ||
+        (name.props != null && !name.props.isEmpty())) {
+      return;
+    }
+
+    nameMap.remove(name.fullName());
+    if (name.parent == null) {
+      globalNames.remove(name);
+    } else {
+      name.parent.props.remove(name);
+      removeIfUnreferenced(name.parent);
+    }
+  }
+
+  /**
+   * Recomputes whether a name and its descendants have descendants that
+   * are classes or enums.
+   * @return Whether the name is, or has, a class or enum descendant.
+   */
+  private boolean updateClassOrEnumDescendants(Name name) {
+    boolean hasClassOrEnumDescendant = false;
+    if (name.props != null) {
+      for (Name prop : name.props) {
+        hasClassOrEnumDescendant |= updateClassOrEnumDescendants(prop);
+      }
+    }
+    name.hasClassOrEnumDescendant = hasClassOrEnumDescendant;
+    return hasClassOrEnumDescendant || name.isClassOrEnum;
+  }
+
+  /**
+   * Gets the scripts under a root. The root may be a script itself.
+   */
+  private static List<Node> getScripts(Node root) {
+    List<Node> scripts = Lists.newArrayList();
+    if (root == null) {
+      return scripts;
+    }
+    if (root.getType() == Token.SCRIPT) {
+      scripts.add(root);
+    } else {
+      for (Node c = root.getFirstChild(); c != null; c = c.getNext()) {
+        if (c.getType() == Token.SCRIPT) {
+          scripts.add(c);
+        }
+      }
+    }
+    return scripts;
+  }
+
+  /**
+   * Gets the SCRIPT that contains a node, or null if it's not in one.
+   */
+  private static Node getEnclosingScript(Node n) {
+    while (n != null && n.getType() != Token.SCRIPT) {
+      n = n.getParent();
+    }
+    return n;
+  }
+
   /**
    * A filter that looks for qualified names that contain one of the nodes
    * in the given set.
@@ -149,6 +341,7 @@ class GlobalNamespace {
    * Builds the namespace lazily.
    */
   private void process() {
+    changeStamp = compiler.getChangeStamp();
     if (externsRoot != null) {
       inExterns = true;
       NodeTraversal.traverse(compiler, externsRoot, new BuildGlobalNamespace());
@@ -214,23 +407,42 @@ class GlobalNamespace {
   /**
    * Builds a tree representation of the global namespace. Omits prototypes.
    */
-  private class BuildGlobalNamespace extends AbstractPostOrderCallback {
+  private class BuildGlobalNamespace implements Callback {
 
     private final Predicate<Node> nodeFilter;
 
+    /** Whether references are added to their names as they are found */
+    private final boolean addRefs;
+
+    /** The SCRIPT being traversed */
+    Node currentScript = null;
+
     BuildGlobalNamespace() {
-      this(null);
+      this(null, true);
     }
 
     /**
      * Builds a global namepsace, but only visits nodes that match the
      * given filter.
+     *
+     * @param addRefs Whether to add references to their names, or only
+     *     record them for their scripts.
      */
-    BuildGlobalNamespace(Predicate<Node> nodeFilter) {
+    BuildGlobalNamespace(Predicate<Node> nodeFilter, boolean addRefs) {
       this.nodeFilter = nodeFilter;
+      this.addRefs = addRefs;
+    }
+
+    public boolean shouldTraverse(NodeTraversal t, Node n, Node parent) {
+      if (n.getType() == Token.SCRIPT) {
+        currentScript = n;
+        if (!refsByScript.containsKey(n)) {
+          refsByScript.put(n, new ArrayList<ScriptRef>());
+        }
+      }
+      return true;
     }
 
-    @Override
     public void visit(NodeTraversal t, Node n, Node parent) {
       if (nodeFilter != null && !nodeFilter.apply(n)) {
         return;
@@ -448,19 +660,18 @@ class GlobalNamespace {
       if (maybeHandlePrototypePrefix(t, n, parent, name)) return;
 
       Name nameObj = getOrCreateName(name);
-      nameObj.type = type;
-
       Ref set = new Ref(t, n, Ref.Type.SET_FROM_GLOBAL);
-      nameObj.addRef(set);
 
       if (isNestedAssign(parent)) {
         // This assignment is both a set and a get that creates an alias.
+        addRef(nameObj, set, type, false);
         Ref get = new Ref(t, n, Ref.Type.ALIASING_GET);
-        nameObj.addRef(get);
+        addRef(nameObj, get);
         Ref.markTwins(set, get);
-      } else if (isConstructorOrEnumDeclaration(n, parent)) {
+      } else {
         // Names with a @constructor or @enum annotation are always collapsed
-        nameObj.setIsClassOrEnum();
+        addRef(nameObj, set, type,
+            isConstructorOrEnumDeclaration(n, parent));
       }
     }
 
@@ -514,12 +725,12 @@ class GlobalNamespace {
 
       Name node = getOrCreateName(name);
       Ref set = new Ref(t, n, Ref.Type.SET_FROM_LOCAL);
-      node.addRef(set);
+      addRef(node, set);
 
       if (isNestedAssign(parent)) {
         // This assignment is both a set and a get that creates an alias.
         Ref get = new Ref(t, n, Ref.Type.ALIASING_GET);
-        node.addRef(get);
+        addRef(node, get);
         Ref.markTwins(set, get);
       }
     }
@@ -652,7 +863,35 @@ class GlobalNamespace {
       Name node = getOrCreateName(name);
 
       // No need to look up additional ancestors, since they won't be used.
-      node.addRef(new Ref(t, n, type));
+      addRef(node, new Ref(t, n, type));
+    }
+
+    /**
+     * Records a reference to a name that is not a global set.
+     */
+    void addRef(Name name, Ref ref) {
+      addRef(name, ref, null, false);
+    }
+
+    /**
+     * Records a reference to a name for the current script, and adds it
+     * to the name unless we are only collecting references.
+     *
+     * @param valueType For a global set, the type of the value assigned
+     * @param isClassOrEnum Whether the reference declares a class or enum
+     */
+    void addRef(Name name, Ref ref, Name.Type valueType,
+        boolean isClassOrEnum) {
+      ScriptRef scriptRef =
+          new ScriptRef(name, ref, valueType, isClassOrEnum);
+      if (currentScript != null) {
+        refsByScript.get(currentScript).add(scriptRef);
+      } else {
+        allRefsInScripts = false;
+      }
+      if (addRefs) {
+        scriptRef.apply();
+      }
     }
 
     /**
@@ -746,6 +985,39 @@ class GlobalNamespace {
 
   // -------------------------------------------------------------------------
 
+  /**
+   * A reference found in a script, along with what it told us about the
+   * name it refers to, so that the name can be put back together when
+   * other scripts change.
+   */
+  private static class ScriptRef {
+    final Name name;
+    final Ref ref;
+    final Name.Type valueType;
+    final boolean isClassOrEnum;
+
+    ScriptRef(Name name, Ref ref, Name.Type valueType,
+        boolean isClassOrEnum) {
+      this.name = name;
+      this.ref = ref;
+      this.valueType = valueType;
+      this.isClassOrEnum = isClassOrEnum;
+    }
+
+    /** Adds the reference to its name. */
+    void apply() {
+      if (valueType != null) {
+        name.type = valueType;
+      }
+      name.addRef(ref);
+      if (isClassOrEnum) {
+        name.setIsClassOrEnum();
+      }
+    }
+  }
+
+  // -------------------------------------------------------------------------
+
   /**
    * A name defined in global scope (e.g. "a" or "a.b.c.d"). These form a tree.
    * As the parse tree traversal proceeds, we'll discover that some names
@@ -868,6 +1140,22 @@ class GlobalNamespace {
       }
     }
 
+    /**
+     * Forgets all the references to this name, and what they told us.
+     */
+    void reset() {
+      declaration = null;
+      refs = null;
+      type = Type.OTHER;
+      isClassOrEnum = false;
+      globalSets = 0;
+      localSets = 0;
+      aliasingGets = 0;
+      totalGets = 0;
+      callGets = 0;
+      docInfo = null;
+    }
+
     void addRefInternal(Ref ref) {
       if (refs == null) {
         refs = new LinkedList<Ref>();
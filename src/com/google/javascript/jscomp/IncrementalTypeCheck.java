@@ -0,0 +1,225 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.javascript.rhino.JSDocInfo;
+import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.Token;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Checks the types of an input again after it has been edited, by changing
+ * the typed tree of the last compile instead of compiling everything again.
+ *
+ * <p>This does not keep a snapshot of the declarations of each input. The
+ * global scope and the type registry are changed in place while they are
+ * built, so the declarations of an input cannot be taken back, and an edit
+ * can only be handled if it leaves them as they are. That is the case for
+ * edits that change nothing but the bodies of some functions that are not
+ * inside other functions, where the old and the new body are both
+ * independent (see {@link TypeInferencePass#isIndependent}), both return a
+ * value or both do not, and define the same properties in their object
+ * literals. The new bodies are put in the tree, their types are inferred,
+ * and the whole input is type checked again.
+ *
+ * <p>Most edits do not qualify: a body that has an inner function or any
+ * JSDoc, that assigns to anything but its own variables (like
+ * {@code this.x = 1}), or that reads {@code prototype}, {@code call} or
+ * {@code apply}, needs a full compile. So do edits outside of function
+ * bodies. This is for IDE integrations that keep the {@link Compiler} of
+ * the last compile, and check the common small edits to plain functions
+ * quickly; the compile server does not use it, since its requests ask for
+ * the compiled output too.
+ *
+ * <p>Only the diagnostics of the type inference of the edited functions,
+ * and of the type check of the input, are reported. An input that the
+ * checks rewrote (for instance with the closure pass) does not look like
+ * its source anymore, so edits to it are never handled.
+ *
+ */
+class IncrementalTypeCheck {
+
+  private final Compiler compiler;
+
+  // The nodes of the old tree, and the nodes of the new tree that they
+  // stand for.
+  private final List<Node> oldNodes = Lists.newArrayList();
+  private final List<Node> newNodes = Lists.newArrayList();
+
+  // The functions of the old tree whose bodies changed, and the same
+  // functions in the new tree.
+  private final List<Node> changedFunctions = Lists.newArrayList();
+  private final List<Node> newFunctions = Lists.newArrayList();
+
+  IncrementalTypeCheck(Compiler compiler) {
+    this.compiler = compiler;
+  }
+
+  /**
+   * Checks the types of the input that the file is a new version of.
+   *
+   * @return The type errors and warnings of the input, or null if the edit
+   *     cannot be checked this way.
+   */
+  JSError[] recheck(JSSourceFile file) {
+    CompilerInput input = compiler.getInput(file.getName());
+    Scope topScope = compiler.getTopScope();
+    if (input == null || input.isExtern() || topScope == null ||
+        !(compiler.getScopeCreator() instanceof MemoizedScopeCreator)) {
+      return null;
+    }
+    MemoizedScopeCreator scopeCreator =
+        (MemoizedScopeCreator) compiler.getScopeCreator();
+
+    ErrorManager errorManager = compiler.getErrorManager();
+    try {
+      CollectingErrorManager parseErrors = new CollectingErrorManager();
+      compiler.setErrorManager(parseErrors);
+      Node oldRoot = input.getAstRoot(compiler);
+      Node newRoot = new JsAst(file).getAstRoot(compiler);
+      if (parseErrors.getErrorCount() > 0 ||
+          !diff(oldRoot, newRoot, false)) {
+        return null;
+      }
+
+      // The edit can be checked, so make it. The JSDoc may differ in
+      // its documentation.
+      for (int i = 0; i < oldNodes.size(); i++) {
+        oldNodes.get(i).setLineno(newNodes.get(i).getLineno());
+        oldNodes.get(i).setCharno(newNodes.get(i).getCharno());
+        oldNodes.get(i).setJSDocInfo(newNodes.get(i).getJSDocInfo());
+      }
+      for (int i = 0; i < changedFunctions.size(); i++) {
+        Node function = changedFunctions.get(i);
+        Node newBody = newFunctions.get(i).getLastChild().detachFromParent();
+        function.replaceChild(function.getLastChild(), newBody);
+        scopeCreator.forgetScope(function);
+      }
+      input.setSourceFile(file);
+
+      CollectingErrorManager typeErrors = new CollectingErrorManager();
+      compiler.setErrorManager(typeErrors);
+      TypeInferencePass inference =
+          compiler.getPassConfig().makeTypeInference(compiler);
+      for (Node function : changedFunctions) {
+        inference.inferFunction(scopeCreator.createScope(function, topScope));
+      }
+      compiler.getPassConfig().makeTypeCheck(compiler).check(oldRoot, false);
+
+      List<JSError> diagnostics = Lists.newArrayList();
+      Collections.addAll(diagnostics, typeErrors.getErrors());
+      Collections.addAll(diagnostics, typeErrors.getWarnings());
+      return diagnostics.toArray(new JSError[diagnostics.size()]);
+    } finally {
+      compiler.setErrorManager(errorManager);
+    }
+  }
+
+  /**
+   * Compares a subtree of the old tree with the same subtree of the new
+   * one, and records how to turn the first into the second.
+   *
+   * @return Whether the subtrees only differ in ways that can be checked.
+   */
+  private boolean diff(Node oldNode, Node newNode, boolean inFunction) {
+    if (oldNode.getType() != newNode.getType() ||
+        oldNode.getChildCount() != newNode.getChildCount() ||
+        !oldNode.isEquivalentTo(newNode) ||
+        oldNode.isQuotedString() != newNode.isQuotedString() ||
+        !isEquivalent(oldNode.getJSDocInfo(), newNode.getJSDocInfo())) {
+      return false;
+    }
+    oldNodes.add(oldNode);
+    newNodes.add(newNode);
+
+    if (oldNode.getType() == Token.FUNCTION && !inFunction &&
+        !oldNode.getLastChild().checkTreeEqualsSilent(
+            newNode.getLastChild())) {
+      if (!canChangeBody(oldNode, newNode)) {
+        return false;
+      }
+      changedFunctions.add(oldNode);
+      newFunctions.add(newNode);
+      // Compare the name and the parameters.
+      return diff(oldNode.getFirstChild(), newNode.getFirstChild(), true) &&
+          diff(oldNode.getFirstChild().getNext(),
+               newNode.getFirstChild().getNext(), true);
+    }
+
+    inFunction = inFunction || oldNode.getType() == Token.FUNCTION;
+    for (Node oldChild = oldNode.getFirstChild(),
+             newChild = newNode.getFirstChild();
+         oldChild != null;
+         oldChild = oldChild.getNext(), newChild = newChild.getNext()) {
+      if (!diff(oldChild, newChild, inFunction)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isEquivalent(JSDocInfo a, JSDocInfo b) {
+    return a == null ? b == null : a.isEquivalentTo(b);
+  }
+
+  /**
+   * Whether the body of the old function can be replaced by the body of
+   * the new one without changing the type of any code outside of it.
+   */
+  private static boolean canChangeBody(Node oldFunction, Node newFunction) {
+    return TypeInferencePass.isIndependent(oldFunction) &&
+        TypeInferencePass.isIndependent(newFunction) &&
+        FunctionTypeBuilder.hasNonEmptyReturns(oldFunction.getLastChild()) ==
+            FunctionTypeBuilder.hasNonEmptyReturns(
+                newFunction.getLastChild()) &&
+        getObjectLitKeys(oldFunction).equals(getObjectLitKeys(newFunction));
+  }
+
+  /** Returns the keys of the object literals of the tree. */
+  private static Set<String> getObjectLitKeys(Node n) {
+    Set<String> keys = Sets.newHashSet();
+    collectObjectLitKeys(n, keys);
+    return keys;
+  }
+
+  private static void collectObjectLitKeys(Node n, Set<String> keys) {
+    if (n.getType() == Token.OBJECTLIT) {
+      for (Node key = n.getFirstChild(); key != null;
+           key = key.getNext().getNext()) {
+        keys.add(NodeUtil.getStringValue(key));
+      }
+    }
+    for (Node child = n.getFirstChild(); child != null;
+         child = child.getNext()) {
+      collectObjectLitKeys(child, keys);
+    }
+  }
+
+  /** Keeps the diagnostics of a recheck from the compiler's error manager. */
+  private static class CollectingErrorManager extends BasicErrorManager {
+    @Override
+    public void println(CheckLevel level, JSError error) {}
+
+    @Override
+    protected void printSummary() {}
+  }
+}
@@ -71,6 +71,10 @@ class InlineVariables implements CompilerPass {
 
   private final IdentifyConstants identifyConstants = new IdentifyConstants();
 
+  // The change stamp since which functions have to be looked at again,
+  // or -1 to look at everything.
+  private long sinceChangeStamp = -1;
+
   InlineVariables(
       AbstractCompiler compiler,
       Mode mode,
@@ -80,11 +84,27 @@ class InlineVariables implements CompilerPass {
     this.inlineAllStrings = inlineAllStrings;
   }
 
+  /**
+   * Only looks at the functions that have changed since the given change
+   * stamp. This only works for {@link Mode#LOCALS_ONLY}, since the
+   * references to other variables may be anywhere. Returns this for easy
+   * chaining.
+   */
+  InlineVariables onlyInFunctionsChangedSince(long changeStamp) {
+    Preconditions.checkState(mode == Mode.LOCALS_ONLY);
+    this.sinceChangeStamp = changeStamp;
+    return this;
+  }
+
   @Override
   public void process(Node externs, Node root) {
     ReferenceCollectingCallback callback = new ReferenceCollectingCallback(
         compiler, new InliningBehavior(), getFilterForMode());
-    callback.process(externs, root);
+    if (sinceChangeStamp >= 0) {
+      callback.processChangedFunctions(root, sinceChangeStamp);
+    } else {
+      callback.process(externs, root);
+    }
   }
 
   private Predicate<Var> getFilterForMode() {
@@ -331,18 +351,21 @@ class InlineVariables implements CompilerPass {
       // Check for function declarations before the value is moved in the AST.
       boolean isFunctionDeclaration = NodeUtil.isFunctionDeclaration(value);
 
+      Node valueParent = value.getParent();
       inlineValue(v, reference, value.detachFromParent());
       if (declaration != init) {
         Node expressRoot = init.getGrandparent();
         Preconditions.checkState(expressRoot.getType() == Token.EXPR_RESULT);
-        NodeUtil.removeChild(expressRoot.getParent(), expressRoot);
+        Node expressParent = expressRoot.getParent();
+        NodeUtil.removeChild(expressParent, expressRoot);
+        compiler.reportChangeToEnclosingScope(expressParent);
       }
 
       // Function declarations have already been removed.
       if (!isFunctionDeclaration) {
         removeDeclaration(declaration);
       } else {
-        compiler.reportCodeChange();
+        compiler.reportChangeToEnclosingScope(valueParent);
       }
     }
 
@@ -390,9 +413,10 @@ class InlineVariables implements CompilerPass {
 
         Node grandparent = declaration.getGrandparent();
         NodeUtil.removeChild(grandparent, varNode);
+        compiler.reportChangeToEnclosingScope(grandparent);
+      } else {
+        compiler.reportChangeToEnclosingScope(varNode);
       }
-
-      compiler.reportCodeChange();
     }
 
     /**
@@ -404,15 +428,18 @@ class InlineVariables implements CompilerPass {
      *     to re-parent.
      */
     private void inlineValue(Var v, Reference ref, Node value) {
+      Node parent;
       if (ref.isSimpleAssignmentToName()) {
         // This is the initial assignment.
-        ref.getGrandparent().replaceChild(ref.getParent(), value);
+        parent = ref.getGrandparent();
+        parent.replaceChild(ref.getParent(), value);
       } else {
-        ref.getParent().replaceChild(ref.getNameNode(), value);
+        parent = ref.getParent();
+        parent.replaceChild(ref.getNameNode(), value);
       }
 
       blacklistVarReferencesInTree(value, v.scope);
-      compiler.reportCodeChange();
+      compiler.reportChangeToEnclosingScope(parent);
     }
 
     /**
@@ -17,7 +17,10 @@
 package com.google.javascript.jscomp;
 
 import com.google.common.base.Preconditions;
-
+import com.google.common.collect.Lists;
+import com.google.javascript.jscomp.mozilla.rhino.ErrorReporter;
+import com.google.javascript.jscomp.mozilla.rhino.EvaluatorException;
+import com.google.javascript.jscomp.parsing.Config;
 import com.google.javascript.jscomp.parsing.ParserRunner;
 
 import com.google.javascript.rhino.Node;
@@ -25,6 +28,7 @@ import com.google.javascript.rhino.Token;
 
 import java.io.IOException;
 
+import java.util.List;
 import java.util.logging.Logger;
 
 /**
@@ -40,6 +44,10 @@ public class JsAst implements SourceAst {
   private String fileName;
   private Node root;
 
+  // The result of a call to preparse() that has not been claimed by
+  // getAstRoot() yet.
+  private transient Preparse preparse = null;
+
   public JsAst(SourceFile sourceFile) {
     this.sourceFile = sourceFile;
     this.fileName = sourceFile.getName();
@@ -48,14 +56,41 @@ public class JsAst implements SourceAst {
   @Override
   public Node getAstRoot(AbstractCompiler compiler) {
     if (root == null) {
-      createAst(compiler);
+      if (preparse != null) {
+        finishPreparse(compiler);
+      } else {
+        createAst(compiler);
+      }
     }
     return root;
   }
 
+  /**
+   * Parses the source file without touching any compiler state, so that
+   * many inputs can be parsed concurrently. Parse errors are buffered and
+   * only reported when {@link #getAstRoot} is next called, so they come
+   * out in the same order as if the inputs had been parsed sequentially.
+   */
+  void preparse(Config config, AstCache cache) {
+    if (root != null || preparse != null) {
+      return;
+    }
+
+    Preparse result = new Preparse();
+    try {
+      String sourceStr = sourceFile.getCode();
+      logger_.fine("Parsing: " + fileName);
+      result.root = parseSource(sourceStr, config, result.errors, cache);
+    } catch (IOException e) {
+      result.readError = true;
+    }
+    preparse = result;
+  }
+
   @Override
   public void clearAst() {
     root = null;
+    preparse = null;
     // While we're at it, clear out any saved text in the source file on
     // the assumption that if we're dumping the parse tree, then we probably
     // assume regenerating everything else is a smart idea also. 
@@ -82,18 +117,64 @@ public class JsAst implements SourceAst {
     }
   }
 
+  private void finishPreparse(AbstractCompiler compiler) {
+    Preparse result = preparse;
+    preparse = null;
+
+    if (result.readError) {
+      compiler.report(
+          JSError.make(AbstractCompiler.READ_ERROR, sourceFile.getName()));
+      return;
+    }
+
+    result.errors.replay(compiler.getDefaultErrorReporter());
+    root = result.root;
+    prepareRoot(compiler, fileName);
+  }
+
   private void parse(AbstractCompiler compiler, String sourceName,
       String sourceStr) {
     try {
       logger_.fine("Parsing: " + sourceName);
-      root = ParserRunner.parse(sourceName, sourceStr,
+      root = parseSource(sourceStr,
           compiler.getParserConfig(),
           compiler.getDefaultErrorReporter(),
-          logger_);
+          compiler.getAstCache());
     } catch (IOException e) {
       compiler.report(JSError.make(AbstractCompiler.READ_ERROR, sourceName));
     }
 
+    prepareRoot(compiler, sourceName);
+  }
+
+  /**
+   * Parses the source, or loads its tree from the cache if the same file has
+   * been parsed cleanly before.
+   */
+  private Node parseSource(String sourceStr, Config config,
+      ErrorReporter errorReporter, AstCache cache) throws IOException {
+    if (cache == null) {
+      return ParserRunner.parse(
+          fileName, sourceStr, config, errorReporter, logger_);
+    }
+
+    String key = cache.getKey(fileName, sourceStr);
+    Node cached = cache.get(key);
+    if (cached != null) {
+      return cached;
+    }
+
+    BufferedErrorReporter errors = new BufferedErrorReporter();
+    Node parsed = ParserRunner.parse(
+        fileName, sourceStr, config, errors, logger_);
+    if (parsed != null && errors.isEmpty()) {
+      cache.put(key, parsed);
+    }
+    errors.replay(errorReporter);
+    return parsed;
+  }
+
+  private void prepareRoot(AbstractCompiler compiler, String sourceName) {
     if (root == null || compiler.hasHaltingErrors()) {
       // There was a parse error or IOException, so use a dummy block.
       root = new Node(Token.BLOCK);
@@ -105,4 +186,75 @@ public class JsAst implements SourceAst {
     // the source file and module.
     root.putProp(Node.SOURCENAME_PROP, sourceName);
   }
+
+  /** The raw output of a parse done off the compiler thread. */
+  private static class Preparse {
+    Node root = null;
+    boolean readError = false;
+    final BufferedErrorReporter errors = new BufferedErrorReporter();
+  }
+
+  /**
+   * Records the parser's warnings and errors so that they can be passed on
+   * to the compiler's error reporter later, in their original order.
+   */
+  private static class BufferedErrorReporter implements ErrorReporter {
+    private final List<Report> reports = Lists.newArrayList();
+
+    @Override
+    public void warning(String message, String sourceName, int line,
+        String lineSource, int lineOffset) {
+      reports.add(
+          new Report(false, message, sourceName, line, lineSource, lineOffset));
+    }
+
+    @Override
+    public void error(String message, String sourceName, int line,
+        String lineSource, int lineOffset) {
+      reports.add(
+          new Report(true, message, sourceName, line, lineSource, lineOffset));
+    }
+
+    @Override
+    public EvaluatorException runtimeError(String message, String sourceName,
+        int line, String lineSource, int lineOffset) {
+      return new EvaluatorException(
+          message, sourceName, line, lineSource, lineOffset);
+    }
+
+    boolean isEmpty() {
+      return reports.isEmpty();
+    }
+
+    void replay(ErrorReporter target) {
+      for (Report r : reports) {
+        if (r.isError) {
+          target.error(
+              r.message, r.sourceName, r.line, r.lineSource, r.lineOffset);
+        } else {
+          target.warning(
+              r.message, r.sourceName, r.line, r.lineSource, r.lineOffset);
+        }
+      }
+    }
+  }
+
+  private static class Report {
+    final boolean isError;
+    final String message;
+    final String sourceName;
+    final int line;
+    final String lineSource;
+    final int lineOffset;
+
+    Report(boolean isError, String message, String sourceName, int line,
+        String lineSource, int lineOffset) {
+      this.isError = isError;
+      this.message = message;
+      this.sourceName = sourceName;
+      this.line = line;
+      this.lineSource = lineSource;
+      this.lineOffset = lineOffset;
+    }
+  }
 }
@@ -17,9 +17,6 @@
 package com.google.javascript.jscomp;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
 import com.google.javascript.jscomp.Scope.Var;
 import com.google.javascript.rhino.jstype.JSType;
 import com.google.javascript.rhino.jstype.SimpleSlot;
@@ -27,63 +24,43 @@ import com.google.javascript.rhino.jstype.StaticScope;
 import com.google.javascript.rhino.jstype.StaticSlot;
 
 import java.util.Iterator;
-import java.util.Map;
-import java.util.Set;
+import java.util.List;
 
 /**
- * A flow scope that tries to store as little symbol information as possible,
- * instead delegating to its parents. Optimized for low memory use.
+ * A flow scope that stores the slots inferred in the flow in a persistent
+ * map, so that a child flow scope shares all of its slots with its parent
+ * until it infers new ones, and joins and comparisons only look at the
+ * slots that differ between two flow scopes.
  *
  * @author nicksantos@google.com (Nick Santos)
  */
 class LinkedFlowScope implements FlowScope {
-  // The closest flow scope cache.
-  private final FlatFlowScopeCache cache;
+  // The Scope for the entire function or for the global scope.
+  private final Scope functionScope;
 
-  // The parent flow scope.
-  private final LinkedFlowScope parent;
+  // The slots inferred before this point in the local flow, by name.
+  // Slots that are not in the map have their type in the function scope.
+  // May not include lazily declared qualified names.
+  private PersistentHashMap<String, StaticSlot<JSType>> slots;
 
-  // The distance between this flow scope and the closest flat flow scope.
-  private int depth;
-
-  static final int MAX_DEPTH = 250;
-
-  // A FlatFlowScopeCache equivalent to this scope.
-  private FlatFlowScopeCache flattened;
+  // Identifies the entry lattice or join that this flow scope descends
+  // from. Child flow scopes share it with their parent.
+  private final Object lineage;
 
   // Flow scopes assume that all their ancestors are immutable.
   // So once a child scope is created, this flow scope may not be modified.
   private boolean frozen = false;
 
-  // The last slot defined in this flow instruction, and the head of the
-  // linked list of slots.
-  private LinkedFlowSlot lastSlot;
-
-  private LinkedFlowScope(FlatFlowScopeCache cache,
-      LinkedFlowScope directParent) {
-    this.cache = cache;
-    if (directParent == null) {
-      this.lastSlot = null;
-      this.depth = 0;
-      this.parent = cache.linkedEquivalent;
-    } else {
-      this.lastSlot = directParent.lastSlot;
-      this.depth = directParent.depth + 1;
-      this.parent = directParent;
-    }
-  }
-
-  LinkedFlowScope(FlatFlowScopeCache cache) {
-    this(cache, null);
-  }
-
-  LinkedFlowScope(LinkedFlowScope directParent) {
-    this(directParent.cache, directParent);
+  private LinkedFlowScope(Scope functionScope,
+      PersistentHashMap<String, StaticSlot<JSType>> slots, Object lineage) {
+    this.functionScope = functionScope;
+    this.slots = slots;
+    this.lineage = lineage;
   }
 
   /** Gets the function scope for this flow scope. */
   private Scope getFunctionScope() {
-    return cache.functionScope;
+    return functionScope;
   }
 
   /** Whether this flows from a bottom scope. */
@@ -95,15 +72,14 @@ class LinkedFlowScope implements FlowScope {
    * Creates an entry lattice for the flow.
    */
   public static LinkedFlowScope createEntryLattice(Scope scope) {
-    return new LinkedFlowScope(new FlatFlowScopeCache(scope));
+    return new LinkedFlowScope(scope,
+        PersistentHashMap.<String, StaticSlot<JSType>>empty(), new Object());
   }
 
   @Override
   public void inferSlotType(String symbol, JSType type) {
     Preconditions.checkState(!frozen);
-    lastSlot = new LinkedFlowSlot(symbol, type, lastSlot);
-    depth++;
-    cache.dirtySymbols.add(symbol);
+    slots = slots.plus(symbol, new SimpleSlot(symbol, type, true));
   }
 
   @Override
@@ -125,7 +101,7 @@ class LinkedFlowScope implements FlowScope {
 
   @Override
   public JSType getTypeOfThis() {
-    return cache.functionScope.getTypeOfThis();
+    return functionScope.getTypeOfThis();
   }
 
   @Override
@@ -137,15 +113,8 @@ class LinkedFlowScope implements FlowScope {
    * Get the slot for the given symbol.
    */
   public StaticSlot<JSType> getSlot(String name) {
-    if (cache.dirtySymbols.contains(name)) {
-      for (LinkedFlowSlot slot = lastSlot;
-           slot != null; slot = slot.parent) {
-        if (slot.getName().equals(name)) {
-          return slot;
-        }
-      }
-    }
-    return cache.getSlot(name);
+    StaticSlot<JSType> slot = slots.get(name);
+    return slot != null ? slot : functionScope.getSlot(name);
   }
 
   @Override
@@ -156,43 +125,18 @@ class LinkedFlowScope implements FlowScope {
   @Override
   public FlowScope createChildFlowScope() {
     frozen = true;
-
-    if (depth > MAX_DEPTH) {
-      if (flattened == null) {
-        flattened = new FlatFlowScopeCache(this);
-      }
-      return new LinkedFlowScope(flattened);
-    }
-
-    return new LinkedFlowScope(this);
+    return new LinkedFlowScope(functionScope, slots, lineage);
   }
 
   /**
-   * Iterate through all the linked flow scopes before this one.
-   * If there's one and only one slot defined between this scope
-   * and the blind scope, return it.
+   * Look at the slots inferred between the blind scope and this one.
+   * If all of them are for the same symbol, return the last one.
    */
   @Override
   public StaticSlot<JSType> findUniqueRefinedSlot(FlowScope blindScope) {
-    StaticSlot<JSType> result = null;
-
-    for (LinkedFlowScope currentScope = this;
-         currentScope != blindScope;
-         currentScope = currentScope.parent) {
-      for (LinkedFlowSlot currentSlot = currentScope.lastSlot;
-           currentSlot != null &&
-           (currentScope.parent == null ||
-            currentScope.parent.lastSlot != currentSlot);
-           currentSlot = currentSlot.parent) {
-        if (result == null) {
-          result = currentSlot;
-        } else if (!currentSlot.getName().equals(result.getName())) {
-          return null;
-        }
-      }
-    }
-
-    return result;
+    List<String> refined =
+        ((LinkedFlowScope) blindScope).slots.keysThatDiffer(slots);
+    return refined.size() == 1 ? slots.get(refined.get(0)) : null;
   }
 
   /**
@@ -214,22 +158,17 @@ class LinkedFlowScope implements FlowScope {
   }
 
   /**
-   * Remove flow scopes that add nothing to the flow.
+   * Child flow scopes share the slots of their parents, so there is
+   * nothing left to optimize.
    */
-  // NOTE(nicksantos): This function breaks findUniqueRefinedSlot, because
-  // findUniqueRefinedSlot assumes that this scope is a direct descendant
-  // of blindScope. This is not necessarily true if this scope has been
-  // optimize()d and blindScope has not. This should be fixed. For now,
-  // we only use optimize() where we know that we won't have to do
-  // a findUniqueRefinedSlot on it.
   @Override
   public LinkedFlowScope optimize() {
-    LinkedFlowScope current;
-    for (current = this;
-         current.parent != null &&
-             current.lastSlot == current.parent.lastSlot;
-         current = current.parent) {}
-    return current;
+    return this;
+  }
+
+  /** Whether the two flow scopes have the very same slots. */
+  private boolean hasSameSlots(LinkedFlowScope that) {
+    return functionScope == that.functionScope && slots == that.slots;
   }
 
   /** Join the two FlowScopes. */
@@ -237,15 +176,72 @@ class LinkedFlowScope implements FlowScope {
     @SuppressWarnings("unchecked")
     @Override
     public FlowScope apply(FlowScope a, FlowScope b) {
-      // To join the two scopes, we have to
       LinkedFlowScope linkedA = (LinkedFlowScope) a;
       LinkedFlowScope linkedB = (LinkedFlowScope) b;
       linkedA.frozen = true;
       linkedB.frozen = true;
-      if (linkedA.optimize() == linkedB.optimize()) {
+      if (linkedA.hasSameSlots(linkedB)) {
         return linkedA.createChildFlowScope();
       }
-      return new LinkedFlowScope(new FlatFlowScopeCache(linkedA, linkedB));
+
+      // Always prefer the "real" function scope to the faked-out
+      // bottom scope.
+      Scope functionScope = linkedA.flowsFromBottom() ?
+          linkedB.getFunctionScope() : linkedA.getFunctionScope();
+
+      // Start from the slots of A, and only join the ones that differ.
+      PersistentHashMap<String, StaticSlot<JSType>> slotsA = linkedA.slots;
+      PersistentHashMap<String, StaticSlot<JSType>> slotsB = linkedB.slots;
+      PersistentHashMap<String, StaticSlot<JSType>> symbols = slotsA;
+
+      // There are 5 different join cases:
+      // 1) The type is declared in joinedScopeA, not in joinedScopeB,
+      //    and not in functionScope. Just use the one in A.
+      // 2) The type is declared in joinedScopeB, not in joinedScopeA,
+      //    and not in functionScope. Just use the one in B.
+      // 3) The type is declared in functionScope and joinedScopeA, but
+      //    not in joinedScopeB. Join the two types.
+      // 4) The type is declared in functionScope and joinedScopeB, but
+      //    not in joinedScopeA. Join the two types.
+      // 5) The type is declared in joinedScopeA and joinedScopeB. Join
+      //    the two types.
+      for (String name : slotsA.keysThatDiffer(slotsB)) {
+        StaticSlot<JSType> slotA = slotsA.get(name);
+        StaticSlot<JSType> slotB = slotsB.get(name);
+
+        JSType joinedType = null;
+        if (slotB == null || slotB.getType() == null) {
+          StaticSlot<JSType> fnSlot
+              = linkedB.getFunctionScope().getSlot(name);
+          JSType fnSlotType = fnSlot == null ? null : fnSlot.getType();
+          if (fnSlotType == null) {
+            // Case #1 -- already inserted.
+          } else {
+            // Case #3
+            joinedType = slotA.getType().getLeastSupertype(fnSlotType);
+          }
+        } else if (slotA == null || slotA.getType() == null) {
+          StaticSlot<JSType> fnSlot
+              = linkedA.getFunctionScope().getSlot(name);
+          JSType fnSlotType = fnSlot == null ? null : fnSlot.getType();
+          if (fnSlotType == null) {
+            // Case #2
+            symbols = symbols.plus(name, slotB);
+          } else {
+            // Case #4
+            joinedType = slotB.getType().getLeastSupertype(fnSlotType);
+          }
+        } else {
+          // Case #5
+          joinedType =
+              slotA.getType().getLeastSupertype(slotB.getType());
+        }
+
+        if (joinedType != null) {
+          symbols = symbols.plus(name, new SimpleSlot(name, joinedType, true));
+        }
+      }
+      return new LinkedFlowScope(functionScope, symbols, new Object());
     }
   }
 
@@ -253,7 +249,7 @@ class LinkedFlowScope implements FlowScope {
   public boolean equals(Object other) {
     if (other instanceof LinkedFlowScope) {
       LinkedFlowScope that = (LinkedFlowScope) other;
-      if (this.optimize() == that.optimize()) {
+      if (this.hasSameSlots(that)) {
         return true;
       }
 
@@ -269,30 +265,18 @@ class LinkedFlowScope implements FlowScope {
         return false;
       }
 
-      if (cache == that.cache) {
-        // If the two flow scopes have the same cache, then we can check
-        // equality a lot faster: by just looking at the "dirty" elements
-        // in the cache, and comparing them in both scopes.
-        for (String name : cache.dirtySymbols) {
-          if (diffSlots(getSlot(name), that.getSlot(name))) {
-            return false;
-          }
-        }
-
-        return true;
-      }
-
-      Map<String, StaticSlot<JSType>> myFlowSlots = allFlowSlots();
-      Map<String, StaticSlot<JSType>> otherFlowSlots = that.allFlowSlots();
-
-      for (StaticSlot<JSType> slot : myFlowSlots.values()) {
-        if (diffSlots(slot, otherFlowSlots.get(slot.getName()))) {
-          return false;
-        }
-        otherFlowSlots.remove(slot.getName());
-      }
-      for (StaticSlot<JSType> slot : otherFlowSlots.values()) {
-        if (diffSlots(slot, myFlowSlots.get(slot.getName()))) {
+      // The slots that both scopes share are equal, so only compare
+      // the others. A slot that only one of the scopes stores falls back
+      // to the function scope if both scopes descend from the same entry
+      // lattice or join. Otherwise it is compared as absent, so that a
+      // join in a loop is not mistaken for the scope that flows into it.
+      boolean sameLineage = this.lineage == that.lineage;
+      for (String name : slots.keysThatDiffer(that.slots)) {
+        StaticSlot<JSType> slotA =
+            sameLineage ? getSlot(name) : slots.get(name);
+        StaticSlot<JSType> slotB =
+            sameLineage ? that.getSlot(name) : that.slots.get(name);
+        if (diffSlots(slotA, slotB)) {
           return false;
         }
       }
@@ -325,172 +309,4 @@ class LinkedFlowScope implements FlowScope {
     // Both types must be non-null.
     return aType.differsFrom(bType);
   }
-
-  /**
-   * Gets all the symbols that have been defined before this point
-   * in the current flow. Does not return slots that have not changed during
-   * the flow.
-   *
-   * For example, consider the code:
-   * <code>
-   * var x = 3;
-   * function f() {
-   *   var y = 5;
-   *   y = 6; // FLOW POINT
-   *   var z = y;
-   *   return z;
-   * }
-   * </code>
-   * A FlowScope at FLOW POINT will return a slot for y, but not
-   * a slot for x or z.
-   */
-  private Map<String, StaticSlot<JSType>> allFlowSlots() {
-    Map<String, StaticSlot<JSType>> slots = Maps.newHashMap();
-    for (LinkedFlowSlot slot = lastSlot;
-         slot != null; slot = slot.parent) {
-      if (!slots.containsKey(slot.getName())) {
-        slots.put(slot.getName(), slot);
-      }
-    }
-
-    for (String key : cache.symbols.keySet()) {
-      if (!slots.containsKey(key)) {
-        slots.put(key, cache.symbols.get(key));
-      }
-    }
-
-    return slots;
-  }
-
-  /**
-   * A static slot that can be used in a linked list.
-   */
-  private static class LinkedFlowSlot extends SimpleSlot {
-    final LinkedFlowSlot parent;
-
-    LinkedFlowSlot(String name, JSType type, LinkedFlowSlot parent) {
-      super(name, type, true);
-      this.parent = parent;
-    }
-  }
-
-  /**
-   * A map that tries to cache as much symbol table information
-   * as possible in a map. Optimized for fast lookup.
-   */
-  private static class FlatFlowScopeCache {
-    // The Scope for the entire function or for the gloal scope.
-    private final Scope functionScope;
-
-    // The linked flow scope that this cache represents.
-    private final LinkedFlowScope linkedEquivalent;
-
-    // All the symbols defined before this point in the local flow.
-    // May not include lazily declared qualified names.
-    private Map<String, StaticSlot<JSType>> symbols = Maps.newHashMap();
-
-    // Used to help make lookup faster for LinkedFlowScopes by recording
-    // symbols that may be redefined "soon", for an arbitrary definition
-    // of "soon". ;)
-    //
-    // More rigorously, if a symbol is redefined in a LinkedFlowScope,
-    // and this is the closest FlatFlowScopeCache, then that symbol is marked
-    // "dirty". In this way, we don't waste time looking in the LinkedFlowScope
-    // list for symbols that aren't defined anywhere nearby.
-    final Set<String> dirtySymbols = Sets.newHashSet();
-
-    // The cache at the bottom of the lattice.
-    FlatFlowScopeCache(Scope functionScope) {
-      this.functionScope = functionScope;
-      symbols = ImmutableMap.of();
-      linkedEquivalent = null;
-    }
-
-    // A cache in the middle of a long scope chain.
-    FlatFlowScopeCache(LinkedFlowScope directParent) {
-      FlatFlowScopeCache cache = directParent.cache;
-
-      functionScope = cache.functionScope;
-      symbols = directParent.allFlowSlots();
-      linkedEquivalent = directParent;
-    }
-
-    // A cache at the join of two scope chains.
-    FlatFlowScopeCache(LinkedFlowScope joinedScopeA,
-        LinkedFlowScope joinedScopeB) {
-      linkedEquivalent = null;
-
-      // Always prefer the "real" function scope to the faked-out
-      // bottom scope.
-      functionScope = joinedScopeA.flowsFromBottom() ?
-          joinedScopeB.getFunctionScope() : joinedScopeA.getFunctionScope();
-
-      Map<String, StaticSlot<JSType>> slotsA = joinedScopeA.allFlowSlots();
-      Map<String, StaticSlot<JSType>> slotsB = joinedScopeB.allFlowSlots();
-
-      symbols = slotsA;
-
-      // There are 5 different join cases:
-      // 1) The type is declared in joinedScopeA, not in joinedScopeB,
-      //    and not in functionScope. Just use the one in A.
-      // 2) The type is declared in joinedScopeB, not in joinedScopeA,
-      //    and not in functionScope. Just use the one in B.
-      // 3) The type is declared in functionScope and joinedScopeA, but
-      //    not in joinedScopeB. Join the two types.
-      // 4) The type is declared in functionScope and joinedScopeB, but
-      //    not in joinedScopeA. Join the two types.
-      // 5) The type is declared in joinedScopeA and joinedScopeB. Join
-      //    the two types.
-      Set<String> symbolNames = Sets.newHashSet(symbols.keySet());
-      symbolNames.addAll(slotsB.keySet());
-
-      for (String name : symbolNames) {
-        StaticSlot<JSType> slotA = slotsA.get(name);
-        StaticSlot<JSType> slotB = slotsB.get(name);
-
-        JSType joinedType = null;
-        if (slotB == null || slotB.getType() == null) {
-          StaticSlot<JSType> fnSlot
-              = joinedScopeB.getFunctionScope().getSlot(name);
-          JSType fnSlotType = fnSlot == null ? null : fnSlot.getType();
-          if (fnSlotType == null) {
-            // Case #1 -- already inserted.
-          } else {
-            // Case #3
-            joinedType = slotA.getType().getLeastSupertype(fnSlotType);
-          }
-        } else if (slotA == null || slotA.getType() == null) {
-          StaticSlot<JSType> fnSlot
-              = joinedScopeA.getFunctionScope().getSlot(name);
-          JSType fnSlotType = fnSlot == null ? null : fnSlot.getType();
-          if (fnSlotType == null) {
-            // Case #2
-            symbols.put(name, slotB);
-          } else {
-            // Case #4
-            joinedType = slotB.getType().getLeastSupertype(fnSlotType);
-          }
-        } else {
-          // Case #5
-          joinedType =
-              slotA.getType().getLeastSupertype(slotB.getType());
-        }
-
-        if (joinedType != null) {
-          symbols.put(name, new SimpleSlot(name, joinedType, true));
-        }
-      }
-    }
-
-    /**
-     * Get the slot for the given symbol.
-     */
-    public StaticSlot<JSType> getSlot(String name) {
-      if (symbols.containsKey(name)) {
-        return symbols.get(name);
-      } else {
-        return functionScope.getSlot(name);
-      }
-    }
-  }
 }
@@ -24,6 +24,7 @@ import com.google.javascript.jscomp.graph.DiGraph.DiGraphEdge;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
 
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.List;
 import java.util.Set;
@@ -42,11 +43,18 @@ import java.util.Set;
  * Due to the possibility of inner functions and closures, certain "local"
  * variables can escape the function. These variables will be considered as
  * global and they can be retrieved with {@link #getEscapedLocals()}.
+ * <p>
+ * Liveness is a gen/kill problem, so it is solved with a
+ * {@link BitVectorSolver}. Its gen and kill sets are computed once per node,
+ * after all the escaped variables are known, so escaped variables are never
+ * live.
  *
 *
  */
 class LiveVariablesAnalysis extends
-    DataFlowAnalysis<Node, LiveVariablesAnalysis.LiveVariableLattice> {
+    DataFlowAnalysis<Node, LiveVariablesAnalysis.LiveVariableLattice>
+    implements DataFlowAnalysis.GenKillAnalysis<
+        Node, LiveVariablesAnalysis.LiveVariableLattice> {
 
   public static final String ARGUMENT_ARRAY_ALIAS = "arguments";
 
@@ -56,7 +64,10 @@ class LiveVariablesAnalysis extends
     public LiveVariableLattice apply(List<LiveVariableLattice> in) {
       LiveVariableLattice result = new LiveVariableLattice(in.get(0));
       for (int i = 1; i < in.size(); i++) {
-        result.liveSet.or(in.get(i).liveSet);
+        long[] other = in.get(i).liveSet;
+        for (int w = 0; w < other.length; w++) {
+          result.liveSet[w] |= other[w];
+        }
       }
       return result;
     }
@@ -65,47 +76,71 @@ class LiveVariablesAnalysis extends
   /**
    * The lattice that stores the liveness of all local variables at a given
    * point in the program. The whole lattice is the power set of all local
-   * variables and a variable is live if it is in the set.
+   * variables and a variable is live if it is in the set. The set is kept
+   * as a row of words, which is what the {@link BitVectorSolver} works on.
    */
   static class LiveVariableLattice implements LatticeElement {
-    private final BitSet liveSet;
+    private final long[] liveSet;
 
     /**
      * @param numVars Number of all local variables.
      */
     private LiveVariableLattice(int numVars) {
-      this.liveSet = new BitSet(numVars);
+      this.liveSet = new long[(numVars + 63) >>> 6];
+    }
+
+    private LiveVariableLattice(long[] liveSet) {
+      this.liveSet = liveSet;
     }
 
     private LiveVariableLattice(LiveVariableLattice other) {
       Preconditions.checkNotNull(other);
-      this.liveSet = (BitSet) other.liveSet.clone();
+      this.liveSet = other.liveSet.clone();
     }
 
     @Override
     public boolean equals(Object other) {
       Preconditions.checkNotNull(other);
       return (other instanceof LiveVariableLattice) &&
-          this.liveSet.equals(((LiveVariableLattice) other).liveSet);
+          Arrays.equals(this.liveSet, ((LiveVariableLattice) other).liveSet);
     }
 
     public boolean isLive(Var v) {
       Preconditions.checkNotNull(v);
-      return liveSet.get(v.index);
+      return isLive(v.index);
     }
 
     public boolean isLive(int index) {
-      return liveSet.get(index);
+      return (liveSet[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /** Removes the variables in kill, then adds the ones in gen. */
+    private void update(BitSet gen, BitSet kill) {
+      for (int i = kill.nextSetBit(0); i >= 0; i = kill.nextSetBit(i + 1)) {
+        liveSet[i >>> 6] &= ~(1L << i);
+      }
+      for (int i = gen.nextSetBit(0); i >= 0; i = gen.nextSetBit(i + 1)) {
+        liveSet[i >>> 6] |= 1L << i;
+      }
     }
 
     @Override
     public String toString() {
-      return liveSet.toString();
+      // The same form as BitSet#toString.
+      StringBuilder sb = new StringBuilder("{");
+      for (int i = BitVectorSolver.nextSetBit(liveSet, 0); i >= 0;
+           i = BitVectorSolver.nextSetBit(liveSet, i + 1)) {
+        if (sb.length() > 1) {
+          sb.append(", ");
+        }
+        sb.append(i);
+      }
+      return sb.append("}").toString();
     }
 
     @Override
     public int hashCode() {
-      return liveSet.hashCode();
+      return Arrays.hashCode(liveSet);
     }
   }
 
@@ -146,23 +181,61 @@ class LiveVariablesAnalysis extends
 
   @Override
   LiveVariableLattice flowThrough(Node node, LiveVariableLattice input) {
-    final BitSet gen = new BitSet(input.liveSet.size());
-    final BitSet kill = new BitSet(input.liveSet.size());
+    final BitSet gen = new BitSet(jsScope.getVarCount());
+    final BitSet kill = new BitSet(jsScope.getVarCount());
+    computeGenKill(node, gen, kill, canEndAbruptly(node));
+    LiveVariableLattice result = new LiveVariableLattice(input);
+    // L_in = L_out - Kill + Gen
+    result.update(gen, kill);
+    return result;
+  }
+
+  @Override
+  public int computeGenKill(List<Node> nodes, BitSet[] gen, BitSet[] kill) {
+    // A read of "arguments" marks all the parameters as escaped. Start over
+    // if that happens, so that no set has an escaped variable in it.
+    int escapedCount;
+    do {
+      escapedCount = escaped.size();
+      for (int i = 0; i < nodes.size(); i++) {
+        Node node = nodes.get(i);
+        if (node != null) {
+          gen[i] = new BitSet(jsScope.getVarCount());
+          kill[i] = new BitSet(jsScope.getVarCount());
+          computeGenKill(node, gen[i], kill[i], canEndAbruptly(node));
+        }
+      }
+    } while (escaped.size() != escapedCount);
+    return jsScope.getVarCount();
+  }
+
+  @Override
+  public boolean isUnion() {
+    return true;
+  }
 
-    // Make kills conditional if the node can end abruptly by an exception.
-    boolean conditional = false;
+  @Override
+  public BitSet getBoundaryBits() {
+    return new BitSet();
+  }
+
+  @Override
+  public LiveVariableLattice createLattice(long[] bits) {
+    return new LiveVariableLattice(bits);
+  }
+
+  /**
+   * Returns whether a node can end abruptly by an exception, in which case
+   * its kills are conditional.
+   */
+  private boolean canEndAbruptly(Node node) {
     List<DiGraphEdge<Node, Branch>> edgeList = getCfg().getOutEdges(node);
     for (DiGraphEdge<Node, Branch> edge : edgeList) {
       if (Branch.ON_EX.equals(edge.getValue())) {
-        conditional = true;
+        return true;
       }
     }
-    computeGenKill(node, gen, kill, conditional);
-    LiveVariableLattice result = new LiveVariableLattice(input);
-    // L_in = L_out - Kill + Gen
-    result.liveSet.andNot(kill);
-    result.liveSet.or(gen);
-    return result;
+    return false;
   }
 
   /**
@@ -50,15 +50,32 @@ class MarkNoSideEffectCalls implements CompilerPass {
   // has a @nosideeffects annotation.
   private final Set<Node> noSideEffectFunctionNames;
 
+  // Finds the definitions that calls refer to.
+  private SimpleDefinitionFinder defFinder = null;
+
   MarkNoSideEffectCalls(AbstractCompiler compiler) {
     this.compiler = compiler;
     this.noSideEffectFunctionNames = Sets.newHashSet();
   }
 
+  /**
+   * Injects a definition finder that is shared with other passes. It is
+   * brought up to date before it is used. Returns this for easy chaining.
+   */
+  MarkNoSideEffectCalls injectDefinitionFinder(
+      SimpleDefinitionFinder defFinder) {
+    this.defFinder = defFinder;
+    return this;
+  }
+
   @Override
   public void process(Node externs, Node root) {
-    SimpleDefinitionFinder defFinder = new SimpleDefinitionFinder(compiler);
-    defFinder.process(externs, root);
+    if (defFinder == null) {
+      defFinder = new SimpleDefinitionFinder(compiler);
+      defFinder.process(externs, root);
+    } else {
+      defFinder.update();
+    }
 
     // Gather the list of function nodes that have @nosideeffect annotations.
     // For use by SetNoSideEffectCallProperty.
@@ -18,6 +18,8 @@ package com.google.javascript.jscomp;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import com.google.javascript.jscomp.ControlFlowGraph.Branch;
@@ -26,8 +28,10 @@ import com.google.javascript.jscomp.graph.GraphNode;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
 
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -38,15 +42,28 @@ import java.util.Set;
  * the use node reaches that definition and it is the last definition before
  * the use on that path.
  *
+ * This is a gen/kill problem over the pairs of a variable and a node that
+ * uses it, so it is solved with a {@link BitVectorSolver}.
+ *
 *
  */
 class MaybeReachingVariableUse extends
-    DataFlowAnalysis<Node, MaybeReachingVariableUse.ReachingUses> {
+    DataFlowAnalysis<Node, MaybeReachingVariableUse.ReachingUses>
+    implements DataFlowAnalysis.GenKillAnalysis<
+        Node, MaybeReachingVariableUse.ReachingUses> {
 
   // The scope of the function that we are analyzing.
   private final Scope jsScope;
   private final Set<Var> escaped;
 
+  // The variable and the node of each use that is a bit of the bit vectors.
+  private final List<Var> useVars = Lists.newArrayList();
+  private final List<Node> useNodes = Lists.newArrayList();
+
+  // The variables whose uses are removed, while gen and kill sets are being
+  // computed.
+  private Set<Var> removedVars = null;
+
   MaybeReachingVariableUse(
       ControlFlowGraph<Node> cfg, Scope jsScope, AbstractCompiler compiler) {
     super(cfg, new ReachingUsesJoinOp());
@@ -149,6 +166,72 @@ class MaybeReachingVariableUse extends
     return output;
   }
 
+  @Override
+  public int computeGenKill(List<Node> nodes, BitSet[] gen, BitSet[] kill) {
+    // The gen set of a node is what flows out of it if nothing flows in, and
+    // it kills all the uses of the variables it removes.
+    useVars.clear();
+    useNodes.clear();
+    Map<Var, BitSet> usesByVar = Maps.newHashMap();
+    List<Set<Var>> removedVarsByNode = Lists.newArrayList();
+    for (int i = 0; i < nodes.size(); i++) {
+      Node node = nodes.get(i);
+      removedVars = Sets.newHashSet();
+      if (node != null) {
+        ReachingUses uses = new ReachingUses();
+        computeMayUse(node, node, uses, false);
+        gen[i] = new BitSet();
+        for (Var var : uses.mayUseMap.keySet()) {
+          int use = useVars.size();
+          useVars.add(var);
+          useNodes.add(node);
+          gen[i].set(use);
+          BitSet varUses = usesByVar.get(var);
+          if (varUses == null) {
+            varUses = new BitSet();
+            usesByVar.put(var, varUses);
+          }
+          varUses.set(use);
+        }
+      }
+      removedVarsByNode.add(removedVars);
+    }
+    removedVars = null;
+
+    for (int i = 0; i < nodes.size(); i++) {
+      for (Var var : removedVarsByNode.get(i)) {
+        BitSet varUses = usesByVar.get(var);
+        if (varUses != null) {
+          if (kill[i] == null) {
+            kill[i] = new BitSet();
+          }
+          kill[i].or(varUses);
+        }
+      }
+    }
+    return useVars.size();
+  }
+
+  @Override
+  public boolean isUnion() {
+    return true;
+  }
+
+  @Override
+  public BitSet getBoundaryBits() {
+    return new BitSet();
+  }
+
+  @Override
+  public ReachingUses createLattice(long[] bits) {
+    ReachingUses uses = new ReachingUses();
+    for (int i = BitVectorSolver.nextSetBit(bits, 0); i >= 0;
+         i = BitVectorSolver.nextSetBit(bits, i + 1)) {
+      uses.mayUseMap.put(useVars.get(i), useNodes.get(i));
+    }
+    return uses;
+  }
+
   private void computeMayUse(
       Node n, Node cfgNode, ReachingUses output, boolean conditional) {
     switch (n.getType()) {
@@ -263,6 +346,9 @@ class MaybeReachingVariableUse extends
     }
     if (!escaped.contains(var)) {
       use.mayUseMap.removeAll(var);
+      if (removedVars != null) {
+        removedVars.add(var);
+      }
     }
   }
 
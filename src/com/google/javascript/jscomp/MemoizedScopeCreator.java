@@ -57,4 +57,13 @@ class MemoizedScopeCreator implements ScopeCreator {
     }
     return scope;
   }
+
+  /**
+   * Forgets the scope created for the given node, so that it is created
+   * again the next time it is asked for. This is for scopes whose part of
+   * the tree has been replaced.
+   */
+  void forgetScope(Node n) {
+    scopes.remove(n);
+  }
 }
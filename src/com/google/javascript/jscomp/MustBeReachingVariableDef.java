@@ -17,6 +17,7 @@
 package com.google.javascript.jscomp;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.javascript.jscomp.ControlFlowGraph.AbstractCfgNodeTraversalCallback;
@@ -26,7 +27,9 @@ import com.google.javascript.jscomp.graph.GraphNode;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
 
+import java.util.BitSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -39,16 +42,33 @@ import javax.annotation.Nullable;
  * the use of {@code A} in {@code alert(A)} if all paths from entry node must
  * reaches that definition and it is the last definition before the use.
  *
+ * This is a gen/kill problem over the pairs of a variable and a definition
+ * of it, with intersection as the join, so it is solved with a
+ * {@link BitVectorSolver}. A variable has a must reaching definition where
+ * exactly one of its pairs is set, and none where none is.
+ *
 *
  */
 final class MustBeReachingVariableDef extends
-    DataFlowAnalysis<Node, MustBeReachingVariableDef.MustDef> {
+    DataFlowAnalysis<Node, MustBeReachingVariableDef.MustDef>
+    implements DataFlowAnalysis.GenKillAnalysis<
+        Node, MustBeReachingVariableDef.MustDef> {
 
   // The scope of the function that we are analyzing.
   private final Scope jsScope;
   private final AbstractCompiler compiler;
   private final Set<Var> escaped;
 
+  // The variable and the definition of each pair that is a bit of the bit
+  // vectors. The definitions at the entry come first.
+  private final List<Var> defVars = Lists.newArrayList();
+  private final List<Definition> defs = Lists.newArrayList();
+
+  // The variables that are defined, and those that are assigned (escaped or
+  // not), while gen and kill sets are being computed.
+  private Set<Var> definedVars = null;
+  private Set<Var> assignedVars = null;
+
   MustBeReachingVariableDef(
       ControlFlowGraph<Node> cfg, Scope jsScope, AbstractCompiler compiler) {
     super(cfg, new MustDefJoin());
@@ -213,6 +233,117 @@ final class MustBeReachingVariableDef extends
     return output;
   }
 
+  @Override
+  public int computeGenKill(List<Node> nodes, BitSet[] gen, BitSet[] kill) {
+    defVars.clear();
+    defs.clear();
+    for (Iterator<Var> i = jsScope.getVars(); i.hasNext();) {
+      Var var = i.next();
+      defVars.add(var);
+      defs.add(new Definition(var.scope.getRootNode()));
+    }
+
+    // The gen set of a node is what flows out of it if nothing flows in.
+    // It kills all the definitions of the variables it defines, and all the
+    // definitions that depend on the variables it assigns.
+    List<Set<Var>> definedVarsByNode = Lists.newArrayList();
+    List<Set<Var>> assignedVarsByNode = Lists.newArrayList();
+    for (int i = 0; i < nodes.size(); i++) {
+      Node node = nodes.get(i);
+      definedVars = Sets.newHashSet();
+      assignedVars = Sets.newHashSet();
+      if (node != null) {
+        MustDef output = new MustDef();
+        computeMustDef(node, node, output, false);
+        for (Map.Entry<Var, Definition> entry :
+                 output.reachingDef.entrySet()) {
+          if (entry.getValue() != null) {
+            if (gen[i] == null) {
+              gen[i] = new BitSet();
+            }
+            gen[i].set(defs.size());
+            defVars.add(entry.getKey());
+            defs.add(entry.getValue());
+          }
+        }
+      }
+      definedVarsByNode.add(definedVars);
+      assignedVarsByNode.add(assignedVars);
+    }
+    definedVars = null;
+    assignedVars = null;
+
+    Map<Var, BitSet> defsByVar = Maps.newHashMap();
+    Map<Var, BitSet> dependentDefsByVar = Maps.newHashMap();
+    for (int i = 0; i < defs.size(); i++) {
+      getBits(defsByVar, defVars.get(i)).set(i);
+      for (Var dependency : defs.get(i).depends) {
+        getBits(dependentDefsByVar, dependency).set(i);
+      }
+    }
+    for (int i = 0; i < nodes.size(); i++) {
+      BitSet nodeKill = new BitSet();
+      for (Var var : definedVarsByNode.get(i)) {
+        nodeKill.or(getBits(defsByVar, var));
+      }
+      for (Var var : assignedVarsByNode.get(i)) {
+        nodeKill.or(getBits(dependentDefsByVar, var));
+      }
+      if (!nodeKill.isEmpty()) {
+        kill[i] = nodeKill;
+      }
+    }
+    return defs.size();
+  }
+
+  private static BitSet getBits(Map<Var, BitSet> bitsByVar, Var var) {
+    BitSet bits = bitsByVar.get(var);
+    if (bits == null) {
+      bits = new BitSet();
+      bitsByVar.put(var, bits);
+    }
+    return bits;
+  }
+
+  @Override
+  public boolean isUnion() {
+    return false;
+  }
+
+  @Override
+  public BitSet getBoundaryBits() {
+    // The definitions at the entry.
+    BitSet bits = new BitSet();
+    bits.set(0, jsScope.getVarCount());
+    return bits;
+  }
+
+  @Override
+  public MustDef createLattice(long[] bits) {
+    // A variable with more than one definition set is still TOP, which is
+    // where nothing has reached yet.
+    MustDef result = new MustDef();
+    Set<Var> top = Sets.newHashSet();
+    for (int i = BitVectorSolver.nextSetBit(bits, 0); i >= 0;
+         i = BitVectorSolver.nextSetBit(bits, i + 1)) {
+      Var var = defVars.get(i);
+      if (result.reachingDef.containsKey(var)) {
+        top.add(var);
+      }
+      result.reachingDef.put(var, defs.get(i));
+    }
+    for (Var var : top) {
+      result.reachingDef.remove(var);
+    }
+    for (Iterator<Var> i = jsScope.getVars(); i.hasNext();) {
+      Var var = i.next();
+      if (!result.reachingDef.containsKey(var) && !top.contains(var)) {
+        result.reachingDef.put(var, null);
+      }
+    }
+    return result;
+  }
+
   /**
    * @param n The node in question.
    * @param cfgNode The node to add
@@ -313,6 +444,12 @@ final class MustBeReachingVariableDef extends
     if (var == null || var.scope != jsScope) {
       return;
     }
+    if (assignedVars != null) {
+      assignedVars.add(var);
+      if (!escaped.contains(var)) {
+        definedVars.add(var);
+      }
+    }
 
     for (Var other : def.reachingDef.keySet()) {
       Definition otherDef = def.reachingDef.get(other);
@@ -27,14 +27,13 @@ import com.google.javascript.jscomp.GatherSideEffectSubexpressionsCallback.SideE
 import com.google.javascript.jscomp.NodeTraversal.AbstractPostOrderCallback;
 import com.google.javascript.jscomp.NodeTraversal.Callback;
 import com.google.javascript.jscomp.Scope.Var;
-import com.google.javascript.jscomp.graph.DiGraph;
-import com.google.javascript.jscomp.graph.FixedPointGraphTraversal;
-import com.google.javascript.jscomp.graph.LinkedDirectedGraph;
+import com.google.javascript.jscomp.graph.IndexedDirectedGraph;
+import com.google.javascript.jscomp.graph.IntGraphReachability;
 import com.google.javascript.jscomp.graph.DiGraph.DiGraphEdge;
-import com.google.javascript.jscomp.graph.FixedPointGraphTraversal.EdgeCallback;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
 
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -82,8 +81,8 @@ final class NameAnalyzer implements CompilerPass {
   private final Map<String, JsName> allNames = Maps.newTreeMap();
 
   /** Reference dependency graph */
-  private DiGraph<JsName, RefType> referenceGraph =
-      new LinkedDirectedGraph<JsName, RefType>();
+  private IndexedDirectedGraph<JsName, RefType> referenceGraph =
+      IndexedDirectedGraph.create();
 
   /**
    * Map of name scopes - all children of the Node key have a dependency on the
@@ -161,23 +160,6 @@ final class NameAnalyzer implements CompilerPass {
     INHERITANCE,
   }
 
-  /**
-   * Callback that propagates side effect information across call sites.
-   */
-  private static class ReferencePropagationCallback
-      implements EdgeCallback<JsName, RefType> {
-    public boolean traverseEdge(JsName from,
-                                RefType callSite,
-                                JsName to) {
-      if (from.referenced && !to.referenced) {
-        to.referenced = true;
-        return true;
-      } else {
-        return false;
-      }
-    }
-  }
-
   /**
    * Class to hold information that can be determined from a node tree about a
    * given name
@@ -1431,9 +1413,19 @@ final class NameAnalyzer implements CompilerPass {
     JsName function = getName(FUNCTION, true);
     function.referenced = true;
 
-    // Propagate "referenced" property to a fixed point.
-    FixedPointGraphTraversal.newTraversal(new ReferencePropagationCallback())
-        .computeFixedPoint(referenceGraph);
+    // Everything that a referenced name refers to is referenced.
+    BitSet referenced = new BitSet();
+    for (int i = 0; i < referenceGraph.getNodeCount(); i++) {
+      if (referenceGraph.getNodeAt(i).getValue().referenced) {
+        referenced.set(i);
+      }
+    }
+    referenced = IntGraphReachability.computeReachable(
+        referenceGraph, referenced);
+    for (int i = referenced.nextSetBit(0); i >= 0;
+         i = referenced.nextSetBit(i + 1)) {
+      referenceGraph.getNodeAt(i).getValue().referenced = true;
+    }
   }
 
 
@@ -26,7 +26,7 @@ import com.google.javascript.jscomp.DefinitionsRemover.Definition;
 import com.google.javascript.jscomp.DefinitionsRemover.NamedFunctionDefinition;
 import com.google.javascript.jscomp.DefinitionsRemover.UnknownDefinition;
 import com.google.javascript.jscomp.graph.GraphNode;
-import com.google.javascript.jscomp.graph.LinkedDirectedGraph;
+import com.google.javascript.jscomp.graph.IndexedDirectedGraph;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.jstype.JSType;
 import com.google.javascript.rhino.jstype.JSTypeNative;
@@ -59,7 +59,7 @@ import java.util.Map;
 *
  */
 class NameReferenceGraph extends
-    LinkedDirectedGraph<NameReferenceGraph.Name, NameReferenceGraph.Reference>
+    IndexedDirectedGraph<NameReferenceGraph.Name, NameReferenceGraph.Reference>
     implements DefinitionProvider {
 
   // This is the key result of the name graph. Given a node in the AST, this map
@@ -22,6 +22,7 @@ import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
 
 import java.util.ArrayDeque;
+import java.util.Collection;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -72,6 +73,9 @@ public class NodeTraversal {
   /** The current source file name */
   private String sourceName;
 
+  /** The SCRIPT node being traversed, if any */
+  private Node currentScript;
+
   /** The scope creator */
   private ScopeCreator scopeCreator;
 
@@ -317,6 +321,31 @@ public class NodeTraversal {
     popScope();
   }
 
+  /**
+   * Traverses some branches of the global scope with that scope, as if they
+   * had been reached from its root. Their ancestors are not visited.
+   */
+  void traverseBranchesWithScope(Collection<Node> branches, Scope s) {
+    Preconditions.checkState(s.isGlobal());
+    try {
+      sourceName = "";
+      curNode = s.getRootNode();
+      pushScope(s);
+      for (Node branch : branches) {
+        Node script = branch;
+        while (script.getType() != Token.SCRIPT &&
+               script.getParent() != null) {
+          script = script.getParent();
+        }
+        sourceName = getSourceName(script);
+        traverseBranch(branch, branch.getParent());
+      }
+      popScope();
+    } catch (Exception unexpectedException) {
+      throwUnexpectedException(unexpectedException);
+    }
+  }
+
   /**
    * Traverses a parse tree recursively with a scope, starting at that scope's
    * root.
@@ -435,6 +464,18 @@ public class NodeTraversal {
     t.traverseRoots(roots);
   }
 
+  /**
+   * Reports a change made in the function or script that is being traversed.
+   * @see AbstractCompiler#reportChangeToEnclosingScope
+   */
+  public void reportCodeChange() {
+    Node changeScope = getEnclosingFunction();
+    if (changeScope == null) {
+      changeScope = currentScript != null ? currentScript : getScopeRoot();
+    }
+    compiler.reportChangeToEnclosingScope(changeScope);
+  }
+
   /**
    * Traverses a branch.
    */
@@ -443,6 +484,7 @@ public class NodeTraversal {
     int type = n.getType();
     if (type == Token.SCRIPT) {
       sourceName = getSourceName(n);
+      currentScript = n;
     }
 
     curNode = n;
@@ -475,6 +517,10 @@ public class NodeTraversal {
 
     curNode = n;
     callback.visit(this, n, parent);
+
+    if (type == Token.SCRIPT) {
+      currentScript = null;
+    }
   }
 
   /**
@@ -1171,6 +1171,39 @@ public final class NodeUtil {
     return fn.getLastChild();
   }
 
+  /**
+   * Is this a node that changes are recorded against, that is, a FUNCTION
+   * or a SCRIPT?
+   * @see AbstractCompiler#reportChangeToEnclosingScope
+   */
+  static boolean isChangeScopeRoot(Node n) {
+    int type = n.getType();
+    return type == Token.FUNCTION || type == Token.SCRIPT;
+  }
+
+  /**
+   * Gets the closest FUNCTION or SCRIPT that contains the given node, or
+   * the node itself if it is one. Returns null if there is none, for
+   * example if the node has been removed from the AST.
+   */
+  static Node getEnclosingChangeScopeRoot(Node n) {
+    while (n != null && !isChangeScopeRoot(n)) {
+      n = n.getParent();
+    }
+    return n;
+  }
+
+  /**
+   * Counts the nodes in the given tree, including its root.
+   */
+  static int countAstSize(Node n) {
+    int count = 1;
+    for (Node c = n.getFirstChild(); c != null; c = c.getNext()) {
+      count += countAstSize(c);
+    }
+    return count;
+  }
+
   /**
    * Is this a THIS node?
    */
@@ -18,10 +18,18 @@ package com.google.javascript.jscomp;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Supplier;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
 import com.google.javascript.rhino.Node;
 
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Pass that splits the AST and spawns workers to process the pieces in
@@ -29,6 +37,12 @@ import java.util.List;
  * spread the work so multiple {@link Task}s can execute in parallel without
  * running into race-conditions.
  *
+ * <p>The workers come from a pool that is shared by all the passes, so
+ * running a pass does not start any threads once the pool is warm. Idle
+ * workers take the next subtree from the work list, so a few large subtrees
+ * do not hold up the others. The results of the subtrees are combined in
+ * the order of the work list, no matter which worker finished first.
+ *
 *
  */
 final class ParallelCompilerPass implements CompilerPass {
@@ -38,13 +52,27 @@ final class ParallelCompilerPass implements CompilerPass {
   private final int numWorkers;
   private final Supplier<Task> taskSupply;
 
-  private List<Node> worklist;
+  /**
+   * The threads that help the compiler thread with the work list. Each call
+   * to {@link #runInParallel} borrows at most {@code numWorkers - 1} of them.
+   */
+  private static final ExecutorService sharedWorkers =
+      Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread th = new Thread(null, r, "jscompiler-worker",
+              Compiler.COMPILER_STACK_SIZE);
+          th.setDaemon(true);
+          return th;
+        }
+      });
 
   /**
    * Similar to {@link CompilerPass} except tasks are not given reference to
    * externs because of possible race conditions since node mutation is usually
-   * not atomic. Tasks should not directly call anything from the Compiler,
-   * instead they should communicate its findings as a {@link Result} object.
+   * not atomic. Tasks should communicate their findings as a {@link Result}
+   * object. The only methods of the Compiler they may call directly are
+   * the ones that report errors and code changes, which are synchronized.
    */
   public static interface Task {
     // TODO(user): Its hard to enforces the tasks are not calling the non-
@@ -120,93 +148,78 @@ final class ParallelCompilerPass implements CompilerPass {
     this.compiler = compiler;
   }
 
-  @Override
-  public void process(Node externs, Node root) {
-    // List of subtree to work with.
-    worklist = splitter.split();
-    Result r = execute();
-    splitter.join();
-    r.notifyCompiler(compiler);
-  }
-
   /**
-   * Main loop that creates the worker threads and do work.
+   * Creates a pass that runs the passes made by the given factory on each
+   * top-level function separately, in parallel. This is only correct for
+   * passes that look at one function at a time, that do not change the
+   * externs, and that only report errors and code changes to the compiler.
    *
-   * @return the combined result of all task execution on the work list.
+   * @param includeGlobalCode Whether to also run the pass on the code
+   *     outside of functions, where every top-level function is replaced by
+   *     an empty place holder.
    */
-  private Result execute() {
-    int numChildThread = numWorkers - 1;
-    Thread[] workers = new Thread[numChildThread];
-    final Result[] results = new Result[numChildThread];
-
-    for (int i = 0; i < numChildThread; i++) {
-      final int index = i;
-      Thread worker = new Thread() {
-        @Override
-          public void run() {
-            results[index] = processAllTasks();
+  static CompilerPass createFunctionLocalPass(final AbstractCompiler compiler,
+      final PassFactory factory, final boolean includeGlobalCode,
+      final int numWorkers) {
+    Preconditions.checkArgument(!factory.isOneTimePass());
+    return new CompilerPass() {
+      @Override
+      public void process(final Node externs, Node root) {
+        Supplier<Task> supplier = new Supplier<Task>() {
+          @Override
+          public Task get() {
+            return new Task() {
+              @Override
+              public Result processSubtree(Node subtree) {
+                // See AstParallelizer#split for why functions have a parent.
+                Node root = NodeUtil.isFunction(subtree) ?
+                    subtree.getParent() : subtree;
+                factory.create(compiler).process(externs, root);
+                return new Result();
+              }
+            };
           }
-       };
-       workers[i] = worker;
-       worker.start();
-    }
-
-    Result result = processAllTasks();
-
-    // Wait for the child to finish.
-    for (int i = 0; i < numChildThread; i++) {
-      try {
-        workers[i].join();
-      } catch (InterruptedException e) {
-        // None of the children thread should be interrupted in the execution
-        // of this method. If, for whatever reason, this happens, we will
-        // re-throw it and investigate the cause.
-        result.exceptions.add(e);
-        // One of our thread was interrupted, we'll make the current thread to
-        // be interrupted so any callers that is interested in cancellable
-        // execution can cancel.
-        Thread.currentThread().interrupt();
+        };
+        AstParallelizer splitter = AstParallelizer
+            .createNewFunctionLevelAstParallelizer(root, includeGlobalCode);
+        new ParallelCompilerPass(compiler, splitter, supplier, numWorkers)
+            .process(externs, root);
       }
-    }
+    };
+  }
 
-    // Combine the result.
-    for (int i = 0; i < numChildThread; i++) {
-      result.combine(results[i]);
+  @Override
+  public void process(Node externs, Node root) {
+    // List of subtree to work with.
+    List<Callable<Result>> worklist = Lists.newArrayList();
+    for (final Node subtree : splitter.split()) {
+      worklist.add(new Callable<Result>() {
+        @Override
+        public Result call() {
+          return processTask(subtree);
+        }
+      });
     }
 
-    return result;
-  }
-
-  private Result processAllTasks() {
-    Result result = new Result();
-    while(true) {
-      Result passResult = processTask();
-      if (passResult == null) {
-        break;
-      } else {
-        result.combine(passResult);
-      }
+    // Combine the result, in the order of the work list.
+    Result r = new Result();
+    for (Result taskResult : runInParallel(worklist, numWorkers)) {
+      r.combine(taskResult);
     }
-    return result;
+    splitter.join();
+    r.notifyCompiler(compiler);
   }
 
   /**
-   * Get a subtree from the work list and work on it. This method makes a call
-   * to the supplier which is also assumed thread-safe. It also calls
-   * getTask() which is synchronized.
+   * Works on a subtree from the work list. This method makes a call to the
+   * supplier which is also assumed thread-safe.
    *
    * @return The result of performing the task specified by the task supplier
-   * on the next subtree from the work list. {@code null} if there are no more
-   * work load from the work list.
+   * on the subtree.
    */
-  private Result processTask() {
-    Node subtree = getTask();
+  private Result processTask(Node subtree) {
     try {
-      if (subtree == null) {
-        return null;
-      } else {
-        return taskSupply.get().processSubtree(subtree);
-      }
+      return taskSupply.get().processSubtree(subtree);
     } catch (Exception e) {
       Result r = new Result(true);
       r.exceptions.add(e);
@@ -214,14 +227,72 @@ final class ParallelCompilerPass implements CompilerPass {
     }
   }
 
-  /** Retrieves a subtree to work on from the work list. This must be atomic. */
-  private synchronized Node getTask() {
-    // Since the method is protected by a lock, there is no need for a thread-
-    // safe list.
-    if (worklist.isEmpty()) {
-      return null;
-    } else {
-      return worklist.remove(0);
+  /**
+   * Runs the given tasks on the calling thread and at most
+   * {@code numWorkers - 1} of the shared workers. Each thread takes the next
+   * task from the list as soon as it is done with one.
+   *
+   * @return The results of the tasks, in the same order as the tasks.
+   * @throws RuntimeException if a task failed. If several did, the failure
+   *     of the first one in the list is thrown.
+   */
+  static <T> List<T> runInParallel(
+      final List<? extends Callable<T>> tasks, int numWorkers) {
+    Preconditions.checkArgument(numWorkers > 0);
+    final Object[] results = new Object[tasks.size()];
+    final Throwable[] failures = new Throwable[tasks.size()];
+    final AtomicInteger nextTask = new AtomicInteger();
+    Runnable worker = new Runnable() {
+      @Override
+      public void run() {
+        for (int i = nextTask.getAndIncrement(); i < tasks.size();
+             i = nextTask.getAndIncrement()) {
+          try {
+            results[i] = tasks.get(i).call();
+          } catch (Throwable t) {
+            failures[i] = t;
+          }
+        }
+      }
+    };
+
+    int numHelpers = Math.min(numWorkers, tasks.size()) - 1;
+    List<Future<?>> helpers = Lists.newArrayList();
+    for (int i = 0; i < numHelpers; i++) {
+      helpers.add(sharedWorkers.submit(worker));
+    }
+    worker.run();
+
+    // Wait for the helpers to finish, since they may still be working on
+    // the last tasks. If this thread gets interrupted meanwhile, we keep
+    // waiting and let the caller know afterwards.
+    boolean interrupted = false;
+    for (Future<?> helper : helpers) {
+      while (true) {
+        try {
+          helper.get();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          // Cannot happen, the worker catches everything.
+          throw new RuntimeException(e);
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+
+    List<T> resultList = Lists.newArrayListWithCapacity(tasks.size());
+    for (int i = 0; i < tasks.size(); i++) {
+      if (failures[i] != null) {
+        throw Throwables.propagate(failures[i]);
+      }
+      @SuppressWarnings("unchecked")
+      T result = (T) results[i];
+      resultList.add(result);
     }
+    return resultList;
   }
 }
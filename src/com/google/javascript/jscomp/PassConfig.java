@@ -119,9 +119,11 @@ public abstract class PassConfig {
    * Create a type inference pass.
    */
   final TypeInferencePass makeTypeInference(AbstractCompiler compiler) {
+    // Some tests type their code without any options.
+    int numThreads = options == null ? 1 : options.typeInferenceThreadCount;
     return new TypeInferencePass(
         compiler, compiler.getReverseAbstractInterpreter(),
-        topScope, typedScopeCreator);
+        getTopScope(), getScopeCreator(), numThreads);
   }
 
   /**
@@ -132,8 +134,8 @@ public abstract class PassConfig {
         compiler,
         compiler.getReverseAbstractInterpreter(),
         compiler.getTypeRegistry(),
-        topScope,
-        typedScopeCreator,
+        getTopScope(),
+        getScopeCreator(),
         options.reportMissingOverride,
         options.reportUnknownTypes)
         .reportMissingProperties(options.enables(
@@ -16,16 +16,25 @@
 
 package com.google.javascript.jscomp;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.javascript.jscomp.CodeChangeHandler.RecentChange;
 import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.Token;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.ref.WeakReference;
 import java.util.ArrayDeque;
 import java.util.Deque;
+import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.zip.GZIPOutputStream;
 
 /**
@@ -33,8 +42,10 @@ import java.util.zip.GZIPOutputStream;
  */
 public class PerformanceTracker {
 
+  private final AbstractCompiler compiler;
   private final Node jsRoot;
   private final boolean trackGzippedSize;
+  private final int gzipSampleInterval;
 
   // Keeps track of AST changes and computes code size estimation
   // if there is any.
@@ -43,8 +54,26 @@ public class PerformanceTracker {
   private int curCodeSizeEstimate = -1;
   private int curZippedCodeSizeEstimate = -1;
 
+  // The sizes at the last measurement that really gzipped the code.
+  private int sampledCodeSize = -1;
+  private int sampledZippedCodeSize = -1;
+  private int sizeMeasurements = 0;
+
+  // The printed size of each function body, so that bodies that have not
+  // changed do not have to be printed again.
+  private final Map<Node, BodySize> bodySizes =
+      new WeakHashMap<Node, BodySize>();
+
   private Deque<String> currentRunningPass = new ArrayDeque<String>();
 
+  // What the passes in currentRunningPass started with.
+  private final Deque<PassStart> passStarts = new ArrayDeque<PassStart>();
+
+  private int curNodeCount = -1;
+
+  /** Maps pass name to its statistics, in the order passes first ran. */
+  private final Map<String, PassStats> passStats = Maps.newLinkedHashMap();
+
   /** Maps pass name to total time spend. */
   private final Map<String, Long> runtimeRecord = Maps.newHashMap();
 
@@ -54,9 +83,21 @@ public class PerformanceTracker {
   /** Maps pass name to total size reduction. */
   private final Map<String, Integer> zippedCodeSizeRecord = Maps.newHashMap();
 
-  PerformanceTracker(Node jsRoot, boolean trackGzippedSize) {
+  /**
+   * @param compiler The compiler whose change reports tell which function
+   *     bodies have to be printed again.
+   * @param jsRoot The root of the code to measure.
+   * @param trackGzippedSize Whether to estimate the gzipped size too.
+   * @param gzipSampleInterval Only one in this many size measurements
+   *     gzips the code. The others assume the same compression ratio.
+   */
+  PerformanceTracker(AbstractCompiler compiler, Node jsRoot,
+      boolean trackGzippedSize, int gzipSampleInterval) {
+    Preconditions.checkArgument(gzipSampleInterval > 0);
+    this.compiler = compiler;
     this.jsRoot = jsRoot;
     this.trackGzippedSize = trackGzippedSize;
+    this.gzipSampleInterval = gzipSampleInterval;
   }
 
   CodeChangeHandler getCodeChangeHandler() {
@@ -65,6 +106,7 @@ public class PerformanceTracker {
 
   void recordPassStart(String passName) {
     currentRunningPass.push(passName);
+    passStarts.push(new PassStart(curNodeCount));
     codeChange.reset();
   }
 
@@ -86,15 +128,111 @@ public class PerformanceTracker {
     total = total.longValue() + result;
     runtimeRecord.put(passName, total);
 
+    PassStats stats = passStats.get(passName);
+    if (stats == null) {
+      stats = new PassStats(passName, trackGzippedSize);
+      passStats.put(passName, stats);
+    }
+    PassStart start = passStarts.pop();
+    stats.runs++;
+    stats.runtime += result;
+    stats.cpuTime = addDelta(stats.cpuTime, start.cpuTime, getCpuTime());
+    stats.allocatedBytes = addDelta(
+        stats.allocatedBytes, start.allocatedBytes, getAllocatedBytes());
+
+    // Passes that do not report changes do not change the node count,
+    // except for parsing, which is a top level pass.
+    if (codeChange.hasCodeChanged() || currentRunningPass.isEmpty()) {
+      curNodeCount = NodeUtil.countAstSize(jsRoot);
+    }
+    if (stats.runs == 1) {
+      stats.nodesBefore = start.nodeCount;
+    }
+    stats.nodesAfter = curNodeCount;
+
     if (codeChange.hasCodeChanged()) {
-      CodeSizeEstimatePrinter printer = estimateCodeSize(jsRoot);
+      boolean sampleZippedSize = trackGzippedSize &&
+          sizeMeasurements++ % gzipSampleInterval == 0;
+      CodeSizeEstimatePrinter printer =
+          estimateCodeSize(jsRoot, sampleZippedSize);
+      int size = printer.calcSize();
+      int zippedSize;
+      if (sampleZippedSize) {
+        zippedSize = printer.calcZippedSize();
+        sampledCodeSize = size;
+        sampledZippedCodeSize = zippedSize;
+      } else {
+        zippedSize = estimateZippedSize(size);
+      }
+      if (curCodeSizeEstimate != -1) {
+        stats.sizeDelta += size - curCodeSizeEstimate;
+      }
+      if (zippedSize == -1) {
+        stats.zippedSizeDelta = -1;
+      } else if (curZippedCodeSizeEstimate != -1 &&
+          stats.zippedSizeDelta != -1) {
+        stats.zippedSizeDelta += zippedSize - curZippedCodeSizeEstimate;
+      }
       curCodeSizeEstimate = recordSizeChange(curCodeSizeEstimate,
-          printer.calcSize(), passName, codeSizeRecord);
+          size, passName, codeSizeRecord);
       curZippedCodeSizeEstimate = recordSizeChange(curZippedCodeSizeEstimate,
-          printer.calcZippedSize(), passName, zippedCodeSizeRecord);
+          zippedSize, passName, zippedCodeSizeRecord);
     }
   }
 
+  /**
+   * Adds the difference between two readings of a counter to a total.
+   * Counters that are not supported read -1, and so do their totals.
+   */
+  private static long addDelta(long total, long start, long stop) {
+    if (total == -1 || start == -1 || stop == -1) {
+      return -1;
+    }
+    return total + stop - start;
+  }
+
+  /** Returns the CPU time of the current thread in nanoseconds, or -1. */
+  private static long getCpuTime() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean.isCurrentThreadCpuTimeSupported()) {
+      return bean.getCurrentThreadCpuTime();
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the number of bytes allocated by the current thread, or -1.
+   * Only HotSpot VMs keep track of this.
+   */
+  private static long getAllocatedBytes() {
+    try {
+      ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+      if (bean instanceof com.sun.management.ThreadMXBean) {
+        com.sun.management.ThreadMXBean hotSpotBean =
+            (com.sun.management.ThreadMXBean) bean;
+        if (hotSpotBean.isThreadAllocatedMemorySupported() &&
+            hotSpotBean.isThreadAllocatedMemoryEnabled()) {
+          return hotSpotBean.getThreadAllocatedBytes(
+              Thread.currentThread().getId());
+        }
+      }
+    } catch (LinkageError e) {
+      // Not a HotSpot VM.
+    }
+    return -1;
+  }
+
+  /**
+   * Estimates the gzipped size of code of the given size, assuming it
+   * compresses as well as it did when it was last gzipped.
+   */
+  private int estimateZippedSize(int size) {
+    if (sampledZippedCodeSize == -1 || sampledCodeSize <= 0) {
+      return -1;
+    }
+    return (int) ((long) size * sampledZippedCodeSize / sampledCodeSize);
+  }
+
   /**
    * Record the size change in the given record for that given pass.
    *
@@ -130,13 +268,302 @@ public class PerformanceTracker {
     return ImmutableMap.copyOf(zippedCodeSizeRecord);
   }
 
-  private final CodeSizeEstimatePrinter estimateCodeSize(Node root) {
-    CodeSizeEstimatePrinter cp = new CodeSizeEstimatePrinter(trackGzippedSize);
-    CodeGenerator cg = new CodeGenerator(cp);
+  /**
+   * Returns the statistics of each pass, in the order the passes first ran.
+   */
+  public ImmutableList<PassStats> getPassStats() {
+    return ImmutableList.copyOf(passStats.values());
+  }
+
+  /**
+   * Writes the statistics of each pass as a JSON object of the form
+   * <code>{"passes": [{"name": "inlineVariables", "runs": 3, ...}, ...]}
+   * </code>. Statistics that were not available are -1. CPU time and
+   * allocations only count the thread that ran the passes; see
+   * {@link PassStats#getCpuTime}.
+   */
+  public void outputPassStatsAsJson(Appendable out) throws IOException {
+    out.append("{\"passes\":[");
+    boolean first = true;
+    for (PassStats stats : passStats.values()) {
+      if (!first) {
+        out.append(",");
+      }
+      first = false;
+      out.append("\n{\"name\":");
+      out.append(CodeGenerator.escapeToDoubleQuotedJsString(stats.name));
+      Object[] values = stats.getValues();
+      for (int i = 0; i < PassStats.COLUMNS.length; i++) {
+        out.append(",\"").append(PassStats.COLUMNS[i]).append("\":");
+        out.append(String.valueOf(values[i]));
+      }
+      out.append("}");
+    }
+    out.append("\n]}\n");
+  }
+
+  /**
+   * Writes the statistics of each pass as CSV, with a header line.
+   * Statistics that were not available are -1. CPU time and allocations
+   * only count the thread that ran the passes; see
+   * {@link PassStats#getCpuTime}.
+   */
+  public void outputPassStatsAsCsv(Appendable out) throws IOException {
+    out.append("name");
+    for (String column : PassStats.COLUMNS) {
+      out.append(",").append(column);
+    }
+    out.append("\n");
+    for (PassStats stats : passStats.values()) {
+      out.append(toCsvField(stats.name));
+      for (Object value : stats.getValues()) {
+        out.append(",").append(String.valueOf(value));
+      }
+      out.append("\n");
+    }
+  }
+
+  /**
+   * Quotes a CSV field if it has a comma, a quote or a line break in it.
+   */
+  private static String toCsvField(String s) {
+    if (s.indexOf(',') == -1 && s.indexOf('"') == -1 &&
+        s.indexOf('\n') == -1 && s.indexOf('\r') == -1) {
+      return s;
+    }
+    return "\"" + s.replace("\"", "\"\"") + "\"";
+  }
+
+  /**
+   * The statistics of all the runs of one pass.
+   */
+  public static final class PassStats {
+    private static final String[] COLUMNS = {
+      "runs", "runtimeMs", "compilerThreadCpuTimeMs",
+      "compilerThreadAllocatedBytes",
+      "nodesBefore", "nodesAfter", "sizeDelta", "gzippedSizeDelta"
+    };
+
+    private final String name;
+    private int runs = 0;
+    private long runtime = 0;
+    private long cpuTime = 0;
+    private long allocatedBytes = 0;
+    private int nodesBefore = -1;
+    private int nodesAfter = -1;
+    private int sizeDelta = 0;
+    private int zippedSizeDelta;
+
+    private PassStats(String name, boolean trackGzippedSize) {
+      this.name = name;
+      this.zippedSizeDelta = trackGzippedSize ? 0 : -1;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /** How many times the pass ran, for example in fixed point loops. */
+    public int getRuns() {
+      return runs;
+    }
+
+    /** The wall time of all runs, in milliseconds. */
+    public long getRuntime() {
+      return runtime;
+    }
+
+    /**
+     * The CPU time of all runs, in milliseconds, or -1. Only the thread
+     * that ran the pass is counted, so the time that a pass spends in the
+     * worker threads of parallel parsing, optimization, printing or type
+     * inference is left out.
+     */
+    public long getCpuTime() {
+      return cpuTime == -1 ? -1 : cpuTime / 1000000;
+    }
+
+    /**
+     * The number of bytes allocated by all runs, or -1. Like
+     * {@link #getCpuTime}, this leaves out worker threads.
+     */
+    public long getAllocatedBytes() {
+      return allocatedBytes;
+    }
+
+    /** The number of nodes in the AST before the first run, or -1. */
+    public int getNodesBefore() {
+      return nodesBefore;
+    }
+
+    /** The number of nodes in the AST after the last run. */
+    public int getNodesAfter() {
+      return nodesAfter;
+    }
+
+    /** How much all runs changed the estimated code size. */
+    public int getSizeDelta() {
+      return sizeDelta;
+    }
+
+    /**
+     * How much all runs changed the estimated gzipped code size, or -1 if
+     * the gzipped size was not estimated.
+     */
+    public int getZippedSizeDelta() {
+      return zippedSizeDelta;
+    }
+
+    /** Returns the values of {@link #COLUMNS}. */
+    private Object[] getValues() {
+      return new Object[] {
+        runs, runtime, getCpuTime(), allocatedBytes,
+        nodesBefore, nodesAfter, sizeDelta, zippedSizeDelta
+      };
+    }
+  }
+
+  /** What a running pass started with. */
+  private static final class PassStart {
+    private final long cpuTime = getCpuTime();
+    private final long allocatedBytes = getAllocatedBytes();
+    private final int nodeCount;
+
+    private PassStart(int nodeCount) {
+      this.nodeCount = nodeCount;
+    }
+  }
+
+  /**
+   * Prints the given code for its size. Function bodies that have not
+   * changed since they were last printed are not printed again, unless the
+   * code has to be gzipped.
+   */
+  private final CodeSizeEstimatePrinter estimateCodeSize(
+      Node root, boolean gzip) {
+    CodeSizeEstimatePrinter cp = new CodeSizeEstimatePrinter(gzip);
+    CodeGenerator cg = new SizeEstimatingCodeGenerator(cp, !gzip);
     cg.add(root);
     return cp;
   }
 
+  /**
+   * Returns the size of the given function body, or -1 if it has to be
+   * printed again.
+   */
+  private int getKnownSize(Node body) {
+    BodySize known = bodySizes.get(body);
+    Node fn = body.getParent();
+    if (known == null || fn == null ||
+        compiler.hasScopeChangedSince(fn, known.stamp)) {
+      return -1;
+    }
+
+    int size = known.ownSize;
+    for (WeakReference<Node> ref : known.nestedBodies) {
+      Node nested = ref.get();
+      if (nested == null || nested.getParent() == null ||
+          NodeUtil.getEnclosingChangeScopeRoot(
+              nested.getParent().getParent()) != fn) {
+        // The function moved without a change being reported in fn.
+        return -1;
+      }
+      if (compiler.hasScopeChangedSince(nested.getParent(), known.stamp)) {
+        // The name and parameters of the nested function are counted in
+        // the own size of this body, but changes to them are reported on
+        // the nested function.
+        return -1;
+      }
+      int nestedSize = getKnownSize(nested);
+      if (nestedSize == -1) {
+        CodeSizeEstimatePrinter cp = new CodeSizeEstimatePrinter(false);
+        new SizeEstimatingCodeGenerator(cp, true).add(
+            nested, CodeGenerator.Context.PRESERVE_BLOCK);
+        nestedSize = cp.calcSize();
+      }
+      size += nestedSize;
+    }
+    return size;
+  }
+
+  private static boolean isFunctionBody(Node n) {
+    Node parent = n.getParent();
+    return n.getType() == Token.BLOCK && parent != null &&
+        parent.getType() == Token.FUNCTION && parent.getLastChild() == n;
+  }
+
+  /**
+   * The size of a function body when it was last printed, not counting
+   * the bodies of the functions inside it. The names and parameters of
+   * those functions are counted, so the size is stale once one of them
+   * changes.
+   */
+  private static final class BodySize {
+    private final long stamp;
+    private final int ownSize;
+    private final List<WeakReference<Node>> nestedBodies;
+
+    private BodySize(
+        long stamp, int ownSize, List<WeakReference<Node>> nestedBodies) {
+      this.stamp = stamp;
+      this.ownSize = ownSize;
+      this.nestedBodies = nestedBodies;
+    }
+  }
+
+  /**
+   * A code generator that remembers the size of every function body it
+   * prints, and can skip the ones whose size is already known.
+   */
+  private final class SizeEstimatingCodeGenerator extends CodeGenerator {
+    private final CodeSizeEstimatePrinter cp;
+    private final boolean useKnownSizes;
+
+    // The function bodies that are being printed, innermost first.
+    private final Deque<BodyInProgress> bodies =
+        new ArrayDeque<BodyInProgress>();
+
+    private SizeEstimatingCodeGenerator(
+        CodeSizeEstimatePrinter cp, boolean useKnownSizes) {
+      super(cp);
+      this.cp = cp;
+      this.useKnownSizes = useKnownSizes;
+    }
+
+    @Override
+    void add(Node n, Context context) {
+      if (!isFunctionBody(n)) {
+        super.add(n, context);
+        return;
+      }
+
+      int start = cp.calcSize();
+      int knownSize = useKnownSizes ? getKnownSize(n) : -1;
+      if (knownSize != -1) {
+        cp.skip(knownSize);
+      } else {
+        BodyInProgress body = new BodyInProgress();
+        bodies.push(body);
+        super.add(n, context);
+        bodies.pop();
+        int ownSize = cp.calcSize() - start - body.nestedSize;
+        bodySizes.put(n, new BodySize(
+            compiler.getChangeStamp(), ownSize, body.nestedBodies));
+      }
+
+      BodyInProgress parent = bodies.peek();
+      if (parent != null) {
+        parent.nestedBodies.add(new WeakReference<Node>(n));
+        parent.nestedSize += cp.calcSize() - start;
+      }
+    }
+  }
+
+  private static final class BodyInProgress {
+    private final List<WeakReference<Node>> nestedBodies = Lists.newArrayList();
+    private int nestedSize = 0;
+  }
+
   /**
    * Purely use to get a code size estimate and not generate any code at all.
    */
@@ -173,6 +600,16 @@ public class PerformanceTracker {
       }
     }
 
+    /**
+     * Counts a function body of the given size without printing it.
+     */
+    private void skip(int bodySize) {
+      Preconditions.checkState(!trackGzippedSize);
+      size += bodySize;
+      lastChar = '}';
+      statementNeedsEnded = false;
+    }
+
     @Override
     char getLastChar() {
       return lastChar;
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+/**
+ * An immutable map, stored as a hash array mapped trie. Adding a key copies
+ * only the path from the root to that key, so a map shares almost all of
+ * its structure with the map it was derived from. This makes it cheap to
+ * keep many versions of a map around, and to find the keys on which two
+ * versions differ.
+ *
+ * <p>Values are compared by identity. Null keys and values cannot be added,
+ * and no key is mapped to null.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+final class PersistentHashMap<K, V> {
+
+  // Each level of the trie consumes this many bits of the hash code.
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+
+  private static final PersistentHashMap<Object, Object> EMPTY =
+      new PersistentHashMap<Object, Object>(new Trie(0, new Object[0]), 0);
+
+  private final Trie root;
+  private final int size;
+
+  private PersistentHashMap(Trie root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  /** Returns the empty map. */
+  @SuppressWarnings("unchecked")
+  static <K, V> PersistentHashMap<K, V> empty() {
+    return (PersistentHashMap<K, V>) EMPTY;
+  }
+
+  /** Returns the number of keys in this map. */
+  int size() {
+    return size;
+  }
+
+  /** Returns the value of the given key, or null if it has none. */
+  @SuppressWarnings("unchecked")
+  V get(K key) {
+    if (key == null) {
+      return null;
+    }
+    Entry entry = find(root, key, key.hashCode());
+    return entry == null ? null : (V) entry.value;
+  }
+
+  /**
+   * Returns a map that is like this one, except that it maps the given key
+   * to the given value. Returns this map if it already does.
+   */
+  PersistentHashMap<K, V> plus(K key, V value) {
+    Preconditions.checkNotNull(value);
+    int hash = key.hashCode();
+    Entry old = find(root, key, hash);
+    if (old != null && old.value == value) {
+      return this;
+    }
+    Trie newRoot = (Trie) insert(root, new Entry(key, hash, value), 0);
+    return new PersistentHashMap<K, V>(newRoot, old == null ? size + 1 : size);
+  }
+
+  /**
+   * Returns the keys whose values differ between this map and the other,
+   * including the keys that only one of them has. Parts of the tries that
+   * the two maps share are not visited, so this is fast for maps that
+   * derive from each other.
+   */
+  @SuppressWarnings("unchecked")
+  List<K> keysThatDiffer(PersistentHashMap<K, V> other) {
+    List<Object> keys = Lists.newArrayList();
+    diff(root, other.root, keys);
+    return (List<K>) keys;
+  }
+
+  private static int bit(int hash, int shift) {
+    return 1 << ((hash >>> shift) & MASK);
+  }
+
+  private static Entry find(Object node, Object key, int hash) {
+    for (int shift = 0; ; shift += BITS) {
+      if (node instanceof Trie) {
+        Trie trie = (Trie) node;
+        int bit = bit(hash, shift);
+        if ((trie.bitmap & bit) == 0) {
+          return null;
+        }
+        node = trie.children[trie.index(bit)];
+      } else {
+        Leaf leaf = (Leaf) node;
+        return leaf.hash == hash ? leaf.find(key) : null;
+      }
+    }
+  }
+
+  /** Returns a copy of the node with the entry added to it. */
+  private static Object insert(Object node, Entry entry, int shift) {
+    if (node instanceof Trie) {
+      Trie trie = (Trie) node;
+      int bit = bit(entry.hash, shift);
+      int index = trie.index(bit);
+      if ((trie.bitmap & bit) == 0) {
+        return trie.withChildAdded(bit, index, entry);
+      }
+      return trie.withChildReplaced(index,
+          insert(trie.children[index], entry, shift + BITS));
+    }
+
+    Leaf leaf = (Leaf) node;
+    if (leaf.hash == entry.hash) {
+      return leaf.plus(entry);
+    }
+    return merge(leaf, entry, shift);
+  }
+
+  /** Creates the node for two leaves whose hash codes differ. */
+  private static Trie merge(Leaf a, Leaf b, int shift) {
+    int indexA = (a.hash >>> shift) & MASK;
+    int indexB = (b.hash >>> shift) & MASK;
+    if (indexA == indexB) {
+      return new Trie(1 << indexA,
+          new Object[] {merge(a, b, shift + BITS)});
+    }
+    return new Trie((1 << indexA) | (1 << indexB),
+        indexA < indexB ? new Object[] {a, b} : new Object[] {b, a});
+  }
+
+  private static void diff(Object a, Object b, List<Object> keys) {
+    if (a == b) {
+      return;
+    }
+
+    if (a instanceof Trie && b instanceof Trie) {
+      Trie trieA = (Trie) a;
+      Trie trieB = (Trie) b;
+      for (int bits = trieA.bitmap | trieB.bitmap; bits != 0;
+           bits &= bits - 1) {
+        int bit = bits & -bits;
+        diff(trieA.getChild(bit), trieB.getChild(bit), keys);
+      }
+      return;
+    }
+
+    // One side is a leaf or missing, so there are few entries to compare.
+    List<Entry> entriesA = Lists.newArrayList();
+    List<Entry> entriesB = Lists.newArrayList();
+    collectEntries(a, entriesA);
+    collectEntries(b, entriesB);
+    for (Entry entryA : entriesA) {
+      Entry entryB = findIn(entriesB, entryA.key);
+      if (entryB == null || entryB.value != entryA.value) {
+        keys.add(entryA.key);
+      }
+    }
+    for (Entry entryB : entriesB) {
+      if (findIn(entriesA, entryB.key) == null) {
+        keys.add(entryB.key);
+      }
+    }
+  }
+
+  private static void collectEntries(Object node, List<Entry> entries) {
+    if (node instanceof Trie) {
+      for (Object child : ((Trie) node).children) {
+        collectEntries(child, entries);
+      }
+    } else if (node instanceof Collision) {
+      for (Entry entry : ((Collision) node).entries) {
+        entries.add(entry);
+      }
+    } else if (node != null) {
+      entries.add((Entry) node);
+    }
+  }
+
+  private static Entry findIn(List<Entry> entries, Object key) {
+    for (Entry entry : entries) {
+      if (entry.key.equals(key)) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * An inner node of the trie. It only stores the children that exist, in
+   * the order of their bits in the bitmap.
+   */
+  private static final class Trie {
+    final int bitmap;
+
+    // Each child is a Trie or a Leaf.
+    final Object[] children;
+
+    Trie(int bitmap, Object[] children) {
+      this.bitmap = bitmap;
+      this.children = children;
+    }
+
+    int index(int bit) {
+      return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    Object getChild(int bit) {
+      return (bitmap & bit) == 0 ? null : children[index(bit)];
+    }
+
+    Trie withChildAdded(int bit, int index, Object child) {
+      Object[] newChildren = new Object[children.length + 1];
+      System.arraycopy(children, 0, newChildren, 0, index);
+      newChildren[index] = child;
+      System.arraycopy(children, index, newChildren, index + 1,
+          children.length - index);
+      return new Trie(bitmap | bit, newChildren);
+    }
+
+    Trie withChildReplaced(int index, Object child) {
+      Object[] newChildren = children.clone();
+      newChildren[index] = child;
+      return new Trie(bitmap, newChildren);
+    }
+  }
+
+  /** A leaf of the trie, which holds the entries of one hash code. */
+  private abstract static class Leaf {
+    final int hash;
+
+    Leaf(int hash) {
+      this.hash = hash;
+    }
+
+    /** Returns the entry for the key, or null. */
+    abstract Entry find(Object key);
+
+    /** Returns a copy of this leaf with the entry added or replaced. */
+    abstract Leaf plus(Entry entry);
+  }
+
+  private static final class Entry extends Leaf {
+    final Object key;
+    final Object value;
+
+    Entry(Object key, int hash, Object value) {
+      super(hash);
+      this.key = Preconditions.checkNotNull(key);
+      this.value = value;
+    }
+
+    @Override
+    Entry find(Object key) {
+      return this.key.equals(key) ? this : null;
+    }
+
+    @Override
+    Leaf plus(Entry entry) {
+      return key.equals(entry.key) ?
+          entry : new Collision(hash, new Entry[] {this, entry});
+    }
+  }
+
+  /** The entries of keys that have the same hash code. */
+  private static final class Collision extends Leaf {
+    final Entry[] entries;
+
+    Collision(int hash, Entry[] entries) {
+      super(hash);
+      this.entries = entries;
+    }
+
+    @Override
+    Entry find(Object key) {
+      for (Entry entry : entries) {
+        if (entry.key.equals(key)) {
+          return entry;
+        }
+      }
+      return null;
+    }
+
+    @Override
+    Leaf plus(Entry entry) {
+      Entry[] newEntries;
+      int i = 0;
+      while (i < entries.length && !entries[i].key.equals(entry.key)) {
+        i++;
+      }
+      if (i < entries.length) {
+        newEntries = entries.clone();
+      } else {
+        newEntries = new Entry[entries.length + 1];
+        System.arraycopy(entries, 0, newEntries, 0, entries.length);
+      }
+      newEntries[i] = entry;
+      return new Collision(hash, newEntries);
+    }
+  }
+}
@@ -20,10 +20,12 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.javascript.rhino.Node;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.logging.Logger;
@@ -59,6 +61,8 @@ class PhaseOptimizer implements CompilerPass {
   private final PerformanceTracker tracker;
   private final CodeChangeHandler.RecentChange recentChange =
       new CodeChangeHandler.RecentChange();
+  private final CodeChangeHandler.ChangeCounter changeCounter =
+      new CodeChangeHandler.ChangeCounter();
   private boolean loopMutex = false;
   private Tracer currentTracer = null;
   private String currentPassName = null;
@@ -73,6 +77,7 @@ class PhaseOptimizer implements CompilerPass {
     this.compiler = compiler;
     this.tracker = tracker;
     compiler.addChangeHandler(recentChange);
+    compiler.addChangeHandler(changeCounter);
   }
 
   /**
@@ -283,11 +288,18 @@ class PhaseOptimizer implements CompilerPass {
    *
    * Notice that this is a non-static class, because it includes the closure
    * of PhaseOptimizer.
+   *
+   * A pass is skipped if no change has been reported since it last
+   * started. Such a pass has already seen the AST as it is now and left
+   * it alone, so running it again would not change anything either.
    */
   private class LoopInternal extends Loop {
     private final List<NamedPass> myPasses = Lists.newArrayList();
     private final Set<String> myNames = Sets.newHashSet();
 
+    // The change count when each pass last started, during the current run.
+    private final Map<NamedPass, Long> lastStarts = Maps.newHashMap();
+
     @Override
     void addLoopedPass(PassFactory factory) {
       String name = factory.getName();
@@ -329,7 +341,11 @@ class PhaseOptimizer implements CompilerPass {
 
           recentChange.reset();  // reset before this round of optimizations
 
-          for (CompilerPass pass : myPasses) {
+          for (NamedPass pass : myPasses) {
+            if (isConverged(pass)) {
+              continue;
+            }
+            lastStarts.put(pass, changeCounter.getChangeCount());
             pass.process(externs, root);
             if (hasHaltingErrors()) {
               break out;
@@ -342,10 +358,20 @@ class PhaseOptimizer implements CompilerPass {
           loopsRun.add(getPassOrder());
         }
       } finally {
+        lastStarts.clear();
         loopMutex = false;
       }
     }
 
+    /**
+     * Whether the code has not changed since the given pass last started.
+     */
+    private boolean isConverged(NamedPass pass) {
+      Long lastStart = lastStarts.get(pass);
+      return lastStart != null &&
+          lastStart.longValue() == changeCounter.getChangeCount();
+    }
+
     /** Re-arrange the passes in a random order. */
     private void randomizePasses() {
       List<NamedPass> mixedupPasses = Lists.newArrayList();
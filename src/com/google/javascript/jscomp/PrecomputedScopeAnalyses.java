@@ -0,0 +1,149 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.javascript.jscomp.NodeTraversal.AbstractPostOrderCallback;
+import com.google.javascript.jscomp.NodeTraversal.Callback;
+import com.google.javascript.jscomp.NodeTraversal.ScopedCallback;
+import com.google.javascript.rhino.Node;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * The analyses of the functions that a pass rewrites one at a time, like
+ * the data flow analyses of {@link DeadAssignmentsElimination}.
+ *
+ * <p>With a single thread, each function is analyzed when the pass enters
+ * it. With more, every function is analyzed on the shared workers of
+ * {@link ParallelCompilerPass} before the pass starts, and the pass then
+ * applies its rewrites on the compiler thread, in the usual order. Both give
+ * the same output as long as the rewrites of a function do not change what
+ * the analysis of another function sees, which holds for passes that only
+ * touch the local variables of the function they are in.
+ *
+ * @param <T> The result of analyzing a function.
+ */
+abstract class PrecomputedScopeAnalyses<T> {
+
+  private final AbstractCompiler compiler;
+  private final int numThreads;
+
+  // The analysis of each function, by its root, when they are precomputed.
+  private Map<Node, T> results = null;
+
+  /**
+   * @param numThreads The number of threads to analyze the functions on.
+   */
+  PrecomputedScopeAnalyses(AbstractCompiler compiler, int numThreads) {
+    Preconditions.checkArgument(numThreads > 0);
+    this.compiler = compiler;
+    this.numThreads = numThreads;
+  }
+
+  /**
+   * Whether to analyze the scope that the traversal has just entered.
+   */
+  abstract boolean shouldAnalyze(NodeTraversal t);
+
+  /**
+   * Analyzes a function. This may be called on any thread, so it must not
+   * change the AST or report anything to the compiler.
+   */
+  abstract T analyze(Scope scope);
+
+  /**
+   * Traverses the tree with the callback of the pass, which gets the
+   * analysis of each scope it enters from {@link #get}.
+   */
+  void traverse(Node root, Callback cb) {
+    if (numThreads == 1) {
+      NodeTraversal.traverse(compiler, root, cb);
+      return;
+    }
+
+    // The pass must see the same Scope objects as the analyses.
+    ScopeCreator scopeCreator =
+        new MemoizedScopeCreator(new SyntacticScopeCreator(compiler));
+    precompute(root, scopeCreator);
+    try {
+      new NodeTraversal(compiler, cb, scopeCreator).traverse(root);
+    } finally {
+      results = null;
+    }
+  }
+
+  /**
+   * Returns the analysis of the scope that the traversal has just entered,
+   * or null if it should not be analyzed.
+   */
+  T get(NodeTraversal t) {
+    if (results != null) {
+      return results.get(t.getScopeRoot());
+    }
+    return shouldAnalyze(t) ? analyze(t.getScope()) : null;
+  }
+
+  private void precompute(Node root, ScopeCreator scopeCreator) {
+    final List<Scope> scopes = Lists.newArrayList();
+    new NodeTraversal(compiler, new GatherScopes(scopes), scopeCreator)
+        .traverse(root);
+
+    List<Callable<T>> tasks = Lists.newArrayList();
+    for (final Scope scope : scopes) {
+      tasks.add(new Callable<T>() {
+        @Override
+        public T call() {
+          return analyze(scope);
+        }
+      });
+    }
+
+    List<T> analyses = ParallelCompilerPass.runInParallel(tasks, numThreads);
+    results = Maps.newHashMap();
+    for (int i = 0; i < scopes.size(); i++) {
+      results.put(scopes.get(i).getRootNode(), analyses.get(i));
+    }
+  }
+
+  /** Collects the scopes to analyze. */
+  private class GatherScopes extends AbstractPostOrderCallback
+      implements ScopedCallback {
+    private final List<Scope> scopes;
+
+    GatherScopes(List<Scope> scopes) {
+      this.scopes = scopes;
+    }
+
+    @Override
+    public void enterScope(NodeTraversal t) {
+      if (shouldAnalyze(t)) {
+        scopes.add(t.getScope());
+      }
+    }
+
+    @Override
+    public void exitScope(NodeTraversal t) {}
+
+    @Override
+    public void visit(NodeTraversal t, Node n, Node parent) {}
+  }
+}
@@ -22,6 +22,7 @@ import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.javascript.jscomp.NodeTraversal.ScopedCallback;
 import com.google.javascript.jscomp.Scope.Var;
 import com.google.javascript.rhino.Node;
@@ -100,6 +101,51 @@ class ReferenceCollectingCallback implements ScopedCallback, CompilerPass {
     NodeTraversal.traverse(compiler, root, this);
   }
 
+  /**
+   * Collects the references in the functions under the root that have
+   * changed since the given change stamp, instead of in the whole tree.
+   * Each change is widened to the outermost function around it, and a
+   * changed script to all of the functions in it, so all the references to
+   * a local variable of those functions are found. The references to global
+   * variables are not, so the variable filter should only accept locals.
+   */
+  void processChangedFunctions(Node root, long sinceStamp) {
+    Set<Node> functions = Sets.newLinkedHashSet();
+    for (Node scopeRoot : compiler.getChangedScopeRoots(root, sinceStamp)) {
+      if (scopeRoot.getType() == Token.FUNCTION) {
+        Node outermost = scopeRoot;
+        for (Node n = scopeRoot.getParent(); n != null; n = n.getParent()) {
+          if (n.getType() == Token.FUNCTION) {
+            outermost = n;
+          }
+        }
+        functions.add(outermost);
+      } else {
+        addOutermostFunctions(scopeRoot, functions);
+      }
+    }
+
+    if (!functions.isEmpty()) {
+      Scope globalScope =
+          new SyntacticScopeCreator(compiler).createScope(root, null);
+      new NodeTraversal(compiler, this).traverseBranchesWithScope(
+          functions, globalScope);
+    }
+  }
+
+  /**
+   * Adds the functions under a node that are not inside another function.
+   */
+  private static void addOutermostFunctions(Node n, Set<Node> functions) {
+    for (Node c = n.getFirstChild(); c != null; c = c.getNext()) {
+      if (c.getType() == Token.FUNCTION) {
+        functions.add(c);
+      } else {
+        addOutermostFunctions(c, functions);
+      }
+    }
+  }
+
   /**
    * Gets the reference collection for the given variable.
    */
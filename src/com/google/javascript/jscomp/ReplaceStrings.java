@@ -99,7 +99,7 @@ public class ReplaceStrings extends AbstractPostOrderCallback
 
     void addLocation(Node n) {
       replacementLocations.add(new Location(
-          (String)n.getProp(Node.SOURCEFILE_PROP),
+          n.getSourceFileName(),
           n.getLineno(), n.getCharno()));
     }
   }
@@ -17,18 +17,23 @@
 package com.google.javascript.jscomp;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
 import com.google.javascript.jscomp.DefinitionsRemover.Definition;
 import com.google.javascript.jscomp.DefinitionsRemover.ExternalNameOnlyDefinition;
 import com.google.javascript.jscomp.DefinitionsRemover.UnknownDefinition;
-import com.google.javascript.jscomp.NodeTraversal.AbstractPostOrderCallback;
+import com.google.javascript.jscomp.NodeTraversal.Callback;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Simple name-based definition gatherer that implements
@@ -40,6 +45,10 @@ import java.util.Map;
  * hand side is an immutable value or function expression.  All
  * complex definitions are treated as unknowns.
  *
+ * The sites found in each script are remembered, so that the finder can
+ * be shared by several passes and brought up to date with {@link #update}
+ * rather than gathered again.
+ *
 *
  */
 class SimpleDefinitionFinder implements CompilerPass, DefinitionProvider {
@@ -48,11 +57,24 @@ class SimpleDefinitionFinder implements CompilerPass, DefinitionProvider {
   private final Multimap<String, Definition> nameDefinitionMultimap;
   private final Multimap<String, UseSite> nameUseSiteMultimap;
 
+  /** The sites found in each SCRIPT */
+  private final Map<Node, ScriptSites> sitesByScript;
+
+  /** Whether every site was found in a SCRIPT */
+  private boolean allSitesInScripts = true;
+
+  private Node externsRoot = null;
+  private Node sourceRoot = null;
+
+  /** The compiler's change stamp when the sites were last gathered. */
+  private long changeStamp;
+
   public SimpleDefinitionFinder(AbstractCompiler compiler) {
     this.compiler = compiler;
     this.definitionSiteMap = Maps.newHashMap();
     this.nameDefinitionMultimap = HashMultimap.create();
     this.nameUseSiteMultimap = HashMultimap.create();
+    this.sitesByScript = Maps.newHashMap();
   }
 
   /**
@@ -92,6 +114,15 @@ class SimpleDefinitionFinder implements CompilerPass, DefinitionProvider {
 
   @Override
   public void process(Node externs, Node source) {
+    externsRoot = externs;
+    sourceRoot = source;
+    changeStamp = compiler.getChangeStamp();
+    definitionSiteMap.clear();
+    nameDefinitionMultimap.clear();
+    nameUseSiteMultimap.clear();
+    sitesByScript.clear();
+    allSitesInScripts = true;
+
     NodeTraversal.traverse(
         compiler, externs, new DefinitionGatheringCallback(true));
     NodeTraversal.traverse(
@@ -100,6 +131,132 @@ class SimpleDefinitionFinder implements CompilerPass, DefinitionProvider {
         compiler, source, new UseSiteGatheringCallback());
   }
 
+  /**
+   * Brings the definitions and use sites up to date with the changes that
+   * have been reported to the compiler since they were gathered. Only the
+   * scripts that changed are traversed again, unless a name has gained its
+   * first definition or lost its last one. That decides whether references
+   * to the name are use sites, so then the use sites are gathered again
+   * everywhere.
+   */
+  void update() {
+    Preconditions.checkState(sourceRoot != null);
+    long stamp = compiler.getChangeStamp();
+    if (stamp == changeStamp) {
+      return;
+    }
+
+    List<Node> scripts = getScripts(sourceRoot);
+    Set<Node> changedScripts = Sets.newLinkedHashSet();
+    for (Node scopeRoot :
+         compiler.getChangedScopeRoots(sourceRoot, changeStamp)) {
+      changedScripts.add(getEnclosingScript(scopeRoot));
+    }
+    for (Node script : scripts) {
+      if (!sitesByScript.containsKey(script)) {
+        changedScripts.add(script);
+      }
+    }
+
+    if (!allSitesInScripts || changedScripts.contains(null) ||
+        changedScripts.size() == scripts.size()) {
+      process(externsRoot, sourceRoot);
+      return;
+    }
+    changeStamp = stamp;
+
+    // Take out the sites of the changed scripts, and of the scripts that
+    // are no longer in the AST.
+    Set<Node> removedScripts = Sets.newHashSet(sitesByScript.keySet());
+    removedScripts.removeAll(scripts);
+    removedScripts.removeAll(getScripts(externsRoot));
+    removedScripts.addAll(changedScripts);
+    Multimap<String, Definition> removedDefinitions =
+        ArrayListMultimap.create();
+    for (Node script : removedScripts) {
+      ScriptSites sites = sitesByScript.remove(script);
+      if (sites != null) {
+        sites.remove();
+        removedDefinitions.putAll(sites.definitions);
+      }
+    }
+
+    for (Node script : changedScripts) {
+      NodeTraversal.traverse(
+          compiler, script, new DefinitionGatheringCallback(false));
+    }
+
+    if (haveDefinedNamesChanged(removedDefinitions, changedScripts)) {
+      nameUseSiteMultimap.clear();
+      for (ScriptSites sites : sitesByScript.values()) {
+        sites.useSites.clear();
+      }
+      NodeTraversal.traverse(
+          compiler, sourceRoot, new UseSiteGatheringCallback());
+    } else {
+      for (Node script : changedScripts) {
+        NodeTraversal.traverse(
+            compiler, script, new UseSiteGatheringCallback());
+      }
+    }
+  }
+
+  /**
+   * Determines whether any name has gained its first definition, or lost
+   * its last one, with the given definitions taken out and the definitions
+   * in the given scripts found again.
+   */
+  private boolean haveDefinedNamesChanged(
+      Multimap<String, Definition> removedDefinitions,
+      Set<Node> changedScripts) {
+    Multimap<String, Definition> addedDefinitions =
+        ArrayListMultimap.create();
+    for (Node script : changedScripts) {
+      addedDefinitions.putAll(sitesByScript.get(script).definitions);
+    }
+
+    for (String name : Sets.union(
+             removedDefinitions.keySet(), addedDefinitions.keySet())) {
+      int count = nameDefinitionMultimap.get(name).size();
+      int countBefore = count - addedDefinitions.get(name).size() +
+          removedDefinitions.get(name).size();
+      if ((count > 0) != (countBefore > 0)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Gets the scripts under a root. The root may be a script itself.
+   */
+  private static List<Node> getScripts(Node root) {
+    List<Node> scripts = Lists.newArrayList();
+    if (root == null) {
+      return scripts;
+    }
+    if (root.getType() == Token.SCRIPT) {
+      scripts.add(root);
+    } else {
+      for (Node c = root.getFirstChild(); c != null; c = c.getNext()) {
+        if (c.getType() == Token.SCRIPT) {
+          scripts.add(c);
+        }
+      }
+    }
+    return scripts;
+  }
+
+  /**
+   * Gets the SCRIPT that contains a node, or null if it's not in one.
+   */
+  private static Node getEnclosingScript(Node n) {
+    while (n != null && n.getType() != Token.SCRIPT) {
+      n = n.getParent();
+    }
+    return n;
+  }
+
   /**
    * Returns a collection of use sites that may refer to provided
    * definition.  Returns an empty collection if the definition is not
@@ -137,7 +294,80 @@ class SimpleDefinitionFinder implements CompilerPass, DefinitionProvider {
     return null;
   }
 
-  private class DefinitionGatheringCallback extends AbstractPostOrderCallback {
+  /**
+   * The definitions and use sites found in a script.
+   */
+  private class ScriptSites {
+    final Multimap<String, Definition> definitions =
+        ArrayListMultimap.create();
+    final List<Node> definitionNodes = Lists.newArrayList();
+    final Multimap<String, UseSite> useSites = ArrayListMultimap.create();
+
+    void addDefinition(String name, Node node, DefinitionSite site) {
+      nameDefinitionMultimap.put(name, site.definition);
+      definitionSiteMap.put(node, site);
+      definitions.put(name, site.definition);
+      definitionNodes.add(node);
+    }
+
+    void addUseSite(String name, UseSite site) {
+      nameUseSiteMultimap.put(name, site);
+      useSites.put(name, site);
+    }
+
+    /** Takes the sites of the script out of the finder. */
+    void remove() {
+      for (Map.Entry<String, Definition> entry : definitions.entries()) {
+        nameDefinitionMultimap.remove(entry.getKey(), entry.getValue());
+      }
+      for (Node node : definitionNodes) {
+        definitionSiteMap.remove(node);
+      }
+      for (Map.Entry<String, UseSite> entry : useSites.entries()) {
+        nameUseSiteMultimap.remove(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * A callback that keeps track of the script it is in, and the sites
+   * found in it.
+   */
+  private abstract class SiteGatheringCallback implements Callback {
+    private ScriptSites currentSites = null;
+
+    @Override
+    public boolean shouldTraverse(
+        NodeTraversal traversal, Node node, Node parent) {
+      if (node.getType() == Token.SCRIPT) {
+        currentSites = sitesByScript.get(node);
+        if (currentSites == null) {
+          currentSites = new ScriptSites();
+          sitesByScript.put(node, currentSites);
+        }
+      }
+      return true;
+    }
+
+    void addDefinition(String name, Node node, DefinitionSite site) {
+      getCurrentSites().addDefinition(name, node, site);
+    }
+
+    void addUseSite(String name, UseSite site) {
+      getCurrentSites().addUseSite(name, site);
+    }
+
+    private ScriptSites getCurrentSites() {
+      if (currentSites == null) {
+        // Not in a script, so these sites can't be updated.
+        allSitesInScripts = false;
+        currentSites = new ScriptSites();
+      }
+      return currentSites;
+    }
+  }
+
+  private class DefinitionGatheringCallback extends SiteGatheringCallback {
     private boolean inExterns;
 
     DefinitionGatheringCallback(boolean inExterns) {
@@ -168,13 +398,12 @@ class SimpleDefinitionFinder implements CompilerPass, DefinitionProvider {
             def = unknownDef;
           }
 
-          nameDefinitionMultimap.put(name, def);
-          definitionSiteMap.put(node,
-                                new DefinitionSite(node,
-                                                   def,
-                                                   traversal.getModule(),
-                                                   traversal.inGlobalScope(),
-                                                   inExterns));
+          addDefinition(name, node,
+                        new DefinitionSite(node,
+                                           def,
+                                           traversal.getModule(),
+                                           traversal.inGlobalScope(),
+                                           inExterns));
         }
       }
 
@@ -184,19 +413,18 @@ class SimpleDefinitionFinder implements CompilerPass, DefinitionProvider {
 
           // Incomplete definition
           Definition definition = new ExternalNameOnlyDefinition(node);
-          nameDefinitionMultimap.put(name, definition);
-          definitionSiteMap.put(node,
-                                new DefinitionSite(node,
-                                                   definition,
-                                                   traversal.getModule(),
-                                                   traversal.inGlobalScope(),
-                                                   inExterns));
+          addDefinition(name, node,
+                        new DefinitionSite(node,
+                                           definition,
+                                           traversal.getModule(),
+                                           traversal.inGlobalScope(),
+                                           inExterns));
         }
       }
     }
   }
 
-  private class UseSiteGatheringCallback extends AbstractPostOrderCallback {
+  private class UseSiteGatheringCallback extends SiteGatheringCallback {
     @Override
     public void visit(NodeTraversal traversal, Node node, Node parent) {
 
@@ -209,9 +437,7 @@ class SimpleDefinitionFinder implements CompilerPass, DefinitionProvider {
 
       String name = getSimplifiedName(first.getLValue());
       Preconditions.checkNotNull(name);
-      nameUseSiteMultimap.put(
-          name,
-          new UseSite(node, traversal.getModule()));
+      addUseSite(name, new UseSite(node, traversal.getModule()));
     }
   }
 }
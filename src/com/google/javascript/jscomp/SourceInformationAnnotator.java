@@ -17,6 +17,7 @@
 package com.google.javascript.jscomp;
 
 import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.StaticSourceFile;
 import com.google.javascript.rhino.Token;
 
 /**
@@ -26,8 +27,8 @@ import com.google.javascript.rhino.Token;
  *
  * Information saved:
  *
- * - Annotates all nodes with a SOURCEFILE_PROP indicating the input
- *   file from which it was generated.
+ * - Annotates all nodes with the handle of the input file from which it
+ *   was generated (see {@link Node#getStaticSourceFile}).
  *
  * - Annotates all NAME nodes with an ORIGINALNAME_PROP indicating its original
  *   name.
@@ -41,9 +42,9 @@ import com.google.javascript.rhino.Token;
  */
 class SourceInformationAnnotator extends
   NodeTraversal.AbstractPostOrderCallback {
-  private String sourceFile = null;
+  private StaticSourceFile sourceFile = null;
 
-  public SourceInformationAnnotator(String sourceFile) {
+  public SourceInformationAnnotator(StaticSourceFile sourceFile) {
     this.sourceFile = sourceFile;
   }
 
@@ -51,7 +52,7 @@ class SourceInformationAnnotator extends
   public void visit(NodeTraversal t, Node n, Node parent) {
     // Annotate with the source file.
     if (sourceFile != null) {
-      n.putProp(Node.SOURCEFILE_PROP, sourceFile);
+      n.setStaticSourceFile(sourceFile);
     }
 
     // Annotate the original name.
@@ -242,7 +242,7 @@ public class SourceMap {
    * @param endPosition The position on the ending line.
    */
   void addMapping(Node node, Position startPosition, Position endPosition) {
-    Object sourceFile = node.getProp(Node.SOURCEFILE_PROP);
+    String sourceFile = node.getSourceFileName();
 
     // If the node does not have an associated source file or
     // its line number is -1, then the node does not have sufficient
@@ -254,7 +254,7 @@ public class SourceMap {
     // Create the new mapping.
     Mapping mapping = new Mapping();
     mapping.id = mappings.size();
-    mapping.sourceFile = sourceFile.toString();
+    mapping.sourceFile = sourceFile;
     mapping.originalPosition = new Position(node.getLineno(), node.getCharno());
 
     Object originalName = node.getProp(Node.ORIGINALNAME_PROP);
@@ -263,31 +263,47 @@ public class SourceMap {
     }
 
 
-    // If the mapping is found on the first line, we need to offset
-    // its character position by the number of characters found on
-    // the *last* line of the source file to which the code is
-    // being generated.
-    int offsetLine = offsetPosition.getLineNumber();
-    int startOffsetPosition = offsetPosition.getCharacterIndex();
-    int endOffsetPosition = offsetPosition.getCharacterIndex();
+    mapping.startPosition = offset(startPosition, offsetPosition);
+    mapping.endPosition = offset(endPosition, offsetPosition);
 
-    if (startPosition.getLineNumber() > 0) {
-      startOffsetPosition = 0;
-    }
+    mappings.add(mapping);
+  }
 
-    if (endPosition.getLineNumber() > 0) {
-      endOffsetPosition = 0;
+  /**
+   * Adds the mappings of a source map that was generated on its own, as if
+   * its code had been generated into this map's buffer at the given
+   * position. Appending the maps of consecutive pieces of code this way
+   * gives the same map as generating all of the code into this one.
+   *
+   * @param other The source map of the code, starting at line 0, position 0.
+   * @param offsetLine The index of the line the code starts on.
+   * @param offsetIndex The column index the code starts at.
+   */
+  void appendMappings(SourceMap other, int offsetLine, int offsetIndex) {
+    Position offset = new Position(offsetLine, offsetIndex);
+    for (Mapping otherMapping : other.mappings) {
+      Mapping mapping = new Mapping();
+      mapping.id = mappings.size();
+      mapping.sourceFile = otherMapping.sourceFile;
+      mapping.originalPosition = otherMapping.originalPosition;
+      mapping.originalName = otherMapping.originalName;
+      mapping.startPosition = offset(otherMapping.startPosition, offset);
+      mapping.endPosition = offset(otherMapping.endPosition, offset);
+      mappings.add(mapping);
     }
+  }
 
-    mapping.startPosition =
-        new Position(startPosition.getLineNumber() + offsetLine,
-                     startPosition.getCharacterIndex() + startOffsetPosition);
-
-    mapping.endPosition =
-        new Position(endPosition.getLineNumber() + offsetLine,
-                     endPosition.getCharacterIndex() + endOffsetPosition);
-
-    mappings.add(mapping);
+  /**
+   * Moves a position in some generated code to where the code starts in the
+   * buffer. If the position is on the first line of the code, its character
+   * position is also offset by the number of characters found on the *last*
+   * line of the buffer.
+   */
+  private static Position offset(Position position, Position offset) {
+    int characterOffset = (position.getLineNumber() > 0) ?
+        0 : offset.getCharacterIndex();
+    return new Position(position.getLineNumber() + offset.getLineNumber(),
+        position.getCharacterIndex() + characterOffset);
   }
 
   /**
@@ -95,6 +95,12 @@ class TypeInference
    */
   private final Set<String> unflowableVarNames = Sets.newHashSet();
 
+  /**
+   * The errors found so far, if they are to be reported by the caller
+   * instead of as soon as they are found.
+   */
+  private List<JSError> deferredErrors = null;
+
   TypeInference(AbstractCompiler compiler, ControlFlowGraph<Node> cfg,
                 ReverseAbstractInterpreter reverseInterpreter,
                 Scope functionScope,
@@ -168,6 +174,30 @@ class TypeInference
     return assignedOuterLocalVars;
   }
 
+  /**
+   * Keeps the errors found by the analysis instead of reporting them to the
+   * compiler, so that the analysis can run off the compiler thread.
+   */
+  void deferErrors() {
+    deferredErrors = Lists.newArrayList();
+  }
+
+  /**
+   * @return The errors found since {@link #deferErrors} was called, in the
+   *     order in which they were found.
+   */
+  List<JSError> getDeferredErrors() {
+    return deferredErrors;
+  }
+
+  private void report(JSError error) {
+    if (deferredErrors != null) {
+      deferredErrors.add(error);
+    } else {
+      compiler.report(error);
+    }
+  }
+
   @Override
   FlowScope flowThrough(Node n, FlowScope input) {
     // If we have not walked a path from <entry> to <n>, then we don't
@@ -895,7 +925,7 @@ class TypeInference
         if (iArgumentType != null) {
           iArgumentType = iArgumentType.restrictByNotNullOrUndefined();
           if (!(iArgumentType instanceof ObjectType)) {
-            compiler.report(
+            report(
                 JSError.make(NodeUtil.getSourceName(iArgument), iArgument,
                              TEMPLATE_TYPE_NOT_OBJECT_TYPE));
             return;
@@ -939,8 +969,8 @@ class TypeInference
 
           if (!foundTemplateTypeOfThisParameter) {
             Node source = fnType.getSource();
-            compiler.report(JSError.make(NodeUtil.getSourceName(source), source,
-                                         TEMPLATE_TYPE_OF_THIS_EXPECTED));
+            report(JSError.make(NodeUtil.getSourceName(source), source,
+                                TEMPLATE_TYPE_OF_THIS_EXPECTED));
             return;
           }
         }
@@ -21,18 +21,31 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
 import com.google.javascript.jscomp.CodingConvention.AssertionFunctionSpec;
 import com.google.javascript.jscomp.NodeTraversal.ScopedCallback;
 import com.google.javascript.jscomp.Scope.Var;
 import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.Token;
+import com.google.javascript.rhino.jstype.JSTypeRegistry;
 
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
 /**
  * A compiler pass to run the type inference analysis.
  *
+ * <p>With more than one thread, the functions whose inference cannot affect
+ * any other function (see {@link #isIndependent}) are not inferred as soon
+ * as the traversal leaves them. They are put off until the traversal reaches
+ * a function that is not independent, or the end of the tree, and the ones
+ * put off are then inferred concurrently. Their flow scopes are confined to
+ * the thread that infers them, and what they report is reported afterwards
+ * in traversal order, so the results are the same as with one thread.
+ *
 *
  */
 class TypeInferencePass implements CompilerPass {
@@ -46,6 +59,7 @@ class TypeInferencePass implements CompilerPass {
   private Scope topScope;
   private ScopeCreator scopeCreator;
   private final Map<String, AssertionFunctionSpec> assertionFunctionsMap;
+  private final int numThreads;
 
   /**
    * Local variables that are declared in an outer scope, but are assigned in
@@ -53,13 +67,28 @@ class TypeInferencePass implements CompilerPass {
    */
   private final Multimap<Scope, Var> escapedLocalVars = HashMultimap.create();
 
+  /** The independent functions left by the traversal but not yet inferred. */
+  private final List<PendingInference> pending = Lists.newArrayList();
+
   TypeInferencePass(AbstractCompiler compiler,
       ReverseAbstractInterpreter reverseInterpreter,
       Scope topScope, ScopeCreator scopeCreator) {
+    this(compiler, reverseInterpreter, topScope, scopeCreator, 1);
+  }
+
+  /**
+   * @param numThreads The number of threads to infer independent functions
+   *     on.
+   */
+  TypeInferencePass(AbstractCompiler compiler,
+      ReverseAbstractInterpreter reverseInterpreter,
+      Scope topScope, ScopeCreator scopeCreator, int numThreads) {
+    Preconditions.checkArgument(numThreads > 0);
     this.compiler = compiler;
     this.reverseInterpreter = reverseInterpreter;
     this.topScope = topScope;
     this.scopeCreator = scopeCreator;
+    this.numThreads = numThreads;
 
     assertionFunctionsMap = Maps.newHashMap();
     for (AssertionFunctionSpec assertionFucntion :
@@ -89,6 +118,21 @@ class TypeInferencePass implements CompilerPass {
     NodeTraversal inferTypes = new NodeTraversal(
         compiler, new TypeInferringCallback(), scopeCreator);
     inferTypes.traverseWithScope(node, topScope);
+    inferPending();
+  }
+
+  /**
+   * Entry point for type inference when running over a single function,
+   * for instance one whose body has just been replaced. The function must
+   * be independent (see {@link #isIndependent}), because the inference of
+   * no other function is run again.
+   */
+  void inferFunction(Scope functionScope) {
+    Preconditions.checkArgument(isIndependent(functionScope.getRootNode()));
+    NodeTraversal inferTypes = new NodeTraversal(
+        compiler, new TypeInferringCallback(), scopeCreator);
+    inferTypes.traverseAtScope(functionScope);
+    inferPending();
   }
 
   private Collection<Var> getUnflowableVars(Scope scope) {
@@ -117,8 +161,135 @@ class TypeInferencePass implements CompilerPass {
     }
   }
 
+  /**
+   * Infers the functions that were put off, concurrently, and then reports
+   * what they found, in the order in which they were put off.
+   */
+  private void inferPending() {
+    if (pending.isEmpty()) {
+      return;
+    }
+
+    JSTypeRegistry registry = compiler.getTypeRegistry();
+    registry.setConcurrent(true);
+    try {
+      ParallelCompilerPass.runInParallel(pending, numThreads);
+    } finally {
+      registry.setConcurrent(false);
+    }
+    for (PendingInference inference : pending) {
+      inference.finish();
+    }
+    pending.clear();
+  }
+
+  /**
+   * Whether the inference of a function can run at the same time as the
+   * inference of other independent functions, and give the same results as
+   * when they run one after the other. It can if neither creating its scope
+   * nor inferring its types changes anything that another function sees:
+   * it has no inner functions and no JSDoc, it only assigns its own
+   * variables, it does not declare properties, and it does not read the
+   * properties that function types define when they are first read. The
+   * anonymous types of its object literals are registered with the type
+   * registry, but the inference of other functions never looks them up.
+   */
+  static boolean isIndependent(Node n) {
+    if (n.getType() != Token.FUNCTION) {
+      return false;
+    }
+    Set<String> localNames = Sets.newHashSet();
+    for (Node param = n.getFirstChild().getNext().getFirstChild();
+         param != null; param = param.getNext()) {
+      localNames.add(param.getString());
+    }
+    for (Node child = n.getFirstChild(); child != null;
+         child = child.getNext()) {
+      if (!collectLocalNames(child, localNames)) {
+        return false;
+      }
+    }
+    return onlyChangesLocals(n.getLastChild(), localNames);
+  }
+
+  /**
+   * Adds the names that the VARs and CATCHes of the tree declare, and
+   * returns false if it has functions or JSDoc.
+   */
+  private static boolean collectLocalNames(Node n, Set<String> localNames) {
+    if (n.getType() == Token.FUNCTION || n.getJSDocInfo() != null) {
+      return false;
+    }
+    if (n.getType() == Token.VAR) {
+      for (Node name = n.getFirstChild(); name != null;
+           name = name.getNext()) {
+        localNames.add(name.getString());
+      }
+    } else if (n.getType() == Token.CATCH) {
+      localNames.add(n.getFirstChild().getString());
+    }
+    for (Node child = n.getFirstChild(); child != null;
+         child = child.getNext()) {
+      if (!collectLocalNames(child, localNames)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean onlyChangesLocals(Node n, Set<String> localNames) {
+    Node target = null;
+    if (NodeUtil.isAssignmentOp(n) ||
+        n.getType() == Token.INC || n.getType() == Token.DEC ||
+        NodeUtil.isForIn(n)) {
+      target = n.getFirstChild();
+    }
+    if (target != null && target.getType() != Token.VAR &&
+        !(target.getType() == Token.NAME &&
+          localNames.contains(target.getString()))) {
+      return false;
+    }
+
+    switch (n.getType()) {
+      case Token.EXPR_RESULT:
+        // A stub declaration, like "a.b;".
+        if (n.getFirstChild().getType() == Token.GETPROP) {
+          return false;
+        }
+        break;
+      case Token.GETPROP:
+        String propName = n.getLastChild().getString();
+        if ("prototype".equals(propName) || "call".equals(propName) ||
+            "apply".equals(propName)) {
+          return false;
+        }
+        break;
+    }
+
+    for (Node child = n.getFirstChild(); child != null;
+         child = child.getNext()) {
+      if (!onlyChangesLocals(child, localNames)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private class TypeInferringCallback implements ScopedCallback {
+    // The roots of the independent functions that the traversal is in.
+    private final Set<Node> independentRoots = Sets.newHashSet();
+
     public void enterScope(NodeTraversal t) {
+      if (numThreads > 1) {
+        Node root = t.getScopeRoot();
+        if (isIndependent(root)) {
+          independentRoots.add(root);
+        } else {
+          // Creating the scope may change what the functions put off see.
+          inferPending();
+        }
+      }
+
       Scope scope = t.getScope();
       Node node = t.getCurrentNode();
       if (scope.isGlobal()) {
@@ -130,7 +301,13 @@ class TypeInferencePass implements CompilerPass {
       Scope scope = t.getScope();
       Node node = t.getCurrentNode();
       if (scope.isLocal()) {
-        inferTypes(t, node, scope);
+        if (independentRoots.remove(node)) {
+          pending.add(new PendingInference(
+              t.getSourceName(), node, scope, getUnflowableVars(scope)));
+        } else {
+          inferPending();
+          inferTypes(t, node, scope);
+        }
       }
     }
 
@@ -148,4 +325,52 @@ class TypeInferencePass implements CompilerPass {
     cfa.process(null, n);
     return cfa.getCfg();
   }
+
+  /**
+   * The inference of an independent function, which runs on any thread and
+   * is finished on the compiler thread.
+   */
+  private class PendingInference implements Callable<Void> {
+    private final String sourceName;
+    private final Node root;
+    private final Scope scope;
+    private final Collection<Var> unflowableVars;
+    private TypeInference typeInference = null;
+    private boolean maxIterationsExceeded = false;
+
+    PendingInference(String sourceName, Node root, Scope scope,
+        Collection<Var> unflowableVars) {
+      this.sourceName = sourceName;
+      this.root = root;
+      this.scope = scope;
+      this.unflowableVars = unflowableVars;
+    }
+
+    @Override
+    public Void call() {
+      typeInference = new TypeInference(
+          compiler, computeCfg(root), reverseInterpreter, scope,
+          assertionFunctionsMap, unflowableVars);
+      typeInference.deferErrors();
+      try {
+        typeInference.analyze();
+      } catch (DataFlowAnalysis.MaxIterationsExceededException e) {
+        maxIterationsExceeded = true;
+      }
+      return null;
+    }
+
+    /** Does what {@link #inferTypes} does once the analysis is over. */
+    void finish() {
+      for (JSError error : typeInference.getDeferredErrors()) {
+        compiler.report(error);
+      }
+      if (maxIterationsExceeded) {
+        compiler.report(JSError.make(sourceName, root, DATAFLOW_ERROR));
+      } else {
+        escapedLocalVars.putAll(typeInference.getAssignedOuterLocalVars());
+        compiler.getTypeRegistry().resolveTypesInScope(scope);
+      }
+    }
+  }
 }
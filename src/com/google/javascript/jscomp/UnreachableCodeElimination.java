@@ -63,12 +63,18 @@ class UnreachableCodeElimination extends AbstractPostOrderCallback
 
   @Override
   public void enterScope(NodeTraversal t) {
-    Scope scope = t.getScope();
+    // The graph is only computed once something in the scope is visited, so
+    // scopes that have nothing to visit do not pay for it. That includes the
+    // outer one of the two scopes NodeTraversal enters when it is given a
+    // function as the root.
+    cfgStack.push(curCfg);
+    curCfg = null;
+  }
 
+  private void computeCfg(Node scopeRoot) {
     // Computes the control flow graph.
     ControlFlowAnalysis cfa = new ControlFlowAnalysis(compiler, false);
-    cfa.process(null, scope.getRootNode());
-    cfgStack.push(curCfg);
+    cfa.process(null, scopeRoot);
     curCfg = cfa.getCfg();
 
     new GraphReachability<Node, ControlFlowGraph.Branch>(curCfg)
@@ -93,6 +99,11 @@ class UnreachableCodeElimination extends AbstractPostOrderCallback
     if (n.getType() == Token.FUNCTION || n.getType() == Token.SCRIPT) {
       return;
     }
+    if (curCfg == null) {
+      // This is the first node visited in the scope, so nothing in it has
+      // been changed yet.
+      computeCfg(t.getScopeRoot());
+    }
     // Removes TRYs that had its CATCH removed and/or empty FINALLY.
     // TODO(dcc): Move the parts of this that don't require a control flow
     // graph to PeepholeRemoveDeadCode
@@ -20,8 +20,10 @@ import com.google.common.collect.Lists;
 import com.google.common.io.LimitInputStream;
 import com.google.javascript.jscomp.CommandLineRunner;
 import com.google.javascript.jscomp.CompilationLevel;
+import com.google.javascript.jscomp.CompileClient;
 import com.google.javascript.jscomp.Compiler;
 import com.google.javascript.jscomp.CompilerOptions;
+import com.google.javascript.jscomp.GoogleCodingConvention;
 import com.google.javascript.jscomp.JSSourceFile;
 import com.google.javascript.jscomp.MessageFormatter;
 import com.google.javascript.jscomp.Result;
@@ -62,6 +64,7 @@ public final class CompileTask
   private boolean customExternsOnly;
   private boolean manageDependencies;
   private File outputFile;
+  private int serverPort;
   private final List<FileList> externFileLists;
   private final List<FileList> sourceFileLists;
 
@@ -71,6 +74,7 @@ public final class CompileTask
     this.compilationLevel = CompilationLevel.SIMPLE_OPTIMIZATIONS;
     this.customExternsOnly = false;
     this.manageDependencies = false;
+    this.serverPort = 0;
     this.externFileLists = Lists.newLinkedList();
     this.sourceFileLists = Lists.newLinkedList();
   }
@@ -136,6 +140,16 @@ public final class CompileTask
     this.outputFile = value;
   }
 
+  /**
+   * Compile on a {@link com.google.javascript.jscomp.CompileServer} that
+   * listens on the given port of this machine, instead of in the JVM of
+   * the build. The token of the server is read from
+   * {@link CompileClient#getTokenFile}.
+   */
+  public void setServerPort(int serverPort) {
+    this.serverPort = serverPort;
+  }
+
   /** 
    * Set input file encoding 
    */
@@ -169,6 +183,11 @@ public final class CompileTask
       throw new BuildException("outputFile attribute must be set");
     }
 
+    if (this.serverPort > 0) {
+      executeOnServer();
+      return;
+    }
+
     Compiler.setLoggingLevel(Level.OFF);
 
     CompilerOptions options = createCompilerOptions();
@@ -186,6 +205,66 @@ public final class CompileTask
     }
   }
 
+  private void executeOnServer() {
+    List<String> args = Lists.newArrayList();
+    args.add("--compilation_level=" + this.compilationLevel.name());
+    args.add("--warning_level=" + this.warningLevel.name());
+    args.add("--charset=" + this.encoding);
+    args.add("--logging_level=" + Level.OFF.getName());
+    // Must match the convention of createCompilerOptions.
+    args.add("--coding_convention=GOOGLE");
+    if (this.debugOptions) {
+      args.add("--debug=true");
+    }
+    if (this.manageDependencies) {
+      args.add("--manage_closure_dependencies=true");
+    }
+    if (this.customExternsOnly) {
+      args.add("--use_only_custom_externs=true");
+    }
+
+    int externCount = 0;
+    for (FileList list : this.externFileLists) {
+      for (String path : findPaths(list)) {
+        args.add("--externs=" + path);
+        externCount++;
+      }
+    }
+    int sourceCount = 0;
+    for (FileList list : this.sourceFileLists) {
+      for (String path : findPaths(list)) {
+        args.add("--js=" + path);
+        sourceCount++;
+      }
+    }
+
+    log("Compiling " + sourceCount + " file(s) with " +
+        (this.customExternsOnly ? "" : "the default externs and ") +
+        externCount + " extern(s) on port " + this.serverPort);
+
+    CompileClient.Response response;
+    try {
+      String token = CompileClient.readToken(this.serverPort);
+      response = new CompileClient(null, this.serverPort, token).compile(
+          args.toArray(new String[args.size()]));
+    } catch (IOException e) {
+      throw new BuildException(
+          "Unable to compile on port " + this.serverPort, e);
+    }
+
+    if (response.getStatus() < 0) {
+      throw new BuildException(
+          "Compile failed on the server:\n" + response.getErrors());
+    }
+    if (response.getErrors().length() > 0) {
+      log(response.getErrors(),
+          response.getStatus() == 0 ? Project.MSG_WARN : Project.MSG_ERR);
+    }
+    if (response.getStatus() == 0) {
+      writeResult(response.getOutput());
+    }
+  }
+
   private CompilerOptions createCompilerOptions() {
     CompilerOptions options = new CompilerOptions();
 
@@ -197,6 +276,7 @@ public final class CompileTask
 
     this.warningLevel.setOptionsForWarningLevel(options);
     options.setManageClosureDependencies(manageDependencies);
+    options.setCodingConvention(new GoogleCodingConvention());
     return options;
   }
 
@@ -248,6 +328,18 @@ public final class CompileTask
     return files;
   }
 
+  /** Returns the absolute paths of the files in an Ant file list. */
+  private List<String> findPaths(FileList fileList) {
+    List<String> paths = Lists.newLinkedList();
+    File baseDir = fileList.getDir(getProject());
+
+    for (String included : fileList.getFiles(getProject())) {
+      paths.add(new File(baseDir, included).getAbsolutePath());
+    }
+
+    return paths;
+  }
+
   /**
    * Gets the default externs set.
    *
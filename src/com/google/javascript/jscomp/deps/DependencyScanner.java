@@ -0,0 +1,335 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.deps;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.javascript.jscomp.BasicErrorManager;
+import com.google.javascript.jscomp.CheckLevel;
+import com.google.javascript.jscomp.ErrorManager;
+import com.google.javascript.jscomp.JSError;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Extracts the dependency information of many .js files at once. The files
+ * are parsed by {@link JsFileParser}s on several threads, and each file is
+ * only read as far as the parser needs, so in shortcut mode the reading
+ * stops at the first line that is not a goog.provide, a goog.require or a
+ * comment.
+ *
+ * <p>The results can be kept in an index file. A file whose size and
+ * modification time are the ones in the index is not read again. Files
+ * that had parse errors or warnings are not put in the index, so that they
+ * are reported every time.
+ *
+ */
+public class DependencyScanner {
+
+  private static final Logger logger =
+      Logger.getLogger(DependencyScanner.class.getName());
+
+  private static final int MAGIC = 0x4a534450;  // "JSDP"
+  private static final int FORMAT_VERSION = 1;
+
+  private final ErrorManager errorManager;
+  private final int numThreads;
+  private boolean shortcutMode = false;
+  private File indexFile = null;
+
+  // The entries of the index, keyed by the path of their file.
+  private Map<String, Entry> index = null;
+
+  /**
+   * @param errorManager Handles parse errors.
+   * @param numThreads The number of threads to parse files on.
+   */
+  public DependencyScanner(ErrorManager errorManager, int numThreads) {
+    Preconditions.checkArgument(numThreads > 0);
+    this.errorManager = errorManager;
+    this.numThreads = numThreads;
+  }
+
+  /**
+   * Sets whether the parsers stop at the first line of "real" code.
+   * @see JsFileLineParser#setShortcutMode
+   */
+  public void setShortcutMode(boolean mode) {
+    this.shortcutMode = mode;
+  }
+
+  /**
+   * Sets the file in which the results of the scans are kept. It is read
+   * by the next scan, and written after each scan.
+   */
+  public void setIndexFile(File indexFile) {
+    this.indexFile = indexFile;
+    this.index = null;
+  }
+
+  /**
+   * Extracts the dependency information of the given files.
+   *
+   * @param files The paths of the files to scan, mapped to their paths
+   *     relative to closure.
+   * @return The dependency information of each file, in the iteration order
+   *     of the map.
+   * @throws IOException Thrown if one of the files could not be read.
+   */
+  public List<DependencyInfo> scan(Map<String, String> files)
+      throws IOException {
+    if (index == null) {
+      index = readIndex();
+    }
+
+    List<Entry> entries = Lists.newArrayList();
+    List<Callable<Entry>> tasks = Lists.newArrayList();
+    for (Map.Entry<String, String> file : files.entrySet()) {
+      final String path = file.getKey();
+      final String closureRelativePath = file.getValue();
+      File f = new File(path);
+      final long lastModified = f.lastModified();
+      final long length = f.length();
+      Entry cached = index.get(path);
+      if (cached != null && cached.lastModified == lastModified &&
+          cached.length == length &&
+          cached.info.getPathRelativeToClosureBase().equals(
+              closureRelativePath)) {
+        entries.add(cached);
+      } else {
+        entries.add(null);
+        tasks.add(new Callable<Entry>() {
+          @Override
+          public Entry call() throws IOException {
+            return parse(path, closureRelativePath, lastModified, length);
+          }
+        });
+      }
+    }
+
+    List<Entry> parsed = runTasks(tasks);
+    List<DependencyInfo> results = Lists.newArrayList();
+    for (int i = 0, j = 0; i < entries.size(); i++) {
+      Entry entry = entries.get(i);
+      if (entry == null) {
+        entry = parsed.get(j++);
+        for (JSError error : entry.diagnostics) {
+          errorManager.report(error.level, error);
+        }
+        if (entry.diagnostics.isEmpty()) {
+          index.put(entry.info.getName(), entry);
+        } else {
+          index.remove(entry.info.getName());
+        }
+      }
+      results.add(entry.info);
+    }
+
+    if (indexFile != null && !tasks.isEmpty()) {
+      writeIndex();
+    }
+    return results;
+  }
+
+  private Entry parse(String path, String closureRelativePath,
+      long lastModified, long length) throws IOException {
+    CollectingErrorManager diagnostics = new CollectingErrorManager();
+    JsFileParser parser = new JsFileParser(diagnostics);
+    parser.setShortcutMode(shortcutMode);
+    DependencyInfo info = parser.parseFile(path, closureRelativePath);
+
+    List<JSError> reports = Lists.newArrayList();
+    for (JSError error : diagnostics.getErrors()) {
+      reports.add(error);
+    }
+    for (JSError error : diagnostics.getWarnings()) {
+      reports.add(error);
+    }
+    return new Entry(info, lastModified, length, reports);
+  }
+
+  /** Runs the tasks and returns their results, in the order of the tasks. */
+  private List<Entry> runTasks(List<Callable<Entry>> tasks)
+      throws IOException {
+    List<Entry> results = Lists.newArrayList();
+    if (tasks.isEmpty()) {
+      return results;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(
+        Math.min(numThreads, tasks.size()));
+    try {
+      for (Future<Entry> future : executor.invokeAll(tasks)) {
+        results.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while scanning files");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    } finally {
+      executor.shutdown();
+    }
+    return results;
+  }
+
+  /**
+   * Reads the index file. A missing, corrupt or outdated index is treated
+   * as an empty one, since the index is only an optimization.
+   */
+  private Map<String, Entry> readIndex() {
+    Map<String, Entry> entries = Maps.newHashMap();
+    if (indexFile == null || !indexFile.isFile()) {
+      return entries;
+    }
+
+    try {
+      DataInputStream in = new DataInputStream(
+          new BufferedInputStream(new FileInputStream(indexFile)));
+      try {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION ||
+            in.readBoolean() != shortcutMode) {
+          return entries;
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+          String path = in.readUTF();
+          String closureRelativePath = in.readUTF();
+          long lastModified = in.readLong();
+          long length = in.readLong();
+          List<String> provides = readStrings(in);
+          List<String> requires = readStrings(in);
+          entries.put(path, new Entry(
+              new SimpleDependencyInfo(
+                  closureRelativePath, path, provides, requires),
+              lastModified, length, Lists.<JSError>newArrayList()));
+        }
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      logger.log(Level.FINE, "Unable to read dependency index " + indexFile,
+          e);
+      entries.clear();
+    }
+    return entries;
+  }
+
+  private static List<String> readStrings(DataInputStream in)
+      throws IOException {
+    List<String> strings = Lists.newArrayList();
+    for (int i = in.readInt(); i > 0; i--) {
+      strings.add(in.readUTF());
+    }
+    return strings;
+  }
+
+  /**
+   * Writes the index file. It is written to a temporary file that is then
+   * renamed, so that readers never see a partial index. Failures are logged
+   * and otherwise ignored.
+   */
+  private void writeIndex() {
+    File tmp = null;
+    try {
+      File directory = indexFile.getAbsoluteFile().getParentFile();
+      tmp = File.createTempFile(indexFile.getName(), ".tmp", directory);
+      DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(new FileOutputStream(tmp)));
+      try {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeBoolean(shortcutMode);
+        out.writeInt(index.size());
+        for (Entry entry : index.values()) {
+          out.writeUTF(entry.info.getName());
+          out.writeUTF(entry.info.getPathRelativeToClosureBase());
+          out.writeLong(entry.lastModified);
+          out.writeLong(entry.length);
+          writeStrings(out, entry.info.getProvides());
+          writeStrings(out, entry.info.getRequires());
+        }
+      } finally {
+        out.close();
+      }
+      // Renaming over an existing file fails on some platforms.
+      if (!tmp.renameTo(indexFile) &&
+          !(indexFile.delete() && tmp.renameTo(indexFile))) {
+        tmp.delete();
+      }
+    } catch (IOException e) {
+      logger.log(Level.FINE, "Unable to write dependency index " + indexFile,
+          e);
+      if (tmp != null) {
+        tmp.delete();
+      }
+    }
+  }
+
+  private static void writeStrings(DataOutputStream out,
+      Iterable<String> strings) throws IOException {
+    List<String> list = Lists.newArrayList(strings);
+    out.writeInt(list.size());
+    for (String s : list) {
+      out.writeUTF(s);
+    }
+  }
+
+  /** The dependency information of a file, as of its last scan. */
+  private static class Entry {
+    final DependencyInfo info;
+    final long lastModified;
+    final long length;
+    final List<JSError> diagnostics;
+
+    Entry(DependencyInfo info, long lastModified, long length,
+        List<JSError> diagnostics) {
+      this.info = info;
+      this.lastModified = lastModified;
+      this.length = length;
+      this.diagnostics = diagnostics;
+    }
+  }
+
+  /** Keeps the diagnostics of one file until the scan reports them. */
+  private static class CollectingErrorManager extends BasicErrorManager {
+    @Override
+    public void println(CheckLevel level, JSError error) {}
+
+    @Override
+    protected void printSummary() {}
+  }
+}
@@ -78,7 +78,12 @@ public class DepsFileParser extends JsFileLineParser {
    * @throws IOException Thrown if the file could not be read.
    */
   public List<DependencyInfo> parseFile(String filePath) throws IOException {
-    return parseFileReader(filePath, new FileReader(filePath));
+    Reader reader = new FileReader(filePath);
+    try {
+      return parseFileReader(filePath, reader);
+    } finally {
+      reader.close();
+    }
   }
 
   /**
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.deps;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import com.google.javascript.jscomp.deps.SortedDependencies.CircularDependencyException;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A version of {@link SortedDependencies} for a set of inputs that changes
+ * over time. Inputs can be added, removed and replaced one at a time, and
+ * the sorted lists are always the ones that {@link SortedDependencies}
+ * would make for the inputs in their current order: an added input goes
+ * last, and a replacement takes the place of the input it replaces.
+ *
+ * <p>The provide index is kept up to date as inputs change.
+ * {@link #getSortedDependenciesOf} only sorts the dependencies of its
+ * roots, so it takes time in proportion to their number, whatever changed
+ * before. {@link #getSortedList} keeps the whole sorted list between calls,
+ * but makes all of it again after a change that can move other inputs in
+ * it: adding or removing an input that provides a required symbol, or
+ * replacing an input with one that has other provides or requires. Only a
+ * replacement with the same provides and requires, or the addition or
+ * removal of an input that provides nothing that is required, is applied
+ * to the list in place. Such an input, when it is added last, always sorts
+ * last, since no input waits for it and it loses every tie.
+ *
+ * @param <INPUT> The type of the inputs.
+ */
+public class IncrementalSortedDependencies<INPUT extends DependencyInfo> {
+
+  // The inputs, keyed by when they were added.
+  private final TreeMap<Long, INPUT> inputs = Maps.newTreeMap();
+  private final Map<INPUT, Long> order = Maps.newHashMap();
+  private long nextOrder = 0;
+
+  // The inputs that provide each symbol, keyed by their order, and the one
+  // that wins. As in SortedDependencies, the last one wins.
+  private final Map<String, TreeMap<Long, INPUT>> providers =
+      Maps.newHashMap();
+  private final Map<String, INPUT> provideMap = Maps.newHashMap();
+
+  // The inputs that require each symbol.
+  private final Multimap<String, INPUT> requirers = HashMultimap.create();
+
+  // The sorted list, or null if it has to be made again.
+  private List<INPUT> sortedList = null;
+
+  public IncrementalSortedDependencies(List<INPUT> inputs) {
+    for (INPUT input : inputs) {
+      index(input, nextOrder++);
+    }
+  }
+
+  /** Adds an input after all the others. */
+  public void add(INPUT input) {
+    Preconditions.checkArgument(!order.containsKey(input));
+    index(input, nextOrder++);
+    if (sortedList != null) {
+      if (isRequired(input)) {
+        sortedList = null;
+      } else {
+        sortedList.add(input);
+      }
+    }
+  }
+
+  /** Removes an input. */
+  public void remove(INPUT input) {
+    Preconditions.checkArgument(order.containsKey(input));
+    unindex(input);
+    if (sortedList != null) {
+      if (isRequired(input)) {
+        sortedList = null;
+      } else {
+        sortedList.remove(input);
+      }
+    }
+  }
+
+  /** Replaces an input with a new version of it, in the same place. */
+  public void update(INPUT oldInput, INPUT newInput) {
+    Preconditions.checkArgument(order.containsKey(oldInput));
+    Preconditions.checkArgument(
+        oldInput.equals(newInput) || !order.containsKey(newInput));
+    long position = order.get(oldInput);
+    boolean sameDeps =
+        Sets.newHashSet(oldInput.getProvides()).equals(
+            Sets.newHashSet(newInput.getProvides())) &&
+        Sets.newHashSet(oldInput.getRequires()).equals(
+            Sets.newHashSet(newInput.getRequires()));
+    unindex(oldInput);
+    index(newInput, position);
+    if (sortedList != null) {
+      if (sameDeps) {
+        sortedList.set(sortedList.indexOf(oldInput), newInput);
+      } else {
+        sortedList = null;
+      }
+    }
+  }
+
+  /**
+   * Returns the inputs sorted so that each one comes after its
+   * dependencies.
+   * @see SortedDependencies#getSortedList
+   */
+  public List<INPUT> getSortedList() throws CircularDependencyException {
+    if (sortedList == null) {
+      sortedList = sort(Lists.newArrayList(inputs.values()));
+    }
+    return Collections.<INPUT>unmodifiableList(sortedList);
+  }
+
+  /**
+   * Gets all the dependencies of the given roots, in a stable order. This
+   * takes time in proportion to the number of dependencies. Unlike
+   * {@link SortedDependencies}, it only fails on a circular dependency
+   * among the dependencies of the roots.
+   * @see SortedDependencies#getSortedDependenciesOf
+   */
+  public List<INPUT> getSortedDependenciesOf(List<INPUT> roots)
+      throws CircularDependencyException {
+    Preconditions.checkArgument(order.keySet().containsAll(roots));
+    Set<INPUT> included = Sets.newHashSet();
+    Deque<INPUT> worklist = new ArrayDeque<INPUT>(roots);
+    while (!worklist.isEmpty()) {
+      INPUT current = worklist.pop();
+      if (included.add(current)) {
+        for (String req : current.getRequires()) {
+          INPUT dep = provideMap.get(req);
+          if (dep != null) {
+            worklist.add(dep);
+          }
+        }
+      }
+    }
+
+    // Sorting the inputs that the roots need on their own puts them in the
+    // same order as sorting all of them: inputs that are not needed never
+    // hold back the ones that are.
+    List<INPUT> deps = Lists.newArrayList(included);
+    Collections.sort(deps, new Comparator<INPUT>() {
+      @Override
+      public int compare(INPUT a, INPUT b) {
+        return order.get(a).compareTo(order.get(b));
+      }
+    });
+    return ImmutableList.copyOf(sort(deps));
+  }
+
+  /** Returns the inputs that do not provide any symbol, in their order. */
+  public List<INPUT> getInputsWithoutProvides() {
+    List<INPUT> noProvides = Lists.newArrayList();
+    for (INPUT input : inputs.values()) {
+      if (input.getProvides().isEmpty()) {
+        noProvides.add(input);
+      }
+    }
+    return noProvides;
+  }
+
+  /** Whether an input requires a symbol that the given input provides. */
+  private boolean isRequired(INPUT input) {
+    for (String provide : input.getProvides()) {
+      if (requirers.containsKey(provide)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void index(INPUT input, long position) {
+    inputs.put(position, input);
+    order.put(input, position);
+    for (String provide : input.getProvides()) {
+      TreeMap<Long, INPUT> inputsProviding = providers.get(provide);
+      if (inputsProviding == null) {
+        inputsProviding = Maps.newTreeMap();
+        providers.put(provide, inputsProviding);
+      }
+      inputsProviding.put(position, input);
+      provideMap.put(provide, inputsProviding.lastEntry().getValue());
+    }
+    for (String require : input.getRequires()) {
+      requirers.put(require, input);
+    }
+  }
+
+  private void unindex(INPUT input) {
+    long position = order.remove(input);
+    inputs.remove(position);
+    for (String provide : input.getProvides()) {
+      TreeMap<Long, INPUT> inputsProviding = providers.get(provide);
+      inputsProviding.remove(position);
+      if (inputsProviding.isEmpty()) {
+        providers.remove(provide);
+        provideMap.remove(provide);
+      } else {
+        provideMap.put(provide, inputsProviding.lastEntry().getValue());
+      }
+    }
+    for (String require : input.getRequires()) {
+      requirers.remove(require, input);
+    }
+  }
+
+  /**
+   * Sorts some inputs, given in their order, so that each one comes after
+   * its dependencies among them.
+   */
+  private List<INPUT> sort(List<INPUT> inputList)
+      throws CircularDependencyException {
+    Multimap<INPUT, INPUT> deps = HashMultimap.create();
+    for (INPUT input : inputList) {
+      for (String req : input.getRequires()) {
+        INPUT dep = provideMap.get(req);
+        if (dep != null) {
+          deps.put(input, dep);
+        }
+      }
+    }
+
+    List<INPUT> sorted =
+        SortedDependencies.topologicalStableSort(inputList, deps);
+    if (sorted.size() < inputList.size()) {
+      // Let SortedDependencies describe the cycle.
+      new SortedDependencies<INPUT>(inputList);
+      throw new IllegalStateException("Expected a circular dependency");
+    }
+    return sorted;
+  }
+}
@@ -71,7 +71,12 @@ public class JsFileParser extends JsFileLineParser {
    */
   public DependencyInfo parseFile(String filePath, String closureRelativePath)
       throws IOException {
-    return parseReader(filePath, closureRelativePath, new FileReader(filePath));
+    Reader reader = new FileReader(filePath);
+    try {
+      return parseReader(filePath, closureRelativePath, reader);
+    } finally {
+      reader.close();
+    }
   }
 
   /**
@@ -51,11 +51,12 @@ import java.util.Set;
  */
 public class SortedDependencies<INPUT extends DependencyInfo> {
 
-  private final List<INPUT> inputs;
-
   // A topologically sorted list of the inputs.
   private final List<INPUT> sortedList;
 
+  // The index of each input in the sorted list.
+  private final Map<INPUT, Integer> sortedIndex = Maps.newHashMap();
+
   // A list of all the inputs that do not have provides.
   private final List<INPUT> noProvides;
 
@@ -63,7 +64,6 @@ public class SortedDependencies<INPUT extends DependencyInfo> {
 
   public SortedDependencies(List<INPUT> inputs)
       throws CircularDependencyException {
-    this.inputs = Lists.newArrayList(inputs);
     noProvides = Lists.newArrayList();
 
     // Collect all symbols provided in these files.
@@ -105,6 +105,10 @@ public class SortedDependencies<INPUT extends DependencyInfo> {
       throw new CircularDependencyException(
           cycleToString(findCycle(subGraph, deps)));
     }
+
+    for (int i = 0; i < sortedList.size(); i++) {
+      sortedIndex.put(sortedList.get(i), i);
+    }
   }
 
   /**
@@ -175,14 +179,25 @@ public class SortedDependencies<INPUT extends DependencyInfo> {
    * list.
    */
   public List<INPUT> getSortedDependenciesOf(List<INPUT> roots) {
-    Preconditions.checkArgument(inputs.containsAll(roots));
-    Set<INPUT> included = Sets.newHashSet();
-    Deque<INPUT> worklist = new ArrayDeque<INPUT>(roots);
+    Preconditions.checkArgument(sortedIndex.keySet().containsAll(roots));
+    return sortTransitiveDeps(roots, provideMap, sortedIndex);
+  }
+
+  /**
+   * Collects the inputs that the roots transitively require, and sorts them
+   * by their index in a sorted list. This takes time in proportion to the
+   * number of inputs collected, not to the length of the sorted list.
+   */
+  static <T extends DependencyInfo> List<T> sortTransitiveDeps(
+      List<T> roots, Map<String, T> provideMap,
+      final Map<T, Integer> sortedIndex) {
+    Set<T> included = Sets.newHashSet();
+    Deque<T> worklist = new ArrayDeque<T>(roots);
     while (!worklist.isEmpty()) {
-      INPUT current = worklist.pop();
+      T current = worklist.pop();
       if (included.add(current)) {
         for (String req : current.getRequires()) {
-          INPUT dep = provideMap.get(req);
+          T dep = provideMap.get(req);
           if (dep != null) {
             worklist.add(dep);
           }
@@ -190,28 +205,30 @@ public class SortedDependencies<INPUT extends DependencyInfo> {
       }
     }
 
-    ImmutableList.Builder<INPUT> builder = ImmutableList.builder();
-    for (INPUT current : sortedList) {
-      if (included.contains(current)) {
-        builder.add(current);
+    List<T> result = Lists.newArrayList(included);
+    Collections.sort(result, new Comparator<T>() {
+      @Override
+      public int compare(T a, T b) {
+        return sortedIndex.get(a).intValue() - sortedIndex.get(b).intValue();
       }
-    }
-    return builder.build();
+    });
+    return ImmutableList.copyOf(result);
   }
 
   public List<INPUT> getInputsWithoutProvides() {
     return Collections.<INPUT>unmodifiableList(noProvides);
   }
 
-  private static <T> List<T> topologicalStableSort(
+  static <T> List<T> topologicalStableSort(
       List<T> items, Multimap<T, T> deps) {
     final Map<T, Integer> originalIndex = Maps.newHashMap();
     for (int i = 0; i < items.size(); i++) {
       originalIndex.put(items.get(i), i);
     }
 
-    PriorityQueue<T> inDegreeZero = new PriorityQueue<T>(items.size(),
-        new Comparator<T>() {
+    // A PriorityQueue cannot have an initial capacity of 0.
+    PriorityQueue<T> inDegreeZero = new PriorityQueue<T>(
+        Math.max(1, items.size()), new Comparator<T>() {
       @Override
       public int compare(T a, T b) {
         return originalIndex.get(a).intValue() -
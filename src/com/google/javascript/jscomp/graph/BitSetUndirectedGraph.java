@@ -0,0 +1,125 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.graph;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * An undirected graph without edge values whose nodes are the integers from
+ * 0 up to a fixed node count. The neighbors of each node are a row of bits
+ * in an adjacency matrix, so connecting two nodes and checking whether they
+ * are connected are constant time, and connecting them twice is harmless.
+ * This suits dense graphs over a known set of nodes, like the interference
+ * graph of the variables of a function, which can have a number of edges
+ * close to the square of the number of nodes.
+ *
+ * @see IntGraphColoring
+ *
+ */
+public final class BitSetUndirectedGraph {
+
+  private final int nodeCount;
+  private final int words;
+
+  // Row i, at words * i, has bit j set if nodes i and j are connected.
+  private final long[] matrix;
+  private final int[] degrees;
+
+  /**
+   * @param nodeCount The number of nodes, which are numbered from 0.
+   */
+  public BitSetUndirectedGraph(int nodeCount) {
+    Preconditions.checkArgument(nodeCount >= 0);
+    this.nodeCount = nodeCount;
+    this.words = (nodeCount + 63) >>> 6;
+    this.matrix = new long[words * nodeCount];
+    this.degrees = new int[nodeCount];
+  }
+
+  /** Returns the number of nodes in the graph. */
+  public int getNodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * Connects two distinct nodes, if they are not connected yet.
+   *
+   * @return Whether the nodes were not connected before.
+   */
+  public boolean connect(int a, int b) {
+    Preconditions.checkElementIndex(a, nodeCount);
+    Preconditions.checkElementIndex(b, nodeCount);
+    Preconditions.checkArgument(a != b, "Nodes cannot be self-connected");
+    if (isConnected(a, b)) {
+      return false;
+    }
+    matrix[a * words + (b >>> 6)] |= 1L << b;
+    matrix[b * words + (a >>> 6)] |= 1L << a;
+    degrees[a]++;
+    degrees[b]++;
+    return true;
+  }
+
+  /** Returns whether two nodes are connected. */
+  public boolean isConnected(int a, int b) {
+    return (matrix[a * words + (b >>> 6)] & (1L << b)) != 0;
+  }
+
+  /** Returns the number of neighbors of a node. */
+  public int getDegree(int node) {
+    return degrees[node];
+  }
+
+  /**
+   * Returns the first neighbor of a node that is at or after an index, or
+   * -1 if there is none. The neighbors of {@code node} are visited with
+   * <pre>
+   * for (int n = graph.getNextNeighbor(node, 0); n != -1;
+   *      n = graph.getNextNeighbor(node, n + 1)) {
+   *   ...
+   * }
+   * </pre>
+   */
+  public int getNextNeighbor(int node, int from) {
+    if (from >= nodeCount) {
+      return -1;
+    }
+    int offset = node * words;
+    int w = from >>> 6;
+    long word = matrix[offset + w] & (-1L << from);
+    while (word == 0) {
+      if (++w == words) {
+        return -1;
+      }
+      word = matrix[offset + w];
+    }
+    return (w << 6) + Long.numberOfTrailingZeros(word);
+  }
+
+  /** Returns the number of words in a row of the adjacency matrix. */
+  int getRowWords() {
+    return words;
+  }
+
+  /** Sets the bits of the neighbors of a node in a row. */
+  void addNeighborsTo(int node, long[] row) {
+    int offset = node * words;
+    for (int w = 0; w < words; w++) {
+      row[w] |= matrix[offset + w];
+    }
+  }
+}
@@ -0,0 +1,687 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.graph;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A directed graph whose nodes are numbered densely, in the order they are
+ * created, and whose edges are kept in primitive arrays.
+ * <p>
+ * Each edge is an index into parallel arrays of sources and destinations.
+ * While the graph is being built, the out edges of each node are chained
+ * through an array of next edges, so that connections can be checked. The
+ * first query for the neighbors of a node lays all the edges out in
+ * compressed sparse row form: the out (and in) edges of each node, in the
+ * order they were added, are a contiguous run of an int array. Changing the
+ * graph throws that form away, so the graph is fastest when it is built
+ * first and only read after.
+ * <p>
+ * Node and edge objects are only there for the {@link DiGraph} interface.
+ * Edge objects are created when they are first asked for, and lists of
+ * neighbors are views of the arrays. Code that is written for this class
+ * can use the node indices ({@link #getIndex}) to keep its own per-node
+ * data in arrays, and walk the graph with {@link #getSuccessor} and
+ * {@link #getPredecessor} without creating any objects.
+ *
+ * @param <N> Value type that the graph node stores.
+ * @param <E> Value type that the graph edge stores.
+ */
+public class IndexedDirectedGraph<N, E>
+    extends DiGraph<N, E> implements GraphvizGraph, IntDiGraph {
+
+  private static final int INITIAL_CAPACITY = 8;
+
+  private final Map<N, IndexedNode> nodesByValue = Maps.newHashMap();
+  private final List<IndexedNode> nodes = Lists.newArrayList();
+
+  // The first out edge of each node, or -1, while building.
+  private int[] firstOutEdge = new int[INITIAL_CAPACITY];
+
+  // The edges. A removed edge keeps its index and its ends.
+  private int edgeCount = 0;
+  private int liveEdgeCount = 0;
+  private final BitSet removedEdges = new BitSet();
+  private int[] edgeSources = new int[INITIAL_CAPACITY];
+  private int[] edgeDestinations = new int[INITIAL_CAPACITY];
+  private int[] nextOutEdge = new int[INITIAL_CAPACITY];
+  private final List<E> edgeValues = Lists.newArrayList();
+  private final List<IndexedEdge> edgeObjects = Lists.newArrayList();
+
+  // The compressed sparse row form, or null if the graph changed since it
+  // was made. The out edges of node i are outEdges[outOffsets[i]] up to
+  // outEdges[outOffsets[i + 1]], and likewise for in edges.
+  private int[] outOffsets = null;
+  private int[] outEdges = null;
+  private int[] inOffsets = null;
+  private int[] inEdges = null;
+
+  public static <N, E> IndexedDirectedGraph<N, E> create() {
+    return new IndexedDirectedGraph<N, E>();
+  }
+
+  /** Returns the number of nodes in the graph. */
+  public int getNodeCount() {
+    return nodes.size();
+  }
+
+  /**
+   * Returns the index of a node of this graph. Nodes are numbered from 0,
+   * in the order they were created.
+   */
+  public int getIndex(DiGraphNode<N, E> node) {
+    Preconditions.checkArgument(
+        node instanceof IndexedDirectedGraph.IndexedNode &&
+        ((IndexedNode) node).getGraph() == this);
+    return ((IndexedNode) node).index;
+  }
+
+  /** Returns the node with the given index. */
+  public DiGraphNode<N, E> getNodeAt(int index) {
+    return nodes.get(index);
+  }
+
+  /** Returns the number of edges out of the node with the given index. */
+  public int getOutDegree(int index) {
+    index();
+    return outOffsets[index + 1] - outOffsets[index];
+  }
+
+  /** Returns the index of the destination of the i-th out edge of a node. */
+  public int getSuccessor(int index, int i) {
+    index();
+    Preconditions.checkElementIndex(i, getOutDegree(index));
+    return edgeDestinations[outEdges[outOffsets[index] + i]];
+  }
+
+  /**
+   * Returns the index of the i-th out edge of a node. Edges are numbered
+   * from 0, in the order they were added, and keep their index when other
+   * edges are removed.
+   */
+  public int getOutEdge(int index, int i) {
+    index();
+    Preconditions.checkElementIndex(i, getOutDegree(index));
+    return outEdges[outOffsets[index] + i];
+  }
+
+  /** Returns the value of the edge with the given index. */
+  public E getEdgeValue(int edge) {
+    Preconditions.checkElementIndex(edge, edgeCount);
+    return edgeValues.get(edge);
+  }
+
+  /** Returns the number of edges into the node with the given index. */
+  public int getInDegree(int index) {
+    index();
+    return inOffsets[index + 1] - inOffsets[index];
+  }
+
+  /** Returns the index of the source of the i-th in edge of a node. */
+  public int getPredecessor(int index, int i) {
+    index();
+    Preconditions.checkElementIndex(i, getInDegree(index));
+    return edgeSources[inEdges[inOffsets[index] + i]];
+  }
+
+  @Override
+  public void connect(N srcValue, E edgeValue, N destValue) {
+    IndexedNode src = getNodeOrFail(srcValue);
+    IndexedNode dest = getNodeOrFail(destValue);
+    if (edgeCount == edgeSources.length) {
+      int capacity = edgeCount * 2;
+      edgeSources = Arrays.copyOf(edgeSources, capacity);
+      edgeDestinations = Arrays.copyOf(edgeDestinations, capacity);
+      nextOutEdge = Arrays.copyOf(nextOutEdge, capacity);
+    }
+    int edge = edgeCount++;
+    edgeSources[edge] = src.index;
+    edgeDestinations[edge] = dest.index;
+    nextOutEdge[edge] = firstOutEdge[src.index];
+    firstOutEdge[src.index] = edge;
+    edgeValues.add(edgeValue);
+    edgeObjects.add(null);
+    liveEdgeCount++;
+    invalidate();
+  }
+
+  @Override
+  public void disconnect(N n1, N n2) {
+    disconnectInDirection(n1, n2);
+    disconnectInDirection(n2, n1);
+  }
+
+  @Override
+  public void disconnectInDirection(N srcValue, N destValue) {
+    IndexedNode src = getNodeOrFail(srcValue);
+    IndexedNode dest = getNodeOrFail(destValue);
+    int previous = -1;
+    for (int edge = firstOutEdge[src.index]; edge != -1;
+         edge = nextOutEdge[edge]) {
+      if (edgeDestinations[edge] == dest.index) {
+        unlink(previous, edge);
+        removedEdges.set(edge);
+        liveEdgeCount--;
+        invalidate();
+      } else {
+        previous = edge;
+      }
+    }
+  }
+
+  /** Takes an edge out of the out edge chain of its source. */
+  private void unlink(int previous, int edge) {
+    if (previous == -1) {
+      firstOutEdge[edgeSources[edge]] = nextOutEdge[edge];
+    } else {
+      nextOutEdge[previous] = nextOutEdge[edge];
+    }
+  }
+
+  /** Moves an edge to a new source or destination. */
+  private void relink(int edge, int source, int destination) {
+    Preconditions.checkState(!removedEdges.get(edge));
+    int previous = -1;
+    for (int e = firstOutEdge[edgeSources[edge]]; e != edge;
+         e = nextOutEdge[e]) {
+      previous = e;
+    }
+    unlink(previous, edge);
+    edgeSources[edge] = source;
+    edgeDestinations[edge] = destination;
+    nextOutEdge[edge] = firstOutEdge[source];
+    firstOutEdge[source] = edge;
+    invalidate();
+  }
+
+  private void invalidate() {
+    outOffsets = null;
+    outEdges = null;
+    inOffsets = null;
+    inEdges = null;
+  }
+
+  /** Lays the edges out in compressed sparse row form, if needed. */
+  private void index() {
+    if (outOffsets != null) {
+      return;
+    }
+
+    int nodeCount = nodes.size();
+    int[] newOutOffsets = new int[nodeCount + 1];
+    int[] newInOffsets = new int[nodeCount + 1];
+    for (int edge = 0; edge < edgeCount; edge++) {
+      if (!removedEdges.get(edge)) {
+        newOutOffsets[edgeSources[edge] + 1]++;
+        newInOffsets[edgeDestinations[edge] + 1]++;
+      }
+    }
+    for (int i = 0; i < nodeCount; i++) {
+      newOutOffsets[i + 1] += newOutOffsets[i];
+      newInOffsets[i + 1] += newInOffsets[i];
+    }
+
+    // Placing the edges in index order keeps each run in the order the
+    // edges were added.
+    int[] newOutEdges = new int[liveEdgeCount];
+    int[] newInEdges = new int[liveEdgeCount];
+    int[] outNext = Arrays.copyOf(newOutOffsets, nodeCount);
+    int[] inNext = Arrays.copyOf(newInOffsets, nodeCount);
+    for (int edge = 0; edge < edgeCount; edge++) {
+      if (!removedEdges.get(edge)) {
+        newOutEdges[outNext[edgeSources[edge]]++] = edge;
+        newInEdges[inNext[edgeDestinations[edge]]++] = edge;
+      }
+    }
+
+    outOffsets = newOutOffsets;
+    outEdges = newOutEdges;
+    inOffsets = newInOffsets;
+    inEdges = newInEdges;
+  }
+
+  private IndexedEdge getEdgeObject(int edge) {
+    IndexedEdge edgeObject = edgeObjects.get(edge);
+    if (edgeObject == null) {
+      edgeObject = new IndexedEdge(edge);
+      edgeObjects.set(edge, edgeObject);
+    }
+    return edgeObject;
+  }
+
+  private List<DiGraphEdge<N, E>> getOutEdgeList(int index) {
+    index();
+    return new EdgeList(outEdges, outOffsets[index], outOffsets[index + 1]);
+  }
+
+  private List<DiGraphEdge<N, E>> getInEdgeList(int index) {
+    index();
+    return new EdgeList(inEdges, inOffsets[index], inOffsets[index + 1]);
+  }
+
+  @Override
+  public Iterable<DiGraphNode<N, E>> getDirectedGraphNodes() {
+    return Collections.<DiGraphNode<N, E>>unmodifiableList(nodes);
+  }
+
+  @Override
+  public DiGraphNode<N, E> getDirectedGraphNode(N nodeValue) {
+    return nodesByValue.get(nodeValue);
+  }
+
+  @Override
+  public GraphNode<N, E> getNode(N nodeValue) {
+    return getDirectedGraphNode(nodeValue);
+  }
+
+  @Override
+  public List<DiGraphEdge<N, E>> getInEdges(N nodeValue) {
+    IndexedNode node = getNodeOrFail(nodeValue);
+    return getInEdgeList(node.index);
+  }
+
+  @Override
+  public List<DiGraphEdge<N, E>> getOutEdges(N nodeValue) {
+    IndexedNode node = getNodeOrFail(nodeValue);
+    return getOutEdgeList(node.index);
+  }
+
+  @Override
+  public DiGraphNode<N, E> createDirectedGraphNode(N nodeValue) {
+    IndexedNode node = nodesByValue.get(nodeValue);
+    if (node == null) {
+      node = new IndexedNode(nodeValue, nodes.size());
+      nodesByValue.put(nodeValue, node);
+      nodes.add(node);
+      if (node.index == firstOutEdge.length) {
+        firstOutEdge = Arrays.copyOf(firstOutEdge, node.index * 2);
+      }
+      firstOutEdge[node.index] = -1;
+      invalidate();
+    }
+    return node;
+  }
+
+  @Override
+  public GraphNode<N, E> createNode(N value) {
+    return createDirectedGraphNode(value);
+  }
+
+  @Override
+  public List<GraphEdge<N, E>> getEdges(N n1, N n2) {
+    // Since this is a method from a generic graph, edges from both
+    // directions must be added to the returning list.
+    List<GraphEdge<N, E>> edges = Lists.newArrayList();
+    edges.addAll(getDirectedGraphEdges(n1, n2));
+    edges.addAll(getDirectedGraphEdges(n2, n1));
+    return edges;
+  }
+
+  @Override
+  public List<DiGraphEdge<N, E>> getDirectedGraphEdges(N n1, N n2) {
+    IndexedNode src = getNodeOrFail(n1);
+    IndexedNode dest = getNodeOrFail(n2);
+    List<DiGraphEdge<N, E>> edges = Lists.newArrayList();
+    for (DiGraphEdge<N, E> edge : getOutEdgeList(src.index)) {
+      if (edge.getDestination() == dest) {
+        edges.add(edge);
+      }
+    }
+    return edges;
+  }
+
+  @Override
+  public boolean isConnectedInDirection(N n1, N n2) {
+    return findEdge(n1, n2, false, null);
+  }
+
+  @Override
+  public boolean isConnectedInDirection(N n1, E edgeValue, N n2) {
+    return findEdge(n1, n2, true, edgeValue);
+  }
+
+  private boolean findEdge(
+      N n1, N n2, boolean matchValue, E edgeValue) {
+    IndexedNode src = getNodeOrFail(n1);
+    IndexedNode dest = getNodeOrFail(n2);
+    for (int edge = firstOutEdge[src.index]; edge != -1;
+         edge = nextOutEdge[edge]) {
+      if (edgeDestinations[edge] == dest.index && (!matchValue ||
+          equal(edgeValues.get(edge), edgeValue))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean equal(Object a, Object b) {
+    return a == null ? b == null : a.equals(b);
+  }
+
+  @Override
+  public List<DiGraphNode<N, E>> getDirectedPredNodes(N nodeValue) {
+    return getDirectedPredNodes(nodesByValue.get(nodeValue));
+  }
+
+  @Override
+  public List<DiGraphNode<N, E>> getDirectedSuccNodes(N nodeValue) {
+    return getDirectedSuccNodes(nodesByValue.get(nodeValue));
+  }
+
+  @Override
+  public List<DiGraphNode<N, E>> getDirectedPredNodes(
+      DiGraphNode<N, E> dNode) {
+    if (dNode == null) {
+      throw new IllegalArgumentException(dNode + " is null");
+    }
+    int index = getIndex(dNode);
+    index();
+    return new NodeList(inEdges, inOffsets[index], inOffsets[index + 1],
+        edgeSources);
+  }
+
+  @Override
+  public List<DiGraphNode<N, E>> getDirectedSuccNodes(
+      DiGraphNode<N, E> dNode) {
+    if (dNode == null) {
+      throw new IllegalArgumentException(dNode + " is null");
+    }
+    int index = getIndex(dNode);
+    index();
+    return new NodeList(outEdges, outOffsets[index], outOffsets[index + 1],
+        edgeDestinations);
+  }
+
+  @Override
+  public List<GraphvizEdge> getGraphvizEdges() {
+    List<GraphvizEdge> edgeList = Lists.newArrayList();
+    for (int edge = 0; edge < edgeCount; edge++) {
+      if (!removedEdges.get(edge)) {
+        edgeList.add(getEdgeObject(edge));
+      }
+    }
+    return edgeList;
+  }
+
+  @Override
+  public List<GraphvizNode> getGraphvizNodes() {
+    return Collections.<GraphvizNode>unmodifiableList(nodes);
+  }
+
+  @Override
+  public String getName() {
+    return "IndexedGraph";
+  }
+
+  @Override
+  public boolean isDirected() {
+    return true;
+  }
+
+  @Override
+  public SubGraph<N, E> newSubGraph() {
+    return new SimpleSubGraph<N, E>(this);
+  }
+
+  @Override
+  public Collection<GraphNode<N, E>> getNodes() {
+    return Collections.<GraphNode<N, E>>unmodifiableList(nodes);
+  }
+
+  @Override
+  public List<GraphNode<N, E>> getNeighborNodes(N value) {
+    IndexedNode node = getNodeOrFail(value);
+    List<GraphNode<N, E>> result = Lists.newArrayList();
+    for (DiGraphNode<N, E> pred : getDirectedPredNodes(node)) {
+      result.add(pred);
+    }
+    for (DiGraphNode<N, E> succ : getDirectedSuccNodes(node)) {
+      result.add(succ);
+    }
+    return result;
+  }
+
+  @Override
+  public Iterator<GraphNode<N, E>> getNeighborNodesIterator(N value) {
+    return getNeighborNodes(value).iterator();
+  }
+
+  @Override
+  public List<GraphEdge<N, E>> getEdges() {
+    List<GraphEdge<N, E>> result = Lists.newArrayList();
+    for (int edge = 0; edge < edgeCount; edge++) {
+      if (!removedEdges.get(edge)) {
+        result.add(getEdgeObject(edge));
+      }
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  @Override
+  public int getNodeDegree(N value) {
+    IndexedNode node = getNodeOrFail(value);
+    return getInDegree(node.index) + getOutDegree(node.index);
+  }
+
+  /** The out or in edges of a node, as a view of an edge array. */
+  private class EdgeList extends AbstractList<DiGraphEdge<N, E>> {
+    private final int[] edges;
+    private final int start;
+    private final int end;
+
+    EdgeList(int[] edges, int start, int end) {
+      this.edges = edges;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public DiGraphEdge<N, E> get(int i) {
+      Preconditions.checkElementIndex(i, size());
+      return getEdgeObject(edges[start + i]);
+    }
+
+    @Override
+    public int size() {
+      return end - start;
+    }
+  }
+
+  /**
+   * The successors or predecessors of a node, as a view of an edge array
+   * and of the array of the edge ends on the other side.
+   */
+  private class NodeList extends AbstractList<DiGraphNode<N, E>> {
+    private final int[] edges;
+    private final int start;
+    private final int end;
+    private final int[] ends;
+
+    NodeList(int[] edges, int start, int end, int[] ends) {
+      this.edges = edges;
+      this.start = start;
+      this.end = end;
+      this.ends = ends;
+    }
+
+    @Override
+    public DiGraphNode<N, E> get(int i) {
+      Preconditions.checkElementIndex(i, size());
+      return nodes.get(ends[edges[start + i]]);
+    }
+
+    @Override
+    public int size() {
+      return end - start;
+    }
+  }
+
+  /** A node, which is only its value, its index and its annotation. */
+  private class IndexedNode implements DiGraphNode<N, E>, GraphvizNode {
+    private final N value;
+    private final int index;
+    private Annotation annotation;
+
+    IndexedNode(N value, int index) {
+      this.value = value;
+      this.index = index;
+    }
+
+    IndexedDirectedGraph<N, E> getGraph() {
+      return IndexedDirectedGraph.this;
+    }
+
+    @Override
+    public N getValue() {
+      return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <A extends Annotation> A getAnnotation() {
+      return (A) annotation;
+    }
+
+    @Override
+    public void setAnnotation(Annotation data) {
+      annotation = data;
+    }
+
+    @Override
+    public List<DiGraphEdge<N, E>> getOutEdges() {
+      return getOutEdgeList(index);
+    }
+
+    @Override
+    public List<DiGraphEdge<N, E>> getInEdges() {
+      return getInEdgeList(index);
+    }
+
+    @Override
+    public String getColor() {
+      return "white";
+    }
+
+    @Override
+    public String getId() {
+      return "IDN" + index;
+    }
+
+    @Override
+    public String getLabel() {
+      return value != null ? value.toString() : "null";
+    }
+
+    @Override
+    public String toString() {
+      return getLabel();
+    }
+  }
+
+  /** An edge, which reads its ends and value from the arrays. */
+  private class IndexedEdge implements DiGraphEdge<N, E>, GraphvizEdge {
+    private final int edge;
+    private Annotation annotation;
+
+    IndexedEdge(int edge) {
+      this.edge = edge;
+    }
+
+    @Override
+    public DiGraphNode<N, E> getSource() {
+      return nodes.get(edgeSources[edge]);
+    }
+
+    @Override
+    public DiGraphNode<N, E> getDestination() {
+      return nodes.get(edgeDestinations[edge]);
+    }
+
+    @Override
+    public void setSource(DiGraphNode<N, E> node) {
+      relink(edge, getIndex(node), edgeDestinations[edge]);
+    }
+
+    @Override
+    public void setDestination(DiGraphNode<N, E> node) {
+      relink(edge, edgeSources[edge], getIndex(node));
+    }
+
+    @Override
+    public E getValue() {
+      return edgeValues.get(edge);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <A extends Annotation> A getAnnotation() {
+      return (A) annotation;
+    }
+
+    @Override
+    public void setAnnotation(Annotation data) {
+      annotation = data;
+    }
+
+    @Override
+    public String getColor() {
+      return "black";
+    }
+
+    @Override
+    public String getLabel() {
+      E value = getValue();
+      return value != null ? value.toString() : "null";
+    }
+
+    @Override
+    public String getNode1Id() {
+      return ((IndexedNode) getSource()).getId();
+    }
+
+    @Override
+    public String getNode2Id() {
+      return ((IndexedNode) getDestination()).getId();
+    }
+
+    @Override
+    public String toString() {
+      return getSource().toString() + " -> " + getDestination().toString();
+    }
+
+    @Override
+    public GraphNode<N, E> getNodeA() {
+      return getSource();
+    }
+
+    @Override
+    public GraphNode<N, E> getNodeB() {
+      return getDestination();
+    }
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.graph;
+
+/**
+ * A directed graph whose nodes are the integers from 0 up to the node count,
+ * and whose edges are numbered as well. Algorithms written against this
+ * interface keep their per-node state in arrays indexed by node, rather than
+ * in annotations, and walk the graph without creating any objects.
+ *
+ * @see IndexedDirectedGraph
+ * @see IntFixedPointGraphTraversal
+ * @see IntGraphReachability
+ *
+ */
+public interface IntDiGraph {
+
+  /** Returns the number of nodes in the graph. */
+  int getNodeCount();
+
+  /** Returns the number of edges out of a node. */
+  int getOutDegree(int node);
+
+  /** Returns the index of the destination of the i-th out edge of a node. */
+  int getSuccessor(int node, int i);
+
+  /** Returns the index of the i-th out edge of a node. */
+  int getOutEdge(int node, int i);
+
+  /** Returns the number of edges into a node. */
+  int getInDegree(int node);
+
+  /** Returns the index of the source of the i-th in edge of a node. */
+  int getPredecessor(int node, int i);
+}
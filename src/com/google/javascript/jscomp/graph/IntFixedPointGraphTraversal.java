@@ -0,0 +1,124 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.graph;
+
+import com.google.common.base.Preconditions;
+
+import java.util.BitSet;
+
+/**
+ * Does fixed-point computations over an {@link IntDiGraph}, like
+ * {@link FixedPointGraphTraversal} does over a {@link DiGraph}: the out
+ * edges of nodes in a work list are traversed, and the destination of each
+ * edge whose traversal changed something is added to the work list, until it
+ * is empty. The work list is a queue of node indices, so nodes are visited
+ * in the same order as {@link FixedPointGraphTraversal} would visit them.
+ *
+ */
+public final class IntFixedPointGraphTraversal {
+
+  private final EdgeCallback callback;
+
+  /**
+   * @param callback A callback for updating the state of the graph each
+   *     time an edge is traversed.
+   */
+  public IntFixedPointGraphTraversal(EdgeCallback callback) {
+    this.callback = callback;
+  }
+
+  /**
+   * Computes a fixed point for the given graph, entering from all the nodes.
+   */
+  public void computeFixedPoint(IntDiGraph graph) {
+    BitSet entries = new BitSet();
+    entries.set(0, graph.getNodeCount());
+    computeFixedPoint(graph, entries);
+  }
+
+  /**
+   * Computes a fixed point for the given graph, entering from the given
+   * node.
+   */
+  public void computeFixedPoint(IntDiGraph graph, int entry) {
+    BitSet entries = new BitSet();
+    entries.set(entry);
+    computeFixedPoint(graph, entries);
+  }
+
+  /**
+   * Computes a fixed point for the given graph, entering from the given
+   * nodes, in index order.
+   */
+  public void computeFixedPoint(IntDiGraph graph, BitSet entries) {
+    int nodeCount = graph.getNodeCount();
+    Preconditions.checkArgument(entries.length() <= nodeCount);
+
+    // Choose a bail-out heuristically in case the computation
+    // doesn't converge.
+    long maxIterations =
+        Math.max((long) nodeCount * nodeCount * nodeCount, 100);
+
+    // A circular queue, which never holds a node twice.
+    int[] queue = new int[Math.max(nodeCount, 1)];
+    BitSet queued = new BitSet(nodeCount);
+    int head = 0;
+    int size = 0;
+    for (int i = entries.nextSetBit(0); i >= 0; i = entries.nextSetBit(i + 1)) {
+      queue[size++] = i;
+      queued.set(i);
+    }
+
+    long cycleCount = 0;
+    for (; size > 0 && cycleCount < maxIterations; cycleCount++) {
+      int source = queue[head];
+      head = (head + 1) % queue.length;
+      size--;
+      queued.clear(source);
+
+      int degree = graph.getOutDegree(source);
+      for (int i = 0; i < degree; i++) {
+        int destination = graph.getSuccessor(source, i);
+        if (callback.traverseEdge(
+                source, graph.getOutEdge(source, i), destination) &&
+            !queued.get(destination)) {
+          queue[(head + size) % queue.length] = destination;
+          size++;
+          queued.set(destination);
+        }
+      }
+    }
+
+    Preconditions.checkState(cycleCount != maxIterations,
+        FixedPointGraphTraversal.NON_HALTING_ERROR_MSG);
+  }
+
+  /** A callback for the edges of an {@link IntDiGraph}. */
+  public static interface EdgeCallback {
+    /**
+     * Updates the state of the destination node when the given edge
+     * is traversed. For the fixed-point computation to work, only the
+     * destination node may be modified.
+     *
+     * @param source The index of the start node.
+     * @param edge The index of the edge.
+     * @param destination The index of the end node.
+     * @return Whether the state of the destination node changed.
+     */
+    boolean traverseEdge(int source, int edge, int destination);
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.graph;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * Greedily colors a {@link BitSetUndirectedGraph} so that no two connected
+ * nodes have the same color, the same way as
+ * {@link GraphColoring.GreedyGraphColoring}: from the highest to the lowest
+ * degree, each color takes every node that is not yet colored and is not
+ * connected to a node of that color. Nodes of the same degree are taken in
+ * index order, so the coloring is deterministic.
+ * <p>
+ * Instead of annotations, the colors are kept in an array indexed by node,
+ * and the nodes that a color cannot take are a row of bits.
+ *
+ */
+public final class IntGraphColoring {
+
+  private final BitSetUndirectedGraph graph;
+  private int[] colors = null;
+  private int colorCount = 0;
+
+  public IntGraphColoring(BitSetUndirectedGraph graph) {
+    this.graph = graph;
+  }
+
+  /**
+   * Colors the graph.
+   *
+   * @return The number of colors used.
+   */
+  public int color() {
+    int nodeCount = graph.getNodeCount();
+    int[] worklist = sortByDegree();
+    colors = new int[nodeCount];
+    Arrays.fill(colors, -1);
+
+    int words = graph.getRowWords();
+    long[] excluded = new long[words];
+    int remaining = nodeCount;
+    colorCount = 0;
+    while (remaining > 0) {
+      Arrays.fill(excluded, 0);
+      int kept = 0;
+      for (int i = 0; i < remaining; i++) {
+        int node = worklist[i];
+        if ((excluded[node >>> 6] & (1L << node)) == 0) {
+          colors[node] = colorCount;
+          graph.addNeighborsTo(node, excluded);
+        } else {
+          worklist[kept++] = node;
+        }
+      }
+      remaining = kept;
+      colorCount++;
+    }
+    return colorCount;
+  }
+
+  /** Returns the nodes by decreasing degree, and then by index. */
+  private int[] sortByDegree() {
+    int nodeCount = graph.getNodeCount();
+    int maxDegree = 0;
+    for (int i = 0; i < nodeCount; i++) {
+      maxDegree = Math.max(maxDegree, graph.getDegree(i));
+    }
+
+    // A counting sort, which keeps nodes of the same degree in index order.
+    int[] starts = new int[maxDegree + 2];
+    for (int i = 0; i < nodeCount; i++) {
+      starts[maxDegree - graph.getDegree(i) + 1]++;
+    }
+    for (int d = 0; d <= maxDegree; d++) {
+      starts[d + 1] += starts[d];
+    }
+    int[] sorted = new int[nodeCount];
+    for (int i = 0; i < nodeCount; i++) {
+      sorted[starts[maxDegree - graph.getDegree(i)]++] = i;
+    }
+    return sorted;
+  }
+
+  /** Returns the color of a node, from 0 up to the number of colors. */
+  public int getColor(int node) {
+    Preconditions.checkState(colors != null,
+        "No coloring found. color() should be called first.");
+    return colors[node];
+  }
+
+  /** Returns the number of colors used. */
+  public int getColorCount() {
+    return colorCount;
+  }
+
+  public BitSetUndirectedGraph getGraph() {
+    return graph;
+  }
+}
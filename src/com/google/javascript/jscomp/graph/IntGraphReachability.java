@@ -0,0 +1,61 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.graph;
+
+import com.google.common.base.Preconditions;
+
+import java.util.BitSet;
+
+/**
+ * Computes the nodes of an {@link IntDiGraph} that are reachable from a set
+ * of nodes. Unlike {@link GraphReachability}, this does not annotate the
+ * graph; the reachable nodes are returned as a set of node indices.
+ *
+ */
+public final class IntGraphReachability {
+
+  private IntGraphReachability() {}
+
+  /**
+   * Returns the set of nodes that are reachable from the given nodes, which
+   * are reachable themselves.
+   */
+  public static BitSet computeReachable(IntDiGraph graph, BitSet entries) {
+    int nodeCount = graph.getNodeCount();
+    Preconditions.checkArgument(entries.length() <= nodeCount);
+    BitSet reachable = (BitSet) entries.clone();
+
+    // Each node is pushed at most once, when it is first reached.
+    int[] stack = new int[nodeCount];
+    int depth = 0;
+    for (int i = entries.nextSetBit(0); i >= 0; i = entries.nextSetBit(i + 1)) {
+      stack[depth++] = i;
+    }
+    while (depth > 0) {
+      int node = stack[--depth];
+      int degree = graph.getOutDegree(node);
+      for (int i = 0; i < degree; i++) {
+        int successor = graph.getSuccessor(node, i);
+        if (!reachable.get(successor)) {
+          reachable.set(successor);
+          stack[depth++] = successor;
+        }
+      }
+    }
+    return reachable;
+  }
+}
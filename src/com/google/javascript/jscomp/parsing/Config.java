@@ -17,9 +17,12 @@
 package com.google.javascript.jscomp.parsing;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Configuration for the AST factory. Should be shared across AST creation
@@ -50,6 +53,13 @@ public class Config {
    */
   final Set<String> suppressionNames;
 
+  /**
+   * The names and strings of the trees parsed with this config, so that all
+   * the trees of a compilation share a single copy of each, instead of one
+   * per file. Parsers on different threads may use it at the same time.
+   */
+  private final Interner<String> strings = Interners.newStrongInterner();
+
   /**
    * Annotation names.
    */
@@ -62,6 +72,25 @@ public class Config {
     this.isIdeMode = isIdeMode;
   }
 
+  /**
+   * Returns the copy of the given string that is shared by all the trees
+   * parsed with this config.
+   */
+  public String intern(String s) {
+    return strings.intern(s);
+  }
+
+  /**
+   * Returns a string that is the same for two configs exactly when they
+   * make the parser produce the same trees. Used to key cached ASTs.
+   */
+  public String getFingerprint() {
+    return "ide=" + isIdeMode
+        + ",docs=" + parseJsDocDocumentation
+        + ",annotations=" + new TreeSet<String>(annotationNames.keySet())
+        + ",suppressions=" + new TreeSet<String>(suppressionNames);
+  }
+
   /**
    * Create the annotation names from the user-specified
    * annotation whitelist.
@@ -596,7 +596,8 @@ public class IRFactory {
 
     @Override
     Node processLabel(Label labelNode) {
-      return Node.newString(Token.LABEL_NAME, labelNode.getName());
+      return Node.newString(
+          Token.LABEL_NAME, config.intern(labelNode.getName()));
     }
 
     @Override
@@ -624,7 +625,8 @@ public class IRFactory {
 
     @Override
     Node processName(Name nameNode) {
-      return Node.newString(Token.NAME, nameNode.getIdentifier());
+      return Node.newString(
+          Token.NAME, config.intern(nameNode.getIdentifier()));
     }
 
     @Override
@@ -710,7 +712,7 @@ public class IRFactory {
 
     @Override
     Node processStringLiteral(StringLiteral literalNode) {
-      Node n = Node.newString(literalNode.getValue());
+      Node n = Node.newString(config.intern(literalNode.getValue()));
       return n;
     }
 
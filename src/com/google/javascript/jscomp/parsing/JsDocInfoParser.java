@@ -63,6 +63,7 @@ public final class JsDocInfoParser {
   private JSDocInfo fileOverviewJSDocInfo = null;
   private State state;
 
+  private final Config config;
   private final Map<String, Annotation> annotationNames;
   private final Set<String> suppressionNames;
 
@@ -101,6 +102,7 @@ public final class JsDocInfoParser {
     this.stream = stream;
     this.sourceName = sourceName;
     this.jsdocBuilder = new JSDocInfoBuilder(config.parseJsDocDocumentation);
+    this.config = config;
     this.annotationNames = config.annotationNames;
     this.suppressionNames = config.suppressionNames;
 
@@ -502,7 +504,7 @@ public final class JsDocInfoParser {
                     parser.addWarning("msg.missing.variable.name",
                         lineno, charno);
                   } else {
-                    name = stream.getString();
+                    name = config.intern(stream.getString());
 
                     if (isBracketedParam) {
                       token = next();
@@ -1924,7 +1926,8 @@ public final class JsDocInfoParser {
   }
 
   private Node newStringNode(String s) {
-    return Node.newString(s, stream.getLineno(), stream.getCharno());
+    return Node.newString(
+        config.intern(s), stream.getLineno(), stream.getCharno());
   }
 
   private Node reportTypeSyntaxWarning(String warning) {
@@ -39,13 +39,17 @@
 
 package com.google.javascript.rhino;
 
+import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -1137,6 +1141,31 @@ public final class JSDocInfo implements Serializable {
     return info.templateTypeName;
   }
 
+  /**
+   * Returns whether this JSDoc and the other one annotate code in the same
+   * way. The documentation is not compared, and neither are the
+   * description, the deprecation reason and the license, which only end up
+   * in messages and comments.
+   */
+  public boolean isEquivalentTo(JSDocInfo other) {
+    if (other == null || bitset != other.bitset ||
+        visibility != other.visibility ||
+        !Objects.equal(type, other.type) ||
+        !Objects.equal(thisType, other.thisType)) {
+      return false;
+    }
+    LazilyInitializedInfo a =
+        info == null ? new LazilyInitializedInfo() : info;
+    LazilyInitializedInfo b =
+        other.info == null ? new LazilyInitializedInfo() : other.info;
+    return Objects.equal(a.baseType, b.baseType) &&
+        Objects.equal(a.implementedInterfaces, b.implementedInterfaces) &&
+        Objects.equal(a.parameters, b.parameters) &&
+        Objects.equal(a.thrownTypes, b.thrownTypes) &&
+        Objects.equal(a.templateTypeName, b.templateTypeName) &&
+        Objects.equal(a.suppressions, b.suppressions);
+  }
+
   /**
    * Returns a collection of all type nodes that are a part of this JSDocInfo.
    * This includes @type, @this, @extends, @implements, @param, @throws,
@@ -1181,4 +1210,376 @@ public final class JSDocInfo implements Serializable {
 
     return nodes;    
   }
+
+  /**
+   * Where {@link #writeTo} writes the fields of a JSDocInfo, so that it can
+   * be stored with the rest of a parse tree.
+   */
+  public interface Output {
+    void writeInt(int value) throws IOException;
+
+    void writeString(String value) throws IOException;
+
+    void writeNode(Node n) throws IOException;
+  }
+
+  /** Where {@link #readFrom} reads what {@link #writeTo} wrote. */
+  public interface Input {
+    int readInt() throws IOException;
+
+    String readString() throws IOException;
+
+    Node readNode() throws IOException;
+  }
+
+  /**
+   * Writes all the fields of this JSDocInfo, including the documentation.
+   * A type node or a type expression that appears several times is only
+   * written once, so {@link #readFrom} shares it the same way.
+   */
+  public void writeTo(Output out) throws IOException {
+    FieldWriter writer = new FieldWriter(out);
+    out.writeInt(bitset);
+    out.writeInt(visibility == null ? -1 : visibility.ordinal());
+    out.writeInt(includeDocumentation ? 1 : 0);
+    writer.writeString(sourceName);
+    writer.writeType(type);
+    writer.writeType(thisType);
+
+    out.writeInt(info == null ? 0 : 1);
+    if (info != null) {
+      writer.writeType(info.baseType);
+      writer.writeTypes(info.implementedInterfaces);
+      if (info.parameters == null) {
+        out.writeInt(-1);
+      } else {
+        out.writeInt(info.parameters.size());
+        for (Map.Entry<String, JSTypeExpression> entry :
+                 info.parameters.entrySet()) {
+          out.writeString(entry.getKey());
+          writer.writeType(entry.getValue());
+        }
+      }
+      writer.writeTypes(info.thrownTypes);
+      writer.writeString(info.templateTypeName);
+      writer.writeString(info.description);
+      writer.writeString(info.deprecated);
+      writer.writeString(info.license);
+      writer.writeStrings(info.suppressions);
+    }
+
+    out.writeInt(documentation == null ? 0 : 1);
+    if (documentation != null) {
+      if (documentation.markers == null) {
+        out.writeInt(-1);
+      } else {
+        out.writeInt(documentation.markers.size());
+        for (Marker marker : documentation.markers) {
+          writer.writeStringPosition(marker.annotation);
+          writer.writeStringPosition(marker.name);
+          writer.writeStringPosition(marker.description);
+          if (marker.type == null) {
+            out.writeInt(0);
+          } else {
+            out.writeInt(marker.type.hasBrackets ? 2 : 1);
+            writer.writeNode(marker.type.getItem());
+            writer.writePosition(marker.type);
+          }
+        }
+      }
+      if (documentation.parameters == null) {
+        out.writeInt(-1);
+      } else {
+        out.writeInt(documentation.parameters.size());
+        for (Map.Entry<String, String> entry :
+                 documentation.parameters.entrySet()) {
+          out.writeString(entry.getKey());
+          writer.writeString(entry.getValue());
+        }
+      }
+      if (documentation.throwsDescriptions == null) {
+        out.writeInt(-1);
+      } else {
+        out.writeInt(documentation.throwsDescriptions.size());
+        for (Map.Entry<JSTypeExpression, String> entry :
+                 documentation.throwsDescriptions.entrySet()) {
+          writer.writeType(entry.getKey());
+          writer.writeString(entry.getValue());
+        }
+      }
+      writer.writeString(documentation.blockDescription);
+      writer.writeString(documentation.fileOverview);
+      writer.writeString(documentation.returnDescription);
+      writer.writeString(documentation.version);
+      writer.writeStrings(documentation.authors);
+      writer.writeStrings(documentation.sees);
+    }
+  }
+
+  /** Reads a JSDocInfo written by {@link #writeTo}. */
+  public static JSDocInfo readFrom(Input in) throws IOException {
+    FieldReader reader = new FieldReader(in);
+    JSDocInfo result = new JSDocInfo();
+    result.bitset = in.readInt();
+    int visibility = in.readInt();
+    result.visibility =
+        visibility == -1 ? null : reader.get(Visibility.values(), visibility);
+    result.includeDocumentation = in.readInt() != 0;
+    result.sourceName = reader.readString();
+    result.type = reader.readType();
+    result.thisType = reader.readType();
+
+    if (in.readInt() != 0) {
+      LazilyInitializedInfo info = new LazilyInitializedInfo();
+      info.baseType = reader.readType();
+      info.implementedInterfaces = reader.readTypes();
+      int parameterCount = in.readInt();
+      if (parameterCount >= 0) {
+        info.parameters = new LinkedHashMap<String, JSTypeExpression>();
+        for (int i = 0; i < parameterCount; i++) {
+          info.parameters.put(in.readString(), reader.readType());
+        }
+      }
+      info.thrownTypes = reader.readTypes();
+      info.templateTypeName = reader.readString();
+      info.description = reader.readString();
+      info.deprecated = reader.readString();
+      info.license = reader.readString();
+      List<String> suppressions = reader.readStrings();
+      if (suppressions != null) {
+        info.suppressions = new HashSet<String>(suppressions);
+      }
+      result.info = info;
+    }
+
+    if (in.readInt() != 0) {
+      LazilyInitializedDocumentation documentation =
+          new LazilyInitializedDocumentation();
+      int markerCount = in.readInt();
+      if (markerCount >= 0) {
+        documentation.markers = Lists.newArrayList();
+        for (int i = 0; i < markerCount; i++) {
+          Marker marker = new Marker();
+          marker.annotation = reader.readStringPosition();
+          marker.name = reader.readStringPosition();
+          marker.description = reader.readStringPosition();
+          int typeTag = in.readInt();
+          if (typeTag != 0) {
+            marker.type = new TypePosition();
+            marker.type.hasBrackets = typeTag == 2;
+            marker.type.setItem(reader.readNode());
+            reader.readPosition(marker.type);
+          }
+          documentation.markers.add(marker);
+        }
+      }
+      int parameterCount = in.readInt();
+      if (parameterCount >= 0) {
+        documentation.parameters = new LinkedHashMap<String, String>();
+        for (int i = 0; i < parameterCount; i++) {
+          documentation.parameters.put(in.readString(), reader.readString());
+        }
+      }
+      int throwsCount = in.readInt();
+      if (throwsCount >= 0) {
+        documentation.throwsDescriptions =
+            new LinkedHashMap<JSTypeExpression, String>();
+        for (int i = 0; i < throwsCount; i++) {
+          documentation.throwsDescriptions.put(
+              reader.readType(), reader.readString());
+        }
+      }
+      documentation.blockDescription = reader.readString();
+      documentation.fileOverview = reader.readString();
+      documentation.returnDescription = reader.readString();
+      documentation.version = reader.readString();
+      documentation.authors = reader.readStrings();
+      documentation.sees = reader.readStrings();
+      result.documentation = documentation;
+    }
+    return result;
+  }
+
+  /**
+   * Writes the values that may be null or shared for {@link #writeTo}. A
+   * shared value is written as a reference to its first copy.
+   */
+  private static class FieldWriter {
+    private final Output out;
+    private final Map<Node, Integer> nodes = Maps.newIdentityHashMap();
+    private final Map<JSTypeExpression, Integer> types =
+        Maps.newIdentityHashMap();
+
+    FieldWriter(Output out) {
+      this.out = out;
+    }
+
+    void writeString(String s) throws IOException {
+      out.writeInt(s == null ? 0 : 1);
+      if (s != null) {
+        out.writeString(s);
+      }
+    }
+
+    void writeStrings(Collection<String> strings) throws IOException {
+      if (strings == null) {
+        out.writeInt(-1);
+        return;
+      }
+      out.writeInt(strings.size());
+      for (String s : strings) {
+        out.writeString(s);
+      }
+    }
+
+    // -1 for null, 0 for a new node, and the index of the node plus one for
+    // one that was written before.
+    void writeNode(Node n) throws IOException {
+      if (n == null) {
+        out.writeInt(-1);
+      } else if (nodes.containsKey(n)) {
+        out.writeInt(nodes.get(n) + 1);
+      } else {
+        nodes.put(n, nodes.size());
+        out.writeInt(0);
+        out.writeNode(n);
+      }
+    }
+
+    void writeType(JSTypeExpression type) throws IOException {
+      if (type == null) {
+        out.writeInt(-1);
+      } else if (types.containsKey(type)) {
+        out.writeInt(types.get(type) + 1);
+      } else {
+        types.put(type, types.size());
+        out.writeInt(0);
+        writeNode(type.getRoot());
+        writeString(type.getSourceName());
+      }
+    }
+
+    void writeTypes(List<JSTypeExpression> list) throws IOException {
+      if (list == null) {
+        out.writeInt(-1);
+        return;
+      }
+      out.writeInt(list.size());
+      for (JSTypeExpression type : list) {
+        writeType(type);
+      }
+    }
+
+    void writeStringPosition(StringPosition position) throws IOException {
+      out.writeInt(position == null ? 0 : 1);
+      if (position != null) {
+        writeString(position.getItem());
+        writePosition(position);
+      }
+    }
+
+    void writePosition(SourcePosition<?> position) throws IOException {
+      out.writeInt(position.getStartLine());
+      out.writeInt(position.getPositionOnStartLine());
+      out.writeInt(position.getEndLine());
+      out.writeInt(position.getPositionOnEndLine());
+    }
+  }
+
+  /** Reads what a {@link FieldWriter} wrote. */
+  private static class FieldReader {
+    private final Input in;
+    private final List<Node> nodes = Lists.newArrayList();
+    private final List<JSTypeExpression> types = Lists.newArrayList();
+
+    FieldReader(Input in) {
+      this.in = in;
+    }
+
+    String readString() throws IOException {
+      return in.readInt() == 0 ? null : in.readString();
+    }
+
+    List<String> readStrings() throws IOException {
+      int size = in.readInt();
+      if (size < 0) {
+        return null;
+      }
+      List<String> strings = Lists.newArrayList();
+      for (int i = 0; i < size; i++) {
+        strings.add(in.readString());
+      }
+      return strings;
+    }
+
+    Node readNode() throws IOException {
+      int tag = in.readInt();
+      if (tag == -1) {
+        return null;
+      } else if (tag > 0) {
+        return get(nodes, tag - 1);
+      }
+      Node n = in.readNode();
+      nodes.add(n);
+      return n;
+    }
+
+    JSTypeExpression readType() throws IOException {
+      int tag = in.readInt();
+      if (tag == -1) {
+        return null;
+      } else if (tag > 0) {
+        return get(types, tag - 1);
+      }
+      // Add the type before reading its parts, in the order they were
+      // written.
+      int index = types.size();
+      types.add(null);
+      Node root = readNode();
+      JSTypeExpression type = new JSTypeExpression(root, readString());
+      types.set(index, type);
+      return type;
+    }
+
+    List<JSTypeExpression> readTypes() throws IOException {
+      int size = in.readInt();
+      if (size < 0) {
+        return null;
+      }
+      List<JSTypeExpression> list = Lists.newArrayList();
+      for (int i = 0; i < size; i++) {
+        list.add(readType());
+      }
+      return list;
+    }
+
+    StringPosition readStringPosition() throws IOException {
+      if (in.readInt() == 0) {
+        return null;
+      }
+      StringPosition position = new StringPosition();
+      position.setItem(readString());
+      readPosition(position);
+      return position;
+    }
+
+    void readPosition(SourcePosition<?> position) throws IOException {
+      position.setPositionInformation(
+          in.readInt(), in.readInt(), in.readInt(), in.readInt());
+    }
+
+    <T> T get(List<T> list, int index) throws IOException {
+      if (index < 0 || index >= list.size()) {
+        throw new IOException("Bad reference " + index);
+      }
+      return list.get(index);
+    }
+
+    <T> T get(T[] array, int index) throws IOException {
+      if (index < 0 || index >= array.length) {
+        throw new IOException("Bad reference " + index);
+      }
+      return array[index];
+    }
+  }
 }
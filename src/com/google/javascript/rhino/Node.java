@@ -46,10 +46,15 @@ import com.google.common.base.Preconditions;
 import com.google.javascript.rhino.jstype.JSType;
 
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
@@ -129,8 +134,9 @@ public class Node implements Cloneable, Serializable {
       SYNTHETIC_BLOCK_PROP = 37,  // A synthetic block. Used to make
                                   // processing simpler, and does not
                                   // represent a real block in the source.
-      SOURCEFILE_PROP    = 38,    // Contains the path of the source file
-                                  // from which the current node was parsed.
+      SOURCEFILE_PROP    = 38,    // The path of the source file from which
+                                  // the node was parsed, in serialized
+                                  // trees. See getStaticSourceFile.
       EMPTY_BLOCK        = 39,    // Used to indicate BLOCK that replaced
                                   // EMPTY nodes.
       ORIGINALNAME_PROP  = 40,    // The original name of the node, before
@@ -343,7 +349,123 @@ public class Node implements Cloneable, Serializable {
     private String str;
   }
 
-  // PropListItems are immutable so that they can be shared.
+  // The number of low bits of typeAndFlags that hold the type.
+  private static final int TYPE_BITS = 16;
+  private static final int TYPE_MASK = (1 << TYPE_BITS) - 1;
+
+  // The first property type that has a bit in typeAndFlags.
+  private static final int FIRST_FLAG_PROP = PARENTHESIZED_PROP;
+
+  // The bit of a key in props that marks an integer value.
+  private static final int INT_KEY = 1;
+
+  /**
+   * The fields of a serialized Node. Properties used to be kept in a linked
+   * list of PropListItems, and are still serialized that way, so that
+   * serialized trees can be read by any version.
+   */
+  private static final ObjectStreamField[] serialPersistentFields = {
+    new ObjectStreamField("type", Integer.TYPE),
+    new ObjectStreamField("next", Node.class),
+    new ObjectStreamField("first", Node.class),
+    new ObjectStreamField("last", Node.class),
+    new ObjectStreamField("propListHead", PropListItem.class),
+    new ObjectStreamField("sourcePosition", Integer.TYPE),
+    new ObjectStreamField("jsType", JSType.class),
+    new ObjectStreamField("parent", Node.class)
+  };
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    PropListItem propListHead = null;
+    int[] types = getSortedPropTypes();
+    for (int i = types.length - 1; i >= 0; i--) {
+      int propType = types[i];
+      propListHead = new PropListItem(propType, getIntProp(propType),
+          getProp(propType), propListHead);
+    }
+    if (sourceFile != null) {
+      propListHead = new PropListItem(
+          SOURCEFILE_PROP, 0, sourceFile.getName(), propListHead);
+    }
+
+    ObjectOutputStream.PutField fields = out.putFields();
+    fields.put("type", getType());
+    fields.put("next", next);
+    fields.put("first", first);
+    fields.put("last", last);
+    fields.put("propListHead", propListHead);
+    fields.put("sourcePosition", sourcePosition);
+    fields.put("jsType", jsType);
+    fields.put("parent", parent);
+    out.writeFields();
+  }
+
+  private void readObject(ObjectInputStream in)
+      throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField fields = in.readFields();
+    typeAndFlags = fields.get("type", 0) & TYPE_MASK;
+    next = (Node) fields.get("next", null);
+    first = (Node) fields.get("first", null);
+    last = (Node) fields.get("last", null);
+    sourcePosition = fields.get("sourcePosition", -1);
+    jsType = (JSType) fields.get("jsType", null);
+    parent = (Node) fields.get("parent", null);
+
+    props = null;
+    for (PropListItem x = (PropListItem) fields.get("propListHead", null);
+         x != null; x = x.next) {
+      if (x.type == SOURCEFILE_PROP) {
+        sourceFile = new NamedSourceFile((String) x.objectValue);
+      } else if (x.objectValue != null) {
+        putProp(x.type, x.objectValue);
+      } else {
+        putIntProp(x.type, x.intValue);
+      }
+    }
+  }
+
+  /**
+   * Once the root of a tree is read, the nodes of that tree that come from
+   * the same source file share one handle for it. This is protected so
+   * that subclasses inherit it.
+   */
+  protected Object readResolve() {
+    if (parent == null) {
+      shareSourceFiles(this, new HashMap<String, StaticSourceFile>());
+    }
+    return this;
+  }
+
+  private static void shareSourceFiles(
+      Node n, Map<String, StaticSourceFile> files) {
+    if (n.sourceFile instanceof NamedSourceFile) {
+      StaticSourceFile shared = files.get(n.sourceFile.getName());
+      if (shared == null) {
+        files.put(n.sourceFile.getName(), n.sourceFile);
+      } else {
+        n.sourceFile = shared;
+      }
+    }
+    for (Node c = n.first; c != null; c = c.next) {
+      shareSourceFiles(c, files);
+    }
+  }
+
+  // The source file of a deserialized node.
+  private static class NamedSourceFile implements StaticSourceFile {
+    private final String name;
+
+    NamedSourceFile(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+  }
+
+  // The serialized form of the properties of a node.
   private static class PropListItem implements Serializable {
     private static final long serialVersionUID = 1L;
 
@@ -352,14 +474,6 @@ public class Node implements Cloneable, Serializable {
     final int intValue;
     final Object objectValue;
 
-    PropListItem(int type, int intValue, PropListItem next) {
-      this(type, intValue, null, next);
-    }
-
-    PropListItem(int type, Object objectValue, PropListItem next) {
-      this(type, 0, objectValue, next);
-    }
-
     PropListItem(
         int type, int intValue, Object objectValue, PropListItem next) {
       this.type = type;
@@ -371,7 +485,7 @@ public class Node implements Cloneable, Serializable {
 
 
   public Node(int nodeType) {
-    type = nodeType;
+    typeAndFlags = nodeType & TYPE_MASK;
     parent = null;
     sourcePosition = -1;
   }
@@ -382,7 +496,7 @@ public class Node implements Cloneable, Serializable {
     Preconditions.checkArgument(child.next == null,
         "new child has existing sibling");
 
-    type = nodeType;
+    typeAndFlags = nodeType & TYPE_MASK;
     parent = null;
     first = last = child;
     child.next = null;
@@ -399,7 +513,7 @@ public class Node implements Cloneable, Serializable {
         "second new child has existing parent");
     Preconditions.checkArgument(right.next == null,
         "second new child has existing sibling");
-    type = nodeType;
+    typeAndFlags = nodeType & TYPE_MASK;
     parent = null;
     first = left;
     last = right;
@@ -417,7 +531,7 @@ public class Node implements Cloneable, Serializable {
     Preconditions.checkArgument(mid.next == null);
     Preconditions.checkArgument(right.parent == null);
     Preconditions.checkArgument(right.next == null);
-    type = nodeType;
+    typeAndFlags = nodeType & TYPE_MASK;
     parent = null;
     first = left;
     last = right;
@@ -439,7 +553,7 @@ public class Node implements Cloneable, Serializable {
     Preconditions.checkArgument(mid2.next == null);
     Preconditions.checkArgument(right.parent == null);
     Preconditions.checkArgument(right.next == null);
-    type = nodeType;
+    typeAndFlags = nodeType & TYPE_MASK;
     parent = null;
     first = left;
     last = right;
@@ -455,7 +569,7 @@ public class Node implements Cloneable, Serializable {
   }
 
   public Node(int nodeType, int lineno, int charno) {
-    type = nodeType;
+    typeAndFlags = nodeType & TYPE_MASK;
     parent = null;
     sourcePosition = mergeLineCharNo(lineno, charno);
   }
@@ -488,7 +602,7 @@ public class Node implements Cloneable, Serializable {
   }
 
   public Node(int nodeType, Node[] children) {
-    this.type = nodeType;
+    typeAndFlags = nodeType & TYPE_MASK;
     parent = null;
     if (children.length != 0) {
       this.first = children[0];
@@ -538,11 +652,11 @@ public class Node implements Cloneable, Serializable {
   }
 
   public int getType() {
-    return type;
+    return (short) typeAndFlags;
   }
 
   public void setType(int type) {
-    this.type = type;
+    typeAndFlags = (typeAndFlags & ~TYPE_MASK) | (type & TYPE_MASK);
   }
 
   public boolean hasChildren() {
@@ -741,50 +855,77 @@ public class Node implements Cloneable, Serializable {
     child.parent = null;
   }
 
+  /**
+   * Whether the property is set, either as an object or an integer.
+   */
   @VisibleForTesting
-  PropListItem lookupProperty(int propType) {
-    PropListItem x = propListHead;
-    while (x != null && propType != x.type) {
-      x = x.next;
-    }
-    return x;
+  boolean hasProp(int propType) {
+    return (typeAndFlags & getFlag(propType)) != 0
+        || findKey(propType << 1) >= 0
+        || findKey((propType << 1) | INT_KEY) >= 0;
   }
 
-  public void removeProp(int propType) {
-    PropListItem result = removeProp(propListHead, propType);
-    if (result != propListHead) {
-      propListHead = result;
+  /**
+   * Returns the index of the key in props, or -1 if it is not there.
+   */
+  private int findKey(int key) {
+    Object[] items = props;
+    if (items != null) {
+      for (int i = 0; i < items.length && items[i] != null; i += 2) {
+        if (((Integer) items[i]).intValue() == key) {
+          return i;
+        }
+      }
     }
+    return -1;
   }
 
   /**
-   * @param item The item to inspect
-   * @param propType The property to look for
-   * @return The replacement list if the property was removed, or
-   *   'item' otherwise.
+   * Returns the bit of typeAndFlags for the property type, or 0 if the
+   * property type does not have one.
    */
-  private PropListItem removeProp(PropListItem item, int propType) {
-    if (item == null) {
-      return null;
-    } else if (item.type == propType) {
-      return item.next;
+  private static int getFlag(int propType) {
+    int bit = propType - FIRST_FLAG_PROP + TYPE_BITS;
+    return (propType >= FIRST_FLAG_PROP && bit < 32) ? 1 << bit : 0;
+  }
+
+  /** Returns the number of slots of props that are in use. */
+  private int getPropsLength() {
+    if (props == null) {
+      return 0;
+    }
+    int length = props.length;
+    while (length > 0 && props[length - 2] == null) {
+      length -= 2;
+    }
+    return length;
+  }
+
+  public void removeProp(int propType) {
+    typeAndFlags &= ~getFlag(propType);
+    int index = findKey(propType << 1);
+    if (index < 0) {
+      index = findKey((propType << 1) | INT_KEY);
+    }
+    if (index >= 0) {
+      removeAt(index);
+    }
+  }
+
+  private void removeAt(int index) {
+    int length = getPropsLength() - 2;
+    if (length == 0) {
+      props = null;
     } else {
-      PropListItem result = removeProp(item.next, propType);
-      if (result != item.next) {
-        return new PropListItem(
-            item.type, item.intValue, item.objectValue, result);
-      } else {
-        return item;
-      }
+      System.arraycopy(props, index + 2, props, index, length - index);
+      props[length] = null;
+      props[length + 1] = null;
     }
   }
 
   public Object getProp(int propType) {
-    PropListItem item = lookupProperty(propType);
-    if (item == null) {
-      return null;
-    }
-    return item.objectValue;
+    int index = findKey(propType << 1);
+    return (index < 0) ? null : props[index + 1];
   }
 
   public boolean getBooleanProp(int propType) {
@@ -796,26 +937,24 @@ public class Node implements Cloneable, Serializable {
    * is not defined.
    */
   public int getIntProp(int propType) {
-    PropListItem item = lookupProperty(propType);
-    if (item == null) {
-      return 0;
+    if ((typeAndFlags & ~TYPE_MASK) != 0
+        && (typeAndFlags & getFlag(propType)) != 0) {
+      return 1;
     }
-    return item.intValue;
+    int index = findKey((propType << 1) | INT_KEY);
+    return (index < 0) ? 0 : ((Integer) props[index + 1]).intValue();
   }
 
   public int getExistingIntProp(int propType) {
-    PropListItem item = lookupProperty(propType);
-    if (item == null) {
+    if (!hasProp(propType)) {
       Kit.codeBug();
     }
-    return item.intValue;
+    return getIntProp(propType);
   }
 
   public void putProp(int propType, Object value) {
-    removeProp(propType);
-    if (value != null) {
-      propListHead = new PropListItem(propType, value, propListHead);
-    }
+    typeAndFlags &= ~getFlag(propType);
+    setProp(propType << 1, (propType << 1) | INT_KEY, value);
   }
 
   public void putBooleanProp(int propType, boolean value) {
@@ -823,27 +962,78 @@ public class Node implements Cloneable, Serializable {
   }
 
   public void putIntProp(int propType, int value) {
-    removeProp(propType);
-    if (value != 0) {
-      propListHead = new PropListItem(propType, value, propListHead);
+    int flag = getFlag(propType);
+    if (flag != 0 && value == 1) {
+      removeProp(propType);
+      typeAndFlags |= flag;
+      return;
     }
+    typeAndFlags &= ~flag;
+    // Keys, and the values of boolean properties, are small enough for
+    // Integer.valueOf to share them.
+    setProp((propType << 1) | INT_KEY, propType << 1,
+        (value == 0) ? null : Integer.valueOf(value));
   }
 
-  // Gets all the property types, in sorted order.
-  private int[] getSortedPropTypes() {
-    int count = 0;
-    for (PropListItem x = propListHead; x != null; x = x.next) {
-      count++;
+  /**
+   * Sets the value of a key, or removes it if the value is null, and
+   * removes the other key of the same property type. The value of a key
+   * that is already there is replaced in place.
+   */
+  private void setProp(int key, int otherKey, Object value) {
+    int otherIndex = findKey(otherKey);
+    if (otherIndex >= 0) {
+      removeAt(otherIndex);
+    }
+    int index = findKey(key);
+    if (index >= 0) {
+      if (value != null) {
+        props[index + 1] = value;
+      } else {
+        removeAt(index);
+      }
+    } else if (value != null) {
+      addProp(key, value);
     }
+  }
 
-    int[] keys = new int[count];
-    for (PropListItem x = propListHead; x != null; x = x.next) {
-      count--;
-      keys[count] = x.type;
+  /**
+   * Adds a property that is not set yet, keeping the keys sorted. The array
+   * grows by doubling, so that adding properties one at a time does not
+   * copy it every time.
+   */
+  private void addProp(int key, Object value) {
+    int length = getPropsLength();
+    if (props == null) {
+      props = new Object[2];
+    } else if (length == props.length) {
+      Object[] items = new Object[2 * length];
+      System.arraycopy(props, 0, items, 0, length);
+      props = items;
+    }
+    int index = 0;
+    while (index < length && ((Integer) props[index]).intValue() < key) {
+      index += 2;
     }
+    System.arraycopy(props, index, props, index + 2, length - index);
+    props[index] = Integer.valueOf(key);
+    props[index + 1] = value;
+  }
 
-    Arrays.sort(keys);
-    return keys;
+  // Gets all the property types, in sorted order.
+  private int[] getSortedPropTypes() {
+    int count = getPropsLength() / 2;
+    int[] types = new int[count + Integer.bitCount(typeAndFlags >>> TYPE_BITS)];
+    for (int i = 0; i < count; i++) {
+      types[i] = ((Integer) props[2 * i]).intValue() >> 1;
+    }
+    for (int propType = FIRST_FLAG_PROP; count < types.length; propType++) {
+      if ((typeAndFlags & getFlag(propType)) != 0) {
+        types[count++] = propType;
+      }
+    }
+    Arrays.sort(types);
+    return types;
   }
 
   public int getLineno() {
@@ -908,7 +1098,7 @@ public class Node implements Cloneable, Serializable {
         toString(sb, printSource, printAnnotations, printType);
         return sb.toString();
     }
-    return String.valueOf(type);
+    return String.valueOf(getType());
   }
 
   private void toString(
@@ -917,11 +1107,11 @@ public class Node implements Cloneable, Serializable {
       boolean printAnnotations,
       boolean printType) {
     if (Token.printTrees) {
-      sb.append(Token.name(type));
+      sb.append(Token.name(getType()));
       if (this instanceof StringNode) {
         sb.append(' ');
         sb.append(getString());
-      } else if (type == Token.FUNCTION) {
+      } else if (getType() == Token.FUNCTION) {
         sb.append(' ');
         // In the case of JsDoc trees, the first child is often not a string
         // which causes exceptions to be thrown when calling toString or
@@ -947,7 +1137,7 @@ public class Node implements Cloneable, Serializable {
           sb.append(sof.getEndLineno());
           sb.append(']');
         }
-      } else if (type == Token.NUMBER) {
+      } else if (getType() == Token.NUMBER) {
         sb.append(' ');
         sb.append(getDouble());
       }
@@ -963,7 +1153,6 @@ public class Node implements Cloneable, Serializable {
         int[] keys = getSortedPropTypes();
         for (int i = 0; i < keys.length; i++) {
           int type = keys[i];
-          PropListItem x = lookupProperty(type);
           sb.append(" [");
           sb.append(propToString(type));
           sb.append(": ");
@@ -976,7 +1165,7 @@ public class Node implements Cloneable, Serializable {
               value = "last local block";
               break;
             case ISNUMBER_PROP:
-              switch (x.intValue) {
+              switch (getIntProp(type)) {
                 case BOTH:
                   value = "both";
                   break;
@@ -991,7 +1180,7 @@ public class Node implements Cloneable, Serializable {
               }
               break;
             case SPECIALCALL_PROP:
-              switch (x.intValue) {
+              switch (getIntProp(type)) {
                 case SPECIALCALL_EVAL:
                   value = "eval";
                   break;
@@ -1004,17 +1193,24 @@ public class Node implements Cloneable, Serializable {
               }
               break;
             default:
-              Object obj = x.objectValue;
+              Object obj = getProp(type);
               if (obj != null) {
                 value = obj.toString();
               } else {
-                value = String.valueOf(x.intValue);
+                value = String.valueOf(getIntProp(type));
               }
               break;
           }
           sb.append(value);
           sb.append(']');
         }
+        if (sourceFile != null) {
+          sb.append(" [");
+          sb.append(propToString(SOURCEFILE_PROP));
+          sb.append(": ");
+          sb.append(sourceFile.getName());
+          sb.append(']');
+        }
       }
 
       if (printType) {
@@ -1064,18 +1260,30 @@ public class Node implements Cloneable, Serializable {
     }
   }
 
-  int type;              // type of the node; Token.NAME for example
+  /**
+   * The type of the node, Token.NAME for example, in the low TYPE_BITS,
+   * and the integer properties from FIRST_FLAG_PROP on whose value is 1,
+   * one bit each, in the high bits. Boolean properties are kept here
+   * rather than in props, since a Node has no room for another field
+   * without growing by 8 bytes.
+   */
+  private int typeAndFlags;
   Node next;             // next sibling
   private Node first;    // first element of a linked list of children
   private Node last;     // last element of a linked list of children
 
   /**
-   * Linked list of properties. Since vast majority of nodes would have
-   * no more then 2 properties, linked list saves memory and provides
-   * fast lookup. If this does not holds, propListHead can be replaced
-   * by UintMap.
+   * The properties, as pairs of a key and a value, sorted by key. Each key
+   * is the property type shifted left by one, with INT_KEY set if the value
+   * is an Integer that getIntProp should return rather than an object for
+   * getProp, so each getter looks for a single key. The vast majority of
+   * nodes have no more than 2 properties, so a linear search is as fast as
+   * any. A flat array costs 8 bytes per property, against 32 bytes per item
+   * of a linked list. The array is changed in place, and may have unused
+   * slots at its end, whose keys are null. It is null if there are no
+   * properties.
    */
-  private PropListItem propListHead;
+  private Object[] props;
 
   /**
    * COLUMN_BITS represents how many of the lower-order bits of
@@ -1113,6 +1321,10 @@ public class Node implements Cloneable, Serializable {
 
   private Node parent;
 
+  // The file the node was parsed from. This is a handle shared by all the
+  // nodes of the file, which is cheaper than a property on each of them.
+  private StaticSourceFile sourceFile;
+
   //==========================================================================
   // Source position management
 
@@ -1395,7 +1607,8 @@ public class Node implements Cloneable, Serializable {
   NodeMismatch checkTreeEqualsImpl(Node node2) {
     boolean eq = false;
 
-    if (type == node2.getType() && getChildCount() == node2.getChildCount()
+    if (getType() == node2.getType()
+        && getChildCount() == node2.getChildCount()
         && getNodeClass(this) == getNodeClass(node2)) {
       eq = this.isEquivalentTo(node2);
     }
@@ -1434,7 +1647,7 @@ public class Node implements Cloneable, Serializable {
   NodeMismatch checkTreeTypeAwareEqualsImpl(Node node2) {
     boolean eq = false;
 
-    if (type == node2.getType()
+    if (getType() == node2.getType()
         && getChildCount() == node2.getChildCount()
         && getClass() == node2.getClass()
         && JSType.isEquivalent(jsType, node2.getJSType())) {
@@ -1584,7 +1797,7 @@ public class Node implements Cloneable, Serializable {
 
   /** Returns true if this node is equivalent semantically to another */
   public boolean isEquivalentTo(Node node) {
-    if (type == Token.ARRAYLIT) {
+    if (getType() == Token.ARRAYLIT) {
       try {
         int[] indices1 = (int[]) getProp(Node.SKIP_INDEXES_PROP);
         int[] indices2 = (int[]) node.getProp(Node.SKIP_INDEXES_PROP);
@@ -1606,13 +1819,13 @@ public class Node implements Cloneable, Serializable {
       } catch (Exception e) {
         return false;
       }
-    } else if (type == Token.INC || type == Token.DEC) {
+    } else if (getType() == Token.INC || getType() == Token.DEC) {
       int post1 = this.getIntProp(INCRDECR_PROP);
       int post2 = node.getIntProp(INCRDECR_PROP);
       if (post1 != post2) {
         return false;
       }
-    } else if (type == Token.STRING) {
+    } else if (getType() == Token.STRING) {
       int quoted1 = this.getIntProp(QUOTED_PROP);
       int quoted2 = node.getIntProp(QUOTED_PROP);
       if (quoted1 != quoted2) {
@@ -1623,7 +1836,7 @@ public class Node implements Cloneable, Serializable {
   }
 
   public boolean hasSideEffects() {
-    switch (type) {
+    switch (getType()) {
       case Token.EXPR_VOID:
       case Token.COMMA:
         if (last != null)
@@ -1715,15 +1928,15 @@ public class Node implements Cloneable, Serializable {
    *         of the name and properties.
    */
   public String getQualifiedName() {
-    if (type == Token.NAME) {
+    if (getType() == Token.NAME) {
       return getString();
-    } else if (type == Token.GETPROP) {
+    } else if (getType() == Token.GETPROP) {
       String left = getFirstChild().getQualifiedName();
       if (left == null) {
         return null;
       }
       return left + "." + getLastChild().getString();
-    } else if (type == Token.THIS) {
+    } else if (getType() == Token.THIS) {
       return "this";
     } else {
       return null;
@@ -1838,8 +2051,12 @@ public class Node implements Cloneable, Serializable {
     Node result;
     try {
       result = (Node) super.clone();
-      // PropListItem lists are immutable and can be shared so there is no
-      // need to clone them here.
+      // Property arrays are changed in place, so each clone gets its own,
+      // without the unused slots.
+      if (props != null) {
+        result.props = new Object[getPropsLength()];
+        System.arraycopy(props, 0, result.props, 0, result.props.length);
+      }
       result.next = null;
       result.first = null;
       result.last = null;
@@ -1880,8 +2097,8 @@ public class Node implements Cloneable, Serializable {
         putProp(ORIGINALNAME_PROP, other.getProp(ORIGINALNAME_PROP));
     }
 
-    if (getProp(SOURCEFILE_PROP) == null) {
-        putProp(SOURCEFILE_PROP, other.getProp(SOURCEFILE_PROP));
+    if (sourceFile == null) {
+        sourceFile = other.sourceFile;
         sourcePosition = other.sourcePosition;
     }
 
@@ -1906,6 +2123,25 @@ public class Node implements Cloneable, Serializable {
   //==========================================================================
   // Custom annotations
 
+  /**
+   * Returns the file this node was parsed from, or null if it was not
+   * annotated with one.
+   */
+  public StaticSourceFile getStaticSourceFile() {
+    return sourceFile;
+  }
+
+  public void setStaticSourceFile(StaticSourceFile sourceFile) {
+    this.sourceFile = sourceFile;
+  }
+
+  /**
+   * Returns the name of the file this node was parsed from, or null.
+   */
+  public String getSourceFileName() {
+    return (sourceFile == null) ? null : sourceFile.getName();
+  }
+
   public JSType getJSType() {
       return jsType;
   }
@@ -2030,7 +2266,8 @@ public class Node implements Cloneable, Serializable {
    * Sets the warning suppressions on this node.
    */
   public void setSuppressions(Set<String> val) {
-    Preconditions.checkState(type == Token.FUNCTION || type == Token.SCRIPT);
+    Preconditions.checkState(
+        getType() == Token.FUNCTION || getType() == Token.SCRIPT);
     putProp(SUPPRESSIONS, val);
   }
 
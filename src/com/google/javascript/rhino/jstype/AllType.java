@@ -61,7 +61,7 @@ public final class AllType extends JSType {
    * @return {@code this.isEquivalentTo(that)}
    */
   @Override
-  public boolean isSubtype(JSType that) {
+  boolean isSubtypeInternal(JSType that) {
     return that.isAllType() || that.isUnknownType();
   }
 
@@ -93,7 +93,7 @@ public final class AllType extends JSType {
   }
 
   @Override
-  public JSType getLeastSupertype(JSType that) {
+  JSType getLeastSupertypeInternal(JSType that) {
     if (that.isUnknownType()) {
       return registry.getNativeType(JSTypeNative.UNKNOWN_TYPE);
     }
@@ -101,7 +101,7 @@ public final class AllType extends JSType {
   }
 
   @Override
-  public JSType getGreatestSubtype(JSType that) {
+  JSType getGreatestSubtypeInternal(JSType that) {
     return that;
   }
 
@@ -79,7 +79,7 @@ final class ArrowType extends JSType {
   }
 
   @Override
-  public boolean isSubtype(JSType other) {
+  boolean isSubtypeInternal(JSType other) {
     if (!(other instanceof ArrowType)) {
       return false;
     }
@@ -207,12 +207,12 @@ final class ArrowType extends JSType {
   }
 
   @Override
-  public JSType getLeastSupertype(JSType that) {
+  JSType getLeastSupertypeInternal(JSType that) {
     throw new UnsupportedOperationException();
   }
 
   @Override
-  public JSType getGreatestSubtype(JSType that) {
+  JSType getGreatestSubtypeInternal(JSType that) {
     throw new UnsupportedOperationException();
   }
 
@@ -83,9 +83,10 @@ public class FunctionType extends PrototypeObjectType {
    * {@code #getPrototype()}. The most important reason for lazily
    * initializing this field is that there are cycles in the native types
    * graph, so some prototypes must temporarily be {@code null} during
-   * the construction of the graph.
+   * the construction of the graph. It is volatile because threads that
+   * share the registry may ask for the prototype at the same time.
    */
-  private FunctionPrototypeType prototype;
+  private volatile FunctionPrototypeType prototype;
 
   /**
    * Whether a function is a constructor, an interface, or just an ordinary
@@ -260,7 +261,11 @@ public class FunctionType extends PrototypeObjectType {
   public FunctionPrototypeType getPrototype() {
     // lazy initialization of the prototype field
     if (prototype == null) {
-      setPrototype(new FunctionPrototypeType(registry, this, null));
+      synchronized (registry) {
+        if (prototype == null) {
+          setPrototype(new FunctionPrototypeType(registry, this, null));
+        }
+      }
     }
     return prototype;
   }
@@ -295,6 +300,7 @@ public class FunctionType extends PrototypeObjectType {
     }
 
     this.prototype = prototype;
+    registry.clearTypeQueryCache();
 
     if (isConstructor() || isInterface()) {
       FunctionType superClass = getSuperClassConstructor();
@@ -353,6 +359,7 @@ public class FunctionType extends PrototypeObjectType {
       registry.registerTypeImplementingInterface(this, type);
     }
     this.implementedInterfaces = ImmutableList.copyOf(implementedInterfaces);
+    registry.clearTypeQueryCache();
   }
 
   @Override
@@ -449,12 +456,12 @@ public class FunctionType extends PrototypeObjectType {
   }
 
   @Override
-  public JSType getLeastSupertype(JSType that) {
+  JSType getLeastSupertypeInternal(JSType that) {
     return supAndInfHelper(that, true);
   }
 
   @Override
-  public JSType getGreatestSubtype(JSType that) {
+  JSType getGreatestSubtypeInternal(JSType that) {
     return supAndInfHelper(that, false);
   }
 
@@ -508,8 +515,8 @@ public class FunctionType extends PrototypeObjectType {
     }
 
     return leastSuper ?
-        super.getLeastSupertype(that) :
-        super.getGreatestSubtype(that);
+        super.getLeastSupertypeInternal(that) :
+        super.getGreatestSubtypeInternal(that);
   }
 
   FunctionType cloneWithNewReturnType(JSType newReturnType, boolean inferred) {
@@ -680,7 +687,7 @@ public class FunctionType extends PrototypeObjectType {
    * the prototype chain.
    */
   @Override
-  public boolean isSubtype(JSType that) {
+  boolean isSubtypeInternal(JSType that) {
     if (this.isEquivalentTo(that)) {
       return true;
     }
@@ -735,6 +742,7 @@ public class FunctionType extends PrototypeObjectType {
   /** Sets the instance type. This should only be used for special native types. */
   void setInstanceType(ObjectType instanceType) {
     typeOfThis = instanceType;
+    registry.clearTypeQueryCache();
   }
 
   /**
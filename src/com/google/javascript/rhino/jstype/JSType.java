@@ -537,7 +537,16 @@ public abstract class JSType implements Serializable {
    * </ul>
    * @return {@code this &#8744; that}
    */
-  public JSType getLeastSupertype(JSType that) {
+  public final JSType getLeastSupertype(JSType that) {
+    return registry.getLeastSupertype(this, that);
+  }
+
+  /**
+   * Computes the least supertype of {@code this} and {@code that}, without
+   * looking in the cache of the registry.
+   * @see #getLeastSupertype
+   */
+  JSType getLeastSupertypeInternal(JSType that) {
     if (that.isUnionType()) {
       // Union types have their own implementation of getLeastSupertype.
       return that.getLeastSupertype(this);
@@ -571,7 +580,16 @@ public abstract class JSType implements Serializable {
    * </ul>
    * @return {@code this &#8744; that}
    */
-  public JSType getGreatestSubtype(JSType that) {
+  public final JSType getGreatestSubtype(JSType that) {
+    return registry.getGreatestSubtype(this, that);
+  }
+
+  /**
+   * Computes the greatest subtype of {@code this} and {@code that}, without
+   * looking in the cache of the registry.
+   * @see #getGreatestSubtype
+   */
+  JSType getGreatestSubtypeInternal(JSType that) {
      if (that.isRecordType()) {
       // Record types have their own implementation of getGreatestSubtype.
       return that.getGreatestSubtype(this);
@@ -789,7 +807,16 @@ public abstract class JSType implements Serializable {
    *
    * @return {@code this &lt;: that}
    */
-  public abstract boolean isSubtype(JSType that);
+  public final boolean isSubtype(JSType that) {
+    return registry.isSubtype(this, that);
+  }
+
+  /**
+   * Checks whether {@code this} is a subtype of {@code that}, without
+   * looking in the cache of the registry.
+   * @see #isSubtype
+   */
+  abstract boolean isSubtypeInternal(JSType that);
 
   /**
    * Whether this type is meaningfully different from {@code that} type.
@@ -887,6 +914,8 @@ public abstract class JSType implements Serializable {
     resolved = true;
     resolveResult = resolveInternal(t, scope);
     resolveResult.setResolvedTypeInternal(resolveResult);
+    // Resolving may change how this type relates to others.
+    registry.clearTypeQueryCache();
     return resolveResult;
   }
 
@@ -909,6 +938,7 @@ public abstract class JSType implements Serializable {
   public final void clearResolved() {
     resolved = false;
     resolveResult = null;
+    registry.clearTypeQueryCache();
   }
 
   /**
@@ -143,6 +143,45 @@ public class JSTypeRegistry implements Serializable {
   // The template type.
   private TemplateType templateType;
 
+  // The answers to recent subtype, least supertype and greatest subtype
+  // queries, by query. Types keep changing while they are being built and
+  // resolved, so any change that can affect these answers clears the cache.
+  // Defining a property is the most common change, and it can only affect
+  // the answers that looked at the properties of a type, so those answers
+  // are wrapped in a PropertyDependentAnswer and are checked against the
+  // property generation when they are looked up.
+  private Map<TypeQuery, Object> typeQueryCache = Maps.newHashMap();
+
+  // The cache is emptied when it reaches this size.
+  private static final int MAX_TYPE_QUERY_CACHE_SIZE = 20000;
+
+  // Incremented each time the cache is cleared, so that queries that were
+  // running while a type changed do not store stale answers.
+  private int typeQueryGeneration = 0;
+
+  // Incremented each time a property is defined on a type.
+  private int propertyGeneration = 0;
+
+  // Whether the query being computed has looked at the properties of a type.
+  private boolean queryReadProperties = false;
+
+  private long typeQueryCacheHits = 0;
+  private long typeQueryCacheMisses = 0;
+
+  // The union types created so far, by their alternates, so that building
+  // the same union again gives the same instance. Besides saving memory,
+  // this lets the type query cache, which compares types by identity,
+  // answer queries on unions that are built over and over.
+  private Map<UnionKey, UnionType> unionTypes = Maps.newHashMap();
+
+  // The table is emptied when it reaches this size.
+  private static final int MAX_UNION_TABLE_SIZE = 20000;
+
+  // Whether several threads may be using the registry at once. The type
+  // query cache and the union table are not thread-safe, so they are not
+  // used meanwhile.
+  private boolean concurrent = false;
+
   private final boolean tolerateUndefinedValues;
 
   /**
@@ -218,6 +257,8 @@ public class JSTypeRegistry implements Serializable {
    * Reset to run the TypeCheck pass.
    */
   public void resetForTypeCheck() {
+    clearTypeQueryCache();
+    unionTypes = Maps.newHashMap();
     typesIndexedByProperty.clear();
     initializeBuiltInTypes();
     namesToTypes.clear();
@@ -584,20 +625,22 @@ public class JSTypeRegistry implements Serializable {
    * ("if this property is assigned anywhere in the program, it must
    * show up in the type registry").
    */
-  public void registerPropertyOnType(String propertyName, ObjectType owner) {
+  public synchronized void registerPropertyOnType(
+      String propertyName, ObjectType owner) {
     Set<ObjectType> typeSet = typesIndexedByProperty.get(propertyName);
     if (typeSet == null) {
       typesIndexedByProperty.put(propertyName, typeSet = Sets.newHashSet());
     }
     greatestSubtypeByProperty.remove(propertyName);
     typeSet.add(owner);
+    propertyGeneration++;
   }
 
   /**
    * Gets the greatest subtype of the {@code type} that has a property
    * {@code propertyName} defined on it.
    */
-  public JSType getGreatestSubtypeWithProperty(
+  public synchronized JSType getGreatestSubtypeWithProperty(
       JSType type, String propertyName) {
     if (greatestSubtypeByProperty.containsKey(propertyName)) {
       return greatestSubtypeByProperty.get(propertyName)
@@ -618,7 +661,8 @@ public class JSTypeRegistry implements Serializable {
   /**
    * Returns whether the given property can possibly be set on the given type.
    */
-  public boolean canPropertyBeDefined(JSType type, String propertyName) {
+  public synchronized boolean canPropertyBeDefined(
+      JSType type, String propertyName) {
     if (typesIndexedByProperty.containsKey(propertyName)) {
       for (JSType alt : typesIndexedByProperty.get(propertyName)) {
         if (alt.isSubtype(type) || type.isSubtype(alt)) {
@@ -633,12 +677,26 @@ public class JSTypeRegistry implements Serializable {
   /**
    * Returns each type that has a property {@code propertyName} defined on it.
    */
-  public Set<ObjectType> getTypesWithProperty(String propertyName) {
+  public synchronized Set<ObjectType> getTypesWithProperty(
+      String propertyName) {
     Set<ObjectType> typeSet = typesIndexedByProperty.get(propertyName);
     if (typeSet == null) {
       return Sets.newHashSet(getNativeObjectType(NO_TYPE));
     }
-    return typeSet;
+    return concurrent ? Sets.newHashSet(typeSet) : typeSet;
+  }
+
+  /**
+   * Sets whether several threads may use the registry at once, like the
+   * threads of the parallel type inference. While they may, types can still
+   * be created and properties registered on them, but the answers to type
+   * queries are not cached, and building a union type gives a new instance.
+   * The caller must make sure that the types the threads share do not
+   * change meanwhile.
+   */
+  public void setConcurrent(boolean concurrent) {
+    this.concurrent = concurrent;
+    queryReadProperties = false;
   }
 
   /**
@@ -652,6 +710,161 @@ public class JSTypeRegistry implements Serializable {
     }
     unresolvedNamedTypes.putAll(resolvedNamedTypes);
     resolvedNamedTypes.clear();
+    clearTypeQueryCache();
+  }
+
+  /**
+   * Whether {@code a} is a subtype of {@code b}.
+   * @see JSType#isSubtype
+   */
+  boolean isSubtype(JSType a, JSType b) {
+    if (concurrent || (!isStructural(a) && !isStructural(b))) {
+      return a.isSubtypeInternal(b);
+    }
+    TypeQuery query = new TypeQuery(TypeQuery.SUBTYPE, a, b);
+    Boolean result = (Boolean) lookUpTypeQuery(query);
+    if (result == null) {
+      int generation = typeQueryGeneration;
+      int propertyGeneration = this.propertyGeneration;
+      boolean outerReadProperties = queryReadProperties;
+      queryReadProperties = false;
+      result = a.isSubtypeInternal(b);
+      storeTypeQuery(query, result, generation, propertyGeneration);
+      queryReadProperties |= outerReadProperties;
+    }
+    return result;
+  }
+
+  /**
+   * The least supertype of {@code a} and {@code b}.
+   * @see JSType#getLeastSupertype
+   */
+  JSType getLeastSupertype(JSType a, JSType b) {
+    if (concurrent || (!isStructural(a) && !isStructural(b))) {
+      return a.getLeastSupertypeInternal(b);
+    }
+    TypeQuery query = new TypeQuery(TypeQuery.LEAST_SUPERTYPE, a, b);
+    JSType result = (JSType) lookUpTypeQuery(query);
+    if (result == null) {
+      int generation = typeQueryGeneration;
+      int propertyGeneration = this.propertyGeneration;
+      boolean outerReadProperties = queryReadProperties;
+      queryReadProperties = false;
+      result = a.getLeastSupertypeInternal(b);
+      storeTypeQuery(query, result, generation, propertyGeneration);
+      queryReadProperties |= outerReadProperties;
+    }
+    return result;
+  }
+
+  /**
+   * The greatest subtype of {@code a} and {@code b}.
+   * @see JSType#getGreatestSubtype
+   */
+  JSType getGreatestSubtype(JSType a, JSType b) {
+    if (concurrent || (!isStructural(a) && !isStructural(b))) {
+      return a.getGreatestSubtypeInternal(b);
+    }
+    TypeQuery query = new TypeQuery(TypeQuery.GREATEST_SUBTYPE, a, b);
+    JSType result = (JSType) lookUpTypeQuery(query);
+    if (result == null) {
+      int generation = typeQueryGeneration;
+      int propertyGeneration = this.propertyGeneration;
+      boolean outerReadProperties = queryReadProperties;
+      queryReadProperties = false;
+      result = a.getGreatestSubtypeInternal(b);
+      storeTypeQuery(query, result, generation, propertyGeneration);
+      queryReadProperties |= outerReadProperties;
+    }
+    return result;
+  }
+
+  /**
+   * Whether queries on the type compare its parts one by one, which is worth
+   * caching. Queries on other types, like instance types, are cheap.
+   */
+  private static boolean isStructural(JSType type) {
+    return type.isUnionType() || type.isRecordType() || type.isFunctionType();
+  }
+
+  /**
+   * Returns the cached answer to the query, or null.
+   */
+  private Object lookUpTypeQuery(TypeQuery query) {
+    Object answer = typeQueryCache.get(query);
+    if (answer instanceof PropertyDependentAnswer) {
+      PropertyDependentAnswer dependent = (PropertyDependentAnswer) answer;
+      if (dependent.propertyGeneration == propertyGeneration) {
+        queryReadProperties = true;
+        answer = dependent.value;
+      } else {
+        answer = null;
+      }
+    }
+    if (answer == null) {
+      typeQueryCacheMisses++;
+    } else {
+      typeQueryCacheHits++;
+    }
+    return answer;
+  }
+
+  /**
+   * Caches the answer to a query, unless the types changed while it was
+   * being computed.
+   */
+  private void storeTypeQuery(TypeQuery query, Object answer,
+      int generation, int propertyGeneration) {
+    if (generation != typeQueryGeneration) {
+      return;
+    }
+    if (queryReadProperties) {
+      if (propertyGeneration != this.propertyGeneration) {
+        return;
+      }
+      answer = new PropertyDependentAnswer(answer, propertyGeneration);
+    }
+    if (typeQueryCache.size() >= MAX_TYPE_QUERY_CACHE_SIZE) {
+      typeQueryCache = Maps.newHashMap();
+    }
+    typeQueryCache.put(query, answer);
+  }
+
+  /**
+   * Notes that the query being computed looks at the properties of a type,
+   * so that its answer is dropped when a property is defined.
+   */
+  void noteTypeQueryReadProperties() {
+    if (!concurrent) {
+      queryReadProperties = true;
+    }
+  }
+
+  /**
+   * Forgets the answers to all the type queries. Called whenever a type
+   * changes in a way that may change how it relates to other types.
+   */
+  void clearTypeQueryCache() {
+    typeQueryGeneration++;
+    if (!typeQueryCache.isEmpty()) {
+      typeQueryCache = Maps.newHashMap();
+    }
+  }
+
+  /**
+   * Returns the number of subtype, least supertype and greatest subtype
+   * queries that were answered from the cache.
+   */
+  public long getTypeQueryCacheHitCount() {
+    return typeQueryCacheHits;
+  }
+
+  /**
+   * Returns the number of subtype, least supertype and greatest subtype
+   * queries that had to be computed.
+   */
+  public long getTypeQueryCacheMissCount() {
+    return typeQueryCacheMisses;
   }
 
   boolean isLastGeneration() {
@@ -869,6 +1082,29 @@ public class JSTypeRegistry implements Serializable {
     return builder.build();
   }
 
+  /**
+   * Creates a union type with the given alternates, or returns the one
+   * created earlier with the very same alternates, in the same order.
+   *
+   * @param alternates Two or more alternates, none of which is a subtype of
+   *     another, sorted as {@link UnionTypeBuilder} sorts them.
+   */
+  UnionType createUnionType(List<JSType> alternates) {
+    if (concurrent) {
+      return new UnionType(this, alternates);
+    }
+    UnionKey key = new UnionKey(alternates);
+    UnionType union = unionTypes.get(key);
+    if (union == null) {
+      union = new UnionType(this, alternates);
+      if (unionTypes.size() >= MAX_UNION_TABLE_SIZE) {
+        unionTypes = Maps.newHashMap();
+      }
+      unionTypes.put(key, union);
+    }
+    return union;
+  }
+
   /**
    * Creates an enum type.
    */
@@ -1509,4 +1745,94 @@ public class JSTypeRegistry implements Serializable {
     templateTypeName = null;
     templateType = null;
   }
+
+  /**
+   * A query on an ordered pair of types. Types are compared by identity,
+   * which is much cheaper than {@link JSType#equals}.
+   */
+  private static final class TypeQuery implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    static final int SUBTYPE = 0;
+    static final int LEAST_SUPERTYPE = 1;
+    static final int GREATEST_SUBTYPE = 2;
+
+    private final int kind;
+    private final JSType a;
+    private final JSType b;
+
+    TypeQuery(int kind, JSType a, JSType b) {
+      this.kind = kind;
+      this.a = a;
+      this.b = b;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof TypeQuery)) {
+        return false;
+      }
+      TypeQuery that = (TypeQuery) o;
+      return kind == that.kind && a == that.a && b == that.b;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * kind + System.identityHashCode(a)) +
+          System.identityHashCode(b);
+    }
+  }
+
+  /**
+   * The alternates of a union type. Like {@link TypeQuery}, alternates are
+   * compared by identity.
+   */
+  private static final class UnionKey implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final List<JSType> alternates;
+
+    UnionKey(List<JSType> alternates) {
+      this.alternates = alternates;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof UnionKey)) {
+        return false;
+      }
+      List<JSType> those = ((UnionKey) o).alternates;
+      if (alternates.size() != those.size()) {
+        return false;
+      }
+      for (int i = 0; i < alternates.size(); i++) {
+        if (alternates.get(i) != those.get(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      int hash = 1;
+      for (JSType alternate : alternates) {
+        hash = 31 * hash + System.identityHashCode(alternate);
+      }
+      return hash;
+    }
+  }
+
+  /** The answer to a type query that looked at the properties of types. */
+  private static final class PropertyDependentAnswer implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    final Object value;
+    final int propertyGeneration;
+
+    PropertyDependentAnswer(Object value, int propertyGeneration) {
+      this.value = value;
+      this.propertyGeneration = propertyGeneration;
+    }
+  }
 }
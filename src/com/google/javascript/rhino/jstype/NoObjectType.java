@@ -221,7 +221,7 @@ public class NoObjectType extends FunctionType {
   }
 
   @Override
-  public boolean isSubtype(JSType that) {
+  boolean isSubtypeInternal(JSType that) {
     if (JSType.isSubtype(this, that)) {
       return true;
     } else {
@@ -240,12 +240,12 @@ public class NoObjectType extends FunctionType {
   }
 
   @Override
-  public JSType getLeastSupertype(JSType that) {
+  JSType getLeastSupertypeInternal(JSType that) {
     return that.visit(leastSupertypeVisitor);
   }
 
   @Override
-  public JSType getGreatestSubtype(JSType that) {
+  JSType getGreatestSubtypeInternal(JSType that) {
     return that.visit(greatestSubtypeVisitor);
   }
 
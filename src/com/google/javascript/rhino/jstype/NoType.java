@@ -82,17 +82,17 @@ public final class NoType extends NoObjectType {
   }
 
   @Override
-  public boolean isSubtype(JSType that) {
+  boolean isSubtypeInternal(JSType that) {
     return true;
   }
 
   @Override
-  public JSType getLeastSupertype(JSType that) {
+  JSType getLeastSupertypeInternal(JSType that) {
     return that;
   }
 
   @Override
-  public JSType getGreatestSubtype(JSType that) {
+  JSType getGreatestSubtypeInternal(JSType that) {
     if (that.isUnknownType()) {
       return registry.getNativeType(JSTypeNative.UNKNOWN_TYPE);
     }
@@ -387,6 +387,7 @@ class PrototypeObjectType extends ObjectType {
   void setImplicitPrototype(ObjectType implicitPrototype) {
     checkState(!hasCachedValues());
     this.implicitPrototype = implicitPrototype;
+    registry.clearTypeQueryCache();
   }
 
   @Override
@@ -404,7 +405,7 @@ class PrototypeObjectType extends ObjectType {
   }
 
   @Override
-  public boolean isSubtype(JSType that) {
+  boolean isSubtypeInternal(JSType that) {
     if (JSType.isSubtype(this, that)) {
       return true;
     }
@@ -151,7 +151,7 @@ class ProxyObjectType extends ObjectType {
   }
 
   @Override
-  public boolean isSubtype(JSType that) {
+  boolean isSubtypeInternal(JSType that) {
     return referencedType.isSubtype(that);
   }
 
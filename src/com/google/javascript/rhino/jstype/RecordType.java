@@ -123,9 +123,9 @@ public class RecordType extends PrototypeObjectType {
   }
 
   @Override
-  public JSType getLeastSupertype(JSType that) {
+  JSType getLeastSupertypeInternal(JSType that) {
     if (!that.isRecordType()) {
-      return super.getLeastSupertype(that);
+      return super.getLeastSupertypeInternal(that);
     }
 
     RecordType thatRecord = (RecordType) that;
@@ -146,7 +146,9 @@ public class RecordType extends PrototypeObjectType {
   }
 
   @Override
-  public JSType getGreatestSubtype(JSType that) {
+  JSType getGreatestSubtypeInternal(JSType that) {
+    // The answer depends on which types have the properties of this record.
+    registry.noteTypeQueryReadProperties();
     if (that.isRecordType()) {
       RecordType thatRecord = (RecordType) that;
       RecordTypeBuilder builder = new RecordTypeBuilder(registry);
@@ -173,7 +175,7 @@ public class RecordType extends PrototypeObjectType {
       return builder.build();
     }
 
-    JSType greatestSubtype = super.getGreatestSubtype(that);
+    JSType greatestSubtype = super.getGreatestSubtypeInternal(that);
     if (greatestSubtype.isNoObjectType() && !that.isNoObjectType()) {
       // In this branch, the other type is some object type. We find
       // the greatest subtype with the following algorithm:
@@ -206,7 +208,7 @@ public class RecordType extends PrototypeObjectType {
   }
 
   @Override
-  public boolean isSubtype(JSType that) {
+  boolean isSubtypeInternal(JSType that) {
     if (JSType.isSubtype(this, that)) {
       return true;
     }
@@ -229,6 +231,8 @@ public class RecordType extends PrototypeObjectType {
 
   /** Determines if typeA is a subtype of typeB */
   static boolean isSubtype(ObjectType typeA, RecordType typeB) {
+    typeB.registry.noteTypeQueryReadProperties();
+
     // typeA is a subtype of record type typeB iff:
     // 1) typeA has all the properties declared in typeB.
     // 2) And for each property of typeB,
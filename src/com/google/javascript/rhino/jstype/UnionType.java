@@ -264,7 +264,7 @@ public class UnionType extends JSType {
   }
 
   @Override
-  public JSType getLeastSupertype(JSType that) {
+  JSType getLeastSupertypeInternal(JSType that) {
     if (!that.isUnknownType()) {
       for (JSType alternate : alternates) {
         if (!alternate.isUnknownType() && that.isSubtype(alternate)) {
@@ -309,7 +309,9 @@ public class UnionType extends JSType {
    */
   @Override
   public boolean isEquivalentTo(JSType object) {
-    if (object instanceof UnionType) {
+    if (object == this) {
+      return true;
+    } else if (object instanceof UnionType) {
       UnionType that = (UnionType) object;
       if (alternates.size() != that.alternates.size()) {
         return false;
@@ -411,7 +413,7 @@ public class UnionType extends JSType {
   }
 
   @Override
-  public boolean isSubtype(JSType that) {
+  boolean isSubtypeInternal(JSType that) {
     for (JSType element : alternates) {
       if (!element.isSubtype(that)) {
         return false;
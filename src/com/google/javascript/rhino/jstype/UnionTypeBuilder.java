@@ -46,14 +46,15 @@ import static com.google.javascript.rhino.jstype.JSTypeNative.UNKNOWN_TYPE;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.google.javascript.rhino.jstype.UnionType;
 
 import java.io.Serializable;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 /**
  * A builder for union types.
@@ -68,7 +69,21 @@ class UnionTypeBuilder implements Serializable {
   private static final int MAX_UNION_SIZE = 20;
 
   private final JSTypeRegistry registry;
-  private final List<JSType> alternates = Lists.newArrayList();
+
+  // The alternates, grouped so that a new alternate is only compared with
+  // the ones it can be related to. Value types (boolean, number, string,
+  // null and undefined) are never subtypes of prototype-based objects.
+  // Functions stay with the other objects, because they are subtypes of
+  // Object and Function.prototype is itself a function. Unknown types are
+  // only compared for equivalence.
+  private final List<JSType> valueTypes = Lists.newArrayList();
+  private final List<JSType> objectTypes = Lists.newArrayList();
+  private final List<JSType> unknownTypes = Lists.newArrayList();
+
+  // All the alternates above, to find exact duplicates without comparing
+  // them one by one.
+  private final Set<JSType> alternates = Sets.newHashSet();
+
   private boolean isAllType = false;
   private boolean isNativeUnknownType = false;
   private boolean areAllUnknownsChecked = true;
@@ -106,32 +121,35 @@ class UnionTypeBuilder implements Serializable {
           addAlternate(unionAlt);
         }
       } else {
-        if (alternates.size() > MAX_UNION_SIZE) {
+        if (size() > MAX_UNION_SIZE) {
+          return this;
+        }
+
+        if (alternates.contains(alternate)) {
+          // Alternate is a duplicate.
           return this;
         }
 
         // Look through the alternates we've got so far,
         // and check if any of them are duplicates of
         // one another.
-        Iterator<JSType> it = alternates.iterator();
-        while (it.hasNext()) {
-          JSType current = it.next();
-          if (alternate.isUnknownType() ||
-              current.isUnknownType()) {
-            if (alternate.isEquivalentTo(current)) {
-              // Alternate is unnecessary.
-              return this;
-            }
-          } else {
-            if (alternate.isSubtype(current)) {
-              // Alternate is unnecessary.
-              return this;
-            } else if (current.isSubtype(alternate)) {
-              // Alternate makes current obsolete
-              it.remove();
-            }
+        List<JSType> bucket;
+        if (alternate.isUnknownType()) {
+          if (hasEquivalent(valueTypes, alternate) ||
+              hasEquivalent(objectTypes, alternate) ||
+              hasEquivalent(unknownTypes, alternate)) {
+            return this;
           }
+          bucket = unknownTypes;
+        } else {
+          if (hasEquivalent(unknownTypes, alternate) ||
+              isSubsumed(valueTypes, alternate) ||
+              isSubsumed(objectTypes, alternate)) {
+            return this;
+          }
+          bucket = alternate instanceof ValueType ? valueTypes : objectTypes;
         }
+        bucket.add(alternate);
         alternates.add(alternate);
         result = null; // invalidate the memoized result
       }
@@ -141,6 +159,49 @@ class UnionTypeBuilder implements Serializable {
     return this;
   }
 
+  private int size() {
+    return valueTypes.size() + objectTypes.size() + unknownTypes.size();
+  }
+
+  private static boolean hasEquivalent(List<JSType> bucket, JSType alternate) {
+    for (JSType current : bucket) {
+      if (alternate.isEquivalentTo(current)) {
+        // Alternate is unnecessary.
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns whether the alternate is a subtype of one of the known types in
+   * the bucket. Otherwise, removes the ones it makes obsolete.
+   */
+  private boolean isSubsumed(List<JSType> bucket, JSType alternate) {
+    Iterator<JSType> it = bucket.iterator();
+    while (it.hasNext()) {
+      JSType current = it.next();
+      if (maybeSubtype(alternate, current) && alternate.isSubtype(current)) {
+        // Alternate is unnecessary.
+        return true;
+      } else if (maybeSubtype(current, alternate) &&
+          current.isSubtype(alternate)) {
+        // Alternate makes current obsolete
+        it.remove();
+        alternates.remove(current);
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns false if {@code a} cannot be a subtype of {@code b}. Only
+   * proxies and enum elements can have a value type as a subtype.
+   */
+  private static boolean maybeSubtype(JSType a, JSType b) {
+    return !(a instanceof ValueType && b instanceof PrototypeObjectType);
+  }
+
   /**
    * Creates a union.
    * @return A UnionType if it has two or more alternates, the
@@ -157,14 +218,14 @@ class UnionTypeBuilder implements Serializable {
           result = registry.getNativeType(UNKNOWN_TYPE);
         }
       } else {
-        int size = alternates.size();
+        int size = size();
         if (size > MAX_UNION_SIZE) {
           result = registry.getNativeType(UNKNOWN_TYPE);
         } else {
           if (size > 1) {
-            result = new UnionType(registry, getAlternateListCopy());
+            result = registry.createUnionType(getAlternateListCopy());
           } else if (size == 1) {
-            result = alternates.iterator().next();
+            result = getAlternateListCopy().get(0);
           } else {
             result = registry.getNativeType(NO_TYPE);
           }
@@ -181,12 +242,17 @@ class UnionTypeBuilder implements Serializable {
     }
   };
 
-  private Collection<JSType> getAlternateListCopy() {
+  private List<JSType> getAlternateListCopy() {
+    List<JSType> list = Lists.newArrayListWithCapacity(size());
+    list.addAll(valueTypes);
+    list.addAll(objectTypes);
+    list.addAll(unknownTypes);
+
     // TODO(nicksantos): Until we're at a place where we're no longer
     // using java's built-in equals to test type equivalence, we need
     // hash codes to be the same. So the alternates need to be sorted.
-    Collections.sort(alternates, typeSorter);
+    Collections.sort(list, typeSorter);
 
-    return ImmutableList.copyOf(alternates);
+    return ImmutableList.copyOf(list);
   }
 }
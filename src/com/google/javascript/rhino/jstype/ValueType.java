@@ -50,7 +50,7 @@ abstract class ValueType extends JSType {
   }
 
   @Override
-  public boolean isSubtype(JSType that) {
+  boolean isSubtypeInternal(JSType that) {
     return JSType.isSubtype(this, that);
   }
 
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.javascript.jscomp.parsing.Config;
+import com.google.javascript.jscomp.parsing.ParserRunner;
+import com.google.javascript.rhino.JSDocInfo;
+import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.Token;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Tests for {@link AstCache}.
+ *
+ */
+public class AstCacheTest extends TestCase {
+
+  private static final Logger logger =
+      Logger.getLogger(AstCacheTest.class.getName());
+
+  private File directory;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    directory = File.createTempFile("astcache", "");
+    directory.delete();
+    directory.mkdir();
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    for (File f : directory.listFiles()) {
+      f.delete();
+    }
+    directory.delete();
+    super.tearDown();
+  }
+
+  public void testRoundTrip() throws Exception {
+    Config config = ParserRunner.createConfig(false);
+    String code =
+        "/** @param {number} x\n @return {string} */\n" +
+        "function f(x) { return 'a' + x + 1.5; }\n" +
+        "var o = {'quoted': [1, , 3], plain: (f)};\n" +
+        "label: for (var i in o) { if (i) break label; }";
+    Node original = parse("input", code, config);
+
+    AstCache cache = new AstCache(directory, config);
+    String key = cache.getKey("input", code);
+    assertNull(cache.get(key));
+    cache.put(key, original);
+
+    Node loaded = cache.get(key);
+    assertNotNull(loaded);
+    assertEquals(1, cache.getHitCount());
+    assertNull(original.checkTreeEquals(loaded));
+
+    Node fn = loaded.getFirstChild();
+    assertEquals(Token.FUNCTION, fn.getType());
+    assertNotNull(fn.getJSDocInfo());
+    assertTrue(fn.getJSDocInfo().hasReturnType());
+    assertEquals(3, fn.getLineno());
+    assertEquals("input", fn.getProp(Node.SOURCENAME_PROP));
+  }
+
+  public void testRoundTripWithDocumentation() throws Exception {
+    Config config = ParserRunner.createConfig(true);
+    String code =
+        "/** @fileoverview Things.\n @author someone */\n" +
+        "/**\n * Makes a thing.\n * @param {number=} x The size.\n" +
+        " * @param {...string} var_args The names.\n" +
+        " * @return {!Array} The thing.\n * @throws {Error} When not.\n" +
+        " * @deprecated Use other.\n * @suppress {visibility}\n" +
+        " * @private\n */\n" +
+        "function f(x, var_args) { 'use strict'; return []; }\n" +
+        "/** @constructor\n @extends {Object}\n @this {Foo} */\n" +
+        "function Foo() {}";
+    Node original = parse("input", code, config);
+
+    AstCache cache = new AstCache(directory, config);
+    String key = cache.getKey("input", code);
+    cache.put(key, original);
+    Node loaded = new AstCache(directory, config).get(key);
+    assertNotNull(loaded);
+    assertNull(original.checkTreeEquals(loaded));
+
+    Node fn = loaded.getFirstChild();
+    assertEquals(original.getFirstChild().getJSDocInfo().toString(),
+        fn.getJSDocInfo().toString());
+    JSDocInfo info = fn.getJSDocInfo();
+    JSDocInfo expected = original.getFirstChild().getJSDocInfo();
+    assertTrue(expected.isEquivalentTo(info));
+    assertEquals("The size.", info.getDescriptionForParameter("x"));
+    assertTrue(info.getParameterType("x").isOptionalArg());
+    assertTrue(info.getParameterType("var_args").isVarArgs());
+    assertEquals("The thing.", info.getReturnDescription());
+    assertEquals("Use other.", info.getDeprecationReason());
+    assertEquals(expected.getSuppressions(), info.getSuppressions());
+    assertEquals(JSDocInfo.Visibility.PRIVATE, info.getVisibility());
+    assertEquals("input", info.getSourceName());
+    assertEquals(expected.getThrownTypes(), info.getThrownTypes());
+    assertEquals(ImmutableSet.of("use strict"),
+        NodeUtil.getFunctionBody(fn).getDirectives());
+
+    // The markers keep their positions, and share their type nodes with
+    // the types of the JSDoc, like the parsed ones do.
+    List<JSDocInfo.Marker> expectedMarkers =
+        Lists.newArrayList(expected.getMarkers());
+    List<JSDocInfo.Marker> markers = Lists.newArrayList(info.getMarkers());
+    assertEquals(expectedMarkers.size(), markers.size());
+    Collection<Node> typeNodes = info.getTypeNodes();
+    int sharedTypeNodes = 0;
+    for (int i = 0; i < markers.size(); i++) {
+      JSDocInfo.Marker a = expectedMarkers.get(i);
+      JSDocInfo.Marker b = markers.get(i);
+      assertEquals(a.annotation.getItem(), b.annotation.getItem());
+      assertEquals(a.annotation.getStartLine(), b.annotation.getStartLine());
+      assertEquals(a.annotation.getPositionOnStartLine(),
+          b.annotation.getPositionOnStartLine());
+      assertEquals(a.description == null, b.description == null);
+      if (a.type != null) {
+        assertEquals(a.type.hasBrackets, b.type.hasBrackets);
+        assertEquals(a.type.getPositionOnEndLine(),
+            b.type.getPositionOnEndLine());
+        assertNull(a.type.getItem().checkTreeEquals(b.type.getItem()));
+        boolean shared =
+            containsIdentical(expected.getTypeNodes(), a.type.getItem());
+        assertEquals(shared, containsIdentical(typeNodes, b.type.getItem()));
+        sharedTypeNodes += shared ? 1 : 0;
+      }
+    }
+    assertTrue(sharedTypeNodes > 0);
+
+    JSDocInfo overview = loaded.getJSDocInfo();
+    assertNotNull(overview);
+    assertEquals(original.getJSDocInfo().getFileOverview(),
+        overview.getFileOverview());
+    assertEquals(ImmutableList.of("someone"),
+        ImmutableList.copyOf(overview.getAuthors()));
+
+    JSDocInfo ctor = fn.getNext().getJSDocInfo();
+    assertTrue(ctor.isConstructor());
+    assertTrue(ctor.hasBaseType());
+    assertTrue(ctor.hasThisType());
+  }
+
+  public void testKeyDependsOnNameAndContents() throws Exception {
+    AstCache cache = new AstCache(directory, ParserRunner.createConfig(false));
+    String key = cache.getKey("a.js", "var x;");
+    assertEquals(key, cache.getKey("a.js", "var x;"));
+    assertFalse(key.equals(cache.getKey("b.js", "var x;")));
+    assertFalse(key.equals(cache.getKey("a.js", "var y;")));
+
+    AstCache ideCache =
+        new AstCache(directory, ParserRunner.createConfig(true));
+    assertFalse(key.equals(ideCache.getKey("a.js", "var x;")));
+  }
+
+  public void testCorruptEntryIsAMiss() throws Exception {
+    Config config = ParserRunner.createConfig(false);
+    AstCache cache = new AstCache(directory, config);
+    String key = cache.getKey("input", "var x = 1;");
+    cache.put(key, parse("input", "var x = 1;", config));
+    for (File f : directory.listFiles()) {
+      f.delete();
+      assertTrue(f.createNewFile());
+    }
+    assertNull(cache.get(key));
+    assertEquals(0, cache.getHitCount());
+  }
+
+  public void testMemoryTier() throws Exception {
+    Config config = ParserRunner.createConfig(false);
+    Map<String, Node> memory = AstCache.newMemoryTier(1);
+    AstCache cache = new AstCache(null, config, memory);
+    Node original = parse("input", "var x = 1;", config);
+    String key = cache.getKey("input", "var x = 1;");
+    assertNull(cache.get(key));
+    cache.put(key, original);
+    assertEquals(0, directory.listFiles().length);
+
+    // Every lookup gets its own copy.
+    Node loaded = new AstCache(null, config, memory).get(key);
+    assertNull(original.checkTreeEquals(loaded));
+    loaded.detachChildren();
+    assertNull(original.checkTreeEquals(cache.get(key)));
+    assertEquals(1, cache.getHitCount());
+
+    // Only the most recently used entries are kept.
+    String otherKey = cache.getKey("input", "var y = 1;");
+    cache.put(otherKey, parse("input", "var y = 1;", config));
+    assertNull(cache.get(key));
+    assertNotNull(cache.get(otherKey));
+  }
+
+  public void testMemoryTierIsFilledFromDirectory() throws Exception {
+    Config config = ParserRunner.createConfig(false);
+    String key = new AstCache(directory, config).getKey("input", "var x;");
+    new AstCache(directory, config).put(key, parse("input", "var x;", config));
+
+    Map<String, Node> memory = AstCache.newMemoryTier(10);
+    assertNotNull(new AstCache(directory, config, memory).get(key));
+    for (File f : directory.listFiles()) {
+      f.delete();
+    }
+    assertNotNull(new AstCache(directory, config, memory).get(key));
+  }
+
+  public void testCompileUsesCache() throws Exception {
+    String[] code = {
+      "/** @constructor */ function Foo() {} Foo.prototype.bar = 3;",
+      "var x = new Foo(); alert(x.bar);"
+    };
+
+    Compiler first = compile(code);
+    assertEquals(0, first.getAstCache().getHitCount());
+    String expected = first.toSource();
+
+    Compiler second = compile(code);
+    assertEquals(code.length + 1, second.getAstCache().getHitCount());
+    assertEquals(expected, second.toSource());
+  }
+
+  public void testInputsWithParseErrorsAreNotCached() throws Exception {
+    String[] code = {"var x = [1,];"};
+
+    Compiler first = compile(code);
+    assertEquals(1, first.getErrorCount());
+
+    Compiler second = compile(code);
+    assertEquals(1, second.getErrorCount());
+    assertEquals(1, second.getAstCache().getHitCount());
+  }
+
+  private static boolean containsIdentical(Collection<Node> nodes, Node n) {
+    for (Node node : nodes) {
+      if (node == n) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private Node parse(String name, String code, Config config)
+      throws IOException {
+    return ParserRunner.parse(name, code, config,
+        new Compiler().getDefaultErrorReporter(), logger);
+  }
+
+  private Compiler compile(String[] code) {
+    CompilerOptions options = new CompilerOptions();
+    CompilationLevel.SIMPLE_OPTIMIZATIONS.setOptionsForCompilationLevel(
+        options);
+    options.setAstCacheDirectory(directory.getPath());
+
+    JSSourceFile[] inputs = new JSSourceFile[code.length];
+    for (int i = 0; i < code.length; i++) {
+      inputs[i] = JSSourceFile.fromCode("input" + i, code[i]);
+    }
+    Compiler compiler = new Compiler();
+    compiler.compile(
+        new JSSourceFile[] {
+          JSSourceFile.fromCode("externs", "function alert(x) {}")},
+        inputs, options);
+    return compiler;
+  }
+}
@@ -17,6 +17,7 @@
 package com.google.javascript.jscomp;
 
 import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.Token;
 
 import junit.framework.TestCase;
 
@@ -40,26 +41,26 @@ public class AstParallelizerTest extends TestCase {
 
   public void testSplitNamedFuntion() {
     splitFunctions("function foo() { foo() } foo()",
-                   "function " + HOLDER + "() {} foo()",
+                   "function " + HOLDER + "0() {} foo()",
                    "function foo() { foo() }"); 
   }
   
 
   public void testSplitNamedFuntionWithArgs() {
     splitFunctions("function foo(x) { foo(1) } foo(1)",
-                   "function " + HOLDER + "() {} foo(1)",
+                   "function " + HOLDER + "0() {} foo(1)",
                    "function foo(x) { foo(1) }"); 
   }
 
   public void testSplitAnonFuntion() {
     splitFunctions("var foo = function(x) { foo(1) }; foo(1)",
-                   "var foo = function " + HOLDER + "() {}; foo(1)",
+                   "var foo = function " + HOLDER + "0() {}; foo(1)",
                    "function(x) { foo(1) }"); 
   }
   
   public void testSplitInplaceCall() {
     splitFunctions("(function() { print('hi') })()",
-                   "(function " + HOLDER + "() {})()",
+                   "(function " + HOLDER + "0() {})()",
                    "function() { print('hi') }"); 
   }
   
@@ -67,8 +68,8 @@ public class AstParallelizerTest extends TestCase {
     splitFunctions("var foo = function(x) { foo(1) }; foo();" + 
                    "var bar = function(x,y) { bar(1,2) }; bar(1,2)",
                    // Output Root
-                   "var foo = function " + HOLDER + "() {}; foo();" +
-                   "var bar = function " + HOLDER + "() {}; bar(1,2)",
+                   "var foo = function " + HOLDER + "0() {}; foo();" +
+                   "var bar = function " + HOLDER + "1() {}; bar(1,2)",
                    // foo
                    "function(x) { foo(1) }",
                    // bar
@@ -77,10 +78,37 @@ public class AstParallelizerTest extends TestCase {
   
   public void testInnerFunctions() {
     splitFunctions("var foo = function() {var bar = function() {}}",
-                   "var foo = function " + HOLDER + "() {}",
+                   "var foo = function " + HOLDER + "0() {}",
                    "function() {var bar = function() {}}");
   }
 
+  public void testSplitKeepsFunctionContext() {
+    Compiler compiler = new Compiler();
+    Node root = compiler.parseTestCode(
+        "function f() {} var g = function() {};");
+    List<Node> forest = AstParallelizer
+        .createNewFunctionLevelAstParallelizer(root, false).split();
+    assertEquals(2, forest.size());
+    assertEquals(Token.SCRIPT, forest.get(0).getParent().getType());
+    assertTrue(NodeUtil.isStatement(forest.get(0)));
+    assertEquals(Token.LP, forest.get(1).getParent().getType());
+    assertTrue(NodeUtil.isFunctionExpression(forest.get(1)));
+  }
+
+  public void testJoinAfterChangesAroundPlaceHolders() {
+    Compiler compiler = new Compiler();
+    Node root = compiler.parseTestCode(
+        "var a; function f() { a() } var b; function g() { b() }");
+    AstParallelizer parallelizer =
+        AstParallelizer.createNewFunctionLevelAstParallelizer(root, true);
+    parallelizer.split();
+    root.removeChild(root.getFirstChild());
+    root.removeChild(root.getFirstChild().getNext());
+    parallelizer.join();
+    assertEquals("function f(){a()}function g(){b()}",
+        compiler.toSource(root));
+  }
+
   public void testSplitFileLevel() {
     splitFiles(new String[] { "var a", "var b", "var c"});
     splitFiles(new String[] {
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.javascript.jscomp.ControlFlowGraph.Branch;
+import com.google.javascript.jscomp.DataFlowAnalysis.MaxIterationsExceededException;
+
+import junit.framework.TestCase;
+
+import java.util.BitSet;
+
+/**
+ * Tests for {@link BitVectorSolver}.
+ *
+ */
+public class BitVectorSolverTest extends TestCase {
+
+  private ControlFlowGraph<String> cfg;
+  private BitSet[] gen;
+  private BitSet[] kill;
+
+  @Override
+  public void setUp() {
+    // entry -> loop -> body -> loop, loop -> exit -> (implicit return),
+    // and a node that nothing reaches, dead -> exit.
+    cfg = new ControlFlowGraph<String>("entry");
+    cfg.createNode("loop");
+    cfg.createNode("body");
+    cfg.createNode("exit");
+    cfg.createNode("dead");
+    cfg.connect("entry", Branch.UNCOND, "loop");
+    cfg.connect("loop", Branch.ON_TRUE, "body");
+    cfg.connect("body", Branch.UNCOND, "loop");
+    cfg.connect("loop", Branch.ON_FALSE, "exit");
+    cfg.connect("dead", Branch.UNCOND, "exit");
+    cfg.connect("exit", Branch.UNCOND, null);
+
+    gen = new BitSet[cfg.getNodeCount()];
+    kill = new BitSet[cfg.getNodeCount()];
+  }
+
+  public void testForwardUnion() {
+    setGenKill("entry", bits(0), bits());
+    setGenKill("body", bits(1), bits(0));
+    BitVectorSolver solver = solve(true, true, bits(2));
+
+    assertEquals(bits(2), bits(solver.getIn(index("entry"))));
+    assertEquals(bits(0, 2), bits(solver.getOut(index("entry"))));
+    assertEquals(bits(0, 1, 2), bits(solver.getIn(index("loop"))));
+    assertEquals(bits(1, 2), bits(solver.getOut(index("body"))));
+    assertEquals(bits(0, 1, 2), bits(solver.getIn(index("exit"))));
+    assertEquals(bits(), bits(solver.getIn(index("dead"))));
+  }
+
+  public void testForwardIntersection() {
+    setGenKill("entry", bits(0, 1), bits());
+    setGenKill("body", bits(), bits(0));
+    BitVectorSolver solver = solve(true, false, bits());
+
+    assertEquals(bits(1), bits(solver.getIn(index("loop"))));
+    assertEquals(bits(1), bits(solver.getOut(index("body"))));
+
+    // Nothing flows into the dead node, so it has every bit, and does not
+    // change what the exit gets from the loop.
+    assertEquals(bits(0, 1, 2), bits(solver.getIn(index("dead"))));
+    assertEquals(bits(1), bits(solver.getIn(index("exit"))));
+  }
+
+  public void testBackwardUnion() {
+    setGenKill("exit", bits(0), bits());
+    setGenKill("body", bits(1), bits(0));
+    BitVectorSolver solver = solve(false, true, bits(2));
+
+    assertEquals(bits(2), bits(solver.getOut(index("exit"))));
+    assertEquals(bits(0, 2), bits(solver.getIn(index("exit"))));
+    assertEquals(bits(0, 1, 2), bits(solver.getOut(index("loop"))));
+    assertEquals(bits(0, 1, 2), bits(solver.getIn(index("entry"))));
+    assertEquals(bits(1, 2), bits(solver.getIn(index("body"))));
+    assertEquals(bits(0, 2), bits(solver.getIn(index("dead"))));
+  }
+
+  public void testMaxSteps() {
+    // Only visits after the first visit of each node count.
+    new BitVectorSolver(cfg, true, true, 3, bits(), gen, kill).solve(0);
+
+    // The loop has to be visited again for what the body gens.
+    setGenKill("body", bits(1), bits());
+    BitVectorSolver solver = new BitVectorSolver(
+        cfg, true, true, 3, bits(), gen, kill);
+    try {
+      solver.solve(0);
+      fail("Expected an exception");
+    } catch (MaxIterationsExceededException expected) {}
+  }
+
+  private void setGenKill(String node, BitSet nodeGen, BitSet nodeKill) {
+    gen[index(node)] = nodeGen;
+    kill[index(node)] = nodeKill;
+  }
+
+  private BitVectorSolver solve(
+      boolean forward, boolean union, BitSet boundary) {
+    BitVectorSolver solver = new BitVectorSolver(
+        cfg, forward, union, 3, boundary, gen, kill);
+    solver.solve(DataFlowAnalysis.MAX_STEPS);
+    return solver;
+  }
+
+  private int index(String node) {
+    return cfg.getIndex(cfg.getDirectedGraphNode(node));
+  }
+
+  private static BitSet bits(long[] row) {
+    BitSet bits = new BitSet();
+    for (int i = BitVectorSolver.nextSetBit(row, 0); i >= 0;
+         i = BitVectorSolver.nextSetBit(row, i + 1)) {
+      bits.set(i);
+    }
+    return bits;
+  }
+
+  private static BitSet bits(int... indices) {
+    BitSet bits = new BitSet();
+    for (int i : indices) {
+      bits.set(i);
+    }
+    return bits;
+  }
+}
@@ -238,6 +238,30 @@ public class CommandLineRunnerTest extends TestCase {
     testSame("function f() {}");
   }
 
+  public void testCodingConvention() {
+    testSame("var x = 1;");
+    assertEquals(ClosureCodingConvention.class,
+        lastCompiler.getCodingConvention().getClass());
+
+    args.add("--third_party=true");
+    testSame("var x = 1;");
+    assertEquals(DefaultCodingConvention.class,
+        lastCompiler.getCodingConvention().getClass());
+
+    args.add("--coding_convention=GOOGLE");
+    testSame("var x = 1;");
+    assertEquals(GoogleCodingConvention.class,
+        lastCompiler.getCodingConvention().getClass());
+  }
+
+  public void testPassMetricsWithoutTracer() {
+    args.add("--pass_metrics_output_file=metrics.csv");
+    testSame("var x = 1;");
+    assertEquals(CompilerOptions.TracerMode.OFF,
+        lastCompiler.getOptions().tracer);
+    assertFalse(lastCompiler.tracker.getPassStats().isEmpty());
+  }
+
   public void testExternsLifting1() throws Exception{
     String code = "/** @externs */ function f() {}";
     test(new String[] {code},
@@ -374,6 +398,69 @@ public class CommandLineRunnerTest extends TestCase {
             lastCompiler.getModuleGraph().getRootModule()));
   }
 
+  public void testParseThreads() {
+    args.add("--parse_threads=4");
+    test(new String[] {
+          "var a = 1;",
+          "var b = 2;",
+          "var c = 3;",
+          "var d = 4;",
+          "var e = 5;"
+         },
+         new String[] {
+           "var a = 1;",
+           "var b = 2;",
+           "var c = 3;",
+           "var d = 4;",
+           "var e = 5;"
+         });
+  }
+
+  public void testPassMetricsTurnTracingOn() {
+    args.add("--pass_metrics_output_file=metrics.csv");
+    testSame("var a = 1;");
+    assertNotNull(lastCompiler.tracker);
+    assertFalse(lastCompiler.tracker.getPassStats().isEmpty());
+  }
+
+  public void testParseThreadsReportsFirstParseError() {
+    args.add("--parse_threads=4");
+    test(new String[] {
+          "var a = 1;",
+          "var b = ;",
+          "var c = 3;",
+          "var d = ;"
+         },
+         RhinoErrorReporter.PARSE_ERROR);
+    assertEquals("input1", lastCompiler.getErrors()[0].sourceName);
+  }
+
+  public void testParseThreadsMatchSingleThreadedParse() {
+    String[] original = new String[20];
+    for (int i = 0; i < original.length; i++) {
+      original[i] = "/** @return {number} */ function f" + i + "() {" +
+          "  var a = " + i + "; return a * 2; }";
+    }
+    Compiler single = parseWithThreads(1, original);
+    for (int run = 0; run < 5; run++) {
+      Compiler threaded = parseWithThreads(4, original);
+      assertNull(single.getRoot().checkTreeEquals(threaded.getRoot()));
+      assertEquals(getInputNames(single), getInputNames(threaded));
+    }
+  }
+
+  public void testParseThreadsReportErrorsInOrder() {
+    String[] original = new String[20];
+    for (int i = 0; i < original.length; i++) {
+      original[i] = i % 3 == 1 ? "var x" + i + " = ;" : "var x" + i + ";";
+    }
+    List<String> expected = getErrors(parseWithThreads(1, original));
+    assertFalse(expected.isEmpty());
+    for (int run = 0; run < 5; run++) {
+      assertEquals(expected, getErrors(parseWithThreads(4, original)));
+    }
+  }
+
   /* Helper functions */
 
   private void testSame(String original) {
@@ -497,6 +584,35 @@ public class CommandLineRunnerTest extends TestCase {
     return compiler;
   }
 
+  private Compiler parseWithThreads(int threads, String[] original) {
+    Compiler compiler = new Compiler();
+    JSSourceFile[] inputs = new JSSourceFile[original.length];
+    for (int i = 0; i < inputs.length; i++) {
+      inputs[i] = JSSourceFile.fromCode("input" + i, original[i]);
+    }
+    CompilerOptions options = new CompilerOptions();
+    options.setParseThreadCount(threads);
+    compiler.init(externs, inputs, options);
+    compiler.parseInputs();
+    return compiler;
+  }
+
+  private static List<String> getInputNames(Compiler compiler) {
+    List<String> names = Lists.newArrayList();
+    for (CompilerInput input : compiler.getInputsForTesting()) {
+      names.add(input.getName());
+    }
+    return names;
+  }
+
+  private static List<String> getErrors(Compiler compiler) {
+    List<String> errors = Lists.newArrayList();
+    for (JSError error : compiler.getErrors()) {
+      errors.add(error.toString());
+    }
+    return errors;
+  }
+
   private Node parse(String[] original) {
     String[] argStrings = args.toArray(new String[] {});
     CommandLineRunner runner = new CommandLineRunner(argStrings);
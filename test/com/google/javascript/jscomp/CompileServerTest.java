@@ -0,0 +1,221 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.google.javascript.jscomp.CompileClient.Response;
+
+import junit.framework.TestCase;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * Tests for {@link CompileServer} and {@link CompileClient}.
+ *
+ */
+public class CompileServerTest extends TestCase {
+
+  private File directory;
+  private String token;
+  private CompileServer server;
+  private CompileClient client;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    directory = File.createTempFile("compileserver", "");
+    directory.delete();
+    directory.mkdir();
+    token = CompileServer.newToken();
+
+    server = new CompileServer(
+        new ServerSocket(0, 50, InetAddress.getByName(null)), 100, token);
+    server.setReadTimeout(500);
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        server.serve();
+      }
+    });
+    thread.setDaemon(true);
+    thread.start();
+    client = new CompileClient(null, server.getPort(), token);
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    server.close();
+    for (File f : directory.listFiles()) {
+      f.delete();
+    }
+    directory.delete();
+    super.tearDown();
+  }
+
+  public void testCompile() throws Exception {
+    String externs = write("externs.js", "function alert(x) {}");
+    String input = write("input.js", "var x = 1 + 2; alert(x);");
+    String[] args = {
+      "--use_only_custom_externs=true",
+      "--externs=" + externs,
+      "--js=" + input
+    };
+
+    Response response = client.compile(args);
+    assertEquals(response.getErrors(), 0, response.getStatus());
+    assertEquals("var x=3;alert(x);\n", response.getOutput());
+    assertEquals(0, server.getExternsSnapshotHits());
+
+    response = client.compile(args);
+    assertEquals(0, response.getStatus());
+    assertEquals("var x=3;alert(x);\n", response.getOutput());
+    assertEquals(1, server.getExternsSnapshotHits());
+
+    // Changed externs are parsed again.
+    write("externs.js", "function alert(x, y) {}");
+    assertEquals(0, client.compile(args).getStatus());
+    assertEquals(1, server.getExternsSnapshotHits());
+  }
+
+  public void testOutputFile() throws Exception {
+    String input = write("input.js", "var x = 1 + 2;");
+    File output = new File(directory, "output.js");
+    Response response = client.compile(new String[] {
+      "--use_only_custom_externs=true",
+      "--js=" + input,
+      "--js_output_file=" + output.getPath()
+    });
+    assertEquals(0, response.getStatus());
+    assertEquals("", response.getOutput());
+    assertEquals("var x=3;\n", Files.toString(output, Charsets.UTF_8));
+  }
+
+  public void testErrors() throws Exception {
+    String input = write("input.js", "var x = ;");
+    Response response = client.compile(new String[] {
+      "--use_only_custom_externs=true",
+      "--js=" + input
+    });
+    assertEquals(1, response.getStatus());
+    assertEquals("", response.getOutput());
+    assertTrue(response.getErrors(),
+        response.getErrors().contains("ERROR - Parse error"));
+
+    // The server is still up.
+    write("input.js", "var x = 1;");
+    assertEquals(0, client.compile(new String[] {
+      "--use_only_custom_externs=true",
+      "--js=" + input
+    }).getStatus());
+  }
+
+  public void testBadFlags() throws Exception {
+    Response response = client.compile(new String[] {"--no_such_flag"});
+    assertEquals(-1, response.getStatus());
+    assertTrue(response.getErrors().length() > 0);
+
+    response = client.compile(new String[] {
+      "--use_only_custom_externs=true",
+      "--parse_threads=0"
+    });
+    assertEquals(-1, response.getStatus());
+    assertTrue(response.getErrors(),
+        response.getErrors().contains("--parse_threads"));
+  }
+
+  public void testBadToken() throws Exception {
+    String input = write("input.js", "var x = 1;");
+    try {
+      new CompileClient(null, server.getPort(), CompileServer.newToken())
+          .compile(
+          new String[] {"--use_only_custom_externs=true", "--js=" + input});
+      fail("Expected the server to drop the request");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  public void testOversizedRequestsAreDropped() throws Exception {
+    // Too many flags.
+    sendRaw(Integer.MAX_VALUE);
+    // A flag that is too long.
+    sendRaw(1, Integer.MAX_VALUE);
+
+    // The server is still up.
+    String input = write("input.js", "var x = 1;");
+    assertEquals(0, client.compile(new String[] {
+      "--use_only_custom_externs=true",
+      "--js=" + input
+    }).getStatus());
+  }
+
+  public void testSilentClientIsDropped() throws Exception {
+    String input = write("input.js", "var x = 1;");
+    Socket silent = new Socket(InetAddress.getByName(null), server.getPort());
+    try {
+      assertEquals(0, client.compile(new String[] {
+        "--use_only_custom_externs=true",
+        "--js=" + input
+      }).getStatus());
+    } finally {
+      silent.close();
+    }
+  }
+
+  public void testWriteToken() throws Exception {
+    File file = new File(directory, "token");
+    CompileServer.writeToken(file, "secret");
+    assertEquals("secret", Files.toString(file, Charsets.UTF_8));
+
+    // A stale file is replaced.
+    CompileServer.writeToken(file, "other");
+    assertEquals("other", Files.toString(file, Charsets.UTF_8));
+  }
+
+  /**
+   * Sends a request with the given ints after its token, and waits for the
+   * server to close the connection.
+   */
+  private void sendRaw(int... ints) throws IOException {
+    Socket socket = new Socket(InetAddress.getByName(null), server.getPort());
+    try {
+      DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+      out.writeInt(CompileClient.MAGIC);
+      out.writeInt(CompileClient.PROTOCOL_VERSION);
+      out.write(token.getBytes(Charsets.US_ASCII));
+      for (int i : ints) {
+        out.writeInt(i);
+      }
+      out.flush();
+      assertEquals(-1, socket.getInputStream().read());
+    } finally {
+      socket.close();
+    }
+  }
+
+  private String write(String name, String contents) throws IOException {
+    File file = new File(directory, name);
+    Files.write(contents, file, Charsets.UTF_8);
+    return file.getPath();
+  }
+}
@@ -17,6 +17,7 @@
 package com.google.javascript.jscomp;
 
 import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.Token;
 
 /**
  * Tests for {@link DeadAssignmentsElimination}.
@@ -25,6 +26,8 @@ import com.google.javascript.rhino.Node;
  */
 public class DeadAssignmentsEliminationTest extends CompilerTestCase {
 
+  private boolean onlyInFirstFunction = false;
+
   public DeadAssignmentsEliminationTest() {
     super("var extern;");
   }
@@ -32,10 +35,24 @@ public class DeadAssignmentsEliminationTest extends CompilerTestCase {
   @Override
   public void setUp() {
     super.enableLineNumberCheck(true);
+    onlyInFirstFunction = false;
   }
 
   @Override
   public CompilerPass getProcessor(final Compiler compiler) {
+    if (onlyInFirstFunction) {
+      return new CompilerPass() {
+        public void process(Node externs, Node js) {
+          // Only report a change to the first function.
+          long stamp = compiler.getChangeStamp();
+          Node fn = js.getFirstChild().getFirstChild();
+          compiler.reportChangeToEnclosingScope(NodeUtil.getFunctionBody(fn));
+          new DeadAssignmentsElimination(compiler)
+              .onlyInFunctionsChangedSince(stamp)
+              .process(externs, js);
+        }
+      };
+    }
     return new CompilerPass() {
       public void process(Node externs, Node js) {
         NodeTraversal.traverse(
@@ -349,4 +366,26 @@ public class DeadAssignmentsEliminationTest extends CompilerTestCase {
   public void testAssignToExtern() {
     inFunction("extern = true;", "extern = true;");
   }
+
+  public void testOnlyInChangedFunctions() {
+    onlyInFirstFunction = true;
+    test("function f() { var a; a = 1; }" +
+         "function g() { var b; b = 2; }",
+         "function f() { var a; 1; }" +
+         "function g() { var b; b = 2; }");
+  }
+
+  public void testChangeIsReportedInFunction() {
+    Compiler compiler = new Compiler();
+    Node root = compiler.parseTestCode(
+        "function f() { var a; a = 1; } function g() { var b; }");
+    Node f = root.getFirstChild();
+    Node g = f.getNext();
+    long stamp = compiler.getChangeStamp();
+    new DeadAssignmentsElimination(compiler).process(
+        new Node(Token.BLOCK), root);
+    assertTrue(compiler.hasScopeChangedSince(f, stamp));
+    assertFalse(compiler.hasScopeChangedSince(g, stamp));
+    assertFalse(compiler.hasScopeChangedSince(root, stamp));
+  }
 }
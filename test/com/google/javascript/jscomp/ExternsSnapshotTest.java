@@ -0,0 +1,106 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.collect.Lists;
+import com.google.javascript.rhino.Node;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+
+/**
+ * Tests for {@link ExternsSnapshot}.
+ *
+ */
+public class ExternsSnapshotTest extends TestCase {
+
+  private static final String EXTERNS =
+      "/** @constructor */ function Element() {}\n" +
+      "/** @type {string} */ Element.prototype.innerHTML;\n" +
+      "/** @param {string} id\n @return {Element} */\n" +
+      "function getElementById(id) {}";
+
+  private static final String INPUT =
+      "var e = getElementById('x'); e.innerHTML = 'hi'; e.innerHTML = 3;";
+
+  public void testSameResultAsParsing() {
+    Compiler plain = compile(
+        Lists.newArrayList(JSSourceFile.fromCode("externs", EXTERNS)));
+    ExternsSnapshot snapshot = ExternsSnapshot.create(
+        Lists.newArrayList(JSSourceFile.fromCode("externs", EXTERNS)),
+        createOptions());
+
+    Compiler first = compile(snapshot);
+    Compiler second = compile(snapshot);
+
+    assertEquals(plain.toSource(), first.toSource());
+    assertEquals(plain.toSource(), second.toSource());
+    assertEquals(1, plain.getWarningCount());
+    assertEquals(1, first.getWarningCount());
+    assertEquals(1, second.getWarningCount());
+    assertEquals(plain.getWarnings()[0].description,
+        second.getWarnings()[0].description);
+  }
+
+  public void testCompilersGetTheirOwnTrees() {
+    ExternsSnapshot snapshot = ExternsSnapshot.create(
+        Lists.newArrayList(JSSourceFile.fromCode("externs", EXTERNS)),
+        createOptions());
+
+    Compiler first = compile(snapshot);
+    Compiler second = compile(snapshot);
+    Node firstExterns = first.getRoot().getFirstChild().getFirstChild();
+    Node secondExterns = second.getRoot().getFirstChild().getFirstChild();
+    assertNotSame(firstExterns, secondExterns);
+    assertNull(firstExterns.checkTreeEquals(secondExterns));
+    assertEquals("externs", secondExterns.getProp(Node.SOURCENAME_PROP));
+  }
+
+  public void testBrokenExternsAreReportedByEachCompile() {
+    ExternsSnapshot snapshot = ExternsSnapshot.create(
+        Lists.newArrayList(JSSourceFile.fromCode("externs", "var x = [1,];")),
+        createOptions());
+
+    assertEquals(1, compile(snapshot).getErrorCount());
+    assertEquals(1, compile(snapshot).getErrorCount());
+  }
+
+  private CompilerOptions createOptions() {
+    CompilerOptions options = new CompilerOptions();
+    CompilationLevel.SIMPLE_OPTIMIZATIONS.setOptionsForCompilationLevel(
+        options);
+    WarningLevel.VERBOSE.setOptionsForWarningLevel(options);
+    return options;
+  }
+
+  private List<JSSourceFile> createInputs() {
+    return Lists.newArrayList(JSSourceFile.fromCode("input", INPUT));
+  }
+
+  private Compiler compile(List<JSSourceFile> externs) {
+    Compiler compiler = new Compiler();
+    compiler.compile(externs, createInputs(), createOptions());
+    return compiler;
+  }
+
+  private Compiler compile(ExternsSnapshot externs) {
+    Compiler compiler = new Compiler();
+    compiler.compile(externs, createInputs(), createOptions());
+    return compiler;
+  }
+}
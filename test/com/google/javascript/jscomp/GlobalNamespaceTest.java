@@ -16,11 +16,15 @@
 
 package com.google.javascript.jscomp;
 
+import com.google.common.collect.Sets;
 import com.google.javascript.jscomp.GlobalNamespace.Name;
 import com.google.javascript.jscomp.GlobalNamespace.Ref;
+import com.google.javascript.rhino.Node;
 
 import junit.framework.TestCase;
 
+import java.util.Set;
+
 /**
  * Tests for {@link GlobalNamespace}.
  *
@@ -66,6 +70,99 @@ public class GlobalNamespaceTest extends TestCase {
     assertEquals(0, n.globalSets);
   }
 
+  public void testUpdateChangedScript() {
+    Compiler compiler = parse(
+        "var a = {}; a.b = function() {}; var c = a;",
+        "a.d = 3; function f() { a.b(); }");
+    Node root = compiler.getRoot().getLastChild();
+    Node script = root.getLastChild();
+    GlobalNamespace namespace = new GlobalNamespace(compiler, root);
+    assertNotNull(namespace.getNameIndex().get("a.d"));
+
+    // a.d = 3; becomes a.e = a.b;
+    Node assign = script.getFirstChild().getFirstChild();
+    assign.getFirstChild().getLastChild().setString("e");
+    assign.replaceChild(assign.getLastChild(),
+        assign.getFirstChild().cloneTree());
+    assign.getLastChild().getLastChild().setString("b");
+    compiler.reportChangeToEnclosingScope(assign);
+
+    namespace.update();
+    assertNull(namespace.getNameIndex().get("a.d"));
+    assertEquals(1, namespace.getNameIndex().get("a.e").globalSets);
+    assertEquals(1, namespace.getNameIndex().get("a.b").aliasingGets);
+    assertSameNames(new GlobalNamespace(compiler, root), namespace);
+  }
+
+  public void testUpdateChangedFunction() {
+    Compiler compiler = parse(
+        "/** @constructor */ var a = function() {};",
+        "var b = {}; b.c = 1; function f() { return b.c; }");
+    Node root = compiler.getRoot().getLastChild();
+    Node f = root.getLastChild().getLastChild();
+    GlobalNamespace namespace = new GlobalNamespace(compiler, root);
+    assertEquals(1, namespace.getNameIndex().get("b.c").totalGets);
+
+    Node ret = NodeUtil.getFunctionBody(f).getFirstChild();
+    ret.removeChild(ret.getFirstChild());
+    compiler.reportChangeToEnclosingScope(ret);
+
+    namespace.update();
+    assertEquals(0, namespace.getNameIndex().get("b.c").totalGets);
+    assertSameNames(new GlobalNamespace(compiler, root), namespace);
+  }
+
+  public void testUpdateWithoutChanges() {
+    Compiler compiler = parse("var a = {}; a.b = 1;", "a.b = 2;");
+    Node root = compiler.getRoot().getLastChild();
+    GlobalNamespace namespace = new GlobalNamespace(compiler, root);
+    Name b = namespace.getNameIndex().get("a.b");
+
+    namespace.update();
+    assertSame(b, namespace.getNameIndex().get("a.b"));
+    assertEquals(2, b.globalSets);
+  }
+
+  public void testUpdateAfterUnscopedChange() {
+    Compiler compiler = parse("var a = {}; a.b = 1;", "a.b = 2;");
+    Node root = compiler.getRoot().getLastChild();
+    GlobalNamespace namespace = new GlobalNamespace(compiler, root);
+    namespace.getNameIndex();
+
+    root.removeChild(root.getLastChild());
+    compiler.reportCodeChange();
+
+    namespace.update();
+    assertEquals(1, namespace.getNameIndex().get("a.b").globalSets);
+    assertSameNames(new GlobalNamespace(compiler, root), namespace);
+  }
+
+  private Compiler parse(String... inputs) {
+    JSSourceFile[] sources = new JSSourceFile[inputs.length];
+    for (int i = 0; i < inputs.length; i++) {
+      sources[i] = JSSourceFile.fromCode("input" + i, inputs[i]);
+    }
+    Compiler compiler = new Compiler();
+    compiler.init(new JSSourceFile[] {}, sources, new CompilerOptions());
+    compiler.parseInputs();
+    assertFalse(compiler.hasErrors());
+    return compiler;
+  }
+
+  private void assertSameNames(GlobalNamespace expected,
+      GlobalNamespace actual) {
+    assertEquals(describe(expected), describe(actual));
+  }
+
+  private Set<String> describe(GlobalNamespace namespace) {
+    Set<String> names = Sets.newHashSet();
+    for (Name name : namespace.getNameIndex().values()) {
+      names.add(name + ", namespace=" + name.isNamespace() +
+          ", declaration=" + (name.declaration != null));
+    }
+    return names;
+  }
+
   private Ref createNodelessRef(Ref.Type type) {
     return Ref.createRefForTesting(type);
   }
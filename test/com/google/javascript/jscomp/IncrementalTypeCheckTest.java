@@ -0,0 +1,171 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.collect.Lists;
+
+import junit.framework.TestCase;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for {@link IncrementalTypeCheck}.
+ *
+ */
+public class IncrementalTypeCheckTest extends TestCase {
+
+  private static final String EXTERNS =
+      "/** @param {string} s */ function alert(s) {}";
+
+  private static final String HEADER =
+      "/** @constructor */ function Foo() { this.n = 0; }\n" +
+      "/** @type {string} */ Foo.prototype.s = '';\n";
+
+  private static final String GET =
+      "/** @param {Foo} foo\n @return {number} */\n" +
+      "function get(foo) {\n" +
+      "  var x = foo.n; var y = {a: x};\n" +
+      "  return y.a;\n" +
+      "}\n";
+
+  private static final String BAD_GET =
+      "/** @param {Foo} foo\n @return {number} */\n" +
+      "function get(foo) {\n" +
+      "  var x = foo.s; var y = {a: x};\n" +
+      "  alert(foo.n);\n" +
+      "  return y.a;\n" +
+      "}\n";
+
+  private static final String SHOW =
+      "/** @param {Foo} foo */\n" +
+      "function show(foo) {\n" +
+      "  alert(foo.n);\n" +
+      "}\n";
+
+  private static final String SET =
+      "/** @param {Foo} foo */\n" +
+      "function set(foo) {\n" +
+      "  foo.n = 1;\n" +
+      "}\n";
+
+  public void testRecheckEditedFunction() {
+    Compiler compiler = compile(HEADER + GET + SHOW);
+    assertEquals(1, compiler.getWarningCount());
+    assertRecheck(compiler, HEADER + BAD_GET + SHOW);
+    assertRecheck(compiler, HEADER + GET + SHOW);
+    assertRecheck(compiler, HEADER + BAD_GET + SHOW);
+  }
+
+  public void testRecheckUpdatesPositions() {
+    Compiler compiler = compile(HEADER + GET + SHOW);
+    String edited = HEADER + BAD_GET.replace("alert", "\n\n  alert") + SHOW;
+    assertRecheck(compiler, edited);
+    assertEquals(
+        getDiagnostics(compile(edited)), describe(recheck(compiler, edited)));
+  }
+
+  public void testRecheckCommentEdit() {
+    Compiler compiler = compile(HEADER + GET + SHOW);
+    assertRecheck(compiler,
+        HEADER + GET + SHOW.replace("/**", "/** @desc Shows foo.\n"));
+    assertRecheck(compiler, HEADER + BAD_GET + SHOW);
+  }
+
+  public void testEditsThatNeedACompile() {
+    String js = HEADER + GET + SHOW + SET;
+    // Changes outside of function bodies.
+    assertNull(recheck(compile(js), js + "var x = 1;"));
+    assertNull(recheck(compile(js), js.replace("{string}", "{number}")));
+    assertNull(recheck(compile(js), js.replace("foo)", "bar)")));
+    // Changes to the bodies of functions that are not independent.
+    assertNull(recheck(compile(js), js.replace("n = 1", "n = 2")));
+    assertNull(recheck(compile(js), js.replace("alert(foo.n)", "foo.n++")));
+    assertNull(recheck(compile(js),
+        js.replace("alert(foo.n)", "this.m = foo.n")));
+    assertNull(recheck(compile(js),
+        js.replace("alert(foo.n)", "alert(Foo.prototype.s)")));
+    assertNull(recheck(compile(js),
+        js.replace("alert(foo.n)", "alert.call(null, '')")));
+    assertNull(recheck(compile(js),
+        js.replace("alert(foo.n)", "(function() {})()")));
+    assertNull(recheck(compile(js),
+        js.replace("alert(foo.n)", "alert(/** @type {string} */ (foo.s))")));
+    // Changes to what the type of the function is made from.
+    assertNull(recheck(compile(js), js.replace("{a: x}", "{b: x}")));
+    assertNull(recheck(compile(js), js.replace("alert(foo.n)", "throw 1")));
+    // Changes that do not parse.
+    assertNull(recheck(compile(js), js.replace("return y.a", "return (")));
+    // Files that are not inputs.
+    assertNull(recheck(compile(js), "externs", js));
+    assertNull(recheck(compile(js), "other", js));
+  }
+
+  public void testNoRecheckOutsideIdeMode() {
+    CompilerOptions options = new CompilerOptions();
+    options.checkTypes = true;
+    Compiler compiler = new Compiler();
+    compiler.compile(JSSourceFile.fromCode("externs", EXTERNS),
+        JSSourceFile.fromCode("input", HEADER + GET), options);
+    assertNull(recheck(compiler, HEADER + BAD_GET));
+  }
+
+  /**
+   * Asserts that a recheck of the edit reports the same diagnostics as a
+   * compile of the edited code.
+   */
+  private void assertRecheck(Compiler compiler, String js) {
+    JSError[] errors = recheck(compiler, js);
+    assertNotNull(errors);
+    assertEquals(getDiagnostics(compile(js)), describe(errors));
+  }
+
+  private JSError[] recheck(Compiler compiler, String js) {
+    return recheck(compiler, "input", js);
+  }
+
+  private JSError[] recheck(Compiler compiler, String name, String js) {
+    return compiler.recheckTypes(JSSourceFile.fromCode(name, js));
+  }
+
+  private Compiler compile(String js) {
+    CompilerOptions options = new CompilerOptions();
+    options.ideMode = true;
+    options.checkTypes = true;
+    Compiler compiler = new Compiler();
+    compiler.compile(JSSourceFile.fromCode("externs", EXTERNS),
+        JSSourceFile.fromCode("input", js), options);
+    return compiler;
+  }
+
+  private static List<String> getDiagnostics(Compiler compiler) {
+    List<String> descriptions = describe(compiler.getErrors());
+    descriptions.addAll(describe(compiler.getWarnings()));
+    Collections.sort(descriptions);
+    return descriptions;
+  }
+
+  private static List<String> describe(JSError[] errors) {
+    List<String> descriptions = Lists.newArrayList();
+    for (JSError error : errors) {
+      descriptions.add(error.lineNumber + ":" + error.getCharno() + ": " +
+          error.description);
+    }
+    Collections.sort(descriptions);
+    return descriptions;
+  }
+}
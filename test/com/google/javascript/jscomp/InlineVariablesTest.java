@@ -16,6 +16,8 @@
 
 package com.google.javascript.jscomp;
 
+import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.Token;
 
 /**
  * Verifies that valid candidates for inlining are inlined, but
@@ -27,6 +29,7 @@ public class InlineVariablesTest extends CompilerTestCase {
 
   private boolean inlineAllStrings = false;
   private boolean inlineLocalsOnly = false;
+  private boolean onlyInFirstFunction = false;
 
   public InlineVariablesTest() {
     enableNormalize();
@@ -39,6 +42,21 @@ public class InlineVariablesTest extends CompilerTestCase {
 
   @Override
   protected CompilerPass getProcessor(final Compiler compiler) {
+    if (onlyInFirstFunction) {
+      return new CompilerPass() {
+        @Override
+        public void process(Node externs, Node root) {
+          // Only report a change to the first function.
+          long stamp = compiler.getChangeStamp();
+          Node fn = root.getFirstChild().getFirstChild();
+          compiler.reportChangeToEnclosingScope(NodeUtil.getFunctionBody(fn));
+          new InlineVariables(
+              compiler, InlineVariables.Mode.LOCALS_ONLY, inlineAllStrings)
+              .onlyInFunctionsChangedSince(stamp)
+              .process(externs, root);
+        }
+      };
+    }
     return new InlineVariables(
         compiler,
         (inlineLocalsOnly)
@@ -51,6 +69,7 @@ public class InlineVariablesTest extends CompilerTestCase {
   public void tearDown() {
     inlineAllStrings = false;
     inlineLocalsOnly = false;
+    onlyInFirstFunction = false;
   }
 
   // Test respect for scopes and blocks
@@ -905,4 +924,38 @@ public class InlineVariablesTest extends CompilerTestCase {
   public void testInlineNamedFunction() {
     test("function f() {} f();", "(function f(){})()");
   }
+
+  public void testInlineOnlyInChangedFunctions() {
+    onlyInFirstFunction = true;
+    test("function f() { var a = 1; return a; }" +
+         "function g() { var b = 2; return b; }",
+         "function f() { return 1; }" +
+         "function g() { var b = 2; return b; }");
+  }
+
+  public void testChangeIsReportedInInnerFunction() {
+    Compiler compiler = new Compiler();
+    Node root = compiler.parseTestCode(
+        "function f() { var a = 1; return function() { return a; }; }");
+    Node outer = root.getFirstChild();
+    Node inner = NodeUtil.getFunctionBody(outer).getLastChild()
+        .getFirstChild();
+    long stamp = compiler.getChangeStamp();
+    new InlineVariables(
+        compiler, InlineVariables.Mode.LOCALS_ONLY, false)
+        .process(new Node(Token.BLOCK), root);
+    assertEquals("function f(){return function(){return 1}}",
+        compiler.toSource(root));
+    assertTrue(compiler.hasScopeChangedSince(outer, stamp));
+    assertTrue(compiler.hasScopeChangedSince(inner, stamp));
+  }
+
+  public void testInlineInChangedInnerFunction() {
+    // The whole outer function is looked at.
+    onlyInFirstFunction = true;
+    test("function f() { var a = 1; return function() { return a; }; }" +
+         "function g() { var b = 2; return b; }",
+         "function f() { return function() { return 1; }; }" +
+         "function g() { var b = 2; return b; }");
+  }
 }
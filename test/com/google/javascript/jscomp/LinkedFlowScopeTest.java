@@ -141,6 +141,24 @@ public class LinkedFlowScopeTest extends CompilerTypeTestCase {
         join(childB, childA), join(childA, childB));
   }
 
+  public void testJoinKeepsSharedSlots() {
+    FlowScope child = localEntry.createChildFlowScope();
+    child.inferSlotType("localA", NUMBER_TYPE);
+
+    FlowScope childA = child.createChildFlowScope();
+    childA.inferSlotType("localB", STRING_TYPE);
+
+    FlowScope childB = child.createChildFlowScope();
+    childB.inferSlotType("localB", BOOLEAN_TYPE);
+
+    FlowScope joined = join(childA, childB);
+    assertSame(child.getSlot("localA"), joined.getSlot("localA"));
+    assertEquals(createUnionType(STRING_TYPE, BOOLEAN_TYPE),
+        joined.getSlot("localB").getType());
+    assertEquals("localB",
+        joined.findUniqueRefinedSlot(child).getName());
+  }
+
   /**
    * Create a long chain of flow scopes where each link in the chain
    * contains one slot.
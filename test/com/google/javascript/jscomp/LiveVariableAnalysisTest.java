@@ -16,6 +16,7 @@
 
 package com.google.javascript.jscomp;
 
+import com.google.common.collect.Lists;
 import com.google.javascript.jscomp.DataFlowAnalysis.FlowState;
 import com.google.javascript.jscomp.Scope.Var;
 import com.google.javascript.rhino.Node;
@@ -23,6 +24,8 @@ import com.google.javascript.rhino.Token;
 
 import junit.framework.TestCase;
 
+import java.util.List;
+
 /**
  * Tests for {@link LiveVariablesAnalysis}. Test cases are snippets of a
  * function and assertions are made at the instruction labeled with {@code X}.
@@ -353,9 +356,39 @@ public class LiveVariableAnalysisTest extends TestCase {
     ControlFlowAnalysis cfa = new ControlFlowAnalysis(compiler, false);
     cfa.process(null, n);
     ControlFlowGraph<Node> cfg = cfa.getCfg();
+    List<FlowState<LiveVariablesAnalysis.LiveVariableLattice>> expected =
+        analyzeWithGenericSolver(
+            new LiveVariablesAnalysis(cfg, scope, compiler));
     LiveVariablesAnalysis analysis =
         new LiveVariablesAnalysis(cfg, scope, compiler);
     analysis.analyze();
+    assertSameStates(expected, cfg);
     return analysis;
   }
+
+  /**
+   * Runs the generic solver on the graph, and returns the states it
+   * annotated the nodes with, by node index.
+   */
+  private static <L extends LatticeElement> List<FlowState<L>>
+      analyzeWithGenericSolver(DataFlowAnalysis<Node, L> analysis) {
+    analysis.setUseBitVectorSolver(false);
+    analysis.analyze();
+    ControlFlowGraph<Node> cfg = analysis.getCfg();
+    List<FlowState<L>> states = Lists.newArrayList();
+    for (int i = 0; i < cfg.getNodeCount(); i++) {
+      FlowState<L> state = cfg.getNodeAt(i).getAnnotation();
+      states.add(state);
+    }
+    return states;
+  }
+
+  private static <L extends LatticeElement> void assertSameStates(
+      List<FlowState<L>> expected, ControlFlowGraph<Node> cfg) {
+    for (int i = 0; i < cfg.getNodeCount(); i++) {
+      FlowState<L> state = cfg.getNodeAt(i).getAnnotation();
+      assertEquals(expected.get(i).getIn(), state.getIn());
+      assertEquals(expected.get(i).getOut(), state.getOut());
+    }
+  }
 }
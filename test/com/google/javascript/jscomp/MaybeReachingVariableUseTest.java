@@ -17,6 +17,7 @@
 package com.google.javascript.jscomp;
 
 import com.google.common.collect.Lists;
+import com.google.javascript.jscomp.DataFlowAnalysis.FlowState;
 import com.google.javascript.jscomp.NodeTraversal.AbstractPostOrderCallback;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
@@ -140,8 +141,12 @@ public class MaybeReachingVariableUseTest extends TestCase {
     ControlFlowAnalysis cfa = new ControlFlowAnalysis(compiler, false);
     cfa.process(null, n);
     ControlFlowGraph<Node> cfg = cfa.getCfg();
+    List<FlowState<MaybeReachingVariableUse.ReachingUses>> expected =
+        analyzeWithGenericSolver(
+            new MaybeReachingVariableUse(cfg, scope, compiler));
     useDef = new MaybeReachingVariableUse(cfg, scope, compiler);
     useDef.analyze();
+    assertSameStates(expected, cfg);
     def = null;
     uses = Lists.newArrayList();
     new NodeTraversal(compiler,new LabelFinder()).traverse(n);
@@ -150,6 +155,32 @@ public class MaybeReachingVariableUseTest extends TestCase {
         uses.isEmpty());
   }
 
+  /**
+   * Runs the generic solver on the graph, and returns the states it
+   * annotated the nodes with, by node index.
+   */
+  private static <L extends LatticeElement> List<FlowState<L>>
+      analyzeWithGenericSolver(DataFlowAnalysis<Node, L> analysis) {
+    analysis.setUseBitVectorSolver(false);
+    analysis.analyze();
+    ControlFlowGraph<Node> cfg = analysis.getCfg();
+    List<FlowState<L>> states = Lists.newArrayList();
+    for (int i = 0; i < cfg.getNodeCount(); i++) {
+      FlowState<L> state = cfg.getNodeAt(i).getAnnotation();
+      states.add(state);
+    }
+    return states;
+  }
+
+  private static <L extends LatticeElement> void assertSameStates(
+      List<FlowState<L>> expected, ControlFlowGraph<Node> cfg) {
+    for (int i = 0; i < cfg.getNodeCount(); i++) {
+      FlowState<L> state = cfg.getNodeAt(i).getAnnotation();
+      assertEquals(expected.get(i).getIn(), state.getIn());
+      assertEquals(expected.get(i).getOut(), state.getOut());
+    }
+  }
+
   /**
    * Finds the D: and U: label and store which node they point to.
    */
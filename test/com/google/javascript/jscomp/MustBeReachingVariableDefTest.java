@@ -16,12 +16,16 @@
 
 package com.google.javascript.jscomp;
 
+import com.google.common.collect.Lists;
+import com.google.javascript.jscomp.DataFlowAnalysis.FlowState;
 import com.google.javascript.jscomp.NodeTraversal.AbstractPostOrderCallback;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
 
 import junit.framework.TestCase;
 
+import java.util.List;
+
 /**
  * Tests for {@link MustBeReachingVariableDef}.
  *
@@ -165,8 +169,12 @@ public class MustBeReachingVariableDefTest extends TestCase {
     ControlFlowAnalysis cfa = new ControlFlowAnalysis(compiler, false);
     cfa.process(null, root);
     ControlFlowGraph<Node> cfg = cfa.getCfg();
+    List<FlowState<MustBeReachingVariableDef.MustDef>> expected =
+        analyzeWithGenericSolver(
+            new MustBeReachingVariableDef(cfg, scope, compiler));
     defUse = new MustBeReachingVariableDef(cfg, scope, compiler);
     defUse.analyze();
+    assertSameStates(expected, cfg);
     def = null;
     use = null;
     new NodeTraversal(compiler,new LabelFinder()).traverse(root);
@@ -174,6 +182,32 @@ public class MustBeReachingVariableDefTest extends TestCase {
     assertNotNull("Code should have an instruction labeled U", use);
   }
 
+  /**
+   * Runs the generic solver on the graph, and returns the states it
+   * annotated the nodes with, by node index.
+   */
+  private static <L extends LatticeElement> List<FlowState<L>>
+      analyzeWithGenericSolver(DataFlowAnalysis<Node, L> analysis) {
+    analysis.setUseBitVectorSolver(false);
+    analysis.analyze();
+    ControlFlowGraph<Node> cfg = analysis.getCfg();
+    List<FlowState<L>> states = Lists.newArrayList();
+    for (int i = 0; i < cfg.getNodeCount(); i++) {
+      FlowState<L> state = cfg.getNodeAt(i).getAnnotation();
+      states.add(state);
+    }
+    return states;
+  }
+
+  private static <L extends LatticeElement> void assertSameStates(
+      List<FlowState<L>> expected, ControlFlowGraph<Node> cfg) {
+    for (int i = 0; i < cfg.getNodeCount(); i++) {
+      FlowState<L> state = cfg.getNodeAt(i).getAnnotation();
+      assertEquals(expected.get(i).getIn(), state.getIn());
+      assertEquals(expected.get(i).getOut(), state.getOut());
+    }
+  }
+
   /**
    * Finds the D: and U: label and store which node they point to.
    */
@@ -17,6 +17,7 @@
 package com.google.javascript.jscomp;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.javascript.jscomp.NodeTraversal.AbstractNodeTypePruningCallback;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
@@ -188,6 +189,50 @@ public class NodeTraversalTest extends TestCase {
     callback.assertEntered();
   }
 
+  public void testReportCodeChangeToEnclosingScope() {
+    Compiler compiler = new Compiler();
+    Node tree = parse(compiler,
+        "var a; function f() { var b; } function g() { var c; }");
+    Node f = tree.getFirstChild().getNext();
+    Node g = f.getNext();
+
+    long stamp = compiler.getChangeStamp();
+    NodeTraversal.traverse(compiler, tree, new ReportChangeOnName("c"));
+    assertTrue(compiler.getChangeStamp() > stamp);
+    assertEquals(Lists.newArrayList(g),
+        compiler.getChangedScopeRoots(tree, stamp));
+
+    stamp = compiler.getChangeStamp();
+    NodeTraversal.traverse(compiler, tree, new ReportChangeOnName("a"));
+    assertEquals(Lists.newArrayList(tree),
+        compiler.getChangedScopeRoots(tree, stamp));
+    assertEquals(Lists.newArrayList(),
+        compiler.getChangedScopeRoots(f, stamp));
+
+    stamp = compiler.getChangeStamp();
+    compiler.reportCodeChange();
+    assertEquals(Lists.newArrayList(f),
+        compiler.getChangedScopeRoots(f, stamp));
+    assertEquals(Lists.newArrayList(tree),
+        compiler.getChangedScopeRoots(tree, stamp));
+  }
+
+  // Helper class that reports a change when it sees a given name
+  private static class ReportChangeOnName
+      extends NodeTraversal.AbstractPostOrderCallback {
+    private final String name;
+
+    ReportChangeOnName(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public void visit(NodeTraversal t, Node n, Node parent) {
+      if (n.getType() == Token.NAME && n.getString().equals(name)) {
+        t.reportCodeChange();
+      }
+    }
+  }
 
   // Helper class used to test getCurrentNode
   private static class ExpectNodeOnEnterScope implements
@@ -17,6 +17,7 @@
 package com.google.javascript.jscomp;
 
 import com.google.common.base.Supplier;
+import com.google.common.collect.Lists;
 import com.google.javascript.jscomp.NodeTraversal.AbstractPostOrderCallback;
 import com.google.javascript.jscomp.ParallelCompilerPass.Result;
 import com.google.javascript.jscomp.ParallelCompilerPass.Task;
@@ -24,6 +25,9 @@ import com.google.javascript.rhino.Node;
 
 import junit.framework.TestCase;
 
+import java.util.List;
+import java.util.concurrent.Callable;
+
 /**
  * Unit tests for {@link ParallelCompilerPass}.
  * 
@@ -62,6 +66,74 @@ public class ParallelCompilerPassTest extends TestCase {
     replace(sb.toString());
   }
 
+  public void testFunctionLocalPasses() {
+    String js =
+        "function f(x) { var y = x; y = 3; return x; }" +
+        "var g = function(a) { if (a) { return 1; } else { return 2; } };" +
+        "label: function h() { while (true) { return 1; } alert(2); }" +
+        "if (f(1)) { alert(function(b) { b = 1; return 1; }); }" +
+        "else { alert(function(c) { c = 1; return 2; }); }" +
+        "alert(function named() { return named; });";
+    String expected = compile(js, 1);
+    assertEquals(expected, compile(js, 4));
+    assertFalse(expected.contains(AstParallelizer.TEMP_NAME));
+    assertTrue(expected.contains("return 1"));
+    assertTrue(expected.contains("return 2"));
+  }
+
+  public void testRunInParallelKeepsOrder() {
+    List<Callable<Integer>> tasks = Lists.newArrayList();
+    for (int i = 0; i < 100; i++) {
+      final int value = i;
+      tasks.add(new Callable<Integer>() {
+        @Override
+        public Integer call() {
+          return value;
+        }
+      });
+    }
+    List<Integer> results = ParallelCompilerPass.runInParallel(tasks, 4);
+    assertEquals(100, results.size());
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i, results.get(i).intValue());
+    }
+  }
+
+  public void testRunInParallelRethrowsFirstFailure() {
+    List<Callable<Integer>> tasks = Lists.newArrayList();
+    for (int i = 0; i < 20; i++) {
+      final int value = i;
+      tasks.add(new Callable<Integer>() {
+        @Override
+        public Integer call() {
+          if (value % 5 == 3) {
+            throw new IllegalStateException("task " + value);
+          }
+          return value;
+        }
+      });
+    }
+    try {
+      ParallelCompilerPass.runInParallel(tasks, 4);
+      fail("Expected an IllegalStateException");
+    } catch (IllegalStateException e) {
+      assertEquals("task 3", e.getMessage());
+    }
+  }
+
+  private String compile(String js, int optimizationThreadCount) {
+    CompilerOptions options = new CompilerOptions();
+    CompilationLevel.SIMPLE_OPTIMIZATIONS.setOptionsForCompilationLevel(
+        options);
+    options.setOptimizationThreadCount(optimizationThreadCount);
+    Compiler compiler = new Compiler();
+    compiler.compile(
+        JSSourceFile.fromCode("externs", "function alert(x) {}"),
+        JSSourceFile.fromCode("input", js), options);
+    assertEquals(0, compiler.getErrorCount());
+    return compiler.toSource();
+  }
+
   private void replace(String input) {
     String replace = input.replaceAll("foo", "bar");
     
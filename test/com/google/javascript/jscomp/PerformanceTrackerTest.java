@@ -0,0 +1,221 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.javascript.jscomp.PerformanceTracker.PassStats;
+import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.Token;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+
+/**
+ * Tests for {@link PerformanceTracker}.
+ *
+ */
+public class PerformanceTrackerTest extends TestCase {
+
+  private static final String CODE =
+      "function f() { var a = 1; var b = 2; return a + b; }" +
+      "function g() { return function() { var c = 3; return c; }; }";
+
+  private Compiler compiler;
+  private Node jsRoot;
+  private Node f;
+  private Node g;
+
+  @Override
+  public void setUp() {
+    compiler = new Compiler();
+    Node script = compiler.parseTestCode(CODE);
+    assertEquals(0, compiler.getErrorCount());
+    jsRoot = new Node(Token.BLOCK, script);
+    f = script.getFirstChild();
+    g = f.getNext();
+  }
+
+  public void testSizeReductions() {
+    PerformanceTracker tracker = createTracker(false, 1);
+    runPass(tracker, "init", null);
+
+    // "var b=2;"
+    runPass(tracker, "f", removeStatement(f, 1));
+    assertEquals(8, (int) tracker.getCodeSizeRecord().get("f"));
+
+    // "var c=3;" in the function inside g.
+    Node inner = NodeUtil.getFunctionBody(g).getFirstChild().getFirstChild();
+    runPass(tracker, "inner", removeStatement(inner, 0));
+    assertEquals(8, (int) tracker.getCodeSizeRecord().get("inner"));
+  }
+
+  public void testUnchangedBodiesAreNotPrintedAgain() {
+    PerformanceTracker tracker = createTracker(false, 1);
+    runPass(tracker, "init", null);
+
+    // Changing f without reporting it goes unnoticed.
+    removeStatement(f, 1);
+    runPass(tracker, "g", removeStatement(g, 0));
+    assertEquals("return function(){var c=3;return c}".length(),
+        (int) tracker.getCodeSizeRecord().get("g"));
+
+    // Until a change is reported without a location.
+    runPass(tracker, "unknown", null);
+    assertEquals(8, (int) tracker.getCodeSizeRecord().get("unknown"));
+  }
+
+  public void testNestedFunctionHeaderChanges() {
+    PerformanceTracker tracker = createTracker(false, 1);
+    runPass(tracker, "init", null);
+
+    // The parameters of the function inside g are printed with the body
+    // of g, but changes to them are reported on the inner function.
+    Node inner = NodeUtil.getFunctionBody(g).getFirstChild().getFirstChild();
+    Node params = inner.getFirstChild().getNext();
+    Node param = Node.newString(Token.NAME, "xyz");
+    params.addChildToBack(param);
+    runPass(tracker, "add", params);
+    runPass(tracker, "rename", renameParam(param, "x"));
+    assertEquals(Integer.valueOf(2),
+        tracker.getCodeSizeRecord().get("rename"));
+  }
+
+  public void testGzipSampling() {
+    PerformanceTracker tracker = createTracker(true, 2);
+    runPass(tracker, "init", null);
+    runPass(tracker, "f", removeStatement(f, 1));
+    runPass(tracker, "g", removeStatement(g, 0));
+
+    assertTrue(tracker.getZippedCodeSizeRecord().get("f") > 0);
+    assertTrue(tracker.getZippedCodeSizeRecord().get("g") > 0);
+  }
+
+  public void testPassStats() throws Exception {
+    PerformanceTracker tracker = createTracker(false, 1);
+    runPass(tracker, "init", null);
+    runPass(tracker, "f", removeStatement(f, 1));
+    runPass(tracker, "f", removeStatement(f, 0));
+    tracker.recordPassStart("check");
+    tracker.recordPassStop("check", 0);
+
+    List<PassStats> stats = tracker.getPassStats();
+    assertEquals(3, stats.size());
+    PassStats init = stats.get(0);
+    assertEquals("init", init.getName());
+    assertEquals(1, init.getRuns());
+    assertEquals(-1, init.getNodesBefore());
+    assertEquals(NodeUtil.countAstSize(jsRoot) + 6, init.getNodesAfter());
+
+    PassStats fStats = stats.get(1);
+    assertEquals("f", fStats.getName());
+    assertEquals(2, fStats.getRuns());
+    assertEquals(init.getNodesAfter(), fStats.getNodesBefore());
+    assertEquals(init.getNodesAfter() - 6, fStats.getNodesAfter());
+    assertEquals(-("var b=2;var a=1;".length()), fStats.getSizeDelta());
+
+    PassStats check = stats.get(2);
+    assertEquals(fStats.getNodesAfter(), check.getNodesBefore());
+    assertEquals(fStats.getNodesAfter(), check.getNodesAfter());
+    assertEquals(0, check.getSizeDelta());
+
+    StringBuilder csv = new StringBuilder();
+    tracker.outputPassStatsAsCsv(csv);
+    String[] lines = csv.toString().split("\n");
+    assertEquals(4, lines.length);
+    assertEquals("name,runs,runtimeMs,compilerThreadCpuTimeMs," +
+        "compilerThreadAllocatedBytes,nodesBefore,nodesAfter,sizeDelta," +
+        "gzippedSizeDelta", lines[0]);
+    assertTrue(lines[2].startsWith("f,2,0,"));
+
+    StringBuilder json = new StringBuilder();
+    tracker.outputPassStatsAsJson(json);
+    assertTrue(json.toString().startsWith("{\"passes\":[\n{\"name\":\"init\","));
+    assertTrue(json.toString().contains(
+        "\"nodesAfter\":" + fStats.getNodesAfter() + ","));
+  }
+
+  public void testZippedSizeDeltaWithoutGzip() {
+    PerformanceTracker tracker = createTracker(false, 1);
+    runPass(tracker, "init", null);
+    runPass(tracker, "f", removeStatement(f, 1));
+
+    PassStats fStats = tracker.getPassStats().get(1);
+    assertEquals(-8, fStats.getSizeDelta());
+    assertEquals(-1, fStats.getZippedSizeDelta());
+
+    tracker = createTracker(true, 1);
+    runPass(tracker, "init", null);
+    runPass(tracker, "f", removeStatement(f, 0));
+    fStats = tracker.getPassStats().get(1);
+    assertTrue(fStats.getZippedSizeDelta() != -1);
+  }
+
+  public void testCsvQuotesPassNames() throws Exception {
+    PerformanceTracker tracker = createTracker(false, 1);
+    tracker.recordPassStart("a,\"b\"");
+    tracker.recordPassStop("a,\"b\"", 0);
+
+    StringBuilder csv = new StringBuilder();
+    tracker.outputPassStatsAsCsv(csv);
+    assertTrue(csv.toString(),
+        csv.toString().split("\n")[1].startsWith("\"a,\"\"b\"\"\",1,"));
+  }
+
+  private PerformanceTracker createTracker(boolean gzip, int interval) {
+    PerformanceTracker tracker =
+        new PerformanceTracker(compiler, jsRoot, gzip, interval);
+    compiler.addChangeHandler(tracker.getCodeChangeHandler());
+    return tracker;
+  }
+
+  /**
+   * Removes the given statement from a function body.
+   * @return A node in the function body.
+   */
+  private Node removeStatement(Node fn, int index) {
+    Node body = NodeUtil.getFunctionBody(fn);
+    Node statement = body.getFirstChild();
+    for (int i = 0; i < index; i++) {
+      statement = statement.getNext();
+    }
+    body.removeChild(statement);
+    return body;
+  }
+
+  /**
+   * Renames a function parameter.
+   * @return The parameter.
+   */
+  private Node renameParam(Node param, String name) {
+    param.setString(name);
+    return param;
+  }
+
+  /**
+   * Runs a pass that changes the code at the given node, or anywhere if the
+   * node is null.
+   */
+  private void runPass(PerformanceTracker tracker, String name, Node change) {
+    tracker.recordPassStart(name);
+    if (change == null) {
+      compiler.reportCodeChange();
+    } else {
+      compiler.reportChangeToEnclosingScope(change);
+    }
+    tracker.recordPassStop(name, 0);
+  }
+}
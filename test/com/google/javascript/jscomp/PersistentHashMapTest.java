@@ -0,0 +1,121 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import junit.framework.TestCase;
+
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests for {@link PersistentHashMap}.
+ *
+ */
+public class PersistentHashMapTest extends TestCase {
+
+  public void testEmpty() {
+    PersistentHashMap<String, String> map = PersistentHashMap.empty();
+    assertEquals(0, map.size());
+    assertNull(map.get("a"));
+    assertTrue(map.keysThatDiffer(map).isEmpty());
+  }
+
+  public void testPlus() {
+    PersistentHashMap<String, String> empty = PersistentHashMap.empty();
+    PersistentHashMap<String, String> a = empty.plus("x", "1");
+    PersistentHashMap<String, String> b = a.plus("y", "2");
+    PersistentHashMap<String, String> c = b.plus("x", "3");
+
+    assertNull(empty.get("x"));
+    assertEquals("1", a.get("x"));
+    assertNull(a.get("y"));
+    assertEquals("1", b.get("x"));
+    assertEquals("2", b.get("y"));
+    assertEquals("3", c.get("x"));
+    assertEquals("2", c.get("y"));
+    assertEquals(2, c.size());
+    assertSame(c, c.plus("x", c.get("x")));
+  }
+
+  public void testCollisions() {
+    // "Aa" and "BB" have the same hash code.
+    assertEquals("Aa".hashCode(), "BB".hashCode());
+    PersistentHashMap<String, String> map = PersistentHashMap.empty();
+    map = map.plus("Aa", "1").plus("BB", "2").plus("C", "3");
+    assertEquals("1", map.get("Aa"));
+    assertEquals("2", map.get("BB"));
+    assertEquals("3", map.get("C"));
+
+    PersistentHashMap<String, String> changed = map.plus("BB", "4");
+    assertEquals("1", changed.get("Aa"));
+    assertEquals("4", changed.get("BB"));
+    assertEquals(3, changed.size());
+    assertEquals(Sets.newHashSet("BB"),
+        Sets.newHashSet(map.keysThatDiffer(changed)));
+    assertEquals(Sets.newHashSet("Aa", "BB", "C"), Sets.newHashSet(
+        map.keysThatDiffer(PersistentHashMap.<String, String>empty())));
+  }
+
+  public void testKeysThatDiffer() {
+    PersistentHashMap<String, String> base = PersistentHashMap.empty();
+    for (int i = 0; i < 1000; i++) {
+      base = base.plus("k" + i, "v" + i);
+    }
+    PersistentHashMap<String, String> a = base.plus("k1", "a").plus("new", "a");
+    PersistentHashMap<String, String> b = base.plus("k2", "b");
+
+    assertTrue(a.keysThatDiffer(a).isEmpty());
+    assertEquals(Sets.newHashSet("k1", "new"),
+        Sets.newHashSet(base.keysThatDiffer(a)));
+    assertEquals(Sets.newHashSet("k1", "k2", "new"),
+        Sets.newHashSet(a.keysThatDiffer(b)));
+    assertEquals(Sets.newHashSet("k1", "k2", "new"),
+        Sets.newHashSet(b.keysThatDiffer(a)));
+  }
+
+  public void testValuesAreComparedByIdentity() {
+    String one = "1";
+    String otherOne = new String(one);
+    PersistentHashMap<String, String> a =
+        PersistentHashMap.<String, String>empty().plus("x", one);
+    PersistentHashMap<String, String> b = a.plus("x", otherOne);
+    assertNotSame(a, b);
+    assertEquals(Sets.newHashSet("x"), Sets.newHashSet(a.keysThatDiffer(b)));
+  }
+
+  public void testAgreesWithHashMap() {
+    Random random = new Random(42);
+    Map<Integer, String> expected = Maps.newHashMap();
+    PersistentHashMap<Integer, String> map = PersistentHashMap.empty();
+    for (int i = 0; i < 5000; i++) {
+      // Use keys with many equal low bits.
+      Integer key = random.nextInt(2000) << 7;
+      String value = "v" + i;
+      expected.put(key, value);
+      map = map.plus(key, value);
+    }
+    assertEquals(expected.size(), map.size());
+    for (Map.Entry<Integer, String> entry : expected.entrySet()) {
+      assertSame(entry.getValue(), map.get(entry.getKey()));
+    }
+    assertEquals(expected.keySet(), Sets.newHashSet(
+        map.keysThatDiffer(PersistentHashMap.<Integer, String>empty())));
+  }
+}
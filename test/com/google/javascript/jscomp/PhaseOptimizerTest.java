@@ -41,7 +41,8 @@ public class PhaseOptimizerTest extends TestCase {
     passesRun.clear();
     compiler = new Compiler();
     compiler.initCompilerOptionsIfTesting();
-    tracker = new PerformanceTracker(new Node(Token.BLOCK), false);
+    tracker = new PerformanceTracker(
+        compiler, new Node(Token.BLOCK), false, 1);
     optimizer = new PhaseOptimizer(compiler, tracker);
   }
 
@@ -78,7 +79,30 @@ public class PhaseOptimizerTest extends TestCase {
     Loop loop = optimizer.addFixedPointLoop();
     addLoopedPass(loop, "x", 3);
     addLoopedPass(loop, "y", 1);
-    assertPasses("x", "y", "x", "y", "x", "y", "x", "y");
+    assertPasses("x", "y", "x", "y", "x", "y", "x");
+  }
+
+  public void testLoopSkipsConvergedPasses() {
+    Loop loop = optimizer.addFixedPointLoop();
+    addLoopedPass(loop, "x", 2);
+    addLoopedPass(loop, "y", 0);
+    addLoopedPass(loop, "z", 0);
+    assertPasses("x", "y", "z", "x", "y", "z", "x");
+  }
+
+  public void testLoopRerunsConvergedPassesAfterChanges() {
+    Loop loop = optimizer.addFixedPointLoop();
+    addLoopedPass(loop, "x", 0);
+    addLoopedPass(loop, "y", 2);
+    assertPasses("x", "y", "x", "y", "x", "y");
+  }
+
+  public void testLoopRunsEveryPassOnEachProcess() {
+    Loop loop = optimizer.addFixedPointLoop();
+    addLoopedPass(loop, "x", 0);
+    addLoopedPass(loop, "y", 0);
+    optimizer.process(null, null);
+    assertPasses("x", "y", "x", "y");
   }
 
   public void testNotInfiniteLoop() {
@@ -105,7 +129,7 @@ public class PhaseOptimizerTest extends TestCase {
     addLoopedPass(loop, "x", 3);
     addLoopedPass(loop, "y", 1);
     addOneTimePass("z");
-    assertPasses("a", "x", "y", "x", "y", "x", "y", "x", "y", "z");
+    assertPasses("a", "x", "y", "x", "y", "x", "y", "x", "z");
   }
 
   public void testSanityCheck() {
@@ -126,7 +150,7 @@ public class PhaseOptimizerTest extends TestCase {
             createPassFactory("d", 1, false),
             createPassFactory("e", 1, true),
             createPassFactory("f", 0, true)));
-    assertPasses("a", "b", "c", "d", "b", "c", "d", "b", "c", "d", "e", "f");
+    assertPasses("a", "b", "c", "d", "b", "c", "d", "b", "c", "e", "f");
   }
 
   public void testConsumption2() {
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.collect.Lists;
+import com.google.javascript.jscomp.NodeTraversal.AbstractPostOrderCallback;
+import com.google.javascript.jscomp.NodeTraversal.ScopedCallback;
+import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.Token;
+
+import junit.framework.TestCase;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for {@link PrecomputedScopeAnalyses}.
+ *
+ */
+public class PrecomputedScopeAnalysesTest extends TestCase {
+
+  private static final String FUNCTIONS =
+      "var a = 1;" +
+      "function f(x) { var y = x; y = 2; return y; }" +
+      "function g(p) {" +
+      "  var q = p + 1; var r = q; alert(r);" +
+      "  return function h(s) { var t = s; t = t + 1; return t; };" +
+      "}" +
+      "(function() { var u = 1; var v = u; u = 3; alert(v); })();";
+
+  public void testAnalyzesEachScopeOnce() {
+    for (int threads : new int[] {1, 4}) {
+      Compiler compiler = new Compiler();
+      Node root = compiler.parseTestCode(FUNCTIONS);
+      CountingAnalyses analyses = new CountingAnalyses(compiler, threads);
+      RecordingCallback cb = new RecordingCallback(analyses);
+      analyses.traverse(root, cb);
+
+      assertEquals(4, analyses.scopes.size());
+      assertEquals(Lists.newArrayList("f", "g", "h", ""), cb.seen);
+      assertEquals(1, cb.globalScopes);
+    }
+  }
+
+  public void testAnalysesSeeTheScopesOfThePass() {
+    Compiler compiler = new Compiler();
+    Node root = compiler.parseTestCode(FUNCTIONS);
+    CountingAnalyses analyses = new CountingAnalyses(compiler, 4);
+    RecordingCallback cb = new RecordingCallback(analyses);
+    analyses.traverse(root, cb);
+
+    assertEquals(analyses.scopes.size(), cb.scopes.size());
+    for (Scope scope : cb.scopes) {
+      assertTrue(analyses.scopes.contains(scope));
+    }
+  }
+
+  public void testDeadAssignmentsElimination() {
+    for (String js : new String[] {FUNCTIONS, createManyFunctions()}) {
+      assertSameOutput(js, new PassFactory() {
+        @Override
+        CompilerPass create(AbstractCompiler compiler, int threads) {
+          return new DeadAssignmentsElimination(compiler, threads);
+        }
+      });
+    }
+  }
+
+  public void testFlowSensitiveInlineVariables() {
+    for (String js : new String[] {FUNCTIONS, createManyFunctions()}) {
+      assertSameOutput(js, new PassFactory() {
+        @Override
+        CompilerPass create(AbstractCompiler compiler, int threads) {
+          return new FlowSensitiveInlineVariables(compiler, threads);
+        }
+      });
+    }
+  }
+
+  public void testCoalesceVariableNames() {
+    for (String js : new String[] {FUNCTIONS, createManyFunctions()}) {
+      assertSameOutput(js, new PassFactory() {
+        @Override
+        CompilerPass create(AbstractCompiler compiler, int threads) {
+          return new CoalesceVariableNames(compiler, false, threads);
+        }
+      });
+    }
+  }
+
+  private void assertSameOutput(String js, PassFactory factory) {
+    String expected = run(js, factory, 1);
+    assertFalse(expected.equals(new Compiler().toSource(
+        new Compiler().parseTestCode(js))));
+    assertEquals(expected, run(js, factory, 4));
+  }
+
+  private String run(String js, PassFactory factory, int threads) {
+    Compiler compiler = new Compiler();
+    Node root = compiler.parseTestCode(js);
+    factory.create(compiler, threads).process(new Node(Token.BLOCK), root);
+    return compiler.toSource(root);
+  }
+
+  private static String createManyFunctions() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 50; i++) {
+      sb.append("function f" + i + "(a, b) {" +
+          "  var x = a; var y = b + x; x = y;" +
+          "  if (a) { y = 3; } var z = y; alert(z); z = 4; return x;" +
+          "}");
+    }
+    return sb.toString();
+  }
+
+  private abstract static class PassFactory {
+    abstract CompilerPass create(AbstractCompiler compiler, int threads);
+  }
+
+  /** Records the scopes it analyzes, and names them by their function. */
+  private static class CountingAnalyses
+      extends PrecomputedScopeAnalyses<String> {
+    final List<Scope> scopes =
+        Collections.synchronizedList(Lists.<Scope>newArrayList());
+
+    CountingAnalyses(AbstractCompiler compiler, int threads) {
+      super(compiler, threads);
+    }
+
+    @Override
+    boolean shouldAnalyze(NodeTraversal t) {
+      return !t.inGlobalScope();
+    }
+
+    @Override
+    String analyze(Scope scope) {
+      scopes.add(scope);
+      return scope.getRootNode().getFirstChild().getString();
+    }
+  }
+
+  /** Records the analysis of each scope it enters. */
+  private static class RecordingCallback extends AbstractPostOrderCallback
+      implements ScopedCallback {
+    final PrecomputedScopeAnalyses<String> analyses;
+    final List<String> seen = Lists.newArrayList();
+    final List<Scope> scopes = Lists.newArrayList();
+    int globalScopes = 0;
+
+    RecordingCallback(PrecomputedScopeAnalyses<String> analyses) {
+      this.analyses = analyses;
+    }
+
+    @Override
+    public void enterScope(NodeTraversal t) {
+      String analysis = analyses.get(t);
+      if (analysis == null) {
+        globalScopes++;
+      } else {
+        seen.add(analysis);
+        scopes.add(t.getScope());
+      }
+    }
+
+    @Override
+    public void exitScope(NodeTraversal t) {}
+
+    @Override
+    public void visit(NodeTraversal t, Node n, Node parent) {}
+  }
+}
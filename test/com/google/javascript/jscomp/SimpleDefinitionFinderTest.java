@@ -256,6 +256,86 @@ public class SimpleDefinitionFinderTest extends CompilerTestCase {
         ImmutableSet.of("DEF NAME a -> NUMBER"));
   }
 
+  public void testUpdateChangedScript() {
+    Compiler compiler = createCompiler(
+        "function f() {} f();", "function g() {} g(); f();");
+    Node root = compiler.getRoot().getLastChild();
+    SimpleDefinitionFinder finder = new SimpleDefinitionFinder(compiler);
+    finder.process(compiler.getRoot().getFirstChild(), root);
+    assertEquals(2, countUseSites(finder, "f"));
+
+    // g(); f(); becomes g(); g();
+    Node call = root.getLastChild().getLastChild().getFirstChild();
+    call.getFirstChild().setString("g");
+    compiler.reportChangeToEnclosingScope(call);
+
+    finder.update();
+    assertEquals(1, countUseSites(finder, "f"));
+    assertEquals(2, countUseSites(finder, "g"));
+    assertSameSites(compiler, finder);
+  }
+
+  public void testUpdateNewlyDefinedName() {
+    Compiler compiler = createCompiler(
+        "function f() {} h();", "function g() {}");
+    Node root = compiler.getRoot().getLastChild();
+    SimpleDefinitionFinder finder = new SimpleDefinitionFinder(compiler);
+    finder.process(compiler.getRoot().getFirstChild(), root);
+
+    // function g() {} becomes function h() {}, which makes the call
+    // in the other script a use site.
+    Node fn = root.getLastChild().getFirstChild();
+    fn.getFirstChild().setString("h");
+    compiler.reportChangeToEnclosingScope(fn.getParent());
+
+    finder.update();
+    assertEquals(1, countUseSites(finder, "h"));
+    assertSameSites(compiler, finder);
+  }
+
+  private Compiler createCompiler(String... inputs) {
+    JSSourceFile[] sources = new JSSourceFile[inputs.length];
+    for (int i = 0; i < inputs.length; i++) {
+      sources[i] = JSSourceFile.fromCode("input" + i, inputs[i]);
+    }
+    Compiler compiler = new Compiler();
+    compiler.init(new JSSourceFile[] {}, sources, new CompilerOptions());
+    compiler.parseInputs();
+    assertFalse(compiler.hasErrors());
+    return compiler;
+  }
+
+  private int countUseSites(SimpleDefinitionFinder finder, String name) {
+    int count = 0;
+    for (DefinitionSite defSite : finder.getDefinitionSites()) {
+      if (name.equals(defSite.node.getQualifiedName())) {
+        count += finder.getUseSites(defSite.definition).size();
+      }
+    }
+    return count;
+  }
+
+  private void assertSameSites(
+      Compiler compiler, SimpleDefinitionFinder finder) {
+    SimpleDefinitionFinder expected = new SimpleDefinitionFinder(compiler);
+    expected.process(
+        compiler.getRoot().getFirstChild(), compiler.getRoot().getLastChild());
+    assertEquals(describeSites(expected), describeSites(finder));
+  }
+
+  private Multiset<String> describeSites(SimpleDefinitionFinder finder) {
+    Multiset<String> sites = TreeMultiset.create();
+    for (DefinitionSite defSite : finder.getDefinitionSites()) {
+      sites.add("DEF " + defSite.node.getQualifiedName());
+      for (UseSite useSite : finder.getUseSites(defSite.definition)) {
+        sites.add("USE " + useSite.node.getQualifiedName() + " @" +
+            useSite.node.getLineno() + ":" + useSite.node.getCharno() +
+            " " + useSite.node.getProp(Node.SOURCENAME_PROP));
+      }
+    }
+    return sites;
+  }
+
   void checkDefinitionsInExterns(String externs, Set<String> expected) {
     checkDefinitions(externs, "", expected);
   }
@@ -153,6 +153,30 @@ public class SourceMapTest extends TestCase {
     assertEquals(files1, files2);
   }
 
+  public void testParallelPrinting() throws Exception {
+    JSSourceFile[] inputs = new JSSourceFile[10];
+    for (int i = 0; i < inputs.length; i++) {
+      inputs[i] = JSSourceFile.fromCode("file" + i,
+          (i % 2 == 0 ? "/** @license input " + i + " */\n" : "") +
+          "function f" + i + "(a) {\n  return a + " + i + ";\n}\n" +
+          "var x" + i + " = f" + i + "('" + i + "');");
+    }
+
+    for (boolean prettyPrint : new boolean[] {false, true}) {
+      Compiler sequential = compileForPrinting(inputs, prettyPrint, 1);
+      Compiler parallel = compileForPrinting(inputs, prettyPrint, 4);
+      assertEquals(sequential.toSource(), parallel.toSource());
+      assertEquals(getSourceMap(sequential), getSourceMap(parallel));
+
+      String[] sequentialSources = sequential.toSourceArray();
+      String[] parallelSources = parallel.toSourceArray();
+      assertEquals(inputs.length, parallelSources.length);
+      for (int i = 0; i < inputs.length; i++) {
+        assertEquals(sequentialSources[i], parallelSources[i]);
+      }
+    }
+  }
+
   /**
    * Creates a source map for the given JS code and asserts it is
    * equal to the expected golden map.
@@ -168,6 +192,26 @@ public class SourceMapTest extends TestCase {
     return sb.toString();
   }
 
+  private String getSourceMap(Compiler compiler) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    compiler.getSourceMap().appendTo(sb, "testMap");
+    compiler.getSourceMap().reset();
+    return sb.toString();
+  }
+
+  private Compiler compileForPrinting(JSSourceFile[] inputs,
+      boolean prettyPrint, int printThreadCount) {
+    Compiler compiler = new Compiler();
+    CompilerOptions options = new CompilerOptions();
+    options.sourceMapOutputPath = "testcode_source_map.out";
+    options.ideMode = true;
+    options.prettyPrint = prettyPrint;
+    options.printInputDelimiter = prettyPrint;
+    options.setPrintThreadCount(printThreadCount);
+    assertTrue(compiler.compile(EXTERNS, inputs, options).success);
+    return compiler;
+  }
+
   private void checkSourceMap(String fileName, String js, String expectedMap)
       throws IOException {
     RunResult result = compile(js, fileName);
@@ -3935,6 +3935,21 @@ public class TypeCheckTest extends CompilerTypeTestCase {
         "Property alert never defined on this");
   }
 
+  public void testLoopPropertyCheckOnThis() throws Exception {
+    // The loop must not settle before this.options is inferred to be
+    // unknown, or the property check below it would warn a second time.
+    testTypes(
+        "/** @constructor */ function Diff() {}" +
+        "var lineDiff = new Diff();" +
+        "lineDiff.tokenize = function(value) {" +
+        "  for (var i = 0; i < 3; i++) {" +
+        "    if (!this.options.newlineIsToken) value = 2;" +
+        "  }" +
+        "  return value;" +
+        "};",
+        "Property options never defined on this");
+  }
+
   public void testGlobalThis6() throws Exception {
     testTypes(
         "/** @param {string} msg */ " +
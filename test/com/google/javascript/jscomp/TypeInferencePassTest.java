@@ -0,0 +1,131 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.collect.Lists;
+import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.jstype.JSType;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+
+/**
+ * Tests for {@link TypeInferencePass}.
+ *
+ */
+public class TypeInferencePassTest extends TestCase {
+
+  private static final String EXTERNS =
+      "/** @param {string} s */ function alert(s) {}";
+
+  public void testIsIndependent() {
+    assertIndependent("function f(a) { var b = a + 1; b++; return b; }");
+    assertIndependent("function f(a) { for (var k in a) { alert(k); } }");
+    assertIndependent("function f() { var o = {x: 1}; return o.x; }");
+    assertIndependent("function f(a) { try {} catch (e) { e = a; } }");
+
+    assertNotIndependent("function f() { x = 1; }");
+    assertNotIndependent("function f(a) { a.x = 1; }");
+    assertNotIndependent("function f(a) { a[0]++; }");
+    assertNotIndependent("function f(a) { for (x in a) {} }");
+    assertNotIndependent("function f(a) { a.x; }");
+    assertNotIndependent("function f(a) { return a.prototype; }");
+    assertNotIndependent("function f(a) { return a.call(null); }");
+    assertNotIndependent("function f() { return function() {}; }");
+    assertNotIndependent("function f(a) { return /** @type {?} */ (a); }");
+  }
+
+  public void testSameResultsWithMoreThreads() {
+    StringBuilder sb = new StringBuilder(
+        "/** @constructor */ function Foo() { this.n = 0; }\n" +
+        "/** @type {string} */ Foo.prototype.s = '';\n" +
+        "var count = 0;\n");
+    for (int i = 0; i < 30; i++) {
+      // Independent functions, with and without type errors.
+      sb.append(
+          "/** @param {Foo} foo\n @return {number} */\n" +
+          "function get" + i + "(foo) {\n" +
+          "  var x = foo.s; var y = {a: x, b: foo.n};\n" +
+          "  if (foo.n > 3) { x = y.b; }\n" +
+          "  alert(x); return x;\n" +
+          "}\n");
+      // Functions that are not.
+      sb.append(
+          "/** @param {Foo} foo */\n" +
+          "function set" + i + "(foo) {\n" +
+          "  foo.n = 'x'; count++;\n" +
+          "  foo.s = function() { return foo.n; };\n" +
+          "}\n");
+    }
+
+    Compiler expected = compile(sb.toString(), 1);
+    Compiler actual = compile(sb.toString(), 4);
+    assertTrue(expected.getWarningCount() > 0);
+    assertEquals(describe(expected.getWarnings()),
+        describe(actual.getWarnings()));
+    assertEquals(describe(expected.getErrors()),
+        describe(actual.getErrors()));
+    assertEquals(getTypes(expected.getRoot()), getTypes(actual.getRoot()));
+  }
+
+  private void assertIndependent(String js) {
+    assertTrue(TypeInferencePass.isIndependent(parseFunction(js)));
+  }
+
+  private void assertNotIndependent(String js) {
+    assertFalse(TypeInferencePass.isIndependent(parseFunction(js)));
+  }
+
+  private Node parseFunction(String js) {
+    return new Compiler().parseTestCode(js).getFirstChild();
+  }
+
+  private Compiler compile(String js, int threads) {
+    CompilerOptions options = new CompilerOptions();
+    options.checkTypes = true;
+    options.setTypeInferenceThreadCount(threads);
+    Compiler compiler = new Compiler();
+    compiler.compile(JSSourceFile.fromCode("externs", EXTERNS),
+        JSSourceFile.fromCode("input", js), options);
+    return compiler;
+  }
+
+  private static List<String> describe(JSError[] errors) {
+    List<String> descriptions = Lists.newArrayList();
+    for (JSError error : errors) {
+      descriptions.add(error.lineNumber + ": " + error.description);
+    }
+    return descriptions;
+  }
+
+  /** Lists the type of each node of the tree, in pre-order. */
+  private static List<String> getTypes(Node root) {
+    List<String> types = Lists.newArrayList();
+    collectTypes(root, types);
+    return types;
+  }
+
+  private static void collectTypes(Node n, List<String> types) {
+    JSType type = n.getJSType();
+    types.add(type == null ? "null" : type.toString());
+    for (Node child = n.getFirstChild(); child != null;
+         child = child.getNext()) {
+      collectTypes(child, types);
+    }
+  }
+}
@@ -52,6 +52,9 @@ import java.util.Map;
  */
 public class TypeInferenceTest extends TestCase {
 
+  // The number of locals for tests of functions with many locals.
+  private static final int MANY_SLOTS = 251;
+
   private Compiler compiler;
   private JSTypeRegistry registry;
   private Map<String,JSType> assumptions;
@@ -650,19 +653,19 @@ public class TypeInferenceTest extends TestCase {
   }
 
   public void testFlattening() {
-    for (int i = 0; i < LinkedFlowScope.MAX_DEPTH + 1; i++) {
+    for (int i = 0; i < MANY_SLOTS; i++) {
       assuming("s" + i, ALL_TYPE);
     }
     assuming("b", JSTypeNative.BOOLEAN_TYPE);
     StringBuilder body = new StringBuilder();
     body.append("if (b) {");
-    for (int i = 0; i < LinkedFlowScope.MAX_DEPTH + 1; i++) {
+    for (int i = 0; i < MANY_SLOTS; i++) {
       body.append("s");
       body.append(i);
       body.append(" = 1;\n");
     }
     body.append(" } else { ");
-    for (int i = 0; i < LinkedFlowScope.MAX_DEPTH + 1; i++) {
+    for (int i = 0; i < MANY_SLOTS; i++) {
       body.append("s");
       body.append(i);
       body.append(" = 'ONE';\n");
@@ -671,7 +674,7 @@ public class TypeInferenceTest extends TestCase {
     JSType numberORString = createUnionType(NUMBER_TYPE, STRING_TYPE);
     inFunction(body.toString());
 
-    for (int i = 0; i < LinkedFlowScope.MAX_DEPTH + 1; i++) {
+    for (int i = 0; i < MANY_SLOTS; i++) {
       verify("s" + i, numberORString);
     }
   }
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.deps;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import com.google.javascript.jscomp.ErrorManager;
+import com.google.javascript.jscomp.PrintStreamErrorManager;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for {@link DependencyScanner}.
+ *
+ */
+public class DependencyScannerTest extends TestCase {
+
+  private File directory;
+  private ErrorManager errorManager;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    directory = File.createTempFile("depscanner", "");
+    directory.delete();
+    directory.mkdir();
+    errorManager = new PrintStreamErrorManager(System.err);
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    for (File f : directory.listFiles()) {
+      f.delete();
+    }
+    directory.delete();
+    super.tearDown();
+  }
+
+  public void testScan() throws Exception {
+    Map<String, String> files = Maps.newLinkedHashMap();
+    for (int i = 0; i < 20; i++) {
+      files.put(write("f" + i + ".js",
+          "goog.provide('a" + i + "');\n" +
+          "goog.require('b" + i + "');\n" +
+          "var x = 1;\n" +
+          "goog.require('late" + i + "');\n"),
+          "closure/f" + i + ".js");
+    }
+
+    DependencyScanner scanner = new DependencyScanner(errorManager, 4);
+    List<DependencyInfo> infos = scanner.scan(files);
+    assertEquals(20, infos.size());
+    int i = 0;
+    for (Map.Entry<String, String> file : files.entrySet()) {
+      assertEquals(new SimpleDependencyInfo(file.getValue(), file.getKey(),
+          ImmutableList.of("a" + i), ImmutableList.of("b" + i, "late" + i)),
+          infos.get(i));
+      i++;
+    }
+
+    scanner.setShortcutMode(true);
+    String path = files.keySet().iterator().next();
+    assertEquals(ImmutableList.of("b0"), ImmutableList.copyOf(
+        scanner.scan(Collections.singletonMap(path, "f0.js"))
+        .get(0).getRequires()));
+    assertEquals(0, errorManager.getErrorCount());
+  }
+
+  public void testIndex() throws Exception {
+    File index = new File(directory, "deps.index");
+    String path = write("a.js", "goog.provide('a');");
+    Map<String, String> files = Collections.singletonMap(path, "a.js");
+
+    DependencyScanner scanner = new DependencyScanner(errorManager, 1);
+    scanner.setIndexFile(index);
+    assertEquals(ImmutableList.of("a"),
+        ImmutableList.copyOf(scanner.scan(files).get(0).getProvides()));
+    assertTrue(index.isFile());
+
+    // A file with the same size and time is not read again, even by
+    // another scanner.
+    long lastModified = new File(path).lastModified();
+    write("a.js", "goog.provide('b');");
+    new File(path).setLastModified(lastModified);
+    scanner = new DependencyScanner(errorManager, 1);
+    scanner.setIndexFile(index);
+    assertEquals(ImmutableList.of("a"),
+        ImmutableList.copyOf(scanner.scan(files).get(0).getProvides()));
+
+    // Otherwise it is.
+    write("a.js", "goog.provide('cc');");
+    assertEquals(ImmutableList.of("cc"),
+        ImmutableList.copyOf(scanner.scan(files).get(0).getProvides()));
+
+    // A corrupt index is ignored.
+    Files.write("garbage", index, Charsets.UTF_8);
+    scanner = new DependencyScanner(errorManager, 1);
+    scanner.setIndexFile(index);
+    assertEquals(ImmutableList.of("cc"),
+        ImmutableList.copyOf(scanner.scan(files).get(0).getProvides()));
+    assertEquals(0, errorManager.getErrorCount());
+  }
+
+  public void testErrorsAreReportedEveryTime() throws Exception {
+    File index = new File(directory, "deps.index");
+    String path = write("bad.js", "goog.provide(a);");
+    Map<String, String> files = Collections.singletonMap(path, "bad.js");
+    for (int i = 0; i < 2; i++) {
+      errorManager = new PrintStreamErrorManager(System.err);
+      DependencyScanner scanner = new DependencyScanner(errorManager, 2);
+      scanner.setIndexFile(index);
+      scanner.scan(files);
+      assertEquals(1, errorManager.getErrorCount());
+    }
+  }
+
+  public void testMissingFile() {
+    DependencyScanner scanner = new DependencyScanner(errorManager, 2);
+    try {
+      scanner.scan(Collections.singletonMap(
+          new File(directory, "missing.js").getPath(), "missing.js"));
+      fail("Expected an IOException");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  private String write(String name, String contents) throws IOException {
+    File file = new File(directory, name);
+    Files.write(contents, file, Charsets.UTF_8);
+    return file.getPath();
+  }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.deps;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.javascript.jscomp.deps.SortedDependencies.CircularDependencyException;
+
+import junit.framework.TestCase;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link IncrementalSortedDependencies}.
+ *
+ */
+public class IncrementalSortedDependenciesTest extends TestCase {
+
+  public void testChanges() throws Exception {
+    SimpleDependencyInfo a = info("a", provides("a"), requires("b", "c"));
+    SimpleDependencyInfo b = info("b", provides("b"), requires("d"));
+    SimpleDependencyInfo c = info("c", provides("c"), requires("d"));
+    SimpleDependencyInfo d = info("d", provides("d"), requires());
+    SimpleDependencyInfo e = info("e", provides("e"), requires("d"));
+
+    IncrementalSortedDependencies<SimpleDependencyInfo> sorted =
+        new IncrementalSortedDependencies<SimpleDependencyInfo>(
+            Lists.newArrayList(a, b, c, d));
+    assertEquals(ImmutableList.of(d, b, c, a), sorted.getSortedList());
+
+    sorted.add(e);
+    assertEquals(ImmutableList.of(d, b, c, a, e), sorted.getSortedList());
+    assertEquals(ImmutableList.of(d, e),
+        sorted.getSortedDependenciesOf(ImmutableList.of(e)));
+
+    SimpleDependencyInfo newB = info("b", provides("b"), requires("e"));
+    sorted.update(b, newB);
+    assertEquals(ImmutableList.of(d, c, e, newB, a), sorted.getSortedList());
+
+    sorted.remove(a);
+    assertEquals(ImmutableList.of(d, c, e, newB), sorted.getSortedList());
+    assertEquals(ImmutableList.of(d, e, newB),
+        sorted.getSortedDependenciesOf(ImmutableList.of(newB)));
+
+    sorted.update(d, info("d", provides("d"), requires("b")));
+    try {
+      sorted.getSortedList();
+      fail("Expected an exception");
+    } catch (CircularDependencyException expected) {}
+
+    try {
+      sorted.getSortedDependenciesOf(ImmutableList.of(a));
+      fail("Expected an exception");
+    } catch (IllegalArgumentException expected) {}
+  }
+
+  public void testSelfRequire() throws Exception {
+    IncrementalSortedDependencies<SimpleDependencyInfo> sorted =
+        new IncrementalSortedDependencies<SimpleDependencyInfo>(
+            Lists.<SimpleDependencyInfo>newArrayList());
+    assertTrue(sorted.getSortedList().isEmpty());
+    sorted.add(info("a", provides("a"), requires("a")));
+    try {
+      sorted.getSortedList();
+      fail("Expected an exception");
+    } catch (CircularDependencyException e) {
+      assertEquals("a -> a", e.getMessage());
+    }
+  }
+
+  public void testAgreesWithSortedDependencies() throws Exception {
+    Random random = new Random(42);
+    List<SimpleDependencyInfo> inputs = Lists.newArrayList();
+    IncrementalSortedDependencies<SimpleDependencyInfo> sorted =
+        new IncrementalSortedDependencies<SimpleDependencyInfo>(inputs);
+    for (int i = 0; i < 500; i++) {
+      // Inputs only require symbols with smaller numbers, so there are no
+      // cycles, and several inputs may provide the same symbol.
+      int symbol = random.nextInt(40);
+      List<String> requires = requires();
+      for (int j = random.nextInt(3); j > 0 && symbol > 0; j--) {
+        requires.add("s" + random.nextInt(symbol));
+      }
+      SimpleDependencyInfo input = info(
+          "input" + i, provides("s" + symbol), requires);
+
+      int change = inputs.isEmpty() ? 0 : random.nextInt(3);
+      if (change == 0) {
+        inputs.add(input);
+        sorted.add(input);
+      } else if (change == 1) {
+        SimpleDependencyInfo removed =
+            inputs.remove(random.nextInt(inputs.size()));
+        sorted.remove(removed);
+      } else {
+        int index = random.nextInt(inputs.size());
+        SimpleDependencyInfo old = inputs.get(index);
+        if (random.nextBoolean()) {
+          // Same dependencies, new name.
+          input = info("input" + i, Lists.newArrayList(old.getProvides()),
+              Lists.newArrayList(old.getRequires()));
+        }
+        inputs.set(index, input);
+        sorted.update(old, input);
+      }
+
+      SortedDependencies<SimpleDependencyInfo> expected =
+          new SortedDependencies<SimpleDependencyInfo>(inputs);
+      assertEquals(expected.getSortedList(), sorted.getSortedList());
+      if (!inputs.isEmpty()) {
+        List<SimpleDependencyInfo> roots = ImmutableList.of(
+            inputs.get(random.nextInt(inputs.size())));
+        assertEquals(expected.getSortedDependenciesOf(roots),
+            sorted.getSortedDependenciesOf(roots));
+      }
+      assertEquals(expected.getInputsWithoutProvides(),
+          sorted.getInputsWithoutProvides());
+    }
+  }
+
+  public void testDependenciesOfChangedInputsAreSortedAlone()
+      throws Exception {
+    List<CountingDependencyInfo> inputs = Lists.newArrayList();
+    for (int i = 0; i < 100; i++) {
+      inputs.add(new CountingDependencyInfo("s" + i,
+          i == 0 ? requires() : requires("s" + (i - 1))));
+    }
+    IncrementalSortedDependencies<CountingDependencyInfo> sorted =
+        new IncrementalSortedDependencies<CountingDependencyInfo>(inputs);
+    assertEquals(inputs, sorted.getSortedList());
+
+    // A change that moves inputs in the sorted list does not make the
+    // dependencies of another input look at the whole list.
+    CountingDependencyInfo newInput =
+        new CountingDependencyInfo("s50", requires());
+    sorted.update(inputs.get(50), newInput);
+    inputs.set(50, newInput);
+    for (CountingDependencyInfo input : inputs) {
+      input.requiresReads = 0;
+    }
+    assertEquals(inputs.subList(50, 53),
+        sorted.getSortedDependenciesOf(ImmutableList.of(inputs.get(52))));
+    int reads = 0;
+    for (CountingDependencyInfo input : inputs) {
+      reads += input.requiresReads;
+    }
+    assertEquals(6, reads);
+  }
+
+  public void testDependenciesOfInputOutsideCycle() throws Exception {
+    SimpleDependencyInfo a = info("a", provides("a"), requires("b"));
+    SimpleDependencyInfo b = info("b", provides("b"), requires("a"));
+    SimpleDependencyInfo c = info("c", provides("c"), requires());
+    IncrementalSortedDependencies<SimpleDependencyInfo> sorted =
+        new IncrementalSortedDependencies<SimpleDependencyInfo>(
+            Lists.newArrayList(a, b, c));
+    assertEquals(ImmutableList.of(c),
+        sorted.getSortedDependenciesOf(ImmutableList.of(c)));
+    try {
+      sorted.getSortedDependenciesOf(ImmutableList.of(a));
+      fail("Expected an exception");
+    } catch (CircularDependencyException expected) {}
+  }
+
+  /** Counts how often its requires are read. */
+  private static class CountingDependencyInfo extends SimpleDependencyInfo {
+    int requiresReads = 0;
+
+    CountingDependencyInfo(String name, List<String> requires) {
+      super(name, name, Lists.newArrayList(name), requires);
+    }
+
+    @Override
+    public Collection<String> getRequires() {
+      requiresReads++;
+      return super.getRequires();
+    }
+  }
+
+  private SimpleDependencyInfo info(
+      String name, List<String> provides, List<String> requires) {
+    return new SimpleDependencyInfo(name, name, provides, requires);
+  }
+
+  private static List<String> requires(String ... strings) {
+    return Lists.newArrayList(strings);
+  }
+
+  private List<String> provides(String ... strings) {
+    return Lists.newArrayList(strings);
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.graph;
+
+import com.google.common.collect.Lists;
+import com.google.javascript.jscomp.graph.DiGraph.DiGraphEdge;
+import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+
+/**
+ * Tests for {@link IndexedDirectedGraph}.
+ *
+ */
+public class IndexedDirectedGraphTest extends TestCase {
+
+  private IndexedDirectedGraph<String, String> graph;
+
+  @Override
+  public void setUp() {
+    graph = IndexedDirectedGraph.create();
+    graph.createNode("a");
+    graph.createNode("b");
+    graph.createNode("c");
+    graph.createNode("d");
+  }
+
+  public void testIndices() {
+    assertEquals(4, graph.getNodeCount());
+    assertEquals(0, graph.getIndex(graph.getDirectedGraphNode("a")));
+    assertEquals(3, graph.getIndex(graph.getDirectedGraphNode("d")));
+    assertEquals("c", graph.getNodeAt(2).getValue());
+
+    // Creating a node again returns the one there is.
+    assertSame(graph.getNodeAt(1), graph.createDirectedGraphNode("b"));
+    assertEquals(4, graph.getNodeCount());
+
+    try {
+      graph.getIndex(
+          LinkedDirectedGraph.<String, String>create()
+              .createDirectedGraphNode("a"));
+      fail("Expected an exception");
+    } catch (IllegalArgumentException expected) {}
+  }
+
+  public void testEdgesInOrder() {
+    graph.connect("a", "1", "c");
+    graph.connect("a", "2", "b");
+    graph.connect("b", "3", "c");
+    graph.connect("a", "4", "d");
+
+    assertEquals(3, graph.getOutDegree(0));
+    assertEquals(2, graph.getSuccessor(0, 0));
+    assertEquals(1, graph.getSuccessor(0, 1));
+    assertEquals(3, graph.getSuccessor(0, 2));
+    assertEquals(2, graph.getInDegree(2));
+    assertEquals(0, graph.getPredecessor(2, 0));
+    assertEquals(1, graph.getPredecessor(2, 1));
+    assertEquals(0, graph.getInDegree(0));
+
+    assertEquals(Lists.newArrayList("1", "2", "4"),
+        edgeValues(graph.getOutEdges("a")));
+    assertEquals(Lists.newArrayList("c", "b", "d"),
+        nodeValues(graph.getDirectedSuccNodes("a")));
+    assertEquals(Lists.newArrayList("a", "b"),
+        nodeValues(graph.getDirectedPredNodes("c")));
+    assertEquals(4, graph.getEdges().size());
+    assertEquals(3, graph.getNodeDegree("a"));
+
+    // Edge objects stay the same between queries.
+    assertSame(graph.getOutEdges("a").get(0), graph.getInEdges("c").get(0));
+  }
+
+  public void testChangesAfterQueries() {
+    graph.connect("a", "1", "b");
+    graph.connect("a", "2", "c");
+    assertEquals(2, graph.getOutDegree(0));
+
+    graph.connect("b", "3", "c");
+    assertEquals(2, graph.getInDegree(2));
+
+    graph.disconnectInDirection("a", "c");
+    assertFalse(graph.isConnectedInDirection("a", "c"));
+    assertTrue(graph.isConnectedInDirection("a", "1", "b"));
+    assertFalse(graph.isConnectedInDirection("a", "2", "b"));
+    assertEquals(1, graph.getOutDegree(0));
+    assertEquals(1, graph.getInDegree(2));
+    assertEquals(1, graph.getPredecessor(2, 0));
+    assertEquals(2, graph.getEdges().size());
+
+    graph.connect("c", "4", "a");
+    graph.disconnect("a", "c");
+    assertEquals(0, graph.getInDegree(0));
+    assertFalse(graph.isConnected("a", "c"));
+  }
+
+  public void testMoveEdge() {
+    graph.connect("a", "1", "b");
+    graph.connect("a", "2", "c");
+    DiGraphEdge<String, String> edge = graph.getOutEdges("a").get(0);
+
+    edge.setSource(graph.getDirectedGraphNode("d"));
+    assertEquals(Lists.newArrayList("2"), edgeValues(graph.getOutEdges("a")));
+    assertEquals(Lists.newArrayList("1"), edgeValues(graph.getOutEdges("d")));
+    assertTrue(graph.isConnectedInDirection("d", "b"));
+
+    edge.setDestination(graph.getDirectedGraphNode("a"));
+    assertEquals("d", edge.getSource().getValue());
+    assertEquals("a", edge.getDestination().getValue());
+    assertEquals(0, graph.getInDegree(1));
+    assertEquals(3, graph.getPredecessor(0, 0));
+  }
+
+  private static List<String> edgeValues(
+      List<DiGraphEdge<String, String>> edges) {
+    List<String> values = Lists.newArrayList();
+    for (DiGraphEdge<String, String> edge : edges) {
+      values.add(edge.getValue());
+    }
+    return values;
+  }
+
+  private static List<String> nodeValues(
+      List<DiGraphNode<String, String>> nodes) {
+    List<String> values = Lists.newArrayList();
+    for (DiGraphNode<String, String> node : nodes) {
+      values.add(node.getValue());
+    }
+    return values;
+  }
+}
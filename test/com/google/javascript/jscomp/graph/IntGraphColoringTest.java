@@ -0,0 +1,114 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.graph;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link BitSetUndirectedGraph} and {@link IntGraphColoring}.
+ *
+ */
+public class IntGraphColoringTest extends TestCase {
+
+  public void testGraph() {
+    BitSetUndirectedGraph graph = new BitSetUndirectedGraph(70);
+    assertTrue(graph.connect(0, 65));
+    assertFalse(graph.connect(65, 0));
+    assertTrue(graph.connect(0, 3));
+    assertTrue(graph.isConnected(65, 0));
+    assertFalse(graph.isConnected(0, 1));
+    assertEquals(2, graph.getDegree(0));
+    assertEquals(1, graph.getDegree(65));
+
+    assertEquals(3, graph.getNextNeighbor(0, 0));
+    assertEquals(65, graph.getNextNeighbor(0, 4));
+    assertEquals(-1, graph.getNextNeighbor(0, 66));
+    assertEquals(-1, graph.getNextNeighbor(0, 70));
+
+    try {
+      graph.connect(1, 1);
+      fail("Expected an exception");
+    } catch (IllegalArgumentException expected) {}
+  }
+
+  public void testNoEdge() {
+    BitSetUndirectedGraph graph = new BitSetUndirectedGraph(5);
+    IntGraphColoring coloring = new IntGraphColoring(graph);
+    assertEquals(1, coloring.color());
+    for (int i = 0; i < 5; i++) {
+      assertEquals(0, coloring.getColor(i));
+    }
+  }
+
+  public void testGreedy() {
+    // The same graph as GraphColoringTest#testGreedy, with A to D as 0 to 3.
+    BitSetUndirectedGraph graph = new BitSetUndirectedGraph(4);
+    graph.connect(0, 2);
+    graph.connect(1, 2);
+    graph.connect(1, 3);
+    IntGraphColoring coloring = new IntGraphColoring(graph);
+    assertEquals(2, coloring.color());
+    validateColoring(coloring);
+
+    // The nodes of degree 2 come first, in index order.
+    assertEquals(0, coloring.getColor(1));
+    assertEquals(1, coloring.getColor(2));
+    assertEquals(0, coloring.getColor(0));
+    assertEquals(1, coloring.getColor(3));
+  }
+
+  public void testFullyConnected() {
+    final int count = 100;
+    BitSetUndirectedGraph graph = new BitSetUndirectedGraph(count);
+    for (int i = 0; i < count; i++) {
+      for (int j = 0; j < i; j++) {
+        graph.connect(i, j);
+      }
+    }
+    IntGraphColoring coloring = new IntGraphColoring(graph);
+    assertEquals(count, coloring.color());
+    validateColoring(coloring);
+    for (int i = 0; i < count; i++) {
+      assertEquals(i, coloring.getColor(i));
+    }
+  }
+
+  public void testAllConnectedToOneNode() {
+    final int count = 100;
+    BitSetUndirectedGraph graph = new BitSetUndirectedGraph(count);
+    for (int i = 1; i < count; i++) {
+      graph.connect(0, i);
+    }
+    IntGraphColoring coloring = new IntGraphColoring(graph);
+    assertEquals(2, coloring.color());
+    validateColoring(coloring);
+    assertEquals(0, coloring.getColor(0));
+    for (int i = 1; i < count; i++) {
+      assertEquals(1, coloring.getColor(i));
+    }
+  }
+
+  private static void validateColoring(IntGraphColoring coloring) {
+    BitSetUndirectedGraph graph = coloring.getGraph();
+    for (int i = 0; i < graph.getNodeCount(); i++) {
+      for (int n = graph.getNextNeighbor(i, 0); n != -1;
+           n = graph.getNextNeighbor(i, n + 1)) {
+        assertTrue(coloring.getColor(i) != coloring.getColor(n));
+      }
+    }
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2010 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.graph;
+
+import com.google.common.collect.Lists;
+
+import junit.framework.TestCase;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Tests for {@link IntGraphReachability} and
+ * {@link IntFixedPointGraphTraversal}.
+ *
+ */
+public class IntGraphReachabilityTest extends TestCase {
+
+  private IndexedDirectedGraph<String, String> graph;
+
+  @Override
+  public void setUp() {
+    // A -> B -> C -> B, D -> A.
+    graph = IndexedDirectedGraph.create();
+    graph.createNode("A");
+    graph.createNode("B");
+    graph.createNode("C");
+    graph.createNode("D");
+    graph.connect("A", "ab", "B");
+    graph.connect("B", "bc", "C");
+    graph.connect("C", "cb", "B");
+    graph.connect("D", "da", "A");
+  }
+
+  public void testReachability() {
+    assertEquals(bits(0, 1, 2),
+        IntGraphReachability.computeReachable(graph, bits(0)));
+    assertEquals(bits(1, 2),
+        IntGraphReachability.computeReachable(graph, bits(2)));
+    assertEquals(bits(0, 1, 2, 3),
+        IntGraphReachability.computeReachable(graph, bits(2, 3)));
+    assertEquals(bits(),
+        IntGraphReachability.computeReachable(graph, bits()));
+  }
+
+  public void testFixedPoint() {
+    // Counts the paths from D, up to a limit.
+    final int[] counts = new int[graph.getNodeCount()];
+    final List<String> traversed = Lists.newArrayList();
+    counts[3] = 1;
+    new IntFixedPointGraphTraversal(
+        new IntFixedPointGraphTraversal.EdgeCallback() {
+          @Override
+          public boolean traverseEdge(int source, int edge, int destination) {
+            traversed.add(graph.getEdgeValue(edge));
+            if (counts[destination] < 3) {
+              counts[destination]++;
+              return true;
+            }
+            return false;
+          }
+        }).computeFixedPoint(graph, 3);
+
+    assertEquals(1, counts[0]);
+    assertEquals(3, counts[1]);
+    assertEquals(3, counts[2]);
+    assertEquals(
+        Lists.newArrayList("da", "ab", "bc", "cb", "bc", "cb", "bc", "cb"),
+        traversed);
+  }
+
+  public void testNonHalting() {
+    try {
+      new IntFixedPointGraphTraversal(
+          new IntFixedPointGraphTraversal.EdgeCallback() {
+            @Override
+            public boolean traverseEdge(
+                int source, int edge, int destination) {
+              return true;
+            }
+          }).computeFixedPoint(graph);
+      fail("Expected an exception");
+    } catch (IllegalStateException e) {
+      assertEquals(FixedPointGraphTraversal.NON_HALTING_ERROR_MSG,
+          e.getMessage());
+    }
+  }
+
+  private static BitSet bits(int... indices) {
+    BitSet bits = new BitSet();
+    for (int i : indices) {
+      bits.set(i);
+    }
+    return bits;
+  }
+}
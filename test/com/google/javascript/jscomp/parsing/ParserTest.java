@@ -728,6 +728,32 @@ public class ParserTest extends BaseJSTypeTestCase {
         var.getJSDocInfo().getBlockDescription());
   }
 
+  public void testTreesParsedWithOneConfigShareStrings() throws IOException {
+    String code = "/** @param {Foo} x */ function f(x) { g('s'); }";
+    Config config = ParserRunner.createConfig(true);
+    Node first = ParserRunner.parse("a", new String(code), config,
+        new TestErrorReporter(null, null), Logger.getAnonymousLogger());
+    Node second = ParserRunner.parse("b", new String(code), config,
+        new TestErrorReporter(null, null), Logger.getAnonymousLogger());
+
+    Node firstFn = first.getFirstChild();
+    Node secondFn = second.getFirstChild();
+    assertSame(firstFn.getFirstChild().getString(),
+        secondFn.getFirstChild().getString());
+
+    Node firstString = firstFn.getLastChild().getFirstChild().getFirstChild()
+        .getLastChild();
+    Node secondString = secondFn.getLastChild().getFirstChild()
+        .getFirstChild().getLastChild();
+    assertEquals("s", firstString.getString());
+    assertSame(firstString.getString(), secondString.getString());
+
+    JSDocInfo firstInfo = firstFn.getJSDocInfo();
+    JSDocInfo secondInfo = secondFn.getJSDocInfo();
+    assertSame(firstInfo.getParameterNames().iterator().next(),
+        secondInfo.getParameterNames().iterator().next());
+  }
+
   private void parseError(String string, String... errors) {
     TestErrorReporter testErrorReporter = new TestErrorReporter(errors, null);
     Node script = null;
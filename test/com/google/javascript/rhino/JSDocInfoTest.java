@@ -420,6 +420,21 @@ public class JSDocInfoTest extends TestCase {
     assertEquals(Sets.newHashSet("bob", "sam"), info.getSuppressions());
   }
 
+  public void testIsEquivalentToIgnoresDescriptions() {
+    JSDocInfo a = new JSDocInfo(true);
+    a.setDeprecated(true);
+    a.setDescription("a");
+    a.setDeprecationReason("a");
+    a.setLicense("a");
+    JSDocInfo b = new JSDocInfo(true);
+    b.setDeprecated(true);
+    b.setDescription("b");
+    assertTrue(a.isEquivalentTo(b));
+
+    b.setType(fromString("string"));
+    assertFalse(a.isEquivalentTo(b));
+  }
+
   /** Gets the type expression for a simple type name. */
   private JSTypeExpression fromString(String s) {
     return new JSTypeExpression(Node.newString(s), "");
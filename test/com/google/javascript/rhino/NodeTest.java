@@ -45,6 +45,11 @@ import com.google.javascript.rhino.testing.TestErrorReporter;
 
 import junit.framework.TestCase;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 public class NodeTest extends TestCase {
   public void testMergeExtractNormal() throws Exception {
     testMergeExtract(5, 6);
@@ -227,17 +232,17 @@ public class NodeTest extends TestCase {
 
     n.putBooleanProp(Node.IS_CONSTANT_NAME, false);
 
-    assertNull(n.lookupProperty(Node.IS_CONSTANT_NAME));
+    assertFalse(n.hasProp(Node.IS_CONSTANT_NAME));
     assertFalse(n.getBooleanProp(Node.IS_CONSTANT_NAME));
 
     n.putBooleanProp(Node.IS_CONSTANT_NAME, true);
 
-    assertNotNull(n.lookupProperty(Node.IS_CONSTANT_NAME));
+    assertTrue(n.hasProp(Node.IS_CONSTANT_NAME));
     assertTrue(n.getBooleanProp(Node.IS_CONSTANT_NAME));
 
     n.putBooleanProp(Node.IS_CONSTANT_NAME, false);
 
-    assertNull(n.lookupProperty(Node.IS_CONSTANT_NAME));
+    assertFalse(n.hasProp(Node.IS_CONSTANT_NAME));
     assertFalse(n.getBooleanProp(Node.IS_CONSTANT_NAME));
   }
 
@@ -261,6 +266,158 @@ public class NodeTest extends TestCase {
     assertTrue(nodeClone.getBooleanProp(Node.IS_DISPATCHER));
   }
 
+  public void testIntAndObjectProps() {
+    Node n = getNode("a");
+    n.putIntProp(Node.INCRDECR_PROP, 2);
+    n.putBooleanProp(Node.QUOTED_PROP, true);
+    n.putProp(Node.ORIGINALNAME_PROP, "b");
+    assertEquals(2, n.getIntProp(Node.INCRDECR_PROP));
+    assertNull(n.getProp(Node.INCRDECR_PROP));
+    assertEquals(1, n.getIntProp(Node.QUOTED_PROP));
+    assertNull(n.getProp(Node.QUOTED_PROP));
+    assertEquals("b", n.getProp(Node.ORIGINALNAME_PROP));
+    assertEquals(0, n.getIntProp(Node.ORIGINALNAME_PROP));
+
+    n.putIntProp(Node.ORIGINALNAME_PROP, 1);
+    assertNull(n.getProp(Node.ORIGINALNAME_PROP));
+    assertTrue(n.getBooleanProp(Node.ORIGINALNAME_PROP));
+    n.putProp(Node.QUOTED_PROP, "c");
+    assertEquals("c", n.getProp(Node.QUOTED_PROP));
+    assertFalse(n.getBooleanProp(Node.QUOTED_PROP));
+
+    n.removeProp(Node.INCRDECR_PROP);
+    n.removeProp(Node.ORIGINALNAME_PROP);
+    assertFalse(n.hasProp(Node.INCRDECR_PROP));
+    assertFalse(n.hasProp(Node.ORIGINALNAME_PROP));
+    assertTrue(n.hasProp(Node.QUOTED_PROP));
+  }
+
+  public void testManyProps() {
+    Node n = getNode("a");
+    for (int i = Node.LAST_PROP; i >= Node.LOCAL_BLOCK_PROP; i--) {
+      n.putIntProp(i, i % 3);
+    }
+    n.setType(Token.ERROR);
+    for (int i = Node.LOCAL_BLOCK_PROP; i <= Node.LAST_PROP; i++) {
+      assertEquals(i % 3 != 0, n.hasProp(i));
+      assertEquals(i % 3, n.getIntProp(i));
+    }
+    assertEquals(Token.ERROR, n.getType());
+
+    Node clone = n.cloneNode();
+    for (int i = Node.LOCAL_BLOCK_PROP; i <= Node.LAST_PROP; i++) {
+      n.removeProp(i);
+    }
+    n.putBooleanProp(Node.IS_NAMESPACE, true);
+    assertTrue(n.getBooleanProp(Node.IS_NAMESPACE));
+    assertFalse(n.hasProp(Node.QUOTED_PROP));
+    assertEquals(Token.ERROR, n.getType());
+    for (int i = Node.LOCAL_BLOCK_PROP; i <= Node.LAST_PROP; i++) {
+      assertEquals(i % 3, clone.getIntProp(i));
+    }
+    assertEquals(Token.ERROR, clone.getType());
+  }
+
+  public void testClonesDoNotShareProps() {
+    Node n = getNode("a");
+    n.putProp(Node.ORIGINALNAME_PROP, "b");
+    n.putIntProp(Node.INCRDECR_PROP, 2);
+
+    Node nodeClone = n.cloneNode();
+    nodeClone.putProp(Node.ORIGINALNAME_PROP, "c");
+    nodeClone.putProp(Node.SOURCENAME_PROP, "d");
+    n.removeProp(Node.INCRDECR_PROP);
+
+    assertEquals("b", n.getProp(Node.ORIGINALNAME_PROP));
+    assertNull(n.getProp(Node.SOURCENAME_PROP));
+    assertEquals("c", nodeClone.getProp(Node.ORIGINALNAME_PROP));
+    assertEquals("d", nodeClone.getProp(Node.SOURCENAME_PROP));
+    assertEquals(2, nodeClone.getIntProp(Node.INCRDECR_PROP));
+  }
+
+  public void testSerialization() throws Exception {
+    Node n = parse("var a = {'b': 1}; a.b++;");
+    n.getFirstChild().putBooleanProp(Node.IS_CONSTANT_NAME, true);
+    n.putProp(Node.SOURCENAME_PROP, "testcode");
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(n);
+    out.close();
+    Node copy = (Node) new ObjectInputStream(
+        new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+    assertNull(n.checkTreeEquals(copy));
+    assertEquals(n.toStringTree(), copy.toStringTree());
+    assertEquals("testcode", copy.getProp(Node.SOURCENAME_PROP));
+    assertTrue(copy.getFirstChild().getBooleanProp(Node.IS_CONSTANT_NAME));
+  }
+
+  public void testStaticSourceFile() {
+    StaticSourceFile file = new StaticSourceFile() {
+      @Override
+      public String getName() {
+        return "a.js";
+      }
+    };
+    Node n = getNode("b");
+    assertNull(n.getSourceFileName());
+    n.setStaticSourceFile(file);
+    assertSame(file, n.getStaticSourceFile());
+    assertEquals("a.js", n.getSourceFileName());
+    assertSame(file, n.cloneNode().getStaticSourceFile());
+
+    Node other = Node.newString("c");
+    other.copyInformationFrom(n);
+    assertSame(file, other.getStaticSourceFile());
+  }
+
+  public void testSerializationKeepsSourceFileName() throws Exception {
+    Node n = getNode("b");
+    n.setStaticSourceFile(new StaticSourceFile() {
+      @Override
+      public String getName() {
+        return "a.js";
+      }
+    });
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(n);
+    out.close();
+    Node copy = (Node) new ObjectInputStream(
+        new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+    assertEquals("a.js", copy.getSourceFileName());
+    assertNull(copy.getProp(Node.SOURCEFILE_PROP));
+  }
+
+  public void testSerializationSharesSourceFiles() throws Exception {
+    StaticSourceFile file = new StaticSourceFile() {
+      @Override
+      public String getName() {
+        return "a.js";
+      }
+    };
+    Node n = parse("var a = 1; var b = 2;");
+    n.setStaticSourceFile(file);
+    n.getFirstChild().setStaticSourceFile(file);
+    n.getLastChild().getFirstChild().setStaticSourceFile(file);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(n);
+    out.close();
+    Node copy = (Node) new ObjectInputStream(
+        new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+    StaticSourceFile copyFile = copy.getStaticSourceFile();
+    assertEquals("a.js", copyFile.getName());
+    assertSame(copyFile, copy.getFirstChild().getStaticSourceFile());
+    assertSame(copyFile,
+        copy.getLastChild().getFirstChild().getStaticSourceFile());
+  }
+
   private static Node getNode(String js) {
     Node root = parse("var a=(" + js + ");");
     Node expr = root.getFirstChild();
@@ -211,6 +211,71 @@ public class JSTypeRegistryTest extends TestCase {
     assertTrue(type instanceof AllType);
   }
 
+  public void testTypeQueryCache() {
+    JSTypeRegistry registry = new JSTypeRegistry(null);
+    JSType number = registry.getNativeType(JSTypeNative.NUMBER_TYPE);
+    JSType union = registry.createUnionType(
+        number, registry.getNativeType(JSTypeNative.STRING_TYPE));
+
+    assertTrue(number.isSubtype(union));
+    assertEquals(0, registry.getTypeQueryCacheHitCount());
+    assertEquals(1, registry.getTypeQueryCacheMissCount());
+    assertTrue(number.isSubtype(union));
+    assertEquals(1, registry.getTypeQueryCacheHitCount());
+    assertEquals(1, registry.getTypeQueryCacheMissCount());
+
+    JSType leastSupertype = number.getLeastSupertype(union);
+    JSType greatestSubtype = number.getGreatestSubtype(union);
+    long misses = registry.getTypeQueryCacheMissCount();
+    assertSame(leastSupertype, number.getLeastSupertype(union));
+    assertSame(greatestSubtype, number.getGreatestSubtype(union));
+    assertEquals(misses, registry.getTypeQueryCacheMissCount());
+
+    registry.incrementGeneration();
+    assertTrue(number.isSubtype(union));
+    assertEquals(misses + 1, registry.getTypeQueryCacheMissCount());
+  }
+
+  public void testDefiningPropertiesUpdatesRecordQueries() {
+    JSTypeRegistry registry = new JSTypeRegistry(null);
+    JSType number = registry.getNativeType(JSTypeNative.NUMBER_TYPE);
+    JSType union = registry.createUnionType(
+        number, registry.getNativeType(JSTypeNative.STRING_TYPE));
+    RecordTypeBuilder builder = new RecordTypeBuilder(registry);
+    builder.addProperty("a", number);
+    JSType record = builder.build();
+    JSType nullableRecord = registry.createNullableType(record);
+    ObjectType object = registry.createAnonymousObjectType();
+
+    assertTrue(number.isSubtype(union));
+    assertFalse(object.isSubtype(record));
+    assertFalse(object.isSubtype(nullableRecord));
+
+    object.defineDeclaredProperty("a", number, false);
+    assertTrue(object.isSubtype(record));
+    assertTrue(object.isSubtype(nullableRecord));
+
+    // Queries that do not look at properties are still cached.
+    long hits = registry.getTypeQueryCacheHitCount();
+    assertTrue(number.isSubtype(union));
+    assertEquals(hits + 1, registry.getTypeQueryCacheHitCount());
+  }
+
+  public void testUnionTypesAreShared() {
+    JSTypeRegistry registry = new JSTypeRegistry(null);
+    JSType number = registry.getNativeType(JSTypeNative.NUMBER_TYPE);
+    JSType string = registry.getNativeType(JSTypeNative.STRING_TYPE);
+    JSType union = registry.createUnionType(number, string);
+
+    assertSame(union, registry.createUnionType(string, number));
+    assertSame(union, registry.createUnionType(
+        JSTypeNative.STRING_TYPE, JSTypeNative.NUMBER_TYPE));
+    assertSame(union, number.getLeastSupertype(string));
+    assertSame(union, registry.createUnionType(union, number));
+    assertNotSame(union, registry.createUnionType(number,
+        registry.getNativeType(JSTypeNative.BOOLEAN_TYPE)));
+  }
+
   private void assertTypeEquals(JSType a, JSType b) {
     Asserts.assertTypeEquals(a, b);
   }
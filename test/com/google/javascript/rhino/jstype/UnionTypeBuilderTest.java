@@ -100,6 +100,20 @@ public class UnionTypeBuilderTest extends BaseJSTypeTestCase {
     assertUnion("(Object|string)", STRING_OBJECT_TYPE, stringAndObject);
   }
 
+  public void testEnumElementsAndValueTypes() {
+    JSType elements =
+        registry.createEnumType("Enum", NUMBER_TYPE).getElementsType();
+    assertUnion("number", elements, NUMBER_TYPE);
+    assertUnion("number", NUMBER_TYPE, elements);
+    assertUnion("(Enum.<number>|string)", elements, STRING_TYPE);
+  }
+
+  public void testFunctionsAndObjects() {
+    assertUnion("Object", U2U_CONSTRUCTOR_TYPE, OBJECT_TYPE);
+    assertUnion("Object", OBJECT_TYPE, U2U_CONSTRUCTOR_TYPE);
+    assertUnion("(Object|null)", NULL_TYPE, U2U_FUNCTION_TYPE, OBJECT_TYPE);
+  }
+
   public void assertUnion(String expected, JSType ... types) {
     UnionTypeBuilder builder = new UnionTypeBuilder(registry);
     for (JSType type : types) {